@@ -0,0 +1,72 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Reproducible inputs shared by benchmarks.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+public class BenchmarkData {
+
+    private static final String[] WORDS = {
+        "public", "private", "static", "final", "class", "return", "if", "else", "for", "while",
+        "new", "null", "true", "false", "int", "long", "String", "void", "throws", "SVNException",
+        "path", "revision", "node", "entry", "file", "directory", "=", "==", "(", ")", "{", "}", ";",
+    };
+
+    public static byte[] createText(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuffer text = new StringBuffer(length + 16);
+        while (text.length() < length) {
+            int words = 1 + random.nextInt(12);
+            for (int i = 0; i < words; i++) {
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+                text.append(' ');
+            }
+            text.append('\n');
+        }
+        text.setLength(length);
+        return getBytes(text.toString());
+    }
+
+    /**
+     * Returns a copy of <code>data</code> with <code>editsCount</code> random
+     * short insertions, deletions and replacements.
+     */
+    public static byte[] edit(byte[] data, int editsCount, long seed) {
+        Random random = new Random(seed);
+        byte[] result = data;
+        for (int i = 0; i < editsCount; i++) {
+            int position = random.nextInt(result.length);
+            int removed = Math.min(result.length - position, random.nextInt(16));
+            byte[] inserted = createText(random.nextInt(16), random.nextLong());
+            byte[] edited = new byte[result.length - removed + inserted.length];
+            System.arraycopy(result, 0, edited, 0, position);
+            System.arraycopy(inserted, 0, edited, position, inserted.length);
+            System.arraycopy(result, position + removed, edited, position + inserted.length, result.length - position - removed);
+            result = edited;
+        }
+        return result;
+    }
+
+    public static byte[] getBytes(String text) {
+        try {
+            return text.getBytes("UTF-8");
+        } catch (java.io.UnsupportedEncodingException e) {
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.io.fs.FSRepositoryFactory;
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
+import org.tmatesoft.svn.core.io.ISVNEditor;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.io.diff.SVNDeltaGenerator;
+
+/**
+ * Generated FSFS repository with <code>dirs</code> directories of
+ * <code>files</code> text files each. The first revision adds all files,
+ * every next revision edits one file in each directory.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+public class BenchmarkRepository {
+
+    private final File myDirectory;
+    private final SVNURL myURL;
+    private final int myDirectoriesCount;
+    private final int myFilesCount;
+
+    private BenchmarkRepository(File directory, SVNURL url, int dirs, int files) {
+        myDirectory = directory;
+        myURL = url;
+        myDirectoriesCount = dirs;
+        myFilesCount = files;
+    }
+
+    public static BenchmarkRepository create(int dirs, int files, int fileSize, int revisions) throws SVNException, IOException {
+        FSRepositoryFactory.setup();
+        File directory = createTempDirectory("repository");
+        SVNURL url = SVNRepositoryFactory.createLocalRepository(directory, true, true);
+        BenchmarkRepository repository = new BenchmarkRepository(directory, url, dirs, files);
+
+        SVNRepository svnRepository = SVNRepositoryFactory.create(url);
+        try {
+            SVNDeltaGenerator generator = new SVNDeltaGenerator();
+            ISVNEditor editor = svnRepository.getCommitEditor("initial import", null);
+            editor.openRoot(-1);
+            for (int d = 0; d < dirs; d++) {
+                String dir = getDirectoryPath(d);
+                editor.addDir(dir, null, -1);
+                for (int f = 0; f < files; f++) {
+                    String file = getFilePath(d, f);
+                    editor.addFile(file, null, -1);
+                    editor.applyTextDelta(file, null);
+                    byte[] contents = BenchmarkData.createText(fileSize, d * files + f);
+                    String checksum = generator.sendDelta(file, new ByteArrayInputStream(contents), editor, true);
+                    editor.closeFile(file, checksum);
+                }
+                editor.closeDir();
+            }
+            editor.closeDir();
+            editor.closeEdit();
+
+            for (int r = 2; r <= revisions; r++) {
+                long revision = r - 1;
+                editor = svnRepository.getCommitEditor("revision " + r, null);
+                editor.openRoot(-1);
+                for (int d = 0; d < dirs; d++) {
+                    String dir = getDirectoryPath(d);
+                    String file = getFilePath(d, r % files);
+                    editor.openDir(dir, revision);
+                    editor.openFile(file, revision);
+                    editor.applyTextDelta(file, null);
+                    byte[] contents = BenchmarkData.edit(BenchmarkData.createText(fileSize, d * files + r % files), r, r);
+                    String checksum = generator.sendDelta(file, new ByteArrayInputStream(contents), editor, true);
+                    editor.closeFile(file, checksum);
+                    editor.closeDir();
+                }
+                editor.closeDir();
+                editor.closeEdit();
+            }
+        } finally {
+            svnRepository.closeSession();
+        }
+        return repository;
+    }
+
+    public static File createTempDirectory(String name) throws IOException {
+        File directory = File.createTempFile("svnkit-benchmark-" + name, "");
+        directory.delete();
+        directory.mkdirs();
+        return directory;
+    }
+
+    public static String getDirectoryPath(int dir) {
+        return "directory" + dir;
+    }
+
+    public static String getFilePath(int dir, int file) {
+        return getDirectoryPath(dir) + "/file" + file + ".txt";
+    }
+
+    public File getDirectory() {
+        return myDirectory;
+    }
+
+    public SVNURL getURL() {
+        return myURL;
+    }
+
+    public int getDirectoriesCount() {
+        return myDirectoriesCount;
+    }
+
+    public int getFilesCount() {
+        return myFilesCount;
+    }
+
+    public void dispose() {
+        SVNFileUtil.deleteAll(myDirectory, true);
+    }
+}
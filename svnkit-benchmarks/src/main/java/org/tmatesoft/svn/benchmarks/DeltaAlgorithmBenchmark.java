@@ -0,0 +1,76 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tmatesoft.svn.core.internal.delta.SVNDeltaAlgorithm;
+import org.tmatesoft.svn.core.internal.delta.SVNXDeltaAlgorithm;
+import org.tmatesoft.svn.core.internal.delta.SVNXDeltaFastAlgorithm;
+
+/**
+ * Compares delta algorithms on a single 100 KB window, the window size
+ * used by {@link org.tmatesoft.svn.core.io.diff.SVNDeltaGenerator}.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeltaAlgorithmBenchmark {
+
+    @Param({"xdelta", "fast-xdelta"})
+    public String algorithm;
+
+    @Param({"similar", "edited", "unrelated"})
+    public String contents;
+
+    private SVNDeltaAlgorithm myAlgorithm;
+    private byte[] mySource;
+    private byte[] myTarget;
+
+    @Setup
+    public void setUp() {
+        myAlgorithm = "xdelta".equals(algorithm) ? (SVNDeltaAlgorithm) new SVNXDeltaAlgorithm() : new SVNXDeltaFastAlgorithm();
+        mySource = BenchmarkData.createText(100 * 1024, 1);
+        if ("similar".equals(contents)) {
+            myTarget = BenchmarkData.edit(mySource, 16, 2);
+        } else if ("edited".equals(contents)) {
+            myTarget = BenchmarkData.edit(mySource, 2048, 3);
+        } else {
+            myTarget = BenchmarkData.createText(mySource.length, 4);
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer computeDelta() {
+        myAlgorithm.reset();
+        myAlgorithm.computeDelta(mySource, mySource.length, myTarget, myTarget.length);
+        return myAlgorithm.getData();
+    }
+}
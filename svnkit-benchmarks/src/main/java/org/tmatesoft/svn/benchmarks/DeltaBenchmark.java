@@ -0,0 +1,139 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.internal.delta.SVNDeltaCombiner;
+import org.tmatesoft.svn.core.internal.delta.SVNDeltaComposer;
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
+import org.tmatesoft.svn.core.io.ISVNDeltaConsumer;
+import org.tmatesoft.svn.core.io.diff.SVNDeltaGenerator;
+import org.tmatesoft.svn.core.io.diff.SVNDiffWindow;
+
+/**
+ * Delta generation for a whole file, as done on commit, and combination of
+ * a chain of delta windows into a fulltext, as done on every FSFS read, with
+ * the window combiner and the window composer.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeltaBenchmark {
+
+    @Param({"4096", "262144"})
+    public int size;
+
+    @Param({"8"})
+    public int chainLength;
+
+    private SVNDeltaGenerator myGenerator;
+    private SVNDeltaCombiner myCombiner;
+    private SVNDeltaComposer myComposer;
+    private byte[] myComposedTarget;
+    private byte[] mySource;
+    private byte[] myTarget;
+    private SVNDiffWindow[] myChain;
+
+    @Setup
+    public void setUp() throws SVNException {
+        myGenerator = new SVNDeltaGenerator();
+        myCombiner = new SVNDeltaCombiner();
+        myComposer = new SVNDeltaComposer();
+        mySource = BenchmarkData.createText(size, 1);
+        myTarget = BenchmarkData.edit(mySource, size / 512 + 1, 2);
+
+        // windows are combined from the newest version down to the one deltified against empty contents
+        byte[][] versions = new byte[chainLength][];
+        versions[0] = BenchmarkData.createText(Math.min(size, 100 * 1024), 3);
+        for (int i = 1; i < chainLength; i++) {
+            versions[i] = BenchmarkData.edit(versions[i - 1], 8, i);
+        }
+        myChain = new SVNDiffWindow[chainLength];
+        for (int i = 0; i < chainLength; i++) {
+            byte[] base = i > 0 ? versions[i - 1] : new byte[0];
+            myChain[chainLength - 1 - i] = createWindow(base, versions[i]);
+        }
+        myComposedTarget = new byte[myChain[0].getTargetViewLength()];
+    }
+
+    @Benchmark
+    public String generateDelta() throws SVNException {
+        return myGenerator.sendDelta("file", new ByteArrayInputStream(mySource), 0, new ByteArrayInputStream(myTarget), NullDeltaConsumer.INSTANCE, true);
+    }
+
+    @Benchmark
+    public ByteBuffer combineWindows() throws SVNException {
+        myCombiner.reset();
+        ByteBuffer result = null;
+        for (int i = 0; i < myChain.length && result == null; i++) {
+            result = myCombiner.addWindow(myChain[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public byte[] composeWindows() throws SVNException {
+        myComposer.reset();
+        for (int i = 0; i < myChain.length && !myComposer.addWindow(myChain[i]); i++) {
+        }
+        myComposer.apply(myComposedTarget, 0);
+        return myComposedTarget;
+    }
+
+    private SVNDiffWindow createWindow(byte[] source, byte[] target) throws SVNException {
+        final SVNDiffWindow[] window = new SVNDiffWindow[1];
+        myGenerator.sendDelta("file", source, source.length, 0, target, target.length, new NullDeltaConsumer() {
+            public OutputStream textDeltaChunk(String path, SVNDiffWindow diffWindow) throws SVNException {
+                window[0] = diffWindow.clone(ByteBuffer.allocate(diffWindow.getDataLength()));
+                return SVNFileUtil.DUMMY_OUT;
+            }
+        });
+        return window[0];
+    }
+
+    private static class NullDeltaConsumer implements ISVNDeltaConsumer {
+
+        public static final NullDeltaConsumer INSTANCE = new NullDeltaConsumer();
+
+        public void applyTextDelta(String path, String baseChecksum) throws SVNException {
+        }
+
+        public OutputStream textDeltaChunk(String path, SVNDiffWindow diffWindow) throws SVNException {
+            return SVNFileUtil.DUMMY_OUT;
+        }
+
+        public void textDeltaEnd(String path) throws SVNException {
+        }
+    }
+}
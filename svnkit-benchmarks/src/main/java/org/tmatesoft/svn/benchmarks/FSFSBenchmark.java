@@ -0,0 +1,186 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.benchmarks;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNProperties;
+import org.tmatesoft.svn.core.internal.io.fs.FSFS;
+import org.tmatesoft.svn.core.internal.io.fs.FSID;
+import org.tmatesoft.svn.core.internal.io.fs.FSLog;
+import org.tmatesoft.svn.core.internal.io.fs.FSLogIndex;
+import org.tmatesoft.svn.core.internal.io.fs.FSRevisionNode;
+import org.tmatesoft.svn.core.internal.io.fs.FSRevisionRoot;
+
+/**
+ * Reads of node revisions, directory contents, changed paths and properties
+ * of revisions from a generated FSFS repository, with the shared FSFS caches
+ * enabled (default settings) and disabled, and a log of all its directories
+ * walked on one and on several threads, or read from the log index.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FSFSBenchmark {
+
+    private static final int DIRECTORIES_COUNT = 20;
+    private static final int FILES_COUNT = 50;
+    private static final int REVISIONS_COUNT = 20;
+
+    private BenchmarkRepository myRepository;
+    private FSFS myFSFS;
+    private FSID[] myFileIds;
+    private FSRevisionNode[] myDirectories;
+    private String[] myLogPaths;
+    private int myIndex;
+
+    @Setup
+    public void setUp() throws SVNException, IOException {
+        myRepository = BenchmarkRepository.create(DIRECTORIES_COUNT, FILES_COUNT, 1024, REVISIONS_COUNT);
+        myFSFS = new FSFS(myRepository.getDirectory());
+        myFSFS.open();
+
+        for (long revision = 0; revision <= REVISIONS_COUNT; revision++) {
+            // revision properties files modified just now are not cached.
+            myFSFS.getRevisionPropertiesFile(revision, false).setLastModified(System.currentTimeMillis() - 60 * 1000);
+        }
+
+        FSRevisionRoot root = myFSFS.createRevisionRoot(myFSFS.getYoungestRevision());
+        myFileIds = new FSID[DIRECTORIES_COUNT * FILES_COUNT];
+        myDirectories = new FSRevisionNode[DIRECTORIES_COUNT];
+        myLogPaths = new String[DIRECTORIES_COUNT];
+        for (int d = 0; d < DIRECTORIES_COUNT; d++) {
+            myDirectories[d] = root.getRevisionNode(BenchmarkRepository.getDirectoryPath(d));
+            myLogPaths[d] = "/" + BenchmarkRepository.getDirectoryPath(d);
+            for (int f = 0; f < FILES_COUNT; f++) {
+                myFileIds[d * FILES_COUNT + f] = root.getRevisionNode(BenchmarkRepository.getFilePath(d, f)).getId();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SVNException {
+        myFSFS.close();
+        myRepository.dispose();
+    }
+
+    @Benchmark
+    public FSRevisionNode getRevisionNode() throws SVNException {
+        myIndex = (myIndex + 1) % myFileIds.length;
+        return myFSFS.getRevisionNode(myFileIds[myIndex]);
+    }
+
+    @Benchmark
+    public Map getDirContents() throws SVNException {
+        myIndex = (myIndex + 1) % myDirectories.length;
+        return myFSFS.getDirContents(myDirectories[myIndex]);
+    }
+
+    @Benchmark
+    public Map getChangedPaths() throws SVNException {
+        myIndex = (myIndex + 1) % REVISIONS_COUNT;
+        return myFSFS.createRevisionRoot(myIndex + 1).getChangedPaths();
+    }
+
+    @Benchmark
+    public SVNProperties getRevisionProperties() throws SVNException {
+        myIndex = (myIndex + 1) % REVISIONS_COUNT;
+        return myFSFS.getRevisionProperties(myIndex + 1);
+    }
+
+    @Benchmark
+    public long logDirectories() throws SVNException {
+        return runLog(1);
+    }
+
+    @Benchmark
+    public long logDirectoriesParallel() throws SVNException {
+        return runLog(4);
+    }
+
+    @Benchmark
+    public long logDirectoriesIndexed(IndexedRepository repository) throws SVNException {
+        FSLog log = new FSLog(repository.myFSFS, myLogPaths, 0, 0, repository.myFSFS.getYoungestRevision(), true, false, true, false, null, null);
+        return log.runLog();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Dsvnkit.fsfs.revisionNodesCacheSize=0", "-Dsvnkit.fsfs.dirContentsCacheSize=0"})
+    public FSRevisionNode getRevisionNodeUncached() throws SVNException {
+        return getRevisionNode();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Dsvnkit.fsfs.revisionNodesCacheSize=0", "-Dsvnkit.fsfs.dirContentsCacheSize=0"})
+    public Map getDirContentsUncached() throws SVNException {
+        return getDirContents();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Dsvnkit.fsfs.changedPathsCacheSize=0"})
+    public Map getChangedPathsUncached() throws SVNException {
+        return getChangedPaths();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Dsvnkit.fsfs.revisionPropertiesCacheSize=0"})
+    public SVNProperties getRevisionPropertiesUncached() throws SVNException {
+        return getRevisionProperties();
+    }
+
+    private long runLog(int threadsCount) throws SVNException {
+        FSLog log = new FSLog(myFSFS, myLogPaths, 0, 0, myFSFS.getYoungestRevision(), true, false, true, false, null, null);
+        log.setThreadsCount(threadsCount);
+        return log.runLog();
+    }
+
+    @State(Scope.Thread)
+    public static class IndexedRepository {
+
+        private BenchmarkRepository myRepository;
+        private FSFS myFSFS;
+
+        @Setup
+        public void setUp() throws SVNException, IOException {
+            myRepository = BenchmarkRepository.create(DIRECTORIES_COUNT, FILES_COUNT, 1024, REVISIONS_COUNT);
+            myFSFS = new FSFS(myRepository.getDirectory());
+            myFSFS.open();
+            FSLogIndex.create(myFSFS);
+        }
+
+        @TearDown
+        public void tearDown() throws SVNException {
+            myFSFS.close();
+            myRepository.dispose();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.internal.io.svn.SVNItem;
+import org.tmatesoft.svn.core.internal.io.svn.SVNItemReader;
+import org.tmatesoft.svn.core.internal.io.svn.SVNReader;
+import org.tmatesoft.svn.core.internal.io.svn.SVNTemplate;
+import org.tmatesoft.svn.core.internal.util.SVNSkel;
+
+/**
+ * Parsing of svn protocol responses (a get-dir response), of editor commands
+ * (as sent on update) and of skels (a property list as stored in wc.db).
+ * Protocol data is parsed with both the items tree parser and the streaming
+ * one.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"10", "1000"})
+    public int entries;
+
+    private byte[] myGetDirResponse;
+    private byte[] myPropListSkel;
+    private byte[] myEditCommands;
+    private ByteArrayInputStream myGetDirStream;
+    private ByteArrayInputStream myEditStream;
+    private SVNItemReader myGetDirReader;
+    private SVNItemReader myEditReader;
+
+    @Setup
+    public void setUp() {
+        StringBuffer response = new StringBuffer();
+        response.append("( success ( 12 ( ( 7:svn:eol 6:native ) ) ( ");
+        for (int i = 0; i < entries; i++) {
+            String name = "file" + i + ".txt";
+            response.append("( ").append(name.length()).append(':').append(name);
+            response.append(" file ").append(1000 + i).append(" false ").append(i % 12);
+            response.append(" ( 27:2012-06-01T12:00:00.000000Z ) ( 5:alice ) ) ");
+        }
+        response.append(") ) ) ");
+        myGetDirResponse = BenchmarkData.getBytes(response.toString());
+
+        StringBuffer skel = new StringBuffer("(");
+        for (int i = 0; i < Math.min(entries, 100); i++) {
+            String name = "svn:property" + i;
+            String value = "value of property " + i;
+            skel.append(name.length()).append(' ').append(name).append(' ');
+            skel.append(value.length()).append(' ').append(value).append(' ');
+        }
+        skel.append(')');
+        myPropListSkel = BenchmarkData.getBytes(skel.toString());
+
+        StringBuffer commands = new StringBuffer();
+        for (int i = 0; i < entries; i++) {
+            String path = "trunk/src/file" + i + ".txt";
+            String token = "c" + i;
+            commands.append("( open-file ( ").append(path.length()).append(':').append(path).append(" 2:d1 ");
+            commands.append(token.length()).append(':').append(token).append(" ( ").append(1000 + i).append(" ) ) ) ");
+            commands.append("( change-file-prop ( ").append(token.length()).append(':').append(token);
+            commands.append(" 13:svn:eol-style ( 6:native ) ) ) ");
+            commands.append("( textdelta-chunk ( ").append(token.length()).append(':').append(token).append(" 64:");
+            for (int j = 0; j < 64; j++) {
+                commands.append((char) ('a' + j % 26));
+            }
+            commands.append(" ) ) ( close-file ( ").append(token.length()).append(':').append(token).append(" ( ) ) ) ");
+        }
+        myEditCommands = BenchmarkData.getBytes(commands.toString());
+
+        myGetDirStream = new ByteArrayInputStream(myGetDirResponse);
+        myGetDirReader = new SVNItemReader(myGetDirStream);
+        myEditStream = new ByteArrayInputStream(myEditCommands);
+        myEditReader = new SVNItemReader(myEditStream);
+    }
+
+    @Benchmark
+    public void parseGetDirResponse(Blackhole blackhole) throws SVNException {
+        List values = SVNReader.parse(new ByteArrayInputStream(myGetDirResponse), "rll", null);
+        List dirEntries = (List) values.get(2);
+        for (Iterator items = dirEntries.iterator(); items.hasNext();) {
+            SVNItem item = (SVNItem) items.next();
+            blackhole.consume(SVNReader.parseTuple("swnbr(?s)(?s)", item.getItems(), null));
+        }
+    }
+
+    @Benchmark
+    public void parseGetDirResponseStreaming(Blackhole blackhole) throws SVNException {
+        myGetDirStream.reset();
+        List values = SVNReader.parse(myGetDirReader, SVNTemplate.getTemplate("rll"), null);
+        List dirEntries = (List) values.get(2);
+        for (Iterator items = dirEntries.iterator(); items.hasNext();) {
+            SVNItem item = (SVNItem) items.next();
+            blackhole.consume(SVNReader.parseTuple("swnbr(?s)(?s)", item.getItems(), null));
+        }
+    }
+
+    @Benchmark
+    public void parseEditCommands(Blackhole blackhole) throws SVNException {
+        ByteArrayInputStream stream = new ByteArrayInputStream(myEditCommands);
+        for (int i = 0; i < entries * 4; i++) {
+            List command = SVNReader.readTuple(stream, "wl");
+            String template = getCommandTemplate(SVNReader.getString(command, 0));
+            blackhole.consume(SVNReader.parseTuple(template, (List) command.get(1), null));
+        }
+    }
+
+    @Benchmark
+    public void parseEditCommandsStreaming(Blackhole blackhole) throws SVNException {
+        myEditStream.reset();
+        SVNItemReader reader = myEditReader;
+        List values = new ArrayList();
+        for (int i = 0; i < entries * 4; i++) {
+            reader.next();
+            reader.next();
+            SVNTemplate template = SVNTemplate.getTemplate(getCommandTemplate(reader.getWord()));
+            reader.next();
+            values.clear();
+            blackhole.consume(template.parse(reader, values));
+            reader.skipList();
+        }
+    }
+
+    @Benchmark
+    public Map parsePropListSkel() throws SVNException {
+        return SVNSkel.parse(myPropListSkel).parsePropList();
+    }
+
+    private static String getCommandTemplate(String command) {
+        if ("open-file".equals(command)) {
+            return "sss(?r)";
+        } else if ("close-file".equals(command)) {
+            return "s(?b)";
+        } else if ("textdelta-chunk".equals(command)) {
+            return "sb";
+        }
+        return "ss(?b)";
+    }
+}
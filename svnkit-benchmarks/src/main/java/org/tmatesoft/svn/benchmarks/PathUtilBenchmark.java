@@ -0,0 +1,91 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.tmatesoft.svn.core.internal.util.SVNEncodingUtil;
+import org.tmatesoft.svn.core.internal.util.SVNPathUtil;
+
+/**
+ * Path manipulation and encoding helpers called for every path of every
+ * operation.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathUtilBenchmark {
+
+    private static final String[] PATHS = {
+        "trunk/src/main/java/org/tmatesoft/svn/core/SVNURL.java",
+        "branches/1.7.x/svnkit/src/main/java/org/tmatesoft/svn/core/internal/wc17/db/SVNWCDb.java",
+        "tags/release 1.7.9/README.txt",
+        "trunk/doc/\u0444\u0430\u0439\u043b \u0441 \u043f\u0440\u043e\u0431\u0435\u043b\u0430\u043c\u0438.txt",
+        "trunk//src/./main/",
+    };
+
+    private String[] myPaths;
+    private String[] myEncodedPaths;
+    private int myIndex;
+
+    @Setup
+    public void setUp() {
+        myPaths = PATHS;
+        myEncodedPaths = new String[PATHS.length];
+        for (int i = 0; i < PATHS.length; i++) {
+            myEncodedPaths[i] = SVNEncodingUtil.uriEncode(PATHS[i]);
+        }
+    }
+
+    @Benchmark
+    public void pathUtil(Blackhole blackhole) {
+        String path = nextPath();
+        String canonical = SVNPathUtil.canonicalizePath(path);
+        blackhole.consume(canonical);
+        blackhole.consume(SVNPathUtil.append(canonical, "child.txt"));
+        blackhole.consume(SVNPathUtil.tail(canonical));
+        blackhole.consume(SVNPathUtil.removeTail(canonical));
+        blackhole.consume(SVNPathUtil.getCommonPathAncestor(canonical, myPaths[0]));
+        blackhole.consume(SVNPathUtil.isAncestor("trunk", canonical));
+    }
+
+    @Benchmark
+    public void encodingUtil(Blackhole blackhole) {
+        String path = nextPath();
+        blackhole.consume(SVNEncodingUtil.uriEncode(path));
+        blackhole.consume(SVNEncodingUtil.autoURIEncode(path));
+        blackhole.consume(SVNEncodingUtil.uriDecode(myEncodedPaths[myIndex]));
+        blackhole.consume(SVNEncodingUtil.xmlEncodeCDATA(path));
+    }
+
+    private String nextPath() {
+        myIndex = (myIndex + 1) % myPaths.length;
+        return myPaths[myIndex];
+    }
+}
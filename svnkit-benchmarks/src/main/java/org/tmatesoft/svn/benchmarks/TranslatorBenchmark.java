@@ -0,0 +1,97 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tmatesoft.svn.core.internal.wc.admin.SVNTranslator;
+import org.tmatesoft.svn.core.wc.SVNWCUtil;
+
+/**
+ * EOL and keywords translation of a 64 KB text file, in both directions.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranslatorBenchmark {
+
+    @Param({"eol", "eol-keywords"})
+    public String translation;
+
+    private byte[] myNormalText;
+    private byte[] myEOL;
+    private Map<String, byte[]> myKeywords;
+    private byte[] myBuffer;
+    private ByteArrayOutputStream myOutput;
+
+    @Setup
+    public void setUp() {
+        StringBuffer text = new StringBuffer();
+        text.append("/* $Id$ $Revision$ */\n");
+        text.append(new String(BenchmarkData.createText(64 * 1024, 1)));
+        text.append("\n// $Author$ $Date$\n");
+        myNormalText = BenchmarkData.getBytes(text.toString());
+        myEOL = new byte[] {'\r', '\n'};
+        if ("eol-keywords".equals(translation)) {
+            myKeywords = SVNTranslator.computeKeywords("Id Revision Author Date", "http://localhost/repos/trunk/file.txt",
+                    "alice", "2012-06-01T12:00:00.000000Z", "12", SVNWCUtil.createDefaultOptions(true));
+        } else {
+            myKeywords = Collections.emptyMap();
+        }
+        myBuffer = new byte[8192];
+        myOutput = new ByteArrayOutputStream(myNormalText.length * 2);
+    }
+
+    @Benchmark
+    public int translateInputStream() throws IOException {
+        InputStream in = SVNTranslator.getTranslatingInputStream(new ByteArrayInputStream(myNormalText), null, myEOL, false, myKeywords, true);
+        int total = 0;
+        for (int read = in.read(myBuffer); read >= 0; read = in.read(myBuffer)) {
+            total += read;
+        }
+        in.close();
+        return total;
+    }
+
+    @Benchmark
+    public int translateOutputStream() throws IOException {
+        myOutput.reset();
+        OutputStream out = SVNTranslator.getTranslatingOutputStream(myOutput, null, myEOL, false, myKeywords, true);
+        out.write(myNormalText);
+        out.close();
+        return myOutput.size();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
+import org.tmatesoft.svn.core.internal.wc17.SVNWCContext;
+import org.tmatesoft.svn.core.wc.SVNWCUtil;
+import org.tmatesoft.svn.core.wc2.SvnCheckout;
+import org.tmatesoft.svn.core.wc2.SvnOperationFactory;
+import org.tmatesoft.svn.core.wc2.SvnTarget;
+
+/**
+ * Text modification checks in a checked out working copy. With
+ * <code>touched</code> files timestamps no longer match the recorded ones,
+ * so that contents are compared with the pristine copies.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorkingCopyBenchmark {
+
+    private static final int DIRECTORIES_COUNT = 4;
+    private static final int FILES_COUNT = 50;
+
+    @Param({"unchanged", "touched"})
+    public String files;
+
+    private BenchmarkRepository myRepository;
+    private File myWorkingCopy;
+    private SVNWCContext myContext;
+    private File[] myFiles;
+    private int myIndex;
+
+    @Setup
+    public void setUp() throws SVNException, IOException {
+        myRepository = BenchmarkRepository.create(DIRECTORIES_COUNT, FILES_COUNT, 8 * 1024, 1);
+        myWorkingCopy = BenchmarkRepository.createTempDirectory("wc");
+
+        SvnOperationFactory operationFactory = new SvnOperationFactory();
+        try {
+            SvnCheckout checkout = operationFactory.createCheckout();
+            checkout.setSource(SvnTarget.fromURL(myRepository.getURL()));
+            checkout.setSingleTarget(SvnTarget.fromFile(myWorkingCopy));
+            checkout.run();
+        } finally {
+            operationFactory.dispose();
+        }
+
+        myFiles = new File[DIRECTORIES_COUNT * FILES_COUNT];
+        for (int d = 0; d < DIRECTORIES_COUNT; d++) {
+            for (int f = 0; f < FILES_COUNT; f++) {
+                File file = new File(myWorkingCopy, BenchmarkRepository.getFilePath(d, f)).getAbsoluteFile();
+                if ("touched".equals(files)) {
+                    file.setLastModified(file.lastModified() - 60 * 1000);
+                }
+                myFiles[d * FILES_COUNT + f] = file;
+            }
+        }
+        myContext = new SVNWCContext(SVNWCUtil.createDefaultOptions(true), null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        myContext.close();
+        SVNFileUtil.deleteAll(myWorkingCopy, true);
+        myRepository.dispose();
+    }
+
+    @Benchmark
+    public boolean isTextModified() throws SVNException {
+        myIndex = (myIndex + 1) % myFiles.length;
+        return myContext.isTextModified(myFiles[myIndex], false);
+    }
+}
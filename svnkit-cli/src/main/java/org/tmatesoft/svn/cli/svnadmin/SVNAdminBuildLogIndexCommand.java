@@ -0,0 +1,39 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html.
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.cli.svnadmin;
+
+import java.util.Collection;
+
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.wc.admin.SVNAdminClient;
+
+
+/**
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+public class SVNAdminBuildLogIndexCommand extends SVNAdminCommand {
+
+    public SVNAdminBuildLogIndexCommand() {
+        super("build-log-index", null);
+    }
+    
+    protected Collection createSupportedOptions() {
+        return null;
+    }
+
+    public void run() throws SVNException {
+        SVNAdminClient client = getEnvironment().getClientManager().getAdminClient();
+        client.doBuildLogIndex(getLocalRepository());
+    }
+
+}
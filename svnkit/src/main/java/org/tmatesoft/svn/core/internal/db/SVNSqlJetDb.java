@@ -54,6 +54,7 @@ public class SVNSqlJetDb {
     private EnumMap<SVNWCDbStatements, SVNSqlJetStatement> statements;
 
     private int openCount = 0;
+    private boolean rolledBack;
     private SVNSqlJetDb temporaryDb;
 
     private SVNSqlJetDb(SqlJetDb db) {
@@ -69,6 +70,15 @@ public class SVNSqlJetDb {
         return openCount;
     }
 
+    /**
+     * Tells whether the currently opened transaction has been rolled back, for
+     * instance by a nested {@link #runTransaction(SVNSqlJetTransaction)} that failed.
+     * Changes made after that are not part of the outer transaction.
+     */
+    public boolean isRolledBack() {
+        return openCount > 0 && rolledBack;
+    }
+
     public void close() throws SVNException {
         if (temporaryDb != null) {
             try {
@@ -195,6 +205,9 @@ public class SVNSqlJetDb {
 
     public void beginTransaction(SqlJetTransactionMode mode) throws SVNException {
         if (mode != null) {
+            if (openCount == 0) {
+                rolledBack = false;
+            }
             openCount++;
             if (isLogTransactions()) {
                 logCall("Being transaction request (" + openCount + "): " + mode, 5);
@@ -256,6 +269,7 @@ public class SVNSqlJetDb {
             transaction.transaction(SVNSqlJetDb.this);
         } catch (SqlJetException e) {
             try {
+                rolledBack = true;
                 db.rollback();
             } catch (SqlJetException e1) {
                 e1.initCause(e);
@@ -271,6 +285,7 @@ public class SVNSqlJetDb {
 
     public void rollback() throws SVNException {
         try {
+            rolledBack = true;
             db.rollback();
         } catch (SqlJetException e1) {
             SVNErrorMessage err1 = SVNErrorMessage.create(SVNErrorCode.SQLITE_ERROR, e1);
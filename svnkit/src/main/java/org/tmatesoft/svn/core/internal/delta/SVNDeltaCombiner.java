@@ -48,6 +48,7 @@ public class SVNDeltaCombiner {
     private SVNOffsetsIndex myOffsetsIndex;
     private SVNDiffInstruction[] myWindowInstructions;
     private SVNDiffInstruction myInstructionTemplate;
+    private SVNDeltaComposer myComposer;
     
     public SVNDeltaCombiner() {
         myRangeTree = new SVNRangeTree();
@@ -68,6 +69,16 @@ public class SVNDeltaCombiner {
         myRealTarget = null;
         
         myRangeTree.dispose();
+        if (myComposer != null) {
+            myComposer.reset();
+        }
+    }
+
+    public SVNDeltaComposer getComposer() {
+        if (myComposer == null) {
+            myComposer = new SVNDeltaComposer();
+        }
+        return myComposer;
     }
     
     public SVNDiffWindow readWindow(FSFile file, int version) throws SVNException {
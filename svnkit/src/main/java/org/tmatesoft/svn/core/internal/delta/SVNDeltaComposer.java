@@ -0,0 +1,276 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.core.internal.delta;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNErrorMessage;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.internal.wc.SVNErrorManager;
+import org.tmatesoft.svn.core.io.diff.SVNDiffInstruction;
+import org.tmatesoft.svn.core.io.diff.SVNDiffWindow;
+import org.tmatesoft.svn.util.SVNLogType;
+
+/**
+ * Composes a chain of delta windows (each next window produces the source
+ * view of the previous one) and applies them at once into a caller's buffer.
+ *
+ * <p>
+ * Windows are added starting from the one that produces the requested text,
+ * until a window without copy-from-source instructions completes the chain.
+ * Instructions of every window are kept in primitive arrays indexed by target
+ * offsets, so that ranges of the resulting text are resolved down the chain
+ * directly, without materializing intermediate target views. Pending ranges
+ * are kept on an explicit stack instead of the call stack, so that long chains
+ * of copy-from-target instructions can not overflow it.
+ *
+ * <p>
+ * Buffers are reused between chains, composer is not thread safe.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+public class SVNDeltaComposer {
+
+    private static final int SELF_COPY = -1;
+
+    private SVNWindowIndex[] myWindows;
+    private int myWindowsCount;
+    private int[] myStack;
+    private int myStackSize;
+
+    public SVNDeltaComposer() {
+        myWindows = new SVNWindowIndex[4];
+        myStack = new int[64];
+    }
+
+    public void reset() {
+        myWindowsCount = 0;
+        myStackSize = 0;
+    }
+
+    /**
+     * Adds next window of the chain. Window data is copied, so the window
+     * buffer may be reused once this method returns.
+     *
+     * @param  window  window that produces source view of the previously added one
+     * @return         <span class="javakeyword">true</span> if the chain is
+     *                 complete and may be applied
+     */
+    public boolean addWindow(SVNDiffWindow window) {
+        if (myWindowsCount == myWindows.length) {
+            SVNWindowIndex[] windows = new SVNWindowIndex[myWindowsCount * 2];
+            System.arraycopy(myWindows, 0, windows, 0, myWindowsCount);
+            myWindows = windows;
+        }
+        SVNWindowIndex index = myWindows[myWindowsCount];
+        if (index == null) {
+            index = new SVNWindowIndex();
+            myWindows[myWindowsCount] = index;
+        }
+        myWindowsCount++;
+        return !index.load(window) || window.getSourceViewLength() == 0;
+    }
+
+    public int getTargetLength() {
+        return myWindowsCount > 0 ? myWindows[0].targetLength : 0;
+    }
+
+    /**
+     * Writes the text produced by the composed chain to <code>target</code>.
+     *
+     * @param  target  buffer to receive {@link #getTargetLength()} bytes
+     * @param  offset  offset in <code>target</code>
+     * @return         number of bytes written
+     */
+    public int apply(byte[] target, int offset) throws SVNException {
+        int length = getTargetLength();
+        myStackSize = 0;
+        if (length > 0) {
+            push(0, 0, length, offset);
+        }
+        while (myStackSize > 0) {
+            myStackSize -= 4;
+            int level = myStack[myStackSize];
+            int start = myStack[myStackSize + 1];
+            int end = myStack[myStackSize + 2];
+            int position = myStack[myStackSize + 3];
+            if (level == SELF_COPY) {
+                // start is a distance to the copied bytes, end is a number of bytes.
+                for (int i = position; i < position + end; i++) {
+                    target[i] = target[i - start];
+                }
+                continue;
+            }
+            copyRange(level, start, end, target, position);
+        }
+        return length;
+    }
+
+    private void copyRange(int level, int start, int end, byte[] target, int position) throws SVNException {
+        SVNWindowIndex window = myWindows[level];
+        int index = window.findInstruction(start);
+        while (start < end) {
+            if (index >= window.count) {
+                SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.SVNDIFF_CORRUPT_WINDOW,
+                        "Delta instructions do not cover the target view");
+                SVNErrorManager.error(err, SVNLogType.DEFAULT);
+            }
+            int instructionStart = window.targetOffsets[index];
+            int length = Math.min(end, window.targetOffsets[index + 1]) - start;
+            if (length <= 0) {
+                index++;
+                continue;
+            }
+            int skip = start - instructionStart;
+            int type = window.types[index];
+            if (type == SVNDiffInstruction.COPY_FROM_NEW_DATA) {
+                System.arraycopy(window.newData, window.offsets[index] + skip, target, position, length);
+                start += length;
+                position += length;
+                index++;
+                continue;
+            }
+            if (start + length < end) {
+                // the rest of the range is resolved after this instruction.
+                push(level, start + length, end, position + length);
+            }
+            if (type == SVNDiffInstruction.COPY_FROM_SOURCE) {
+                int sourceStart = window.offsets[index] + skip;
+                if (level + 1 >= myWindowsCount || sourceStart + length > myWindows[level + 1].targetLength) {
+                    SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.SVNDIFF_CORRUPT_WINDOW,
+                            "Delta source copy is out of the source view");
+                    SVNErrorManager.error(err, SVNLogType.DEFAULT);
+                }
+                push(level + 1, sourceStart, sourceStart + length, position);
+            } else {
+                pushTargetCopy(level, window.offsets[index], instructionStart, skip, length, position);
+            }
+            return;
+        }
+    }
+
+    private void pushTargetCopy(int level, int from, int instructionStart, int skip, int length, int position) throws SVNException {
+        int distance = instructionStart - from;
+        if (from < 0 || distance <= 0) {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.SVNDIFF_CORRUPT_WINDOW,
+                    "Delta target copy is out of the target view");
+            SVNErrorManager.error(err, SVNLogType.DEFAULT);
+        }
+        if (level == 0) {
+            // first window is written to the target as is, copied bytes are already there.
+            push(SELF_COPY, distance, length, position);
+            return;
+        }
+        // copied bytes repeat with period of 'distance', once the first period
+        // is resolved, the rest is copied from the target itself.
+        int phase = skip % distance;
+        int first = Math.min(length, distance - phase);
+        int second = Math.min(length - first, phase);
+        int rest = length - first - second;
+        if (rest > 0) {
+            push(SELF_COPY, distance, rest, position + first + second);
+        }
+        if (second > 0) {
+            push(level, from, from + second, position + first);
+        }
+        push(level, from + phase, from + phase + first, position);
+    }
+
+    private void push(int level, int start, int end, int position) {
+        if (myStackSize + 4 > myStack.length) {
+            int[] stack = new int[myStack.length * 2];
+            System.arraycopy(myStack, 0, stack, 0, myStackSize);
+            myStack = stack;
+        }
+        myStack[myStackSize++] = level;
+        myStack[myStackSize++] = start;
+        myStack[myStackSize++] = end;
+        myStack[myStackSize++] = position;
+    }
+
+    private static class SVNWindowIndex {
+
+        public int count;
+        public int targetLength;
+        public int[] types;
+        public int[] offsets;
+        public int[] targetOffsets;
+        public byte[] newData;
+
+        private ByteBuffer myNewDataBuffer;
+
+        public SVNWindowIndex() {
+            types = new int[16];
+            offsets = new int[16];
+            targetOffsets = new int[17];
+        }
+
+        public boolean load(SVNDiffWindow window) {
+            count = 0;
+            targetLength = window.getTargetViewLength();
+            boolean hasSourceCopies = false;
+            int targetOffset = 0;
+            for (Iterator instructions = window.instructions(true); instructions.hasNext() && targetOffset < targetLength;) {
+                SVNDiffInstruction instruction = (SVNDiffInstruction) instructions.next();
+                if (count == types.length) {
+                    types = grow(types, count * 2);
+                    offsets = grow(offsets, count * 2);
+                    targetOffsets = grow(targetOffsets, count * 2 + 1);
+                }
+                types[count] = instruction.type;
+                offsets[count] = instruction.offset;
+                targetOffsets[count] = targetOffset;
+                targetOffset += instruction.length;
+                count++;
+                hasSourceCopies |= instruction.type == SVNDiffInstruction.COPY_FROM_SOURCE;
+            }
+            targetOffsets[count] = targetOffset;
+
+            int newDataLength = window.getNewDataLength();
+            if (myNewDataBuffer == null || myNewDataBuffer.capacity() < newDataLength) {
+                myNewDataBuffer = ByteBuffer.allocate(newDataLength * 3 / 2);
+                newData = myNewDataBuffer.array();
+            }
+            myNewDataBuffer.clear();
+            window.writeNewData(myNewDataBuffer, 0, newDataLength);
+            return hasSourceCopies;
+        }
+
+        public int findInstruction(int offset) throws SVNException {
+            if (offset < 0 || offset >= targetOffsets[count] || offset >= targetLength) {
+                SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.SVNDIFF_CORRUPT_WINDOW,
+                        "Delta instructions do not cover the target view");
+                SVNErrorManager.error(err, SVNLogType.DEFAULT);
+            }
+            int lo = 0;
+            int hi = count - 1;
+            while (lo < hi) {
+                int middle = (lo + hi + 1) >>> 1;
+                if (targetOffsets[middle] <= offset) {
+                    lo = middle;
+                } else {
+                    hi = middle - 1;
+                }
+            }
+            return lo;
+        }
+
+        private static int[] grow(int[] array, int length) {
+            int[] result = new int[length];
+            System.arraycopy(array, 0, result, 0, array.length);
+            return result;
+        }
+    }
+}
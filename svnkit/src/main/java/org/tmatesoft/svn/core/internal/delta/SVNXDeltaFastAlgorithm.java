@@ -0,0 +1,158 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.core.internal.delta;
+
+import java.util.Arrays;
+
+/**
+ * Same xdelta matching as {@link SVNXDeltaAlgorithm}, but source blocks are
+ * indexed in an open addressed table of primitive arrays reused between
+ * windows and the rolling checksum is kept in local variables, so that no
+ * objects are allocated while a window is computed.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+public class SVNXDeltaFastAlgorithm extends SVNDeltaAlgorithm {
+
+    private static final int MATCH_BLOCK_SIZE = 64;
+    private static final int ADLER32_MASK = 0x0000FFFF;
+    private static final int MIN_TABLE_SIZE = 16;
+
+    private int[] myBlockChecksums;
+    private int[] myBlockPositions;
+    private int myTableMask;
+
+    public void computeDelta(byte[] a, int aLength, byte[] b, int bLength) {
+        if (bLength < MATCH_BLOCK_SIZE || aLength < MATCH_BLOCK_SIZE) {
+            copyFromNewData(b, 0, bLength);
+            return;
+        }
+        createBlocksTable(a, aLength);
+
+        int[] checksums = myBlockChecksums;
+        int[] positions = myBlockPositions;
+        int mask = myTableMask;
+        int lastPosition = bLength - MATCH_BLOCK_SIZE;
+        int insertionStart = 0;
+        int position = 0;
+
+        int s1 = 1;
+        int s2 = 0;
+        for (int i = 0; i < MATCH_BLOCK_SIZE; i++) {
+            s1 = (s1 + (b[i] & 0xFF)) & ADLER32_MASK;
+            s2 = (s2 + s1) & ADLER32_MASK;
+        }
+
+        while (position <= lastPosition) {
+            int checksum = (s2 << 16) | s1;
+            int sourcePosition = -1;
+            for (int slot = getSlot(checksum, mask); positions[slot] >= 0; slot = (slot + 1) & mask) {
+                if (checksums[slot] == checksum) {
+                    sourcePosition = positions[slot];
+                    break;
+                }
+            }
+            if (sourcePosition >= 0 && equals(a, sourcePosition, b, position, MATCH_BLOCK_SIZE)) {
+                // extend forward
+                int sourceEnd = sourcePosition + MATCH_BLOCK_SIZE;
+                int targetEnd = position + MATCH_BLOCK_SIZE;
+                while (sourceEnd < aLength && targetEnd < bLength && a[sourceEnd] == b[targetEnd]) {
+                    sourceEnd++;
+                    targetEnd++;
+                }
+                // extend backward, into the pending insertion only
+                int sourceStart = sourcePosition;
+                int targetStart = position;
+                while (sourceStart > 0 && targetStart > insertionStart && a[sourceStart - 1] == b[targetStart - 1]) {
+                    sourceStart--;
+                    targetStart--;
+                }
+                if (targetStart > insertionStart) {
+                    copyFromNewData(b, insertionStart, targetStart - insertionStart);
+                }
+                copyFromSource(sourceStart, targetEnd - targetStart);
+
+                position = targetEnd;
+                insertionStart = targetEnd;
+                if (position <= lastPosition) {
+                    s1 = 1;
+                    s2 = 0;
+                    for (int i = position; i < position + MATCH_BLOCK_SIZE; i++) {
+                        s1 = (s1 + (b[i] & 0xFF)) & ADLER32_MASK;
+                        s2 = (s2 + s1) & ADLER32_MASK;
+                    }
+                }
+                continue;
+            }
+            if (position < lastPosition) {
+                int removed = b[position] & 0xFF;
+                int added = b[position + MATCH_BLOCK_SIZE] & 0xFF;
+                s1 = (s1 - removed) & ADLER32_MASK;
+                s2 = (s2 - (MATCH_BLOCK_SIZE * removed + 1)) & ADLER32_MASK;
+                s1 = (s1 + added) & ADLER32_MASK;
+                s2 = (s2 + s1) & ADLER32_MASK;
+            }
+            position++;
+        }
+        if (insertionStart < bLength) {
+            copyFromNewData(b, insertionStart, bLength - insertionStart);
+        }
+    }
+
+    private void createBlocksTable(byte[] data, int dataLength) {
+        int blocksCount = dataLength / MATCH_BLOCK_SIZE;
+        int tableSize = MIN_TABLE_SIZE;
+        while (tableSize < blocksCount * 2) {
+            tableSize <<= 1;
+        }
+        if (myBlockPositions == null || myBlockPositions.length < tableSize) {
+            myBlockChecksums = new int[tableSize];
+            myBlockPositions = new int[tableSize];
+        }
+        myTableMask = tableSize - 1;
+        Arrays.fill(myBlockPositions, 0, tableSize, -1);
+
+        for (int position = 0; position + MATCH_BLOCK_SIZE <= dataLength; position += MATCH_BLOCK_SIZE) {
+            int s1 = 1;
+            int s2 = 0;
+            for (int i = position; i < position + MATCH_BLOCK_SIZE; i++) {
+                s1 = (s1 + (data[i] & 0xFF)) & ADLER32_MASK;
+                s2 = (s2 + s1) & ADLER32_MASK;
+            }
+            int checksum = (s2 << 16) | s1;
+            int slot = getSlot(checksum, myTableMask);
+            while (myBlockPositions[slot] >= 0 && myBlockChecksums[slot] != checksum) {
+                slot = (slot + 1) & myTableMask;
+            }
+            // the first block with the same checksum wins
+            if (myBlockPositions[slot] < 0) {
+                myBlockChecksums[slot] = checksum;
+                myBlockPositions[slot] = position;
+            }
+        }
+    }
+
+    private static int getSlot(int checksum, int mask) {
+        int hash = checksum * 0x9E3779B1;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static boolean equals(byte[] a, int aPos, byte[] b, int bPos, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[aPos + i] != b[bPos + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -56,6 +56,8 @@ class DAVCommitEditor implements ISVNEditor {
 	private DAVRepository myRepository;
     private Runnable myCloseCallback;
     private String myActivity;
+    private String myTxnURL;
+    private String myTxnRootURL;
 
     private Stack myDirsStack;
     private ISVNWorkspaceMediator myCommitMediator;
@@ -93,10 +95,18 @@ class DAVCommitEditor implements ISVNEditor {
     }
 
     public void openRoot(long revision) throws SVNException {
-        // make activity
-        myActivity = createActivity();
         DAVResource root = new DAVResource(myCommitMediator, myConnection, "", revision);
-        root.fetchVersionURL(null, false);
+        String rootPath = myConnection.isHTTPv2Enabled() ? myConnection.getRepositoryRelativePath(root.getURL()) : null;
+        if (rootPath != null) {
+            // HTTPv2: make transaction, its root resources are used as working URLs, 
+            // so no checkouts are needed.
+            createTransaction();
+            root.setWorkingURL(SVNPathUtil.append(myTxnRootURL, rootPath));
+        } else {
+            // make activity
+            myActivity = createActivity();
+            root.fetchVersionURL(null, false);
+        }
         myDirsStack.push(root);
         myPathsMap.put(root.getURL(), root.getPath());
     }
@@ -209,7 +219,7 @@ class DAVCommitEditor implements ISVNEditor {
         // do proppatch if there were property changes.
         if (resource.getProperties() != null) {
             StringBuffer request = DAVProppatchHandler.generatePropertyRequest(null, resource.getProperties());
-            myConnection.doProppatch(resource.getURL(), resource.getWorkingURL(), request, null, null);
+            myConnection.doProppatch(resource.getURL(), resource.getWorkingURL(), getBaseRevision(resource), request, null, null);
         }
         resource.dispose();
     }
@@ -229,13 +239,16 @@ class DAVCommitEditor implements ISVNEditor {
         	String filePath = SVNPathUtil.append(parentResource.getURL(), SVNPathUtil.tail(path));
             SVNErrorMessage err1 = null;
             SVNErrorMessage err2 = null;
-            try {
-                DAVUtil.getResourceProperties(myConnection, filePath, null, DAVElement.STARTING_PROPERTIES);
-            } catch (SVNException e) {
-                if (e.getErrorMessage() == null) {
-                    throw e;
+            // transaction root reflects HEAD, there is no need to check public URL.
+            if (myTxnURL == null) {
+                try {
+                    DAVUtil.getResourceProperties(myConnection, filePath, null, DAVElement.STARTING_PROPERTIES);
+                } catch (SVNException e) {
+                    if (e.getErrorMessage() == null) {
+                        throw e;
+                    }
+                    err1 = e.getErrorMessage();
                 }
-                err1 = e.getErrorMessage();
             }
             try {
                 DAVUtil.getResourceProperties(myConnection, newFile.getWorkingURL(), null, DAVElement.STARTING_PROPERTIES);
@@ -251,6 +264,8 @@ class DAVCommitEditor implements ISVNEditor {
             } else if ((err1 != null && err1.getErrorCode() == SVNErrorCode.FS_NOT_FOUND) ||
                     (err2 != null && err2.getErrorCode() == SVNErrorCode.FS_NOT_FOUND)) {
                 // skip
+            }  else if (err1 == null) {
+                SVNErrorManager.error(err2, SVNLogType.NETWORK);
             }  else {
                 SVNErrorManager.error(err1, err2, SVNLogType.NETWORK);
             }
@@ -338,7 +353,7 @@ class DAVCommitEditor implements ISVNEditor {
                 InputStream combinedData = null;
                 try {
                     combinedData = new HTTPBodyInputStream(myDeltaFile);
-                    myConnection.doPutDiff(currentFile.getURL(), currentFile.getWorkingURL(), combinedData, myDeltaFile.length(),
+                    myConnection.doPutDiff(currentFile.getURL(), currentFile.getWorkingURL(), getBaseRevision(currentFile), combinedData, myDeltaFile.length(),
                             myBaseChecksum, textChecksum);
 
                 } catch (SVNException e) {
@@ -366,7 +381,7 @@ class DAVCommitEditor implements ISVNEditor {
             // do proppatch if there were property changes.
             if (currentFile.getProperties() != null) {
                 StringBuffer request = DAVProppatchHandler.generatePropertyRequest(null, currentFile.getProperties());
-                myConnection.doProppatch(currentFile.getURL(), currentFile.getWorkingURL(), request, null, null);
+                myConnection.doProppatch(currentFile.getURL(), currentFile.getWorkingURL(), getBaseRevision(currentFile), request, null, null);
             }
         } finally {
             currentFile.dispose();
@@ -383,18 +398,20 @@ class DAVCommitEditor implements ISVNEditor {
 		        // do proppatch if there were property changes.
 		        if (resource.getProperties() != null) {
 		            StringBuffer request = DAVProppatchHandler.generatePropertyRequest(null, resource.getProperties());
-		            myConnection.doProppatch(resource.getURL(), resource.getWorkingURL(), request, null, null);
+		            myConnection.doProppatch(resource.getURL(), resource.getWorkingURL(), getBaseRevision(resource), request, null, null);
 		        }
 		        resource.dispose();
 		    }
 		    DAVMergeHandler handler = new DAVMergeHandler(myCommitMediator, myPathsMap);
-		    HTTPStatus status = myConnection.doMerge(myActivity, true, handler);
+		    HTTPStatus status = myConnection.doMerge(myTxnURL != null ? myTxnURL : myActivity, true, handler);
 		    if (status.getError() != null) {
                 // DELETE shouldn't be called anymore if there is an error or MERGE.
                 // calling abortEdit will do nothing on closeEdit failure now.
                 myIsAborted = true;
 		        SVNErrorManager.error(status.getError(), SVNLogType.NETWORK);
 		    }
+		    // committed transaction doesn't exist anymore, nothing to DELETE.
+		    myTxnURL = null;
 		    return handler.getCommitInfo();
 	    }
 	    finally {
@@ -418,8 +435,10 @@ class DAVCommitEditor implements ISVNEditor {
         myIsAborted = true;
 	    try {
 		    try {
-			    // DELETE activity
-			    if (myActivity != null) {
+			    // DELETE activity or transaction
+			    if (myTxnURL != null) {
+			        myConnection.doDelete(myTxnURL);
+			    } else if (myActivity != null) {
 			        myConnection.doDelete(myActivity);
 			    }
 		    }
@@ -451,6 +470,42 @@ class DAVCommitEditor implements ISVNEditor {
         }
     }
     
+    private void createTransaction() throws SVNException {
+        HTTPHeader header = new HTTPHeader();
+        header.setHeaderValue(HTTPHeader.CONTENT_TYPE_HEADER, HTTPHeader.SVN_SKEL_MIME_TYPE);
+        HTTPStatus status = myConnection.doPost(myConnection.getMeResource(), header, new StringBuffer("( create-txn )"));
+        
+        String txnName = status.getHeader() != null ? status.getHeader().getFirstHeaderValue(HTTPHeader.SVN_TXN_NAME_HEADER) : null;
+        boolean virtual = false;
+        if (txnName == null && status.getHeader() != null && myConnection.hasVirtualTransactionStubs()) {
+            txnName = status.getHeader().getFirstHeaderValue(HTTPHeader.SVN_VTXN_NAME_HEADER);
+            virtual = true;
+        }
+        if (txnName == null) {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_DAV_REQUEST_FAILED, "POST request did not return a transaction name");
+            SVNErrorManager.error(err, SVNLogType.NETWORK);
+        }
+        txnName = SVNEncodingUtil.uriEncode(txnName.trim());
+        myTxnURL = myConnection.getTransactionPath(txnName, virtual);
+        myTxnRootURL = myConnection.getTransactionRootPath(txnName, virtual);
+        
+        if (myRevProps != null && myRevProps.size() > 0) {
+            StringBuffer request = DAVProppatchHandler.generatePropertyRequest(null, myRevProps);
+            try {
+                myConnection.doProppatch(null, myTxnURL, request, null, null);
+            } catch (SVNException e) {
+                SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_DAV_REQUEST_FAILED, "applying log message to {0}", 
+                        SVNEncodingUtil.uriEncode(myLocation.getPath()));
+                SVNErrorManager.error(err, e, SVNLogType.NETWORK);
+            }
+        }
+    }
+    
+    private long getBaseRevision(DAVResource resource) {
+        // with HTTPv2 there are no checkouts, server checks whether resource is out of date using base revision.
+        return myTxnURL != null ? resource.getRevision() : -1;
+    }
+    
     private String createActivity() throws SVNException {
         String activity = myConnection.doMakeActivity(myCommitMediator);
         // checkout head...
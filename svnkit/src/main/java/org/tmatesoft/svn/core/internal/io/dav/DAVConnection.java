@@ -20,6 +20,7 @@ import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 
 import org.tmatesoft.svn.core.SVNErrorCode;
 import org.tmatesoft.svn.core.SVNErrorMessage;
@@ -32,6 +33,7 @@ import org.tmatesoft.svn.core.internal.io.dav.handlers.DAVGetLocksHandler;
 import org.tmatesoft.svn.core.internal.io.dav.handlers.DAVLockHandler;
 import org.tmatesoft.svn.core.internal.io.dav.handlers.DAVMergeHandler;
 import org.tmatesoft.svn.core.internal.io.dav.handlers.DAVOptionsHandler;
+import org.tmatesoft.svn.core.internal.io.dav.http.HTTPConnection;
 import org.tmatesoft.svn.core.internal.io.dav.http.HTTPHeader;
 import org.tmatesoft.svn.core.internal.io.dav.http.HTTPStatus;
 import org.tmatesoft.svn.core.internal.io.dav.http.IHTTPConnection;
@@ -60,10 +62,14 @@ public class DAVConnection {
     protected static final String DAV_CAPABILITY_NO = "no";
     protected static final String DAV_CAPABILITY_SERVER_YES = "server-yes";
 
+    // experimental, see setHTTPv2Enabled()
+    private static volatile boolean ourIsHTTPv2Enabled = Boolean.valueOf(System.getProperty("svnkit.http.v2", Boolean.FALSE.toString())).booleanValue();
+
     private IHTTPConnection myHttpConnection;
     private String myActivityCollectionURL;
     private SVNRepository myRepository;
     private boolean myIsSpoolReport;
+    private Lock myAuthenticationLock;
 
     protected boolean myKeepLocks;
     protected Map myLocks;
@@ -71,6 +77,18 @@ public class DAVConnection {
     protected IHTTPConnectionFactory myConnectionFactory;
     private HTTPStatus myLastStatus;
 
+    private long myYoungestRevision = -1;
+    private boolean myIsYoungestRevisionFresh;
+    private String myRepositoryRootPath;
+    private String myRepositoryUUID;
+    private String myMeResource;
+    private String myRevStub;
+    private String myRevRootStub;
+    private String myTxnStub;
+    private String myTxnRootStub;
+    private String myVTxnStub;
+    private String myVTxnRootStub;
+
     public DAVConnection(IHTTPConnectionFactory connectionFactory, SVNRepository repository) {
         myRepository = repository;
         myConnectionFactory = connectionFactory;
@@ -84,6 +102,19 @@ public class DAVConnection {
         myIsSpoolReport = spool;
     }
     
+    /**
+     * Makes the connection hold <code>lock</code> while it authenticates, for
+     * connections used by several threads at once with the authentication
+     * manager of the same repository. Should be set before the connection
+     * is opened.
+     */
+    public void setAuthenticationLock(Lock lock) {
+        myAuthenticationLock = lock;
+        if (myHttpConnection instanceof HTTPConnection) {
+            ((HTTPConnection) myHttpConnection).setAuthenticationLock(lock);
+        }
+    }
+
     public SVNURL getLocation() {
         return myRepository.getLocation();
     }
@@ -99,8 +130,113 @@ public class DAVConnection {
     public void open(DAVRepository repository) throws SVNException {
         if (myHttpConnection == null) {
             myHttpConnection = myConnectionFactory.createHTTPConnection(repository);
+            if (myAuthenticationLock != null && myHttpConnection instanceof HTTPConnection) {
+                ((HTTPConnection) myHttpConnection).setAuthenticationLock(myAuthenticationLock);
+            }
+            exchangeCapabilities();
+            if (myRepositoryRootPath != null && !repository.hasRepositoryRoot()) {
+                repository.setRepositoryRoot(repository.getLocation().setPath(myRepositoryRootPath, true));
+            }
+            if (myRepositoryUUID != null && !repository.hasRepositoryUUID()) {
+                repository.setRepositoryUUID(myRepositoryUUID);
+            }
+        }
+    }
+
+    /**
+     * Enables HTTPv2 protocol for connections opened afterwards, when the server
+     * supports it. Disabled by default, can also be enabled with the
+     * <code>svnkit.http.v2</code> system property.
+     *
+     * <p/>
+     * HTTPv2 support is experimental and opt-in: it has only been tested
+     * against a stub server, not against a real mod_dav_svn.
+     */
+    public static void setHTTPv2Enabled(boolean enabled) {
+        ourIsHTTPv2Enabled = enabled;
+    }
+
+    /**
+     * Tells whether HTTPv2 protocol is enabled and the server advertised its
+     * support in the OPTIONS response. When it did, revision and transaction
+     * resources are addressed directly and VCC, baseline and activity
+     * discovery is skipped.
+     */
+    public boolean isHTTPv2Enabled() {
+        return myMeResource != null && myRepositoryRootPath != null && 
+            myRevStub != null && myRevRootStub != null && myTxnStub != null && myTxnRootStub != null;
+    }
+
+    /**
+     * Returns the youngest revision reported by the server in the OPTIONS
+     * response. The value received when the connection was opened is used
+     * once, within the same operation, otherwise another OPTIONS request is sent.
+     */
+    public long getYoungestRevision() throws SVNException {
+        if (!myIsYoungestRevisionFresh) {
             exchangeCapabilities();
         }
+        myIsYoungestRevisionFresh = false;
+        if (myYoungestRevision < 0) {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_DAV_OPTIONS_REQ_FAILED, 
+                    "The OPTIONS response did not include the youngest revision");
+            SVNErrorManager.error(err, SVNLogType.NETWORK);
+        }
+        return myYoungestRevision;
+    }
+
+    public void expireYoungestRevision() {
+        myIsYoungestRevisionFresh = false;
+    }
+
+    /**
+     * Returns URI-encoded path relative to the repository root (as reported
+     * with HTTPv2 OPTIONS response) or <code>null</code> when the path could 
+     * not be matched against the root.
+     */
+    public String getRepositoryRelativePath(String path) {
+        if (myRepositoryRootPath == null || path == null) {
+            return null;
+        }
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        if (path.equals(myRepositoryRootPath)) {
+            return "";
+        }
+        String prefix = "/".equals(myRepositoryRootPath) ? myRepositoryRootPath : myRepositoryRootPath + "/";
+        if (path.startsWith(prefix)) {
+            return path.substring(prefix.length());
+        }
+        return null;
+    }
+
+    public String getRepositoryRootPath() {
+        return myRepositoryRootPath;
+    }
+
+    public String getMeResource() {
+        return myMeResource;
+    }
+
+    public String getRevisionPath(long revision) {
+        return myRevStub + "/" + revision;
+    }
+
+    public String getRevisionRootPath(long revision) {
+        return myRevRootStub + "/" + revision;
+    }
+
+    public String getTransactionPath(String txnName, boolean virtual) {
+        return (virtual ? myVTxnStub : myTxnStub) + "/" + txnName;
+    }
+
+    public String getTransactionRootPath(String txnName, boolean virtual) {
+        return (virtual ? myVTxnRootStub : myTxnRootStub) + "/" + txnName;
+    }
+
+    public boolean hasVirtualTransactionStubs() {
+        return myVTxnStub != null && myVTxnRootStub != null;
     }
 
     public void fetchRepositoryRoot(DAVRepository repository) throws SVNException {
@@ -338,12 +474,20 @@ public class DAVConnection {
 	}
 
     public void doProppatch(String repositoryPath, String path, StringBuffer requestBody, DefaultHandler handler, SVNErrorMessage context) throws SVNException {
+        doProppatch(repositoryPath, path, -1, requestBody, handler, context);
+    }
+
+    public void doProppatch(String repositoryPath, String path, long revision, StringBuffer requestBody, DefaultHandler handler, SVNErrorMessage context) throws SVNException {
         beforeCall();
         HTTPHeader header = null;
         if (myLocks != null && repositoryPath != null && myLocks.containsKey(repositoryPath)) {
             header = new HTTPHeader();
             header.setHeaderValue(HTTPHeader.IF_HEADER, "(<" + myLocks.get(repositoryPath) + ">)");
         }
+        if (revision >= 0) {
+            header = header == null ? new HTTPHeader() : header;
+            header.setHeaderValue(HTTPHeader.SVN_VERSION_NAME_HEADER, Long.toString(revision));
+        }
         
         IHTTPConnection httpConnection = getConnection();
         try {
@@ -489,6 +633,16 @@ public class DAVConnection {
         return myLastStatus;
     }
 
+    public HTTPStatus doPost(String path, HTTPHeader header, StringBuffer body) throws SVNException {
+        beforeCall();
+        IHTTPConnection httpConnection = getConnection();
+        HTTPStatus status = performHttpRequest(httpConnection, "POST", path, header, body, 201, 0, null, null);
+        if (status.getError() != null) {
+            SVNErrorManager.error(status.getError(), SVNLogType.NETWORK);
+        }
+        return status;
+    }
+
     public HTTPStatus doMakeCollection(String path) throws SVNException {
         beforeCall();
         IHTTPConnection httpConnection = getConnection();
@@ -496,8 +650,15 @@ public class DAVConnection {
     }
     
     public HTTPStatus doPutDiff(String repositoryPath, String path, InputStream data, long size, String baseChecksum, String textChecksum) throws SVNException {
+        return doPutDiff(repositoryPath, path, -1, data, size, baseChecksum, textChecksum);
+    }
+
+    public HTTPStatus doPutDiff(String repositoryPath, String path, long revision, InputStream data, long size, String baseChecksum, String textChecksum) throws SVNException {
         beforeCall();
         HTTPHeader headers = new HTTPHeader();
+        if (revision >= 0) {
+            headers.setHeaderValue(HTTPHeader.SVN_VERSION_NAME_HEADER, Long.toString(revision));
+        }
         headers.setHeaderValue(HTTPHeader.CONTENT_TYPE_HEADER, HTTPHeader.SVNDIFF_MIME_TYPE);
         headers.setHeaderValue(HTTPHeader.CONTENT_LENGTH_HEADER, size + "");
         if (myLocks != null && myLocks.containsKey(repositoryPath)) {
@@ -647,6 +808,7 @@ public class DAVConnection {
         myCapabilities.put(SVNCapability.MERGE_INFO, DAV_CAPABILITY_NO);
         myCapabilities.put(SVNCapability.LOG_REVPROPS, DAV_CAPABILITY_NO);
         myCapabilities.put(SVNCapability.ATOMIC_REVPROPS, DAV_CAPABILITY_NO);
+        parseHTTPv2Headers(status.getHeader());
     	
     	Collection capValues = status.getHeader().getHeaderValues(HTTPHeader.DAV_HEADER);
     	if (capValues != null) {
@@ -667,6 +829,57 @@ public class DAVConnection {
     	}
     }
     
+    private void parseHTTPv2Headers(HTTPHeader header) {
+        myYoungestRevision = -1;
+        myIsYoungestRevisionFresh = false;
+        if (!ourIsHTTPv2Enabled || header == null) {
+            return;
+        }
+        String youngest = header.getFirstHeaderValue(HTTPHeader.SVN_YOUNGEST_REV_HEADER);
+        if (youngest != null) {
+            try {
+                myYoungestRevision = Long.parseLong(youngest.trim());
+                myIsYoungestRevisionFresh = true;
+            } catch (NumberFormatException nfe) {
+                myYoungestRevision = -1;
+            }
+        }
+        String root = header.getFirstHeaderValue(HTTPHeader.SVN_REPOSITORY_ROOT_HEADER);
+        if (root != null) {
+            root = getServerPath(root);
+            if (root.length() > 1 && root.endsWith("/")) {
+                root = root.substring(0, root.length() - 1);
+            }
+            myRepositoryRootPath = root;
+        }
+        String uuid = header.getFirstHeaderValue(HTTPHeader.SVN_REPOSITORY_UUID_HEADER);
+        if (uuid != null) {
+            myRepositoryUUID = uuid.trim();
+        }
+        myMeResource = getServerPath(header.getFirstHeaderValue(HTTPHeader.SVN_ME_RESOURCE_HEADER));
+        myRevStub = getServerPath(header.getFirstHeaderValue(HTTPHeader.SVN_REV_STUB_HEADER));
+        myRevRootStub = getServerPath(header.getFirstHeaderValue(HTTPHeader.SVN_REV_ROOT_STUB_HEADER));
+        myTxnStub = getServerPath(header.getFirstHeaderValue(HTTPHeader.SVN_TXN_STUB_HEADER));
+        myTxnRootStub = getServerPath(header.getFirstHeaderValue(HTTPHeader.SVN_TXN_ROOT_STUB_HEADER));
+        myVTxnStub = getServerPath(header.getFirstHeaderValue(HTTPHeader.SVN_VTXN_STUB_HEADER));
+        myVTxnRootStub = getServerPath(header.getFirstHeaderValue(HTTPHeader.SVN_VTXN_ROOT_STUB_HEADER));
+    }
+
+    private static String getServerPath(String value) {
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        if (!value.startsWith("/")) {
+            try {
+                value = SVNURL.parseURIEncoded(value).getURIEncodedPath();
+            } catch (SVNException e) {
+                return null;
+            }
+        }
+        return SVNEncodingUtil.uriEncode(SVNEncodingUtil.uriDecode(value));
+    }
+
     private String getActivityCollectionURL(String path, boolean force) throws SVNException {
         if (!force && myActivityCollectionURL != null) {
             return myActivityCollectionURL;
@@ -82,8 +82,10 @@ public class DAVRepository extends SVNRepository {
     private DAVConnection myConnection;
     private IHTTPConnectionFactory myConnectionFactory;
     private boolean myIsSpoolResponse;
+    private int myFetchThreadsCount = ourFetchThreadsCount;
     
     private static boolean ourIsKeepCredentials = Boolean.valueOf(System.getProperty("svnkit.http.keepCredentials", Boolean.TRUE.toString())).booleanValue();
+    private static int ourFetchThreadsCount = Integer.getInteger("svnkit.http.fetchThreads", 1).intValue();
     
     public static void setKeepCredentials(boolean keepCredentials) {
         ourIsKeepCredentials = keepCredentials;
@@ -166,6 +168,21 @@ public class DAVRepository extends SVNRepository {
     public boolean isSpoolResponse() {
         return myIsSpoolResponse;
     }
+
+    /**
+     * Sets the number of additional connections used to fetch file contents
+     * in parallel during update, when the server does not send contents within
+     * the update report. Contents are still passed to the editor in the report
+     * order. Defaults to <code>svnkit.http.fetchThreads</code> system property
+     * value, or to 1 which means contents are fetched one by one.
+     */
+    public void setFetchThreadsCount(int threadsCount) {
+        myFetchThreadsCount = threadsCount;
+    }
+
+    public int getFetchThreadsCount() {
+        return myFetchThreadsCount;
+    }
     
     public void setAuthenticationManager(ISVNAuthenticationManager authManager) {
         DAVConnection connection = getConnection();
@@ -178,9 +195,12 @@ public class DAVRepository extends SVNRepository {
     public long getLatestRevision() throws SVNException {        
         try {
             openConnection();
+            DAVConnection connection = getConnection();
+            if (connection.isHTTPv2Enabled()) {
+                return connection.getYoungestRevision();
+            }
             String path = getLocation().getPath();
             path = SVNEncodingUtil.uriEncode(path);
-            DAVConnection connection = getConnection();
             DAVBaselineInfo info = DAVUtil.getBaselineInfo(connection, this, path, -1, false, true, null);
             return info.revision;
         } finally {
@@ -244,7 +264,13 @@ public class DAVRepository extends SVNRepository {
             String path = getLocation().getPath();
             path = SVNEncodingUtil.uriEncode(path);
             DAVConnection connection = getConnection();
-            DAVProperties source = DAVUtil.getBaselineProperties(connection, this, path, revision, null);
+            DAVProperties source = null;
+            if (connection.isHTTPv2Enabled()) {
+                long rev = revision >= 0 ? revision : connection.getYoungestRevision();
+                source = DAVUtil.getResourceProperties(connection, connection.getRevisionPath(rev), null, null);
+            } else {
+                source = DAVUtil.getBaselineProperties(connection, this, path, revision, null);
+            }
             properties = DAVUtil.filterProperties(source, properties);
             if (revision >= 0) {
                 String commitMessage = properties.getStringValue(SVNRevisionProperty.LOG);
@@ -1030,6 +1056,9 @@ public class DAVRepository extends SVNRepository {
         if (connection != null && !ourIsKeepCredentials) {
             connection.clearAuthenticationCache();
         }
+        if (connection != null) {
+            connection.expireYoungestRevision();
+        }
         if (!getOptions().keepConnection(this)) {
             closeSession();
         }
@@ -1279,6 +1308,7 @@ public class DAVRepository extends SVNRepository {
                     resourceWalk, fetchContents, sendCopyFromArgs, sendAll, reporter);
             handler = new DAVEditorHandler(myConnectionFactory, this, editor, lockTokens, fetchContents, 
                     target != null && !"".equals(target));
+            handler.setFetchThreadsCount(myFetchThreadsCount);
             String bcPath = SVNEncodingUtil.uriEncode(getLocation().getPath());
             try {
                 bcPath = DAVUtil.getVCCPath(connection, this, bcPath);
@@ -75,6 +75,10 @@ class DAVResource {
     public String getPath() {
         return myPath;
     }
+
+    public long getRevision() {
+        return myRevision;
+    }
     
     public String getVersionURL() {
         return myVURL;
@@ -169,6 +169,10 @@ public class DAVUtil {
     }
     
     public static String getVCCPath(DAVConnection connection, DAVRepository repository, String path) throws SVNException {
+        if (connection.isHTTPv2Enabled()) {
+            // HTTPv2 server accepts reports sent to the 'me' resource.
+            return connection.getMeResource();
+        }
         DAVProperties properties = findStartingProperties(connection, repository, path);
         SVNPropertyValue vcc = properties.getPropertyValue(DAVElement.VERSION_CONTROLLED_CONFIGURATION);
         if (vcc == null) {
@@ -180,6 +184,12 @@ public class DAVUtil {
 
     public static DAVBaselineInfo getBaselineInfo(DAVConnection connection, DAVRepository repos, String path, long revision,
                                                   boolean includeType, boolean includeRevision, DAVBaselineInfo info) throws SVNException {
+        if (connection.isHTTPv2Enabled()) {
+            String relativePath = connection.getRepositoryRelativePath(path);
+            if (relativePath != null) {
+                return getHTTPv2BaselineInfo(connection, relativePath, revision, includeType, includeRevision, info);
+            }
+        }
         DAVElement[] properties = includeRevision ? DAVElement.BASELINE_PROPERTIES : new DAVElement[] {DAVElement.BASELINE_COLLECTION};
         DAVProperties baselineProperties = getBaselineProperties(connection, repos, path, revision, properties);
 
@@ -206,20 +216,48 @@ public class DAVUtil {
             }
         }
         if (includeType) {
-            Map propsMap = new SVNHashMap();
-            path = SVNPathUtil.append(info.baselineBase, info.baselinePath);
-            HTTPStatus status = getProperties(connection, path, 0, null, new DAVElement[] {DAVElement.RESOURCE_TYPE}, propsMap);
-            if (status.getError() != null) {
-                SVNErrorManager.error(status.getError(), SVNLogType.NETWORK);
-            }
-            if (!propsMap.isEmpty()) {
-                DAVProperties props = (DAVProperties) propsMap.values().iterator().next();
-                info.isDirectory = props != null && props.isCollection();
-            }
+            fetchResourceType(connection, info);
+        }
+        return info;
+    }
+
+    private static DAVBaselineInfo getHTTPv2BaselineInfo(DAVConnection connection, String relativePath, long revision,
+                                                         boolean includeType, boolean includeRevision, DAVBaselineInfo info) throws SVNException {
+        info = info == null ? new DAVBaselineInfo() : info;
+        // public URL could not be composed from '/' root and relative path, use revision root instead.
+        if (revision < 0 && (includeRevision || "/".equals(connection.getRepositoryRootPath()))) {
+            revision = connection.getYoungestRevision();
+        }
+        info.baselinePath = relativePath;
+        if (revision >= 0) {
+            // revision root resource ('!svn/rvr/N') is addressed directly, no baseline lookup needed.
+            info.baselineBase = connection.getRevisionRootPath(revision);
+            info.baseline = connection.getRevisionPath(revision);
+            info.revision = revision;
+        } else {
+            // public URL is HEAD.
+            info.baselineBase = connection.getRepositoryRootPath();
+            info.baseline = null;
+        }
+        if (includeType) {
+            fetchResourceType(connection, info);
         }
         return info;
     }
 
+    private static void fetchResourceType(DAVConnection connection, DAVBaselineInfo info) throws SVNException {
+        Map propsMap = new SVNHashMap();
+        String path = SVNPathUtil.append(info.baselineBase, info.baselinePath);
+        HTTPStatus status = getProperties(connection, path, 0, null, new DAVElement[] {DAVElement.RESOURCE_TYPE}, propsMap);
+        if (status.getError() != null) {
+            SVNErrorManager.error(status.getError(), SVNLogType.NETWORK);
+        }
+        if (!propsMap.isEmpty()) {
+            DAVProperties props = (DAVProperties) propsMap.values().iterator().next();
+            info.isDirectory = props != null && props.isCollection();
+        }
+    }
+
     public static DAVProperties getBaselineProperties(DAVConnection connection, DAVRepository repos, String path, long revision, DAVElement[] elements) throws SVNException {
         DAVProperties properties = null;
         String loppedPath = "";
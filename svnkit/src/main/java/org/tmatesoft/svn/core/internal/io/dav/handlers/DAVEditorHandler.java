@@ -213,6 +213,8 @@ public class DAVEditorHandler extends BasicDAVDeltaHandler {
     private boolean myIsFetchProps;
     private boolean myHasTarget;
     private Map myVersionURLs;
+    private int myFetchThreadsCount;
+    private DAVFileFetcher myFileFetcher;
 
     public DAVEditorHandler(IHTTPConnectionFactory connectionFactory, DAVRepository owner, ISVNEditor editor, 
             Map lockTokens, boolean fetchContent, boolean hasTarget) {
@@ -241,7 +243,19 @@ public class DAVEditorHandler extends BasicDAVDeltaHandler {
         myVersionURLs = new SVNHashMap();
     }
 
+    /**
+     * Sets the number of connections to fetch file contents with in parallel
+     * when the server does not send them within the report.
+     */
+    public void setFetchThreadsCount(int threadsCount) {
+        myFetchThreadsCount = threadsCount;
+    }
+
     public void closeConnection() {
+        if (myFileFetcher != null) {
+            myFileFetcher.dispose();
+            myFileFetcher = null;
+        }
         if (myConnection != null) {
             myConnection.close();
             myConnection = null;
@@ -254,6 +268,13 @@ public class DAVEditorHandler extends BasicDAVDeltaHandler {
             if (receiveAll != null && Boolean.valueOf(receiveAll).booleanValue()) {
                 myIsReceiveAll = true;
             }
+            if (!myIsReceiveAll && myIsFetchContent && myFetchThreadsCount > 1) {
+                myFileFetcher = new DAVFileFetcher(myConnectionFactory, myOwner, myEditor, myFetchThreadsCount);
+                myEditor = myFileFetcher;
+                if (myConnection != null) {
+                    myConnection.setAuthenticationLock(myFileFetcher.getAuthenticationLock());
+                }
+            }
         } else if (element == TARGET_REVISION) {
             long revision = -1;
             try {
@@ -558,6 +579,12 @@ public class DAVEditorHandler extends BasicDAVDeltaHandler {
     }
 
     protected void fetchFile(String baseChecksum) throws SVNException {
+        if (myFileFetcher != null) {
+            // fetched as full texts, delta bases are known in resource walk mode only.
+            SVNErrorManager.assertionFailure(myHref != null, "myHref is null", SVNLogType.NETWORK);
+            myFileFetcher.fetchFile(myPath, baseChecksum, myHref);
+            return;
+        }
         setDeltaProcessing(true);
         try {
             myEditor.applyTextDelta(myPath, baseChecksum);
@@ -658,6 +685,9 @@ public class DAVEditorHandler extends BasicDAVDeltaHandler {
         if (myConnection == null) {
             myConnection = new DAVConnection(myConnectionFactory, myOwner);
             myConnection.setReportResponseSpooled(myOwner.isSpoolResponse());
+            if (myFileFetcher != null) {
+                myConnection.setAuthenticationLock(myFileFetcher.getAuthenticationLock());
+            }
             myConnection.open(myOwner);
         }
         return myConnection;
@@ -0,0 +1,449 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.core.internal.io.dav.handlers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.tmatesoft.svn.core.SVNCancelException;
+import org.tmatesoft.svn.core.SVNCommitInfo;
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNErrorMessage;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNPropertyValue;
+import org.tmatesoft.svn.core.internal.io.dav.DAVConnection;
+import org.tmatesoft.svn.core.internal.io.dav.DAVRepository;
+import org.tmatesoft.svn.core.internal.io.dav.http.IHTTPConnectionFactory;
+import org.tmatesoft.svn.core.internal.io.dav.http.SpoolFile;
+import org.tmatesoft.svn.core.internal.wc.SVNErrorManager;
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
+import org.tmatesoft.svn.core.io.ISVNEditor;
+import org.tmatesoft.svn.core.io.diff.SVNDeltaGenerator;
+import org.tmatesoft.svn.core.io.diff.SVNDiffWindow;
+import org.tmatesoft.svn.util.SVNLogType;
+
+/**
+ * Editor used by {@link DAVEditorHandler} when the server does not send
+ * file contents within the update report. Contents are fetched with GET
+ * requests over several connections in parallel and spooled, while calls
+ * to the wrapped editor are deferred until contents of all the files
+ * before them are received, so that the wrapped editor is driven on the
+ * parsing thread in the report order. All the connections share the
+ * authentication manager of the repository, so they authenticate one
+ * at a time under a common lock.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+public class DAVFileFetcher implements ISVNEditor {
+
+    private static final int FETCHES_PER_THREAD = 4;
+    private static final long POLL_INTERVAL = 100;
+    private static final long TERMINATION_TIMEOUT = 30 * 1000;
+
+    private final IHTTPConnectionFactory myConnectionFactory;
+    private final DAVRepository myOwner;
+    private final ISVNEditor myEditor;
+    private final int myMaxPendingFetches;
+    private final ExecutorService myExecutor;
+    private final LinkedList myCalls;
+    private final ThreadLocal myConnection;
+    private final List myOpenedConnections;
+    private final Lock myAuthenticationLock;
+
+    private int myPendingFetchesCount;
+    private SVNDeltaGenerator myDeltaGenerator;
+    private volatile boolean myIsStopped;
+
+    public DAVFileFetcher(IHTTPConnectionFactory connectionFactory, DAVRepository owner, ISVNEditor editor, int threadsCount) {
+        myConnectionFactory = connectionFactory;
+        myOwner = owner;
+        myEditor = editor;
+        threadsCount = Math.max(1, threadsCount);
+        myMaxPendingFetches = threadsCount * FETCHES_PER_THREAD;
+        myExecutor = Executors.newFixedThreadPool(threadsCount, new FetcherThreadFactory());
+        myCalls = new LinkedList();
+        myConnection = new ThreadLocal();
+        myOpenedConnections = new ArrayList();
+        myAuthenticationLock = new ReentrantLock();
+    }
+
+    /**
+     * Returns the lock under which fetching connections authenticate. Other
+     * connections used while contents are fetched should hold it too.
+     */
+    public Lock getAuthenticationLock() {
+        return myAuthenticationLock;
+    }
+
+    /**
+     * Schedules fetching of the file contents, which are sent to the wrapped
+     * editor between <code>applyTextDelta</code> and <code>textDeltaEnd</code>
+     * calls in place of this call.
+     */
+    public void fetchFile(String path, String baseChecksum, String href) throws SVNException {
+        FileFetch fetch = new FileFetch(path, baseChecksum, href);
+        fetch.myResult = myExecutor.submit(fetch);
+        myPendingFetchesCount++;
+        addCall(fetch);
+    }
+
+    public void targetRevision(final long revision) throws SVNException {
+        addCall(new DeferredCall() {
+            public void run() throws SVNException {
+                myEditor.targetRevision(revision);
+            }
+        });
+    }
+
+    public void openRoot(final long revision) throws SVNException {
+        addCall(new DeferredCall() {
+            public void run() throws SVNException {
+                myEditor.openRoot(revision);
+            }
+        });
+    }
+
+    public void deleteEntry(final String path, final long revision) throws SVNException {
+        addCall(new DeferredCall() {
+            public void run() throws SVNException {
+                myEditor.deleteEntry(path, revision);
+            }
+        });
+    }
+
+    public void absentDir(final String path) throws SVNException {
+        addCall(new DeferredCall() {
+            public void run() throws SVNException {
+                myEditor.absentDir(path);
+            }
+        });
+    }
+
+    public void absentFile(final String path) throws SVNException {
+        addCall(new DeferredCall() {
+            public void run() throws SVNException {
+                myEditor.absentFile(path);
+            }
+        });
+    }
+
+    public void addDir(final String path, final String copyFromPath, final long copyFromRevision) throws SVNException {
+        addCall(new DeferredCall() {
+            public void run() throws SVNException {
+                myEditor.addDir(path, copyFromPath, copyFromRevision);
+            }
+        });
+    }
+
+    public void openDir(final String path, final long revision) throws SVNException {
+        addCall(new DeferredCall() {
+            public void run() throws SVNException {
+                myEditor.openDir(path, revision);
+            }
+        });
+    }
+
+    public void changeDirProperty(final String name, final SVNPropertyValue value) throws SVNException {
+        addCall(new DeferredCall() {
+            public void run() throws SVNException {
+                myEditor.changeDirProperty(name, value);
+            }
+        });
+    }
+
+    public void closeDir() throws SVNException {
+        addCall(new DeferredCall() {
+            public void run() throws SVNException {
+                myEditor.closeDir();
+            }
+        });
+    }
+
+    public void addFile(final String path, final String copyFromPath, final long copyFromRevision) throws SVNException {
+        addCall(new DeferredCall() {
+            public void run() throws SVNException {
+                myEditor.addFile(path, copyFromPath, copyFromRevision);
+            }
+        });
+    }
+
+    public void openFile(final String path, final long revision) throws SVNException {
+        addCall(new DeferredCall() {
+            public void run() throws SVNException {
+                myEditor.openFile(path, revision);
+            }
+        });
+    }
+
+    public void changeFileProperty(final String path, final String propertyName, final SVNPropertyValue propertyValue) throws SVNException {
+        addCall(new DeferredCall() {
+            public void run() throws SVNException {
+                myEditor.changeFileProperty(path, propertyName, propertyValue);
+            }
+        });
+    }
+
+    public void closeFile(final String path, final String textChecksum) throws SVNException {
+        addCall(new DeferredCall() {
+            public void run() throws SVNException {
+                myEditor.closeFile(path, textChecksum);
+            }
+        });
+    }
+
+    public void applyTextDelta(final String path, final String baseChecksum) throws SVNException {
+        addCall(new DeferredCall() {
+            public void run() throws SVNException {
+                myEditor.applyTextDelta(path, baseChecksum);
+            }
+        });
+    }
+
+    public OutputStream textDeltaChunk(final String path, SVNDiffWindow diffWindow) throws SVNException {
+        final SVNDiffWindow window = diffWindow == SVNDiffWindow.EMPTY || diffWindow.getDataLength() == 0 ? diffWindow :
+            diffWindow.clone(ByteBuffer.allocate(diffWindow.getDataLength()));
+        addCall(new DeferredCall() {
+            public void run() throws SVNException {
+                SVNFileUtil.closeFile(myEditor.textDeltaChunk(path, window));
+            }
+        });
+        return SVNFileUtil.DUMMY_OUT;
+    }
+
+    public void textDeltaEnd(final String path) throws SVNException {
+        addCall(new DeferredCall() {
+            public void run() throws SVNException {
+                myEditor.textDeltaEnd(path);
+            }
+        });
+    }
+
+    public SVNCommitInfo closeEdit() throws SVNException {
+        runCalls(0);
+        return myEditor.closeEdit();
+    }
+
+    public void abortEdit() throws SVNException {
+        runCalls(0);
+        myEditor.abortEdit();
+    }
+
+    /**
+     * Stops fetching and releases connections and spooled contents
+     * of the files which were not sent to the wrapped editor.
+     */
+    public void dispose() {
+        myIsStopped = true;
+        myExecutor.shutdownNow();
+        try {
+            myExecutor.awaitTermination(TERMINATION_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Iterator calls = myCalls.iterator(); calls.hasNext();) {
+            Object call = calls.next();
+            if (call instanceof FileFetch) {
+                ((FileFetch) call).deleteSpool();
+            }
+        }
+        myCalls.clear();
+        synchronized (myOpenedConnections) {
+            for (Iterator connections = myOpenedConnections.iterator(); connections.hasNext();) {
+                ((DAVConnection) connections.next()).close();
+            }
+            myOpenedConnections.clear();
+        }
+    }
+
+    private void addCall(DeferredCall call) throws SVNException {
+        myCalls.addLast(call);
+        runCalls(myMaxPendingFetches);
+    }
+
+    /**
+     * Runs deferred calls in order up to the first file which contents are
+     * not received yet, waits for contents only while more than
+     * <code>maxPendingFetches</code> files are being fetched.
+     */
+    private void runCalls(int maxPendingFetches) throws SVNException {
+        while (!myCalls.isEmpty()) {
+            DeferredCall call = (DeferredCall) myCalls.getFirst();
+            if (call instanceof FileFetch) {
+                FileFetch fetch = (FileFetch) call;
+                if (myPendingFetchesCount <= maxPendingFetches && !fetch.myResult.isDone()) {
+                    return;
+                }
+                waitForFetch(fetch);
+                myPendingFetchesCount--;
+            }
+            myCalls.removeFirst();
+            call.run();
+        }
+    }
+
+    private void waitForFetch(FileFetch fetch) throws SVNException {
+        while (true) {
+            myOwner.getCanceller().checkCancelled();
+            try {
+                fetch.mySpool = (SpoolFile) fetch.myResult.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException e) {
+                continue;
+            } catch (InterruptedException e) {
+                SVNErrorManager.cancel("fetching file contents interrupted", SVNLogType.NETWORK);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SVNException) {
+                    throw (SVNException) cause;
+                }
+                SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_DAV_REQUEST_FAILED, "GET request failed for ''{0}'': {1}",
+                        new Object[] {fetch.myHref, cause.getMessage()});
+                SVNErrorManager.error(err, cause, SVNLogType.NETWORK);
+            }
+        }
+    }
+
+    private DAVConnection getConnection() throws SVNException {
+        DAVConnection connection = (DAVConnection) myConnection.get();
+        if (connection == null) {
+            connection = new DAVConnection(myConnectionFactory, myOwner);
+            synchronized (myOpenedConnections) {
+                myOpenedConnections.add(connection);
+            }
+            myConnection.set(connection);
+            connection.setAuthenticationLock(myAuthenticationLock);
+            connection.open(myOwner);
+        }
+        return connection;
+    }
+
+    private void sendContents(String path, SpoolFile spool) throws SVNException {
+        if (myDeltaGenerator == null) {
+            myDeltaGenerator = new SVNDeltaGenerator();
+        }
+        byte[] buffer = new byte[SVNFileUtil.STREAM_CHUNK_SIZE];
+        InputStream is = spool.openForReading();
+        try {
+            while (true) {
+                int read = is.read(buffer);
+                if (read < 0) {
+                    break;
+                } else if (read > 0) {
+                    myDeltaGenerator.sendDelta(path, buffer, read, myEditor);
+                }
+            }
+        } catch (IOException e) {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.IO_ERROR, e.getMessage());
+            SVNErrorManager.error(err, e, SVNLogType.NETWORK);
+        } finally {
+            SVNFileUtil.closeFile(is);
+        }
+    }
+
+    private interface DeferredCall {
+        public void run() throws SVNException;
+    }
+
+    private class FileFetch implements DeferredCall, Callable {
+
+        private final String myPath;
+        private final String myBaseChecksum;
+        private final String myHref;
+        private Future myResult;
+        private SpoolFile mySpool;
+
+        public FileFetch(String path, String baseChecksum, String href) {
+            myPath = path;
+            myBaseChecksum = baseChecksum;
+            myHref = href;
+        }
+
+        public Object call() throws Exception {
+            if (myIsStopped) {
+                SVNErrorManager.cancel("fetching file contents cancelled", SVNLogType.NETWORK);
+            }
+            SpoolFile spool = new SpoolFile(null);
+            OutputStream os = spool.openForWriting();
+            try {
+                getConnection().doGet(myHref, null, os);
+                os.close();
+            } catch (Exception e) {
+                SVNFileUtil.closeFile(os);
+                spool.delete();
+                throw e;
+            }
+            return spool;
+        }
+
+        public void run() throws SVNException {
+            try {
+                try {
+                    myEditor.applyTextDelta(myPath, myBaseChecksum);
+                } catch (SVNCancelException ce) {
+                    throw ce;
+                } catch (SVNException svne) {
+                    SVNErrorManager.error(svne.getErrorMessage().wrap("Could not save file"), SVNLogType.NETWORK);
+                }
+                sendContents(myPath, mySpool);
+                myEditor.textDeltaEnd(myPath);
+            } finally {
+                deleteSpool();
+            }
+        }
+
+        public void deleteSpool() {
+            SpoolFile spool = mySpool;
+            if (spool == null && myResult.isDone() && !myResult.isCancelled()) {
+                try {
+                    spool = (SpoolFile) myResult.get();
+                } catch (Exception e) {
+                    spool = null;
+                }
+            }
+            if (spool != null) {
+                try {
+                    spool.delete();
+                } catch (SVNException e) {
+                }
+                mySpool = null;
+            }
+        }
+    }
+
+    private static class FetcherThreadFactory implements ThreadFactory {
+
+        private int myThreadsCount;
+
+        public synchronized Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "svnkit-dav-fetch-" + (++myThreadsCount));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -36,7 +36,9 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLException;
@@ -60,10 +62,13 @@ import org.tmatesoft.svn.core.auth.SVNAuthentication;
 import org.tmatesoft.svn.core.auth.SVNPasswordAuthentication;
 import org.tmatesoft.svn.core.internal.io.dav.handlers.DAVErrorHandler;
 import org.tmatesoft.svn.core.internal.util.ChunkedInputStream;
+import org.tmatesoft.svn.core.internal.util.ChunkedOutputStream;
 import org.tmatesoft.svn.core.internal.util.FixedSizeInputStream;
 import org.tmatesoft.svn.core.internal.util.SVNSSLUtil;
 import org.tmatesoft.svn.core.internal.util.SVNSocketFactory;
 import org.tmatesoft.svn.core.internal.wc.DefaultSVNAuthenticationManager;
+import org.tmatesoft.svn.core.internal.wc.ISVNHostOptions;
+import org.tmatesoft.svn.core.internal.wc.ISVNHostOptionsExt;
 import org.tmatesoft.svn.core.internal.wc.IOExceptionWrapper;
 import org.tmatesoft.svn.core.internal.wc.SVNCancellableOutputStream;
 import org.tmatesoft.svn.core.internal.wc.SVNErrorManager;
@@ -96,6 +101,7 @@ public class HTTPConnection implements IHTTPConnection {
     
     private static final int requestAttempts; 
     private static final int DEFAULT_HTTP_TIMEOUT = 3600*1000;
+    private static final long REQUEST_COMPRESSION_THRESHOLD = 16*1024;
     
     static {
         String attemptsString = System.getProperty("svnkit.http.requestAttempts", "1" );
@@ -135,6 +141,12 @@ public class HTTPConnection implements IHTTPConnection {
     private long myNextRequestTimeout;
     private int myRequestCount;
     private HTTPStatus myLastStatus;
+    private boolean myIsCompressionOptionsLoaded;
+    private boolean myIsResponseCompressionEnabled;
+    private boolean myIsRequestCompressionEnabled;
+    private boolean myIsRequestCompressionRejected;
+    private Lock myAuthenticationLock;
+    private boolean myIsRequestCompleted;
 
     private static final SVNPasswordAuthentication BOGUS_AUTH = new SVNPasswordAuthentication("qaOWQ8w3-byHudson","OGQCrcJ9-byHudson",false);
 
@@ -151,6 +163,18 @@ public class HTTPConnection implements IHTTPConnection {
     public HTTPStatus getLastStatus() {
         return myLastStatus;
     }
+
+    /**
+     * Sets the lock to hold while this connection talks to the
+     * authentication manager of its repository, for connections which share
+     * that manager with connections used by other threads. Until a request
+     * completes on a socket, the whole request runs under the lock, so that
+     * SSL handshakes, proxy and server authentication are serialized; after
+     * that only sending the request and reading the response run without it.
+     */
+    public void setAuthenticationLock(Lock lock) {
+        myAuthenticationLock = lock;
+    }
     
     public SVNURL getHost() {
         return myHost;
@@ -343,6 +367,31 @@ public class HTTPConnection implements IHTTPConnection {
             myRepository.getDebugLog().flushStream(getOutputStream());
         }
     }
+
+    public void sendCompressedData(InputStream source, long length) throws IOException {
+        try {
+            byte[] buffer = getBuffer();
+            // gzip output is sent with chunked transfer coding, as its length is not known in advance.
+            OutputStream gzip = new GZIPOutputStream(new BufferedOutputStream(new ChunkedOutputStream(getOutputStream()), buffer.length), buffer.length);
+            try {
+                while(length > 0) {
+                    int read = source.read(buffer, 0, (int) Math.min(buffer.length, length));
+                    if (read > 0) {
+                        length -= read;
+                        gzip.write(buffer, 0, read);
+                    } else if (read < 0) {
+                        break;
+                    }
+                }
+            } finally {
+                // writes gzip trailer and the last chunk, socket stream stays open.
+                gzip.close();
+            }
+            getOutputStream().flush();
+        } finally {
+            myRepository.getDebugLog().flushStream(getOutputStream());
+        }
+    }
     
     public SVNAuthentication getLastValidCredentials() {
         return myLastValidAuth;
@@ -355,6 +404,7 @@ public class HTTPConnection implements IHTTPConnection {
         myChallengeCredentials = null;
         myProxyAuthentication = null;
         myRequestCount = 0;
+        myIsCompressionOptionsLoaded = false;
     }
 
     public HTTPStatus request(String method, String path, HTTPHeader header, StringBuffer body, int ok1, int ok2, OutputStream dst, DefaultHandler handler) throws SVNException {
@@ -390,6 +440,27 @@ public class HTTPConnection implements IHTTPConnection {
     }
 
     private HTTPStatus _request(String method, String path, HTTPHeader header, InputStream body, int ok1, int ok2, OutputStream dst, DefaultHandler handler, SVNErrorMessage context) throws SVNException {
+        lockAuthentication();
+        try {
+            return doRequest(method, path, header, body, ok1, ok2, dst, handler, context);
+        } finally {
+            unlockAuthentication();
+        }
+    }
+
+    private void lockAuthentication() {
+        if (myAuthenticationLock != null) {
+            myAuthenticationLock.lock();
+        }
+    }
+
+    private void unlockAuthentication() {
+        if (myAuthenticationLock != null) {
+            myAuthenticationLock.unlock();
+        }
+    }
+
+    private HTTPStatus doRequest(String method, String path, HTTPHeader header, InputStream body, int ok1, int ok2, OutputStream dst, DefaultHandler handler, SVNErrorMessage context) throws SVNException {
         myLastStatus = null;
         myRequestCount++;
         
@@ -422,6 +493,9 @@ public class HTTPConnection implements IHTTPConnection {
         request.setRequestBody(body);
         request.setResponseHandler(handler);
         request.setResponseStream(dst);
+        loadCompressionOptions();
+        request.setResponseCompressionEnabled(myIsResponseCompressionEnabled);
+        request.setRequestCompressionThreshold(myIsRequestCompressionEnabled && !myIsRequestCompressionRejected ? REQUEST_COMPRESSION_THRESHOLD : -1);
         
         SVNErrorMessage err = null;
         boolean ntlmAuthIsRequired = false;
@@ -448,7 +522,9 @@ public class HTTPConnection implements IHTTPConnection {
                     myRepository.getDebugLog().logError(SVNLogType.NETWORK, e);
                 }
                 while(retryCount >= 0) {
+                    Socket socket = mySocket;
                     connect(keyManager, trustManager, proxyManager);
+                    boolean isAuthenticationUnlocked = myIsRequestCompleted && socket == mySocket && socket != null;
                     request.reset();
                     request.setProxied(myIsProxied);
                     request.setSecured(myIsSecured);                    
@@ -476,6 +552,9 @@ public class HTTPConnection implements IHTTPConnection {
                             request.setCookies(cookieHeader);
                         }
                     }
+                    if (isAuthenticationUnlocked) {
+                        unlockAuthentication();
+                    }
                     try {                        
                         request.dispatch(method, path, header, ok1, ok2, context);
                         break;
@@ -488,6 +567,9 @@ public class HTTPConnection implements IHTTPConnection {
                         throw (IOException) new IOException(pe.getMessage()).initCause(pe);
                     } finally {
                         retryCount--;
+                        if (isAuthenticationUnlocked) {
+                            lockAuthentication();
+                        }
                     }
                 }
                 final CookieHandler cookieHandler = CookieHandler.getDefault();
@@ -556,6 +638,14 @@ public class HTTPConnection implements IHTTPConnection {
 	            keyManager.acknowledgeAndClearAuthentication(null);
             }
 
+            if (request.isRequestCompressionRejected()) {
+                // server does not accept gzip request bodies, send this and next requests uncompressed.
+                SVNDebugLog.getDefaultLog().logFine(SVNLogType.NETWORK, "Compressed request body rejected, sending it uncompressed");
+                myIsRequestCompressionRejected = true;
+                request.setRequestCompressionThreshold(-1);
+                continue;
+            }
+
             if (myLastStatus.getCode() == HttpURLConnection.HTTP_FORBIDDEN) {
                 if (httpAuth != null && authManager != null) {
                     BasicAuthenticationManager.acknowledgeAuthentication(false, ISVNAuthenticationManager.PASSWORD, realm, request.getErrorMessage(), httpAuth, myRepository.getLocation(), authManager);
@@ -761,6 +851,7 @@ public class HTTPConnection implements IHTTPConnection {
             }
 
             myLastStatus.setHeader(request.getResponseHeader());
+            myIsRequestCompleted = true;
             return myLastStatus;
         }
         // force close on error that was not processed before.
@@ -1072,12 +1163,30 @@ public class HTTPConnection implements IHTTPConnection {
             readHeader.setHeaderValue(HTTPHeader.CONNECTION_HEADER, "close");
         } 
         
-        if ("gzip".equals(readHeader.getFirstHeaderValue(HTTPHeader.CONTENT_ENCODING_HEADER))) {
-            is = new GZIPInputStream(is);
+        String contentEncoding = readHeader.getFirstHeaderValue(HTTPHeader.CONTENT_ENCODING_HEADER);
+        if ("gzip".equalsIgnoreCase(contentEncoding) || "x-gzip".equalsIgnoreCase(contentEncoding)) {
+            is = new GZIPInputStream(is, 8*1024);
         }
         return myRepository.getDebugLog().createLogStream(SVNLogType.NETWORK, is);
     }
 
+    private void loadCompressionOptions() {
+        if (myIsCompressionOptionsLoaded) {
+            return;
+        }
+        myIsResponseCompressionEnabled = true;
+        myIsRequestCompressionEnabled = false;
+        ISVNAuthenticationManager authManager = myRepository.getAuthenticationManager();
+        if (authManager instanceof DefaultSVNAuthenticationManager) {
+            ISVNHostOptions hostOptions = ((DefaultSVNAuthenticationManager) authManager).getHostOptionsProvider().getHostOptions(myRepository.getLocation());
+            if (hostOptions instanceof ISVNHostOptionsExt) {
+                myIsResponseCompressionEnabled = ((ISVNHostOptionsExt) hostOptions).isHTTPCompressionEnabled();
+                myIsRequestCompressionEnabled = ((ISVNHostOptionsExt) hostOptions).isHTTPRequestCompressionEnabled();
+            }
+        }
+        myIsCompressionOptionsLoaded = true;
+    }
+
     private static synchronized SAXParserFactory getSAXParserFactory() throws FactoryConfigurationError {
         if (ourSAXParserFactory == null) {
             ourSAXParserFactory = createSAXParserFactory();
@@ -55,8 +55,21 @@ public class HTTPHeader {
     public static final String HOST_HEADER = "Host";
     public static final String NEW_URI_HEADER = "New-uri";
     public static final String OVERWRITE_HEADER = "Overwrite";
+    public static final String SVN_YOUNGEST_REV_HEADER = "SVN-Youngest-Rev";
+    public static final String SVN_REPOSITORY_ROOT_HEADER = "SVN-Repository-Root";
+    public static final String SVN_REPOSITORY_UUID_HEADER = "SVN-Repository-UUID";
+    public static final String SVN_ME_RESOURCE_HEADER = "SVN-Me-Resource";
+    public static final String SVN_REV_STUB_HEADER = "SVN-Rev-Stub";
+    public static final String SVN_REV_ROOT_STUB_HEADER = "SVN-Rev-Root-Stub";
+    public static final String SVN_TXN_STUB_HEADER = "SVN-Txn-Stub";
+    public static final String SVN_TXN_ROOT_STUB_HEADER = "SVN-Txn-Root-Stub";
+    public static final String SVN_VTXN_STUB_HEADER = "SVN-VTxn-Stub";
+    public static final String SVN_VTXN_ROOT_STUB_HEADER = "SVN-VTxn-Root-Stub";
+    public static final String SVN_TXN_NAME_HEADER = "SVN-Txn-Name";
+    public static final String SVN_VTXN_NAME_HEADER = "SVN-VTxn-Name";
     
     public static final String SVNDIFF_MIME_TYPE = "application/vnd.svn-svndiff";
+    public static final String SVN_SKEL_MIME_TYPE = "application/vnd.svn-skel";
     public static final String SET_COOKIE = "Set-Cookie";
     public static final String COOKIE = "Cookie";
     
@@ -60,6 +60,9 @@ class HTTPRequest {
     private String myCharset;
 
     private long myTimeout;
+    private boolean myIsResponseCompressionEnabled = true;
+    private long myRequestCompressionThreshold = -1;
+    private boolean myIsRequestCompressionRejected;
     private Map<String, List<String>> myCookieHeaders;
 
     public HTTPRequest(String charset) {
@@ -78,6 +81,7 @@ class HTTPRequest {
         myResponseHeader = null;
         myStatus = null;
         myErrorMessage = null;
+        myIsRequestCompressionRejected = false;
     }
     
     public void setProxied(boolean proxied) {
@@ -135,6 +139,27 @@ class HTTPRequest {
     public void setRequestBody(InputStream is) {
         myRequestStream = is;
     }
+
+    public void setResponseCompressionEnabled(boolean enabled) {
+        myIsResponseCompressionEnabled = enabled;
+    }
+
+    /**
+     * Request bodies of at least <code>threshold</code> bytes are sent gzip-compressed,
+     * negative value disables request compression.
+     */
+    public void setRequestCompressionThreshold(long threshold) {
+        myRequestCompressionThreshold = threshold;
+    }
+
+    /**
+     * Tells whether the server answered with 415 (Unsupported Media Type) to
+     * the compressed request body, so that the request could be sent again
+     * uncompressed.
+     */
+    public boolean isRequestCompressionRejected() {
+        return myIsRequestCompressionRejected;
+    }
     
     /**
      * heart of http engine.
@@ -166,9 +191,13 @@ class HTTPRequest {
                 throw new IOException(nfe.getMessage());
             }
         }
-        StringBuffer headerText = composeHTTPHeader(request, path, header, length, myIsKeepAlive);
+        boolean compressBody = myRequestCompressionThreshold >= 0 && length > 0 && length >= myRequestCompressionThreshold && 
+            (header == null || !header.hasHeader(HTTPHeader.CONTENT_ENCODING_HEADER));
+        StringBuffer headerText = composeHTTPHeader(request, path, header, compressBody ? -1 : length, myIsKeepAlive);
         myConnection.sendData(headerText.toString().getBytes(myCharset));
-        if (myRequestBody != null && length > 0) {
+        if (compressBody) {
+            myConnection.sendCompressedData(myRequestBody != null ? new ByteArrayInputStream(myRequestBody) : myRequestStream, length);
+        } else if (myRequestBody != null && length > 0) {
             myConnection.sendData(myRequestBody);
         } else if (myRequestStream != null && length > 0) {
             myConnection.sendData(myRequestStream, length);
@@ -181,6 +210,12 @@ class HTTPRequest {
         myTimeout = computeTimeout(myStatus, getResponseHeader());
         context = context == null ? SVNErrorMessage.create(SVNErrorCode.RA_DAV_REQUEST_FAILED, "{0} of ''{1}''", new Object[] {request, path}) : context; 
         
+        if (compressBody && myStatus.getCode() == HttpURLConnection.HTTP_UNSUPPORTED_TYPE) {
+            myIsRequestCompressionRejected = true;
+            myConnection.skipData(this);
+            return;
+        }
+        
         // check status.
         if (myStatus.getCode() == HttpURLConnection.HTTP_MOVED_PERM || 
                 myStatus.getCode() == HttpURLConnection.HTTP_MOVED_TEMP ||
@@ -361,13 +396,21 @@ class HTTPRequest {
             sb.append(myProxyAuthentication);
             sb.append(HTTPRequest.CRLF);
         }
-        if (header == null || !header.hasHeader(HTTPHeader.CONTENT_LENGTH_HEADER)) {
+        if (length < 0) {
+            // compressed body of unknown length.
+            sb.append(HTTPHeader.TRANSFER_ENCODING_HEADER + ": chunked");
+            sb.append(HTTPRequest.CRLF);
+            sb.append(HTTPHeader.CONTENT_ENCODING_HEADER + ": gzip");
+            sb.append(HTTPRequest.CRLF);
+        } else if (header == null || !header.hasHeader(HTTPHeader.CONTENT_LENGTH_HEADER)) {
             sb.append("Content-Length: ");
             sb.append(length);
             sb.append(HTTPRequest.CRLF);
         }
-        sb.append("Accept-Encoding: gzip");
-        sb.append(HTTPRequest.CRLF);
+        if (myIsResponseCompressionEnabled) {
+            sb.append("Accept-Encoding: gzip");
+            sb.append(HTTPRequest.CRLF);
+        }
         if (header == null || !header.hasHeader(HTTPHeader.CONTENT_TYPE_HEADER)) {
             sb.append("Content-Type: text/xml; charset=\"utf-8\"");
             sb.append(HTTPRequest.CRLF);
@@ -383,7 +426,7 @@ class HTTPRequest {
         sb.append(DAVElement.LOG_REVPROPS_OPTION);
         sb.append(HTTPRequest.CRLF);
         if (header != null) {
-            sb.append(header.toString());
+            sb.append(length < 0 ? toString(header, HTTPHeader.CONTENT_LENGTH_HEADER) : header.toString());
         }
 
         if(myCookieHeaders != null){
@@ -402,6 +445,23 @@ class HTTPRequest {
         return sb;
     }
     
+    private static String toString(HTTPHeader header, String excludedName) {
+        StringBuffer representation = new StringBuffer();
+        for (Iterator<Map.Entry<String, List<String>>> entries = header.getRawHeaders().entrySet().iterator(); entries.hasNext();) {
+            Map.Entry<String, List<String>> entry = entries.next();
+            if (excludedName.equalsIgnoreCase(entry.getKey())) {
+                continue;
+            }
+            for (Iterator<String> values = entry.getValue().iterator(); values.hasNext();) {
+                representation.append(entry.getKey());
+                representation.append(": ");
+                representation.append(values.next());
+                representation.append(HTTPRequest.CRLF);
+            }
+        }
+        return representation.toString();
+    }
+    
     private String composeRequestURI(String request, String path) {
         StringBuffer sb = new StringBuffer();
         if (myIsProxied && !myIsSecured) {
@@ -0,0 +1,203 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.core.internal.io.fs;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Thread-safe LRU cache bounded by the total weight of its entries.
+ * Used by {@link FSFS} to share immutable data read from committed
+ * revisions between all roots of the same repository.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+public class FSCache {
+
+    private final String myName;
+    private final long myMaxWeight;
+    private final LinkedHashMap myEntries;
+    private Map myStrings;
+
+    private long myWeight;
+    private long myHitsCount;
+    private long myMissesCount;
+    private long myEvictionsCount;
+
+    public FSCache(String name, long maxWeight) {
+        myName = name;
+        myMaxWeight = maxWeight;
+        myEntries = new LinkedHashMap(16, 0.75f, true);
+    }
+
+    public String getName() {
+        return myName;
+    }
+
+    public boolean isEnabled() {
+        return myMaxWeight > 0;
+    }
+
+    public synchronized Object get(Object key) {
+        if (!isEnabled()) {
+            return null;
+        }
+        CacheEntry entry = (CacheEntry) myEntries.get(key);
+        if (entry == null) {
+            myMissesCount++;
+            return null;
+        }
+        myHitsCount++;
+        return entry.myValue;
+    }
+
+    public void put(Object key, Object value) {
+        put(key, value, 1);
+    }
+
+    public synchronized void put(Object key, Object value, long weight) {
+        if (!isEnabled() || value == null || weight > myMaxWeight) {
+            return;
+        }
+        CacheEntry old = (CacheEntry) myEntries.put(key, new CacheEntry(value, weight));
+        if (old != null) {
+            myWeight -= old.myWeight;
+            if (old.myValue != value) {
+                entryRemoved(key, old.myValue);
+            }
+        }
+        myWeight += weight;
+        for (Iterator entries = myEntries.entrySet().iterator(); myWeight > myMaxWeight && entries.hasNext();) {
+            Map.Entry eldest = (Map.Entry) entries.next();
+            CacheEntry eldestEntry = (CacheEntry) eldest.getValue();
+            entries.remove();
+            myWeight -= eldestEntry.myWeight;
+            myEvictionsCount++;
+            entryRemoved(eldest.getKey(), eldestEntry.myValue);
+        }
+    }
+
+    public synchronized void remove(Object key) {
+        CacheEntry old = (CacheEntry) myEntries.remove(key);
+        if (old != null) {
+            myWeight -= old.myWeight;
+            entryRemoved(key, old.myValue);
+        }
+    }
+
+    public synchronized void clear() {
+        for (Iterator entries = myEntries.entrySet().iterator(); entries.hasNext();) {
+            Map.Entry entry = (Map.Entry) entries.next();
+            entryRemoved(entry.getKey(), ((CacheEntry) entry.getValue()).myValue);
+        }
+        myEntries.clear();
+        myStrings = null;
+        myWeight = 0;
+    }
+
+    /**
+     * Called with the cache locked when <code>value</code> is evicted,
+     * removed or replaced, so that resources held by it may be released.
+     */
+    protected void entryRemoved(Object key, Object value) {
+    }
+
+    /**
+     * Returns a single instance of equal strings for values of this cache.
+     * Strings are weakly referenced, so those used only by evicted values
+     * are dropped, and all of them are dropped together with the cache.
+     */
+    public synchronized String share(String str) {
+        if (str == null) {
+            return null;
+        }
+        if (myStrings == null) {
+            myStrings = new WeakHashMap();
+        }
+        WeakReference reference = (WeakReference) myStrings.get(str);
+        String shared = reference != null ? (String) reference.get() : null;
+        if (shared == null) {
+            shared = str;
+            myStrings.put(shared, new WeakReference(shared));
+        }
+        return shared;
+    }
+
+    public synchronized int size() {
+        return myEntries.size();
+    }
+
+    public synchronized long getWeight() {
+        return myWeight;
+    }
+
+    public long getMaxWeight() {
+        return myMaxWeight;
+    }
+
+    public synchronized long getHitsCount() {
+        return myHitsCount;
+    }
+
+    public synchronized long getMissesCount() {
+        return myMissesCount;
+    }
+
+    public synchronized long getEvictionsCount() {
+        return myEvictionsCount;
+    }
+
+    public synchronized String toString() {
+        StringBuffer buffer = new StringBuffer();
+        buffer.append(myName);
+        buffer.append(": entries=");
+        buffer.append(myEntries.size());
+        buffer.append(", weight=");
+        buffer.append(myWeight);
+        buffer.append("/");
+        buffer.append(myMaxWeight);
+        buffer.append(", hits=");
+        buffer.append(myHitsCount);
+        buffer.append(", misses=");
+        buffer.append(myMissesCount);
+        buffer.append(", evictions=");
+        buffer.append(myEvictionsCount);
+        return buffer.toString();
+    }
+
+    private static class CacheEntry {
+
+        private final Object myValue;
+        private final long myWeight;
+
+        public CacheEntry(Object value, long weight) {
+            myValue = value;
+            myWeight = weight;
+        }
+    }
+
+    static long getSizeOption(String name, long defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException nfe) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.core.internal.io.fs;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.tmatesoft.svn.core.SVNNodeKind;
+import org.tmatesoft.svn.core.internal.util.SVNHashMap;
+
+/**
+ * Compact immutable form of the folded changes of a committed revision,
+ * as kept in the changed paths cache of {@link FSFS}. Paths are shared
+ * through the cache, change kinds and flags are packed into a single byte per change.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+public class FSChangedPaths {
+
+    private static final FSPathChangeKind[] CHANGE_KINDS = {
+        FSPathChangeKind.FS_PATH_CHANGE_MODIFY,
+        FSPathChangeKind.FS_PATH_CHANGE_ADD,
+        FSPathChangeKind.FS_PATH_CHANGE_DELETE,
+        FSPathChangeKind.FS_PATH_CHANGE_REPLACE,
+        FSPathChangeKind.FS_PATH_CHANGE_RESET,
+    };
+
+    private static final SVNNodeKind[] NODE_KINDS = {
+        null,
+        SVNNodeKind.UNKNOWN,
+        SVNNodeKind.FILE,
+        SVNNodeKind.DIR,
+        SVNNodeKind.NONE,
+    };
+
+    private static final int TEXT_MODIFIED = 0x40;
+    private static final int PROPERTIES_MODIFIED = 0x80;
+
+    private final String[] myPaths;
+    private final FSID[] myIds;
+    private final byte[] myFlags;
+    private final String[] myCopyPaths;
+    private final long[] myCopyRevisions;
+
+    private FSChangedPaths(int count) {
+        myPaths = new String[count];
+        myIds = new FSID[count];
+        myFlags = new byte[count];
+        myCopyPaths = new String[count];
+        myCopyRevisions = new long[count];
+    }
+
+    public static FSChangedPaths create(Map changedPaths, FSCache cache) {
+        FSChangedPaths changes = new FSChangedPaths(changedPaths.size());
+        int i = 0;
+        for (Iterator paths = changedPaths.values().iterator(); paths.hasNext(); i++) {
+            FSPathChange change = (FSPathChange) paths.next();
+            int flags = indexOf(CHANGE_KINDS, change.getChangeKind()) | (indexOf(NODE_KINDS, change.getKind()) << 3);
+            if (change.isTextModified()) {
+                flags |= TEXT_MODIFIED;
+            }
+            if (change.arePropertiesModified()) {
+                flags |= PROPERTIES_MODIFIED;
+            }
+            changes.myPaths[i] = cache.share(change.getPath());
+            changes.myIds[i] = change.getRevNodeId();
+            changes.myFlags[i] = (byte) flags;
+            changes.myCopyPaths[i] = cache.share(change.getCopyPath());
+            changes.myCopyRevisions[i] = change.getCopyRevision();
+        }
+        return changes;
+    }
+
+    /**
+     * @return new map of new path changes, callers are free to modify it
+     */
+    public Map toMap() {
+        Map changedPaths = new SVNHashMap();
+        for (int i = 0; i < myPaths.length; i++) {
+            int flags = myFlags[i] & 0xFF;
+            FSPathChange change = new FSPathChange(myPaths[i], myIds[i], CHANGE_KINDS[flags & 0x07],
+                    (flags & TEXT_MODIFIED) != 0, (flags & PROPERTIES_MODIFIED) != 0,
+                    myCopyPaths[i], myCopyRevisions[i], NODE_KINDS[(flags >> 3) & 0x07]);
+            changedPaths.put(myPaths[i], change);
+        }
+        return changedPaths;
+    }
+
+    /**
+     * @return approximate number of bytes taken by these changes
+     */
+    public long getWeight() {
+        long weight = 64;
+        for (int i = 0; i < myPaths.length; i++) {
+            // arrays slots and the id, strings themselves are shared by the cache.
+            weight += 64 + myPaths[i].length();
+            if (myCopyPaths[i] != null) {
+                weight += myCopyPaths[i].length();
+            }
+        }
+        return weight;
+    }
+
+    private static int indexOf(Object[] values, Object value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
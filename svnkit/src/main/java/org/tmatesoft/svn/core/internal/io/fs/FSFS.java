@@ -21,6 +21,7 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -82,6 +83,7 @@ public class FSFS {
     public static final String NODE_ORIGINS_DIR = "node-origins";
 
     public static final String REP_CACHE_DB = "rep-cache.db";
+    public static final String LOG_INDEX_DB = "log-index.db";
     public static final String PACK_EXT = ".pack";
     public static final String PACK_KIND_PACK = "pack";
     public static final String PACK_KIND_MANIFEST = "manifest";
@@ -126,6 +128,16 @@ public class FSFS {
 
     //TODO: we should be able to change this via some option
     private static long DEFAULT_MAX_FILES_PER_DIRECTORY = 1000;
+    private static final long DEFAULT_REVISION_NODES_CACHE_SIZE = FSCache.getSizeOption("svnkit.fsfs.revisionNodesCacheSize", 16 * 1024);
+    private static final long DEFAULT_DIR_CONTENTS_CACHE_SIZE = FSCache.getSizeOption("svnkit.fsfs.dirContentsCacheSize", 16 * 1024 * 1024);
+    private static final long DEFAULT_PACK_MANIFESTS_CACHE_SIZE = FSCache.getSizeOption("svnkit.fsfs.packManifestsCacheSize", 128);
+    private static final long DEFAULT_MAPPED_PACKS_CACHE_SIZE = FSCache.getSizeOption("svnkit.fsfs.mappedPacksCacheSize", 1024);
+    private static final long DEFAULT_CHANGED_PATHS_CACHE_SIZE = FSCache.getSizeOption("svnkit.fsfs.changedPathsCacheSize", 8 * 1024 * 1024);
+    private static final long DEFAULT_REVISION_PROPERTIES_CACHE_SIZE = FSCache.getSizeOption("svnkit.fsfs.revisionPropertiesCacheSize", 4 * 1024 * 1024);
+    private static final long DEFAULT_FULLTEXTS_CACHE_SIZE = FSCache.getSizeOption("svnkit.fsfs.fulltextsCacheSize", 0);
+    private static final long DEFAULT_FULLTEXTS_CACHE_MAX_ENTRY_SIZE = FSCache.getSizeOption("svnkit.fsfs.fulltextsCacheMaxEntrySize", 64 * 1024);
+    private static final long DEFAULT_FILE_CHANNELS_POOL_SIZE = FSCache.getSizeOption("svnkit.fsfs.fileChannelsPoolSize", SVNFileUtil.isWindows ? 0 : 64);
+    private static boolean ourIsMapPackFiles = Boolean.TRUE.toString().equalsIgnoreCase(System.getProperty("svnkit.fsfs.mapPackFiles", "false"));
     private static final String DB_TYPE = "fsfs";
 
     public static final String REVISION_PROPERTIES_DB = "revprops.db";
@@ -162,15 +174,46 @@ public class FSFS {
     private long myMinUnpackedRevision;
     private SVNConfigFile myConfig;
     private IFSRepresentationCacheManager myReposCacheManager;
+    private FSLogIndex myLogIndex;
+    private boolean myIsLogIndexOpened;
     private SVNSqlJetDb myRevisionProperitesDb;
     private long myMinUnpackedRevProp;
     
     private boolean myIsHooksEnabled;
+    private FSCache myRevisionNodesCache;
+    private FSCache myDirContentsCache;
+    private FSCache myPackManifestsCache;
+    private FSCache myMappedPacksCache;
+    private FSCache myChangedPathsCache;
+    private FSCache myRevisionPropertiesCache;
+    private FSCache myFulltextsCache;
+    private long myFulltextsCacheMaxEntrySize;
+    private boolean myIsCachesShared;
+    private boolean myIsSharedCachesEnabled;
+    private boolean myIsMapPackFiles;
+    private FSFileChannelPool myFileChannelPool;
 
     public FSFS(File repositoryRoot) {
         myRepositoryRoot = repositoryRoot;
         myMaxFilesPerDirectory = 0;
+        myRevisionNodesCache = new FSCache("revision nodes", DEFAULT_REVISION_NODES_CACHE_SIZE);
+        myDirContentsCache = new FSCache("directory contents", DEFAULT_DIR_CONTENTS_CACHE_SIZE);
+        myPackManifestsCache = new FSCache("pack manifests", DEFAULT_PACK_MANIFESTS_CACHE_SIZE);
+        myMappedPacksCache = new FSCache("mapped pack files", DEFAULT_MAPPED_PACKS_CACHE_SIZE) {
+            protected void entryRemoved(Object key, Object value) {
+                ((FSMappedFile) value).dispose();
+            }
+        };
+        myChangedPathsCache = new FSCache("changed paths", DEFAULT_CHANGED_PATHS_CACHE_SIZE);
+        myRevisionPropertiesCache = new FSCache("revision properties", DEFAULT_REVISION_PROPERTIES_CACHE_SIZE);
+        myFulltextsCache = new FSCache("fulltexts", DEFAULT_FULLTEXTS_CACHE_SIZE);
+        myFulltextsCacheMaxEntrySize = DEFAULT_FULLTEXTS_CACHE_MAX_ENTRY_SIZE;
+        myIsMapPackFiles = ourIsMapPackFiles;
+        if (DEFAULT_FILE_CHANNELS_POOL_SIZE > 0) {
+            myFileChannelPool = new FSFileChannelPool((int) DEFAULT_FILE_CHANNELS_POOL_SIZE);
+        }
         setHooksEnabled(true);
+        setSharedCachesEnabled(true);
     }
     
     public void setHooksEnabled(boolean enabled) {
@@ -181,6 +224,33 @@ public class FSFS {
         return myIsHooksEnabled;
     }
 
+    /**
+     * When disabled before {@link #open()}, this instance keeps its own caches
+     * instead of the ones {@link FSSharedCaches} keeps for its repository, so
+     * everything it reads comes from the disk.
+     */
+    public void setSharedCachesEnabled(boolean enabled) {
+        myIsSharedCachesEnabled = enabled;
+    }
+
+    public boolean isSharedCachesEnabled() {
+        return myIsSharedCachesEnabled;
+    }
+
+    /**
+     * When enabled, pack files of packed shards are memory mapped once and
+     * all reads of packed revisions are served from these shared mappings.
+     * Mappings are unmapped when evicted from {@link #getMappedPacksCache()},
+     * which is shared by all instances of the repository.
+     */
+    public void setMapPackFiles(boolean mapPackFiles) {
+        myIsMapPackFiles = mapPackFiles;
+    }
+
+    public boolean isMapPackFiles() {
+        return myIsMapPackFiles;
+    }
+
     public int getDBFormat() {
         return myDBFormat;
     }
@@ -203,10 +273,21 @@ public class FSFS {
             myReposCacheManager.close();
             myReposCacheManager = null;
         }
+        if (myLogIndex != null) {
+            myLogIndex.close();
+            myLogIndex = null;
+        }
+        myIsLogIndexOpened = false;
         if(myRevisionProperitesDb!=null) {
             myRevisionProperitesDb.close();
             myRevisionProperitesDb = null;
         }
+        if (!myIsCachesShared) {
+            if (myFileChannelPool != null) {
+                myFileChannelPool.clear();
+            }
+            myMappedPacksCache.clear();
+        }
     }
 
     public void openForRecovery() throws SVNException {
@@ -299,6 +380,10 @@ public class FSFS {
             myRevisionProperitesDb = SVNSqlJetDb.open(
                     getRevisionPropertiesDbPath(), SVNSqlJetDb.Mode.ReadWrite );
           }
+
+        if (myIsSharedCachesEnabled && !myIsCachesShared) {
+            FSSharedCaches.shareCaches(this);
+        }
     }
 
     public String getFSType() throws SVNException {
@@ -454,6 +539,10 @@ public class FSFS {
         return myRepositoryCacheFile;
     }
 
+    public File getLogIndexFile() {
+        return new File(getDBRoot(), LOG_INDEX_DB);
+    }
+
     public File getDBLogsLockFile() throws SVNException {
         File lockFile = new File(getDBRoot(), LOCKS_DIR + "/" + DB_LOGS_LOCK_FILE);
         if (!lockFile.exists()) {
@@ -615,6 +704,10 @@ public class FSFS {
     }
 
     public SVNProperties getRevisionProperties(long revision) throws SVNException {
+        CachedRevisionProperties cachedProperties = (CachedRevisionProperties) myRevisionPropertiesCache.get(new Long(revision));
+        if (cachedProperties != null && cachedProperties.isValid()) {
+            return new SVNProperties(cachedProperties.myProperties);
+        }
         try{
             return readRevisionProperties(revision);
         } catch(SVNException e ) {
@@ -630,13 +723,16 @@ public class FSFS {
     private SVNProperties readRevisionProperties(long revision) throws SVNException {
         ensureRevisionsExists(revision);
         if (myDBFormat < MIN_PACKED_REVPROP_FORMAT || revision >= myMinUnpackedRevProp) {
-            FSFile file = new FSFile(getRevisionPropertiesFile(revision, false));
+            File revPropsFile = getRevisionPropertiesFile(revision, false);
+            CachedRevisionProperties cachedProperties = new CachedRevisionProperties(revPropsFile);
+            FSFile file = new FSFile(revPropsFile);
             try {
-                return file.readProperties(false, true);
+                return cacheRevisionProperties(revision, cachedProperties, file.readProperties(false, true));
             } finally {
                 file.close();
             }
          }
+        CachedRevisionProperties cachedProperties = new CachedRevisionProperties(getRevisionPropertiesDbPath());
 
         final SVNSqlJetStatement stmt = myRevisionProperitesDb.getStatement(SVNWCDbStatements.FSFS_GET_REVPROP);
         try{
@@ -648,12 +744,26 @@ public class FSFS {
                 SVNErrorManager.error(err, SVNLogType.FSFS);
                 return null;
             }
-            return stmt.getColumnProperties(SVNWCDbSchema.REVPROP__Fields.properties);
+            return cacheRevisionProperties(revision, cachedProperties, stmt.getColumnProperties(SVNWCDbSchema.REVPROP__Fields.properties));
         } finally {
             stmt.reset();
         }
     }
 
+    private SVNProperties cacheRevisionProperties(long revision, CachedRevisionProperties cachedProperties, SVNProperties properties) {
+        if (properties == null || !myRevisionPropertiesCache.isEnabled() || !cachedProperties.isCacheable()) {
+            return properties;
+        }
+        cachedProperties.myProperties = new SVNProperties(properties);
+        long weight = 64;
+        for (Iterator names = properties.nameSet().iterator(); names.hasNext();) {
+            String name = (String) names.next();
+            weight += 32 + name.length() + SVNPropertyValue.getPropertyAsBytes(properties.getSVNPropertyValue(name)).length;
+        }
+        myRevisionPropertiesCache.put(new Long(revision), cachedProperties, weight);
+        return properties;
+    }
+
     public FSRevisionRoot createRevisionRoot(long revision) throws SVNException {
         ensureRevisionsExists(revision);
         return new FSRevisionRoot(this, revision);
@@ -685,6 +795,12 @@ public class FSFS {
     }
 
     public FSRevisionNode getRevisionNode(FSID id) throws SVNException  {
+        if (!id.isTxn()) {
+            FSRevisionNode cachedNode = (FSRevisionNode) myRevisionNodesCache.get(id);
+            if (cachedNode != null) {
+                return FSRevisionNode.dumpRevisionNode(cachedNode);
+            }
+        }
         FSFile revisionFile = null;
 
         if (id.isTxn()) {
@@ -705,9 +821,88 @@ public class FSFS {
         if (node.isFreshTxnRoot()) {
             node.setFreshRootPredecessorId(node.getPredecessorId());
         }
+        if (!id.isTxn()) {
+            // callers are free to modify returned nodes, so the cache keeps its own copy
+            myRevisionNodesCache.put(id, FSRevisionNode.dumpRevisionNode(node));
+        }
         return node;
     }
 
+    /**
+     * Makes this instance use the caches of <code>owner</code>, an instance
+     * of the same repository. Caches are thread safe, so instances used on
+     * different threads may share them, mapped pack files and the pool of
+     * revision file channels included.
+     * Unless this method is called before {@link #open()}, an opened instance
+     * uses the caches {@link FSSharedCaches} keeps for its repository.
+     */
+    public void shareCaches(FSFS owner) {
+        myIsCachesShared = true;
+        myRevisionNodesCache = owner.myRevisionNodesCache;
+        myDirContentsCache = owner.myDirContentsCache;
+        myPackManifestsCache = owner.myPackManifestsCache;
+        myMappedPacksCache = owner.myMappedPacksCache;
+        myFileChannelPool = owner.myFileChannelPool;
+        myChangedPathsCache = owner.myChangedPathsCache;
+        myRevisionPropertiesCache = owner.myRevisionPropertiesCache;
+        myFulltextsCache = owner.myFulltextsCache;
+        myFulltextsCacheMaxEntrySize = owner.myFulltextsCacheMaxEntrySize;
+    }
+
+    public FSCache getRevisionNodesCache() {
+        return myRevisionNodesCache;
+    }
+
+    public FSCache getDirContentsCache() {
+        return myDirContentsCache;
+    }
+
+    public FSCache getPackManifestsCache() {
+        return myPackManifestsCache;
+    }
+
+    public FSCache getMappedPacksCache() {
+        return myMappedPacksCache;
+    }
+
+    /**
+     * Cache of {@link FSChangedPaths} of committed revisions keyed by
+     * revision number, bounded by approximate size of changes in bytes.
+     */
+    public FSCache getChangedPathsCache() {
+        return myChangedPathsCache;
+    }
+
+    /**
+     * Cache of revision properties keyed by revision number, bounded by
+     * approximate size of properties in bytes. Entries are validated
+     * against modification time and size of the file they were read from
+     * (revision properties file or revision properties database), so that
+     * changes made by other processes are noticed.
+     */
+    public FSCache getRevisionPropertiesCache() {
+        return myRevisionPropertiesCache;
+    }
+
+    public FSCache getFulltextsCache() {
+        return myFulltextsCache;
+    }
+
+    public long getFulltextsCacheMaxEntrySize() {
+        return myFulltextsCacheMaxEntrySize;
+    }
+
+    /**
+     * Sets the total size in bytes of the cache of committed file contents
+     * and the size of the largest file admitted into it. Contents of cached
+     * files are read from memory instead of being reconstructed from their
+     * delta chains. Zero <code>cacheSize</code> disables the cache.
+     */
+    public void setFulltextsCacheSize(long cacheSize, long maxEntrySize) {
+        myFulltextsCache = new FSCache("fulltexts", cacheSize);
+        myFulltextsCacheMaxEntrySize = maxEntrySize;
+    }
+
     public Map getDirContents(FSRevisionNode revNode) throws SVNException {
         FSRepresentation txtRep = revNode.getTextRepresentation();
         if (txtRep != null && txtRep.isTxn()) {
@@ -725,6 +920,11 @@ public class FSFS {
             }
             return entries;
         } else if (txtRep != null) {
+            String cacheKey = getRepresentationCacheKey(txtRep);
+            Map cachedEntries = (Map) myDirContentsCache.get(cacheKey);
+            if (cachedEntries != null) {
+                return cachedEntries;
+            }
             FSFile revisionFile = null;
 
             try {
@@ -747,7 +947,9 @@ public class FSFS {
                     SVNErrorManager.error(err, SVNLogType.FSFS);
                 }
 
-                return parsePlainRepresentation(rawEntries, false);
+                Map entries = Collections.unmodifiableMap(parsePlainRepresentation(rawEntries, false));
+                myDirContentsCache.put(cacheKey, entries, estimateDirContentsWeight(entries));
+                return entries;
             } finally {
                 if(revisionFile != null){
                     revisionFile.close();
@@ -1017,6 +1219,7 @@ public class FSFS {
                     SVNWCProperties revProps = new SVNWCProperties(getRevisionPropertiesFile(revision, false), null);
                     revProps.setPropertyValue(propertyName, propertyValue);
                 } finally {
+                    myRevisionPropertiesCache.remove(new Long(revision));
                     writeLock.unlock();
                     FSWriteLock.release(writeLock);
                 }
@@ -1029,6 +1232,7 @@ public class FSFS {
                 stmt.insert(new Object[] { revision, SVNSkel.createPropList(revisionProperties.asMap()).getData() } );
             } finally{
                 stmt.reset();
+                myRevisionPropertiesCache.remove(new Long(revision));
             }
         }
     }
@@ -1636,6 +1840,18 @@ public class FSFS {
         return myReposCacheManager;
     }
 
+    /**
+     * @return log index of the repository, or <code>null</code> if the
+     *         repository has none
+     */
+    public FSLogIndex getLogIndex() {
+        if (!myIsLogIndexOpened) {
+            myLogIndex = FSLogIndex.open(this);
+            myIsLogIndexOpened = true;
+        }
+        return myLogIndex;
+    }
+
     public static File findRepositoryRoot(File path) {
         if (path == null) {
             path = new File("");
@@ -1713,18 +1929,48 @@ public class FSFS {
             SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.FS_NO_SUCH_REVISION, "No such revision {0}", String.valueOf(revision));
             SVNErrorManager.error(err, SVNLogType.FSFS);
         }
-        return new FSFile(revisionFile);
+        return openRevisionOrPackFile(revisionFile);
     }
 
     protected FSFile getPackOrRevisionFSFile(long revision) throws SVNException {
         File file = getAbsoluteRevisionPath(revision);
+        if (myIsMapPackFiles && isPackedRevision(revision)) {
+            Long shard = new Long(revision / myMaxFilesPerDirectory);
+            FSMappedFile mappedFile;
+            // the cache is shared, so the shard is mapped by one thread only
+            synchronized (myMappedPacksCache) {
+                mappedFile = (FSMappedFile) myMappedPacksCache.get(shard);
+                if (mappedFile == null) {
+                    checkRevisionFileExists(file, revision);
+                    mappedFile = FSMappedFile.map(file);
+                    myMappedPacksCache.put(shard, mappedFile);
+                }
+            }
+            return new FSFile(mappedFile);
+        }
+        checkRevisionFileExists(file, revision);
+        return openRevisionOrPackFile(file);
+    }
+
+    private static void checkRevisionFileExists(File file, long revision) throws SVNException {
         if (!file.exists()) {
             SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.FS_NO_SUCH_REVISION, "No such revision {0}", String.valueOf(revision));
             SVNErrorManager.error(err, SVNLogType.FSFS);
         }
+    }
+
+    private FSFile openRevisionOrPackFile(File file) {
+        // revision and pack files are immutable, so their channels may be shared
+        if (myFileChannelPool != null) {
+            return new FSFile(file, myFileChannelPool);
+        }
         return new FSFile(file);
     }
 
+    public FSFileChannelPool getFileChannelPool() {
+        return myFileChannelPool;
+    }
+
     protected File getAbsoluteRevisionPath(long revision) throws SVNException {
         if (!isPackedRevision(revision)) {
             File revFile = getRevisionFile(revision);
@@ -1827,23 +2073,46 @@ public class FSFS {
     }
 
     protected long getPackedOffset(long revision) throws SVNException {
-        //TODO: later on introduce invoking memcache here to fetch\store the requested data
-        //long shard = revision / myMaxFilesPerDirectory;
-        File manifestFile = getPackedRevPath(revision, PACK_KIND_MANIFEST);
+        SVNErrorManager.assertionFailure(myMaxFilesPerDirectory > 0, "max files per directory is 0 or negative: " + String.valueOf(myMaxFilesPerDirectory), SVNLogType.FSFS);
+        Long shard = new Long(revision / myMaxFilesPerDirectory);
+        CachedPackManifest cachedManifest = (CachedPackManifest) myPackManifestsCache.get(shard);
+        if (cachedManifest == null || !cachedManifest.isValid()) {
+            cachedManifest = new CachedPackManifest(getPackedRevPath(revision, PACK_KIND_MANIFEST));
+            cachedManifest.myOffsets = readPackManifest(cachedManifest.myFile);
+            myPackManifestsCache.put(shard, cachedManifest);
+        }
+        long[] manifest = cachedManifest.myOffsets;
+
+        int index = (int) (revision % myMaxFilesPerDirectory);
+        if (index >= manifest.length) {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.FS_CORRUPT,
+                    "Manifest of the pack containing revision {0} has no offset for it", String.valueOf(revision));
+            SVNErrorManager.error(err, SVNLogType.FSFS);
+        }
+        return manifest[index];
+    }
+
+    private long[] readPackManifest(File manifestFile) throws SVNException {
         BufferedReader reader = null;
-        LinkedList manifest = new LinkedList();
+        long[] manifest = new long[(int) Math.min(myMaxFilesPerDirectory, 1024 * 1024)];
+        int count = 0;
         try {
             reader = new BufferedReader(new InputStreamReader(SVNFileUtil.openFileForReading(manifestFile)));
             String line = null;
             while ((line = reader.readLine()) != null) {
-                Long offset = null;
+                long offset = -1;
                 try {
-                    offset = Long.valueOf(line);
+                    offset = Long.parseLong(line);
                 } catch (NumberFormatException nfe) {
                     SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.FS_CORRUPT);
                     SVNErrorManager.error(err, SVNLogType.FSFS);
                 }
-                manifest.add(offset);
+                if (count == manifest.length) {
+                    long[] grown = new long[manifest.length * 2];
+                    System.arraycopy(manifest, 0, grown, 0, count);
+                    manifest = grown;
+                }
+                manifest[count++] = offset;
             }
         } catch (IOException ioe) {
             SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.IO_ERROR, ioe.getMessage());
@@ -1852,9 +2121,12 @@ public class FSFS {
             SVNFileUtil.closeFile(reader);
         }
 
-        Long revOffsetLong = (Long) manifest.get((int) (revision % myMaxFilesPerDirectory));
-        SVNErrorManager.assertionFailure(revOffsetLong != null, "offset for revision " + String.valueOf(revision) + " is null", SVNLogType.FSFS);
-        return revOffsetLong.longValue();
+        if (count < manifest.length) {
+            long[] trimmed = new long[count];
+            System.arraycopy(manifest, 0, trimmed, 0, count);
+            manifest = trimmed;
+        }
+        return manifest;
     }
 
     private SVNConfigFile loadConfig() {
@@ -2125,6 +2397,21 @@ public class FSFS {
         return representationMap;
     }
 
+    static String getRepresentationCacheKey(FSRepresentation rep) {
+        return rep.getRevision() + "/" + rep.getOffset();
+    }
+
+    private static long estimateDirContentsWeight(Map entries) {
+        // map entry, FSEntry and FSID objects with their strings take roughly 200 bytes,
+        // plus the characters of the entry name itself
+        long weight = 64;
+        for (Iterator names = entries.keySet().iterator(); names.hasNext();) {
+            String name = (String) names.next();
+            weight += 200 + 2 * name.length();
+        }
+        return weight;
+    }
+
     private FSEntry parseRepEntryValue(String name, String value) {
         if (value == null) {
             return null;
@@ -2196,4 +2483,56 @@ public class FSFS {
         return myRevisionProperitesDb;
     }
 
+
+    /**
+     * Offsets of a pack manifest together with modification time and size of
+     * the manifest file, so that a shard packed again is read again.
+     */
+    private static class CachedPackManifest {
+
+        private final File myFile;
+        private final long myLastModified;
+        private final long myLength;
+        private long[] myOffsets;
+
+        public CachedPackManifest(File file) {
+            myFile = file;
+            myLastModified = file.lastModified();
+            myLength = file.length();
+        }
+
+        public boolean isValid() {
+            return myFile.lastModified() == myLastModified && myFile.length() == myLength;
+        }
+    }
+
+    /**
+     * Revision properties together with modification time and size of the
+     * file they were read from. Properties read from a file modified within
+     * the timestamp granularity are not cached, as a change made in the same
+     * tick would keep both of them.
+     */
+    private static class CachedRevisionProperties {
+
+        private static final long TIMESTAMP_GRANULARITY = 2000;
+
+        private final File myFile;
+        private final long myLastModified;
+        private final long myLength;
+        private SVNProperties myProperties;
+
+        public CachedRevisionProperties(File file) {
+            myFile = file;
+            myLastModified = file.lastModified();
+            myLength = file.length();
+        }
+
+        public boolean isCacheable() {
+            return myLastModified > 0 && System.currentTimeMillis() - myLastModified > TIMESTAMP_GRANULARITY;
+        }
+
+        public boolean isValid() {
+            return myFile.lastModified() == myLastModified && myFile.length() == myLength;
+        }
+    }
 }
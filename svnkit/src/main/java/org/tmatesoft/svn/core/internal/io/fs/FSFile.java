@@ -16,6 +16,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
@@ -48,6 +49,10 @@ import org.tmatesoft.svn.util.SVNLogType;
 public class FSFile {
     
     private File myFile;
+    private FSMappedFile myMappedFile;
+    private boolean myIsMappedFileAcquired;
+    private FSFileChannelPool myChannelPool;
+    private FSFileChannelPool.PooledChannel myPooledChannel;
     private FileChannel myChannel;
     private FileInputStream myInputStream;
     private long myPosition;
@@ -60,11 +65,33 @@ public class FSFile {
     private MessageDigest myDigest;
     
     public FSFile(File file) {
+        this(file, null, null);
+    }
+
+    /**
+     * Reads of a mapped file are served from views of the shared mapping,
+     * no read buffers are allocated for them. The mapping is acquired on the
+     * first read and released on {@link #close()}; when it has already been
+     * disposed, the file is read through a channel instead.
+     */
+    public FSFile(FSMappedFile mappedFile) {
+        this(mappedFile.getFile(), mappedFile, null);
+    }
+
+    public FSFile(File file, FSFileChannelPool channelPool) {
+        this(file, null, channelPool);
+    }
+
+    private FSFile(File file, FSMappedFile mappedFile, FSFileChannelPool channelPool) {
         myFile = file;
+        myMappedFile = mappedFile;
+        myChannelPool = channelPool;
         myPosition = 0;
         myBufferPosition = 0;
-        myBuffer = ByteBuffer.allocate(1024);
-        myReadLineBuffer = ByteBuffer.allocate(1024);
+        if (mappedFile == null) {
+            myBuffer = ByteBuffer.allocate(1024);
+            myReadLineBuffer = ByteBuffer.allocate(1024);
+        }
         myDecoder = Charset.forName("UTF-8").newDecoder();
         myDecoder = myDecoder.onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT);
     }
@@ -78,6 +105,9 @@ public class FSFile {
     }
 
     public long size() {
+        if (myMappedFile != null) {
+            return myMappedFile.size();
+        }
         return myFile.length();
     }
     
@@ -118,8 +148,14 @@ public class FSFile {
     }
 
     public String readLine(int limit) throws SVNException {
-        allocateReadBuffer(limit);
         try {
+            if (isMapped()) {
+                ByteBuffer line = readMappedLine(limit);
+                if (line != null) {
+                    return myDecoder.decode(line).toString();
+                }
+            }
+            allocateReadBuffer(limit);
             while(myReadLineBuffer.hasRemaining()) {
                 int b = read();
                 if (b < 0) {
@@ -206,17 +242,14 @@ public class FSFile {
                     SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.MALFORMED_FILE);
                     SVNErrorManager.error(err, SVNLogType.DEFAULT);
                 }
-                allocateReadBuffer(length + 1);
-                read(myReadLineBuffer);
-                myReadLineBuffer.flip();
-                myReadLineBuffer.limit(myReadLineBuffer.limit() - 1);
-                int pos = myReadLineBuffer.position();
-                int limit = myReadLineBuffer.limit();
+                ByteBuffer block = readBlock(length + 1);
+                int pos = block.position();
                 String key = null;
                 try {
-                    key = myDecoder.decode(myReadLineBuffer).toString();
+                    key = myDecoder.decode(block).toString();
                 } catch (MalformedInputException mfi) {
-                    key = new String(myReadLineBuffer.array(), myReadLineBuffer.arrayOffset() + pos, limit - pos);
+                    block.position(pos);
+                    key = new String(getBytes(block));
                 }
                 if (kind == 'D') {
                     properties.put(key, (SVNPropertyValue) null);
@@ -237,20 +270,14 @@ public class FSFile {
                     SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.MALFORMED_FILE);
                     SVNErrorManager.error(err, SVNLogType.DEFAULT);
                 }
-                allocateReadBuffer(length + 1);
-                read(myReadLineBuffer);
-                myReadLineBuffer.flip();
-                myReadLineBuffer.limit(myReadLineBuffer.limit() - 1);
-                pos = myReadLineBuffer.position();
-                limit = myReadLineBuffer.limit();
+                block = readBlock(length + 1);
+                pos = block.position();
                 try {
-                    properties.put(key, myDecoder.decode(myReadLineBuffer).toString());
+                    properties.put(key, myDecoder.decode(block).toString());
                 } catch (CharacterCodingException cce) {
                     if (allowBinaryValues){
-                        byte[] dst = new byte[limit - pos];
-                        myReadLineBuffer.position(pos);
-                        myReadLineBuffer.get(dst);
-                        properties.put(key, dst);                                                
+                        block.position(pos);
+                        properties.put(key, getBytes(block));                                                
                     } else {
                         SVNErrorMessage error = SVNErrorMessage.create(SVNErrorCode.FS_CORRUPT, "File ''{0}'' contains unexpected binary property value", getFile());
                         SVNErrorManager.error(error, cce, SVNLogType.DEFAULT);
@@ -291,7 +318,7 @@ public class FSFile {
     }
     
     public int read() throws IOException {
-        if (myChannel == null || myPosition < myBufferPosition || myPosition >= myBufferPosition + myBuffer.limit()) {
+        if (!isBufferFilled()) {
             if (fill() <= 0) {
                 return -1;
             }
@@ -315,14 +342,26 @@ public class FSFile {
             myBuffer.position((int) (myPosition - myBufferPosition));
 
             int couldRead = Math.min(myBuffer.remaining(), target.remaining());
-            int readFrom = myBuffer.position() + myBuffer.arrayOffset();
-            target.put(myBuffer.array(), readFrom, couldRead);
-            if (myDigest != null) {
-                myDigest.update(myBuffer.array(), readFrom, couldRead);
+            if (myBuffer.hasArray()) {
+                int readFrom = myBuffer.position() + myBuffer.arrayOffset();
+                target.put(myBuffer.array(), readFrom, couldRead);
+                if (myDigest != null) {
+                    myDigest.update(myBuffer.array(), readFrom, couldRead);
+                }
+                myBuffer.position(myBuffer.position() + couldRead);
+            } else {
+                int limit = myBuffer.limit();
+                int from = myBuffer.position();
+                myBuffer.limit(from + couldRead);
+                target.put(myBuffer);
+                if (myDigest != null) {
+                    myBuffer.position(from);
+                    myDigest.update(myBuffer);
+                }
+                myBuffer.limit(limit);
             }
             myPosition += couldRead;
             read += couldRead;
-            myBuffer.position(myBuffer.position() + couldRead);
         }
         return read;
     }
@@ -354,7 +393,21 @@ public class FSFile {
     }
 
     public void close() {
-        if (myChannel != null) {
+        if (myMappedFile != null) {
+            if (myIsMappedFileAcquired) {
+                myMappedFile.release();
+                myIsMappedFileAcquired = false;
+            }
+            myBuffer = null;
+            myPosition = 0;
+            myDigest = null;
+        } else if (myPooledChannel != null) {
+            myChannelPool.release(myPooledChannel);
+            myPooledChannel = null;
+            myChannel = null;
+            myPosition = 0;
+            myDigest = null;
+        } else if (myChannel != null) {
             try {
                 myChannel.close();
             } catch (IOException e) {}
@@ -367,12 +420,102 @@ public class FSFile {
         
     }
     
+    /**
+     * Reads <code>length</code> bytes, the last of which is a line end, and
+     * returns a buffer positioned at the first of them and limited before
+     * the line end. For mapped files it is a view of the mapping, otherwise
+     * it is the read line buffer.
+     */
+    private ByteBuffer readBlock(int length) throws IOException {
+        if (isMapped()) {
+            ByteBuffer slice = readMappedSlice(length);
+            if (slice != null) {
+                slice.limit(length - 1);
+                return slice;
+            }
+        }
+        allocateReadBuffer(length);
+        read(myReadLineBuffer);
+        myReadLineBuffer.flip();
+        myReadLineBuffer.limit(myReadLineBuffer.limit() - 1);
+        return myReadLineBuffer;
+    }
+
+    /**
+     * Returns a view of the next <code>length</code> bytes of the mapping
+     * and moves past them, or <code>null</code> when they are not all within
+     * the current chunk.
+     */
+    private ByteBuffer readMappedSlice(int length) {
+        if (fillFromMapping() < length) {
+            return null;
+        }
+        ByteBuffer slice = myBuffer.slice();
+        slice.limit(length);
+        if (myDigest != null) {
+            myDigest.update(slice);
+            slice.rewind();
+        }
+        myPosition += length;
+        return slice;
+    }
+
+    /**
+     * Returns a view of the next line of the mapping without its line end
+     * and moves past the line end, or <code>null</code> when the line is not
+     * within the current chunk or is longer than <code>limit</code>.
+     */
+    private ByteBuffer readMappedLine(int limit) {
+        int available = fillFromMapping();
+        if (available <= 0) {
+            return null;
+        }
+        int start = myBuffer.position();
+        int end = start + Math.min(available, limit);
+        for (int i = start; i < end; i++) {
+            if (myBuffer.get(i) == '\n') {
+                ByteBuffer line = readMappedSlice(i - start + 1);
+                line.limit(i - start);
+                return line;
+            }
+        }
+        return null;
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private boolean isBufferFilled() {
+        if (myMappedFile != null) {
+            return myBuffer != null && myPosition >= myBufferPosition && myPosition < myBufferPosition + myBuffer.limit();
+        }
+        return myChannel != null && myPosition >= myBufferPosition && myPosition < myBufferPosition + myBuffer.limit();
+    }
+
     private int fill() throws IOException {
-        if (myChannel == null || myPosition < myBufferPosition || myPosition >= myBufferPosition + myBuffer.limit()) {
+        if (isMapped()) {
+            return fillFromMapping();
+        }
+        if (!isBufferFilled()) {
             myBufferPosition = myPosition;
-            getChannel().position(myBufferPosition);
             myBuffer.clear();
-            int read = getChannel().read(myBuffer);
+            int read;
+            try {
+                read = getChannel().read(myBuffer, myBufferPosition);
+            } catch (ClosedChannelException e) {
+                if (myPooledChannel == null) {
+                    throw e;
+                }
+                // the pool was cleared, reads are positional, so continue with a new channel
+                myChannelPool.release(myPooledChannel);
+                myPooledChannel = null;
+                myChannel = null;
+                myBuffer.clear();
+                read = getChannel().read(myBuffer, myBufferPosition);
+            }
             myBuffer.position(0);
             myBuffer.limit(read >= 0 ? read : 0);
             return read;
@@ -380,8 +523,38 @@ public class FSFile {
         return 0;
     }
     
+    private boolean isMapped() {
+        if (myMappedFile == null) {
+            return false;
+        }
+        if (!myIsMappedFileAcquired) {
+            if (!myMappedFile.acquire()) {
+                myMappedFile = null;
+                myBuffer = ByteBuffer.allocate(1024);
+                myBufferPosition = 0;
+                return false;
+            }
+            myIsMappedFileAcquired = true;
+        }
+        return true;
+    }
+
+    private int fillFromMapping() {
+        if (!isBufferFilled()) {
+            if (myPosition < 0 || myPosition >= myMappedFile.size()) {
+                return -1;
+            }
+            int chunkIndex = (int) (myPosition / FSMappedFile.CHUNK_SIZE);
+            myBuffer = myMappedFile.getChunk(chunkIndex);
+            myBufferPosition = (long) chunkIndex * FSMappedFile.CHUNK_SIZE;
+        }
+        // unlike channel reads, a chunk usually starts before the current position
+        myBuffer.position((int) (myPosition - myBufferPosition));
+        return myBuffer.remaining();
+    }
+
     private void allocateReadBuffer(int limit) {
-        if (limit > myReadLineBuffer.capacity()) {
+        if (myReadLineBuffer == null || limit > myReadLineBuffer.capacity()) {
             myReadLineBuffer = ByteBuffer.allocate(limit*3/2);
         }
         myReadLineBuffer.clear();
@@ -390,8 +563,13 @@ public class FSFile {
     
     private FileChannel getChannel() throws IOException {
         if (myChannel == null) {
-            myInputStream = SVNFileUtil.createFileInputStream(myFile);
-            myChannel = myInputStream.getChannel();
+            if (myChannelPool != null) {
+                myPooledChannel = myChannelPool.acquire(myFile);
+                myChannel = myPooledChannel.getChannel();
+            } else {
+                myInputStream = SVNFileUtil.createFileInputStream(myFile);
+                myChannel = myInputStream.getChannel();
+            }
         }
         return myChannel;
     }
@@ -0,0 +1,141 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.core.internal.io.fs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
+
+/**
+ * Keeps channels of recently read revision and pack files open, so that
+ * {@link FSFile} cursors over the same file share one descriptor. Shared
+ * channels must only be used for positional reads. Channels which are not
+ * used by any cursor are closed in LRU order once the number of open
+ * channels exceeds the limit.
+ *
+ * <p/>
+ * {@link FSFS} instances sharing caches share the pool as well, so it is
+ * kept for as long as {@link FSSharedCaches} remembers the repository.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+public class FSFileChannelPool {
+
+    private final int myLimit;
+    private final LinkedHashMap myChannels;
+    private long myHitsCount;
+    private long myMissesCount;
+
+    public FSFileChannelPool(int limit) {
+        myLimit = limit;
+        myChannels = new LinkedHashMap(16, 0.75f, true);
+    }
+
+    public synchronized PooledChannel acquire(File file) throws IOException {
+        PooledChannel channel = (PooledChannel) myChannels.get(file);
+        if (channel != null && !channel.myChannel.isOpen()) {
+            // closed by a reader that was interrupted
+            myChannels.remove(file);
+            channel = null;
+        }
+        if (channel == null) {
+            FileInputStream is = SVNFileUtil.createFileInputStream(file);
+            channel = new PooledChannel(file, is);
+            myChannels.put(file, channel);
+            myMissesCount++;
+        } else {
+            myHitsCount++;
+        }
+        channel.myUsersCount++;
+        closeIdleChannels();
+        return channel;
+    }
+
+    public synchronized void release(PooledChannel channel) {
+        channel.myUsersCount--;
+        if (channel.myUsersCount > 0) {
+            return;
+        }
+        if (myChannels.get(channel.myFile) != channel) {
+            channel.close();
+        } else {
+            closeIdleChannels();
+        }
+    }
+
+    public synchronized int getOpenChannelsCount() {
+        return myChannels.size();
+    }
+
+    public synchronized long getHitsCount() {
+        return myHitsCount;
+    }
+
+    public synchronized long getMissesCount() {
+        return myMissesCount;
+    }
+
+    /**
+     * Closes all channels, including those still in use, so that cursors
+     * which are never closed do not keep descriptors open. Such cursors
+     * acquire a new channel on their next read. The pool remains usable.
+     */
+    public synchronized void clear() {
+        for (Iterator channels = myChannels.values().iterator(); channels.hasNext();) {
+            PooledChannel channel = (PooledChannel) channels.next();
+            channel.close();
+        }
+        myChannels.clear();
+    }
+
+    private void closeIdleChannels() {
+        for (Iterator channels = myChannels.values().iterator(); myChannels.size() > myLimit && channels.hasNext();) {
+            PooledChannel channel = (PooledChannel) channels.next();
+            if (channel.myUsersCount == 0) {
+                channels.remove();
+                channel.close();
+            }
+        }
+    }
+
+    public static class PooledChannel {
+
+        private final File myFile;
+        private final FileInputStream myInputStream;
+        private final FileChannel myChannel;
+        private int myUsersCount;
+
+        private PooledChannel(File file, FileInputStream is) {
+            myFile = file;
+            myInputStream = is;
+            myChannel = is.getChannel();
+        }
+
+        public FileChannel getChannel() {
+            return myChannel;
+        }
+
+        private void close() {
+            try {
+                myChannel.close();
+            } catch (IOException e) {
+            }
+            SVNFileUtil.closeFile(myInputStream);
+        }
+    }
+}
@@ -11,6 +11,7 @@
  */
 package org.tmatesoft.svn.core.internal.io.fs;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
@@ -25,6 +26,7 @@ import org.tmatesoft.svn.core.SVNErrorMessage;
 import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.SVNNodeKind;
 import org.tmatesoft.svn.core.internal.delta.SVNDeltaCombiner;
+import org.tmatesoft.svn.core.internal.delta.SVNDeltaComposer;
 import org.tmatesoft.svn.core.internal.wc.SVNErrorManager;
 import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
 import org.tmatesoft.svn.core.io.diff.SVNDiffWindow;
@@ -83,14 +85,53 @@ public class FSInputStream extends InputStream {
         if (representation == null) {
             return SVNFileUtil.DUMMY_IN;
         }
-        return new FSInputStream(combiner, representation, owner);
+        return createStream(combiner, representation, owner);
     }
 
     public static InputStream createDeltaStream(SVNDeltaCombiner combiner, FSRepresentation fileRep, FSFS owner) throws SVNException {
         if (fileRep == null) {
             return SVNFileUtil.DUMMY_IN;
         }
-        return new FSInputStream(combiner, fileRep, owner);
+        return createStream(combiner, fileRep, owner);
+    }
+
+    private static InputStream createStream(SVNDeltaCombiner combiner, FSRepresentation representation, FSFS owner) throws SVNException {
+        FSCache cache = owner.getFulltextsCache();
+        long size = representation.getExpandedSize();
+        if (!cache.isEnabled() || representation.isTxn() || size <= 0 || size > owner.getFulltextsCacheMaxEntrySize()) {
+            return new FSInputStream(combiner, representation, owner);
+        }
+        String key = FSFS.getRepresentationCacheKey(representation);
+        byte[] contents = (byte[]) cache.get(key);
+        if (contents == null) {
+            contents = readFulltext(combiner, representation, owner, (int) size);
+            cache.put(key, contents, contents.length);
+        }
+        return new ByteArrayInputStream(contents);
+    }
+
+    private static byte[] readFulltext(SVNDeltaCombiner combiner, FSRepresentation representation, FSFS owner, int size) throws SVNException {
+        byte[] contents = new byte[size];
+        FSInputStream stream = new FSInputStream(combiner, representation, owner);
+        try {
+            int offset = 0;
+            while (offset < size) {
+                int read = stream.readContents(contents, offset, size - offset);
+                if (read <= 0) {
+                    break;
+                }
+                offset += read;
+            }
+            if (offset < size) {
+                SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.FS_CORRUPT, "Representation is shorter than its expanded size ({0} of {1} bytes)", new Object[] {
+                        new Long(offset), new Long(size)
+                });
+                SVNErrorManager.error(err, SVNLogType.FSFS);
+            }
+        } finally {
+            stream.close();
+        }
+        return contents;
     }
 
     public int read(byte[] buf, int offset, int length) throws IOException {
@@ -155,6 +196,7 @@ public class FSInputStream extends InputStream {
                     break;
                 }
                 myCombiner.reset();
+                SVNDeltaComposer composer = myCombiner.getComposer();
                 for (ListIterator states = myRepStateList.listIterator(); states.hasNext();) {
                     FSRepresentationState curState = (FSRepresentationState) states.next();
 
@@ -168,15 +210,33 @@ public class FSInputStream extends InputStream {
                         }
                     }
                     SVNDiffWindow window = myCombiner.readWindow(curState.myFile, curState.myVersion);
-                    ByteBuffer target = myCombiner.addWindow(window);
+                    boolean complete = composer.addWindow(window);
                     curState.myChunkIndex++;
                     curState.myOffset = curState.myFile.position();
-                    if (target != null) {
-                        myBuffer = target;
-                        myChunkIndex++;
+                    if (complete) {
                         break;
                     }
                 }
+                /*
+                 * Apply composed windows right into the caller's buffer when
+                 * the whole chunk fits there, otherwise keep it for the next reads.
+                 */
+                int targetLength = composer.getTargetLength();
+                if (targetLength <= remaining) {
+                    composer.apply(buffer, targetPos);
+                    targetPos += targetLength;
+                    remaining -= targetLength;
+                    read += targetLength;
+                } else {
+                    if (myBuffer == null || myBuffer.capacity() < targetLength) {
+                        myBuffer = ByteBuffer.allocate(targetLength);
+                    }
+                    composer.apply(myBuffer.array(), 0);
+                    myBuffer.clear();
+                    myBuffer.limit(targetLength);
+                }
+                composer.reset();
+                myChunkIndex++;
             }
         }
         return read;
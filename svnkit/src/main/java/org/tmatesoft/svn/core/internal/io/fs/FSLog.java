@@ -22,9 +22,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.tmatesoft.svn.core.ISVNLogEntryHandler;
 import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNErrorMessage;
 import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.SVNLogEntry;
 import org.tmatesoft.svn.core.SVNMergeInfo;
@@ -40,6 +48,7 @@ import org.tmatesoft.svn.core.internal.util.SVNHashMap;
 import org.tmatesoft.svn.core.internal.util.SVNHashSet;
 import org.tmatesoft.svn.core.internal.util.SVNMergeInfoUtil;
 import org.tmatesoft.svn.core.internal.util.SVNPathUtil;
+import org.tmatesoft.svn.core.internal.wc.SVNErrorManager;
 import org.tmatesoft.svn.core.internal.wc.SVNMergeDriver;
 import org.tmatesoft.svn.core.internal.wc.SVNMergeInfoManager;
 import org.tmatesoft.svn.core.io.ISVNLocationSegmentHandler;
@@ -47,6 +56,8 @@ import org.tmatesoft.svn.core.io.SVNLocationEntry;
 import org.tmatesoft.svn.core.io.SVNLocationSegment;
 import org.tmatesoft.svn.core.io.SVNRepository;
 import org.tmatesoft.svn.core.wc.SVNRevision;
+import org.tmatesoft.svn.util.SVNDebugLog;
+import org.tmatesoft.svn.util.SVNLogType;
 
 
 /**
@@ -55,6 +66,9 @@ import org.tmatesoft.svn.core.wc.SVNRevision;
  */
 public class FSLog {
     private static final int MAX_OPEN_HISTORIES = 128;  
+    private static final int HISTORY_BATCH_SIZE = 32;
+    private static final long TERMINATION_TIMEOUT = 30 * 1000;
+    private static final int DEFAULT_THREADS_COUNT = (int) FSCache.getSizeOption("svnkit.fsfs.logThreadsCount", 1);
     
     private FSFS myFSFS;
     private String[] myPaths;
@@ -68,6 +82,7 @@ public class FSLog {
     private ISVNLogEntryHandler myHandler;
     private SVNMergeInfoManager myMergeInfoManager;
     private String[] myRevPropNames;
+    private int myThreadsCount = DEFAULT_THREADS_COUNT;
     
     private static final Comparator RLP_COMPARATOR = new Comparator() {
         public int compare(Object arg1, Object arg2) {
@@ -146,6 +161,21 @@ public class FSLog {
         myHandler = handler;
     }
     
+    /**
+     * Sets the number of threads histories of log targets are walked on.
+     * With more than one thread, histories of several targets are walked
+     * concurrently, each thread with its own {@link FSFS} instance sharing
+     * caches of this one, unless merged revisions are included. Default is taken from the
+     * <code>svnkit.fsfs.logThreadsCount</code> system property, or is 1.
+     */
+    public void setThreadsCount(int threadsCount) {
+        myThreadsCount = Math.max(1, threadsCount);
+    }
+
+    public int getThreadsCount() {
+        return myThreadsCount;
+    }
+
     public long runLog() throws SVNException {
         long count = 0;
         if (!myIsIncludeMergedRevisions && myPaths.length == 1 && "/".equals(myPaths[0])) {
@@ -174,6 +204,17 @@ public class FSLog {
     
     private long doLogs(String[] paths, Map logTargetHistoryAsMergeinfo, Set nestedMerges, long startRevision, long endRevision, boolean includeMergedRevisions, 
             boolean subtractiveMerge, boolean handlingMergedRevisions, boolean isDescendingOrder, long limit) throws SVNException {
+        if (!includeMergedRevisions) {
+            FSLogIndex logIndex = getLogIndex(endRevision);
+            if (logIndex != null) {
+                return doHistoryLogs(new IndexedHistories(logIndex, paths, startRevision, endRevision), logTargetHistoryAsMergeinfo, 
+                        nestedMerges, subtractiveMerge, handlingMergedRevisions, isDescendingOrder, limit);
+            }
+            if (paths.length > 1 && myThreadsCount > 1) {
+                return doHistoryLogs(new ParallelHistories(paths, startRevision, endRevision), logTargetHistoryAsMergeinfo, 
+                        nestedMerges, subtractiveMerge, handlingMergedRevisions, isDescendingOrder, limit);
+            }
+        }
         long sendCount = 0;
         PathInfo[] histories = getPathHistories(paths, startRevision, endRevision, myIsStrictNode);
         
@@ -269,6 +310,59 @@ public class FSLog {
         return sendCount;
     }
     
+    private long doHistoryLogs(LogHistories histories, Map logTargetHistoryAsMergeinfo, Set nestedMerges, 
+            boolean subtractiveMerge, boolean handlingMergedRevisions, boolean isDescendingOrder, long limit) throws SVNException {
+        long sendCount = 0;
+        try {
+            if (isDescendingOrder) {
+                for (long rev = histories.nextRevision(); SVNRevision.isValidRevisionNumber(rev); rev = histories.nextRevision()) {
+                    sendLog(rev, logTargetHistoryAsMergeinfo, nestedMerges, subtractiveMerge, handlingMergedRevisions, false);
+                    sendCount++;
+                    if (limit > 0 && sendCount >= limit) {
+                        break;
+                    }
+                }
+                return sendCount;
+            }
+            LinkedList revisions = new LinkedList();
+            for (long rev = histories.nextRevision(); SVNRevision.isValidRevisionNumber(rev); rev = histories.nextRevision()) {
+                revisions.addFirst(new Long(rev));
+            }
+            histories.dispose();
+            for (Iterator revs = revisions.iterator(); revs.hasNext();) {
+                long rev = ((Long) revs.next()).longValue();
+                sendLog(rev, logTargetHistoryAsMergeinfo, null, subtractiveMerge, handlingMergedRevisions, false);
+                sendCount++;
+                if (limit > 0 && sendCount >= limit) {
+                    break;
+                }
+            }
+            return sendCount;
+        } finally {
+            histories.dispose();
+        }
+    }
+
+    private FSLogIndex getLogIndex(long endRevision) {
+        FSLogIndex logIndex = myFSFS.getLogIndex();
+        if (logIndex == null) {
+            return null;
+        }
+        try {
+            if (logIndex.getYoungestRevision() < endRevision && !logIndex.isReadOnly()) {
+                // revisions committed since the last log are indexed now.
+                logIndex.update(myFSFS, myFSFS.getYoungestRevision());
+            }
+            if (logIndex.getYoungestRevision() >= endRevision) {
+                return logIndex;
+            }
+        } catch (SVNException e) {
+            // history is walked without the index.
+            SVNDebugLog.getDefaultLog().logFine(SVNLogType.FSFS, e);
+        }
+        return null;
+    }
+
     private long getNextHistoryRevision(PathInfo[] histories) {
         long nextRevision = SVNRepository.INVALID_REVISION;
         for (int i = 0; i < histories.length; i++) {
@@ -461,6 +555,7 @@ public class FSLog {
             String path = paths[i];
             
             PathInfo pathHistory = new PathInfo();
+            pathHistory.myOwner = myFSFS;
             pathHistory.myPath = path;
             pathHistory.myHistoryRevision = end;
             pathHistory.myIsDone = false;
@@ -764,6 +859,7 @@ public class FSLog {
     }
     
     private class PathInfo {
+        FSFS myOwner;
         FSNodeHistory myHistory;
         boolean myIsDone;
         boolean myIsFirstTime;
@@ -776,7 +872,7 @@ public class FSLog {
                 history = myHistory.getPreviousHistory(strictNodeHistory ? false : true);
                 myHistory = history;
             } else {
-                FSRevisionRoot historyRoot = myFSFS.createRevisionRoot(myHistoryRevision);
+                FSRevisionRoot historyRoot = myOwner.createRevisionRoot(myHistoryRevision);
                 history = historyRoot.getNodeHistory(myPath);
                 history = history.getPreviousHistory(strictNodeHistory ? false : true);
                 if (myIsFirstTime) {
@@ -815,5 +911,240 @@ public class FSLog {
             return changed;
         }
     }
-    
+
+    /**
+     * Revisions in which any of log targets changed, in descending order.
+     */
+    private interface LogHistories {
+
+        public long nextRevision() throws SVNException;
+
+        public void dispose();
+    }
+
+    /**
+     * Reads histories of log targets from the log index of the repository
+     * and merges their revisions into a single descending sequence.
+     */
+    private class IndexedHistories implements LogHistories {
+
+        private final FSLogIndex.History[] myHistories;
+        private final long[] myHeadRevisions;
+
+        public IndexedHistories(FSLogIndex logIndex, String[] paths, long startRevision, long endRevision) throws SVNException {
+            FSRevisionRoot root = myFSFS.createRevisionRoot(endRevision);
+            myHistories = new FSLogIndex.History[paths.length];
+            myHeadRevisions = new long[paths.length];
+            for (int i = 0; i < paths.length; i++) {
+                // fails the same way node history does for missing paths.
+                root.getNodeHistory(paths[i]);
+                myHistories[i] = logIndex.getHistory(paths[i], startRevision, endRevision, myIsStrictNode);
+                myHeadRevisions[i] = myHistories[i].nextRevision();
+            }
+        }
+
+        public long nextRevision() throws SVNException {
+            long nextRevision = SVNRepository.INVALID_REVISION;
+            for (int i = 0; i < myHeadRevisions.length; i++) {
+                if (myHeadRevisions[i] > nextRevision) {
+                    nextRevision = myHeadRevisions[i];
+                }
+            }
+            if (!SVNRevision.isValidRevisionNumber(nextRevision)) {
+                return nextRevision;
+            }
+            for (int i = 0; i < myHeadRevisions.length; i++) {
+                if (myHeadRevisions[i] == nextRevision) {
+                    myHeadRevisions[i] = myHistories[i].nextRevision();
+                }
+            }
+            return nextRevision;
+        }
+
+        public void dispose() {
+        }
+    }
+
+    /**
+     * Walks histories of several paths concurrently and merges their
+     * revisions into a single descending sequence, the same that the lock-step
+     * walk of {@link #doLogs} produces. Every path is bound to one of the
+     * single threaded lanes, so that its history is always walked with the
+     * same {@link FSFS} instance. Histories are walked in batches of
+     * revisions, the next batch of a path is requested as soon as the
+     * previous one is taken, so that no more than two batches per path are
+     * read ahead of the merge.
+     */
+    private class ParallelHistories implements LogHistories {
+
+        private final String[] myPaths;
+        private final long myStartRevision;
+        private final long myEndRevision;
+        private final ExecutorService[] myLanes;
+        private final FSFS[] myLaneRepositories;
+        private final PathInfo[] myHistories;
+        private final Future[] myNextBatches;
+        private final HistoryBatch[] myBatches;
+        private final int[] myPositions;
+        private boolean myIsDisposed;
+
+        public ParallelHistories(String[] paths, long startRevision, long endRevision) {
+            myPaths = paths;
+            myStartRevision = startRevision;
+            myEndRevision = endRevision;
+            myLanes = new ExecutorService[Math.min(myThreadsCount, paths.length)];
+            myLaneRepositories = new FSFS[myLanes.length];
+            myHistories = new PathInfo[paths.length];
+            myNextBatches = new Future[paths.length];
+            myBatches = new HistoryBatch[paths.length];
+            myPositions = new int[paths.length];
+
+            ThreadFactory threadFactory = new LogThreadFactory();
+            for (int i = 0; i < myLanes.length; i++) {
+                myLanes[i] = Executors.newSingleThreadExecutor(threadFactory);
+            }
+            for (int i = 0; i < paths.length; i++) {
+                myNextBatches[i] = myLanes[i % myLanes.length].submit(new HistoryBatchTask(i));
+            }
+        }
+
+        public long nextRevision() throws SVNException {
+            long nextRevision = SVNRepository.INVALID_REVISION;
+            for (int i = 0; i < myPaths.length; i++) {
+                long revision = getHeadRevision(i);
+                if (revision > nextRevision) {
+                    nextRevision = revision;
+                }
+            }
+            if (!SVNRevision.isValidRevisionNumber(nextRevision)) {
+                return nextRevision;
+            }
+            for (int i = 0; i < myPaths.length; i++) {
+                if (getHeadRevision(i) == nextRevision) {
+                    myPositions[i]++;
+                }
+            }
+            return nextRevision;
+        }
+
+        public void dispose() {
+            if (myIsDisposed) {
+                return;
+            }
+            myIsDisposed = true;
+            for (int i = 0; i < myLanes.length; i++) {
+                myLanes[i].shutdownNow();
+            }
+            try {
+                for (int i = 0; i < myLanes.length; i++) {
+                    myLanes[i].awaitTermination(TERMINATION_TIMEOUT, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (int i = 0; i < myLaneRepositories.length; i++) {
+                if (myLaneRepositories[i] != null) {
+                    try {
+                        myLaneRepositories[i].close();
+                    } catch (SVNException e) {
+                        //
+                    }
+                }
+            }
+        }
+
+        private long getHeadRevision(int index) throws SVNException {
+            while (true) {
+                HistoryBatch batch = myBatches[index];
+                if (batch != null && myPositions[index] < batch.myCount) {
+                    return batch.myRevisions[myPositions[index]];
+                }
+                if (myNextBatches[index] == null) {
+                    return SVNRepository.INVALID_REVISION;
+                }
+                batch = waitForBatch(index);
+                myBatches[index] = batch;
+                myPositions[index] = 0;
+                myNextBatches[index] = batch.myIsDone ? null : myLanes[index % myLanes.length].submit(new HistoryBatchTask(index));
+            }
+        }
+
+        private HistoryBatch waitForBatch(int index) throws SVNException {
+            try {
+                return (HistoryBatch) myNextBatches[index].get();
+            } catch (InterruptedException e) {
+                SVNErrorManager.cancel("log interrupted", SVNLogType.FSFS);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SVNException) {
+                    throw (SVNException) cause;
+                }
+                SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.UNKNOWN, "Failed to get history of ''{0}'': {1}", 
+                        new Object[] {myPaths[index], cause.getMessage()});
+                SVNErrorManager.error(err, cause, SVNLogType.FSFS);
+            }
+            return null;
+        }
+
+        private HistoryBatch walkHistory(int index) throws SVNException {
+            PathInfo info = myHistories[index];
+            if (info == null) {
+                int lane = index % myLanes.length;
+                if (myLaneRepositories[lane] == null) {
+                    FSFS fsfs = new FSFS(myFSFS.getRepositoryRoot());
+                    fsfs.shareCaches(myFSFS);
+                    fsfs.open();
+                    myLaneRepositories[lane] = fsfs;
+                }
+                info = new PathInfo();
+                info.myOwner = myLaneRepositories[lane];
+                info.myPath = myPaths[index];
+                info.myHistoryRevision = myEndRevision;
+                info.myIsDone = false;
+                info.myIsFirstTime = true;
+                if (index < MAX_OPEN_HISTORIES) {
+                    info.myHistory = info.myOwner.createRevisionRoot(myEndRevision).getNodeHistory(info.myPath);
+                }
+                info.getHistory(myIsStrictNode, myStartRevision);
+                myHistories[index] = info;
+            }
+            HistoryBatch batch = new HistoryBatch();
+            while (batch.myCount < HISTORY_BATCH_SIZE && !info.myIsDone) {
+                batch.myRevisions[batch.myCount++] = info.myHistoryRevision;
+                info.getHistory(myIsStrictNode, myStartRevision);
+            }
+            batch.myIsDone = info.myIsDone;
+            return batch;
+        }
+
+        private class HistoryBatchTask implements Callable {
+
+            private final int myIndex;
+
+            public HistoryBatchTask(int index) {
+                myIndex = index;
+            }
+
+            public Object call() throws Exception {
+                return walkHistory(myIndex);
+            }
+        }
+    }
+
+    private static class HistoryBatch {
+        long[] myRevisions = new long[HISTORY_BATCH_SIZE];
+        int myCount;
+        boolean myIsDone;
+    }
+
+    private static class LogThreadFactory implements ThreadFactory {
+
+        private int myThreadsCount;
+
+        public synchronized Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "svnkit-log-" + (++myThreadsCount));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
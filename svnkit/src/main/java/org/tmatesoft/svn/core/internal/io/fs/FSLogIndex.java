@@ -0,0 +1,467 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html.
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.core.internal.io.fs;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.tmatesoft.sqljet.core.SqlJetErrorCode;
+import org.tmatesoft.sqljet.core.SqlJetException;
+import org.tmatesoft.sqljet.core.table.ISqlJetCursor;
+import org.tmatesoft.sqljet.core.table.ISqlJetTable;
+import org.tmatesoft.sqljet.core.table.ISqlJetTransaction;
+import org.tmatesoft.sqljet.core.table.SqlJetDb;
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNErrorMessage;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.internal.util.SVNHashSet;
+import org.tmatesoft.svn.core.internal.util.SVNPathUtil;
+import org.tmatesoft.svn.core.internal.wc.SVNErrorManager;
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.util.SVNDebugLog;
+import org.tmatesoft.svn.util.SVNLogType;
+
+/**
+ * Optional on-disk index of the revisions that touched every path of the
+ * repository, kept in the <code>log-index.db</code> SQLite database next to
+ * <code>rep-cache.db</code>. For every revision the index records all
+ * changed paths together with their parent directories, and separately the
+ * paths added or replaced in that revision along with their copy sources.
+ * This is enough to reconstruct history of any path without walking node
+ * revisions, see {@link History}.
+ *
+ * <p>
+ * The index is only maintained when the database exists, it is created
+ * (or rebuilt) with {@link #create(FSFS)}. Commits do not touch the index,
+ * revisions committed since the last update are indexed by {@link FSLog}
+ * before it uses the index, so that commits never wait for the index. A
+ * read-only index that is behind the repository is not used.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+public class FSLogIndex {
+
+    private static final int LOG_INDEX_DB_FORMAT = 1;
+    private static final int UPDATE_BATCH_SIZE = 1000;
+    private static final int HISTORY_BATCH_SIZE = 256;
+
+    private static final String PATHS_TABLE = "log_paths";
+    private static final String PATHS_INDEX = "log_paths_idx";
+    private static final String COPIES_TABLE = "log_copies";
+    private static final String COPIES_INDEX = "log_copies_idx";
+    private static final String STATE_TABLE = "log_state";
+
+    private static final String[] LOG_INDEX_DB_SQL = {
+        "create table log_paths (path text not null, revision integer not null); ",
+        "create index log_paths_idx on log_paths (path, revision); ",
+        "create table log_copies (path text not null, " +
+        "                         revision integer not null, " +
+        "                         copyfrom_path text, " +
+        "                         copyfrom_revision integer); ",
+        "create index log_copies_idx on log_copies (path, revision); ",
+        "create table log_state (youngest integer not null); ",
+    };
+
+    private SqlJetDb myDB;
+    private boolean myIsReadOnly;
+    private ISqlJetTable myPathsTable;
+    private ISqlJetTable myCopiesTable;
+    private ISqlJetTable myStateTable;
+
+    private FSLogIndex(SqlJetDb db, boolean readOnly) throws SqlJetException {
+        myDB = db;
+        myIsReadOnly = readOnly;
+        int version = db.getOptions().getUserVersion();
+        if (version != LOG_INDEX_DB_FORMAT) {
+            throw new SqlJetException("Schema format " + version + " not recognized");
+        }
+        myPathsTable = db.getTable(PATHS_TABLE);
+        myCopiesTable = db.getTable(COPIES_TABLE);
+        myStateTable = db.getTable(STATE_TABLE);
+    }
+
+    /**
+     * Opens the index for reading only when the database or its directory
+     * is not writable, for instance in a read-only repository.
+     *
+     * @return index of the repository, or <code>null</code> when there is no
+     *         index or it could not be opened
+     */
+    public static FSLogIndex open(FSFS fsfs) {
+        File file = fsfs.getLogIndexFile();
+        if (!file.isFile()) {
+            return null;
+        }
+        boolean writable = file.canWrite() && file.getParentFile().canWrite();
+        FSLogIndex index = open(file, writable);
+        if (index == null && writable) {
+            index = open(file, false);
+        }
+        return index;
+    }
+
+    private static FSLogIndex open(File file, boolean writable) {
+        SqlJetDb db = null;
+        try {
+            db = SqlJetDb.open(file, writable);
+            return new FSLogIndex(db, !writable);
+        } catch (SqlJetException e) {
+            SVNDebugLog.getDefaultLog().logFine(SVNLogType.FSFS, e);
+            closeDB(db);
+        }
+        return null;
+    }
+
+    /**
+     * Builds the index of all revisions of the repository, replacing the
+     * existing index if any. The new index is built aside and moved in
+     * place when complete.
+     */
+    public static void create(FSFS fsfs) throws SVNException {
+        File file = fsfs.getLogIndexFile();
+        File tmpFile = SVNFileUtil.createUniqueFile(file.getParentFile(), file.getName(), ".tmp", false);
+        FSLogIndex index = null;
+        SqlJetDb db = null;
+        boolean created = false;
+        try {
+            db = SqlJetDb.open(tmpFile, true);
+            db.getOptions().setAutovacuum(true);
+            db.runWriteTransaction(new ISqlJetTransaction() {
+                public Object run(SqlJetDb db) throws SqlJetException {
+                    db.getOptions().setUserVersion(LOG_INDEX_DB_FORMAT);
+                    for (int i = 0; i < LOG_INDEX_DB_SQL.length; i++) {
+                        if (LOG_INDEX_DB_SQL[i].startsWith("create index")) {
+                            db.createIndex(LOG_INDEX_DB_SQL[i]);
+                        } else {
+                            db.createTable(LOG_INDEX_DB_SQL[i]);
+                        }
+                    }
+                    db.getTable(STATE_TABLE).insert(new Object[] {new Long(-1)});
+                    return null;
+                }
+            });
+            index = new FSLogIndex(db, false);
+            db = null;
+            index.update(fsfs, fsfs.getYoungestRevision());
+            created = true;
+        } catch (SqlJetException e) {
+            SVNErrorManager.error(convertError(e), e, SVNLogType.FSFS);
+        } finally {
+            closeDB(db);
+            if (index != null) {
+                index.close();
+            }
+            if (!created) {
+                SVNFileUtil.deleteFile(tmpFile);
+            }
+        }
+        SVNFileUtil.rename(tmpFile, file);
+    }
+
+    public void close() {
+        closeDB(myDB);
+        myDB = null;
+        myPathsTable = null;
+        myCopiesTable = null;
+        myStateTable = null;
+    }
+
+    /**
+     * @return <code>true</code> when the index may not be updated
+     */
+    public boolean isReadOnly() {
+        return myIsReadOnly;
+    }
+
+    /**
+     * @return the youngest revision indexed, -1 when none is
+     */
+    public long getYoungestRevision() throws SVNException {
+        Long youngest = (Long) runTransaction(false, new ISqlJetTransaction() {
+            public Object run(SqlJetDb db) throws SqlJetException {
+                return new Long(readYoungestRevision());
+            }
+        });
+        return youngest.longValue();
+    }
+
+    /**
+     * Indexes all revisions up to <code>revision</code> that are not indexed
+     * yet. Revisions are indexed in batches, each in its own transaction, so
+     * that concurrent updates never index the same revision twice.
+     */
+    public void update(final FSFS fsfs, final long revision) throws SVNException {
+        boolean done = false;
+        while (!done) {
+            Boolean batchDone = (Boolean) runTransaction(true, new ISqlJetTransaction() {
+                public Object run(SqlJetDb db) throws SqlJetException {
+                    long youngest = readYoungestRevision();
+                    long last = Math.min(revision, youngest + UPDATE_BATCH_SIZE);
+                    if (last <= youngest) {
+                        return Boolean.TRUE;
+                    }
+                    try {
+                        for (long rev = youngest + 1; rev <= last; rev++) {
+                            indexRevision(fsfs, rev);
+                        }
+                    } catch (SVNException e) {
+                        throw new SqlJetException(e);
+                    }
+                    ISqlJetCursor cursor = myStateTable.open();
+                    try {
+                        cursor.update(new Object[] {new Long(last)});
+                    } finally {
+                        cursor.close();
+                    }
+                    return Boolean.valueOf(last == revision);
+                }
+            });
+            done = batchDone.booleanValue();
+        }
+    }
+
+    public History getHistory(String path, long startRevision, long endRevision, boolean strictNode) {
+        return new History(SVNPathUtil.canonicalizeAbsolutePath(path), startRevision, endRevision, strictNode);
+    }
+
+    private void indexRevision(FSFS fsfs, long revision) throws SVNException, SqlJetException {
+        Map changedPaths = fsfs.createRevisionRoot(revision).getChangedPaths();
+        Set prefixes = new SVNHashSet();
+        Long rev = new Long(revision);
+        for (Iterator changes = changedPaths.values().iterator(); changes.hasNext();) {
+            FSPathChange change = (FSPathChange) changes.next();
+            String path = change.getPath();
+            FSPathChangeKind kind = change.getChangeKind();
+            if (kind == FSPathChangeKind.FS_PATH_CHANGE_ADD || kind == FSPathChangeKind.FS_PATH_CHANGE_REPLACE) {
+                String copyPath = change.getCopyPath();
+                Long copyRevision = copyPath != null ? new Long(change.getCopyRevision()) : null;
+                myCopiesTable.insert(new Object[] {path, rev, copyPath, copyRevision});
+            }
+            String prefix = path;
+            while (prefixes.add(prefix) && !"/".equals(prefix)) {
+                prefix = SVNPathUtil.removeTail(prefix);
+                if (prefix.length() == 0) {
+                    prefix = "/";
+                }
+            }
+        }
+        for (Iterator paths = prefixes.iterator(); paths.hasNext();) {
+            myPathsTable.insert(new Object[] {paths.next(), rev});
+        }
+    }
+
+    private long readYoungestRevision() throws SqlJetException {
+        ISqlJetCursor cursor = myStateTable.open();
+        try {
+            return cursor.eof() ? -1 : cursor.getInteger(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private int readRevisions(final String path, final long lowerRevision, final long upperRevision, final long[] revisions) throws SVNException {
+        Integer count = (Integer) runTransaction(false, new ISqlJetTransaction() {
+            public Object run(SqlJetDb db) throws SqlJetException {
+                ISqlJetCursor cursor = myPathsTable.scope(PATHS_INDEX, new Object[] {path, new Long(lowerRevision)},
+                        new Object[] {path, new Long(upperRevision)}).reverse();
+                int count = 0;
+                try {
+                    for (; !cursor.eof() && count < revisions.length; cursor.next()) {
+                        revisions[count++] = cursor.getInteger(1);
+                    }
+                } finally {
+                    cursor.close();
+                }
+                return new Integer(count);
+            }
+        });
+        return count.intValue();
+    }
+
+    /**
+     * @return the youngest addition of <code>path</code> or of one of its
+     *         parents not younger than <code>revision</code>, as an array of
+     *         added path, revision, copy source path and copy source revision;
+     *         <code>null</code> if there was no such addition
+     */
+    private Object[] readYoungestAddition(final String path, final long revision) throws SVNException {
+        return (Object[]) runTransaction(false, new ISqlJetTransaction() {
+            public Object run(SqlJetDb db) throws SqlJetException {
+                Object[] addition = null;
+                String prefix = path;
+                while (true) {
+                    ISqlJetCursor cursor = myCopiesTable.scope(COPIES_INDEX, new Object[] {prefix, new Long(0)},
+                            new Object[] {prefix, new Long(revision)}).reverse();
+                    try {
+                        // deeper paths win when added in the same revision.
+                        if (!cursor.eof() && (addition == null || cursor.getInteger(1) > ((Long) addition[1]).longValue())) {
+                            addition = new Object[] {prefix, new Long(cursor.getInteger(1)),
+                                    cursor.isNull(2) ? null : cursor.getString(2),
+                                    cursor.isNull(3) ? null : new Long(cursor.getInteger(3))};
+                        }
+                    } finally {
+                        cursor.close();
+                    }
+                    if ("/".equals(prefix)) {
+                        break;
+                    }
+                    prefix = SVNPathUtil.removeTail(prefix);
+                    if (prefix.length() == 0) {
+                        prefix = "/";
+                    }
+                }
+                return addition;
+            }
+        });
+    }
+
+    private Object runTransaction(boolean write, ISqlJetTransaction transaction) throws SVNException {
+        if (myDB == null) {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.FS_GENERAL, "Log index is closed");
+            SVNErrorManager.error(err, SVNLogType.FSFS);
+        }
+        try {
+            return write ? myDB.runWriteTransaction(transaction) : myDB.runReadTransaction(transaction);
+        } catch (SqlJetException e) {
+            if (e.getCause() instanceof SVNException) {
+                throw (SVNException) e.getCause();
+            }
+            SVNErrorManager.error(convertError(e), e, SVNLogType.FSFS);
+        }
+        return null;
+    }
+
+    private static void closeDB(SqlJetDb db) {
+        if (db != null) {
+            try {
+                db.close();
+            } catch (SqlJetException e) {
+                SVNDebugLog.getDefaultLog().logFine(SVNLogType.FSFS, e);
+            }
+        }
+    }
+
+    private static SVNErrorMessage convertError(SqlJetException e) {
+        SqlJetErrorCode sqlCode = e.getErrorCode();
+        SVNErrorCode code = sqlCode == SqlJetErrorCode.READONLY ? SVNErrorCode.SQLITE_READONLY : SVNErrorCode.SQLITE_ERROR;
+        return SVNErrorMessage.create(code, e.getMessage());
+    }
+
+    /**
+     * Revisions of a path history in descending order, the same that
+     * {@link FSNodeHistory} reports for the path. History is split into
+     * segments of revisions in which the path is not added or copied. The
+     * segment ends with the youngest addition of the path or of one of its
+     * parents, which is itself part of history; when this addition is a
+     * copy, history continues at the copy source, unless node history is
+     * strict.
+     */
+    public class History {
+
+        private String myPath;
+        private long myUpperRevision;
+        private final long myStartRevision;
+        private final boolean myIsStrictNode;
+        private Object[] myAddition;
+        private boolean myIsAdditionRead;
+        private final long[] myRevisions;
+        private int myCount;
+        private int myPosition;
+        private long myLastRevision;
+        private boolean myIsSegmentDone;
+        private boolean myIsDone;
+
+        private History(String path, long startRevision, long endRevision, boolean strictNode) {
+            myPath = path;
+            myStartRevision = startRevision;
+            myIsStrictNode = strictNode;
+            myRevisions = new long[HISTORY_BATCH_SIZE];
+            myLastRevision = SVNRepository.INVALID_REVISION;
+            startSegment(path, endRevision);
+        }
+
+        /**
+         * @return next revision of history, or
+         *         {@link SVNRepository#INVALID_REVISION} when there are no more
+         */
+        public long nextRevision() throws SVNException {
+            while (!myIsDone) {
+                long revision = nextSegmentRevision();
+                if (revision < myStartRevision) {
+                    myIsDone = true;
+                    break;
+                }
+                if (revision != myLastRevision) {
+                    myLastRevision = revision;
+                    return revision;
+                }
+            }
+            return SVNRepository.INVALID_REVISION;
+        }
+
+        private long nextSegmentRevision() throws SVNException {
+            while (true) {
+                if ("/".equals(myPath)) {
+                    // every revision, including those with no changes.
+                    return myUpperRevision--;
+                }
+                if (myPosition < myCount) {
+                    return myRevisions[myPosition++];
+                }
+                if (!myIsAdditionRead) {
+                    myAddition = readYoungestAddition(myPath, myUpperRevision);
+                    myIsAdditionRead = true;
+                }
+                long lowerRevision = myAddition != null ? ((Long) myAddition[1]).longValue() : 0;
+                lowerRevision = Math.max(lowerRevision, myStartRevision);
+                if (!myIsSegmentDone && myUpperRevision >= lowerRevision) {
+                    myCount = readRevisions(myPath, lowerRevision, myUpperRevision, myRevisions);
+                    myPosition = 0;
+                    if (myCount < myRevisions.length) {
+                        myIsSegmentDone = true;
+                    } else {
+                        myUpperRevision = myRevisions[myCount - 1] - 1;
+                    }
+                    continue;
+                }
+                if (myAddition == null) {
+                    return SVNRepository.INVALID_REVISION;
+                }
+                Object[] addition = myAddition;
+                String addedPath = (String) addition[0];
+                long addedRevision = ((Long) addition[1]).longValue();
+                String copyPath = (String) addition[2];
+                if (copyPath == null || myIsStrictNode) {
+                    myIsDone = true;
+                } else {
+                    String relativePath = addedPath.equals(myPath) ? "" : SVNPathUtil.getPathAsChild(addedPath, myPath);
+                    startSegment(SVNPathUtil.getAbsolutePath(SVNPathUtil.append(copyPath, relativePath)), ((Long) addition[3]).longValue());
+                }
+                return addedRevision;
+            }
+        }
+
+        private void startSegment(String path, long upperRevision) {
+            myPath = path;
+            myUpperRevision = upperRevision;
+            myAddition = null;
+            myIsAdditionRead = false;
+            myCount = 0;
+            myPosition = 0;
+            myIsSegmentDone = false;
+        }
+    }
+}
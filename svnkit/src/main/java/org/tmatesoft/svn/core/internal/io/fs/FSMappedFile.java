@@ -0,0 +1,177 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.core.internal.io.fs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNErrorMessage;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.internal.wc.SVNErrorManager;
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
+import org.tmatesoft.svn.util.SVNDebugLog;
+import org.tmatesoft.svn.util.SVNLogType;
+
+/**
+ * Read-only memory mapping of an immutable file (pack files of packed
+ * shards), split into chunks so that files larger than 2 GB may be mapped
+ * as well. Instances are shared between threads, readers should only use
+ * buffers returned by {@link #getChunk(int)} between {@link #acquire()} and
+ * {@link #release()}. Once disposed and released by all readers, the file
+ * is unmapped.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+public class FSMappedFile {
+
+    static final int CHUNK_SIZE = 1 << 30;
+
+    private static Object ourUnsafe;
+    private static Method ourInvokeCleaner;
+    private static boolean ourIsUnmapInitialized;
+
+    private final File myFile;
+    private final long mySize;
+    private final MappedByteBuffer[] myChunks;
+    private int myUsersCount;
+    private boolean myIsDisposed;
+
+    private FSMappedFile(File file, long size, MappedByteBuffer[] chunks) {
+        myFile = file;
+        mySize = size;
+        myChunks = chunks;
+    }
+
+    public static FSMappedFile map(File file) throws SVNException {
+        FileInputStream is = null;
+        try {
+            is = SVNFileUtil.createFileInputStream(file);
+            FileChannel channel = is.getChannel();
+            long size = channel.size();
+            int chunksCount = (int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            MappedByteBuffer[] chunks = new MappedByteBuffer[chunksCount];
+            for (int i = 0; i < chunksCount; i++) {
+                long start = (long) i * CHUNK_SIZE;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE, size - start));
+            }
+            // mapping remains valid after the channel is closed
+            return new FSMappedFile(file, size, chunks);
+        } catch (IOException e) {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.IO_ERROR, "Can''t map file ''{0}'': {1}", new Object[] {file, e.getLocalizedMessage()});
+            SVNErrorManager.error(err, e, SVNLogType.FSFS);
+        } finally {
+            SVNFileUtil.closeFile(is);
+        }
+        return null;
+    }
+
+    public File getFile() {
+        return myFile;
+    }
+
+    public long size() {
+        return mySize;
+    }
+
+    public int getChunksCount() {
+        return myChunks.length;
+    }
+
+    /**
+     * Returns a private view of the chunk, with its own position and limit.
+     * Only readers that have {@link #acquire() acquired} the mapping may use it.
+     */
+    public ByteBuffer getChunk(int index) {
+        return myChunks[index].duplicate();
+    }
+
+    /**
+     * Registers a reader of the mapping. Returns <code>false</code> once the
+     * mapping has been disposed, the file should be read otherwise then.
+     */
+    public synchronized boolean acquire() {
+        if (myIsDisposed) {
+            return false;
+        }
+        myUsersCount++;
+        return true;
+    }
+
+    public synchronized void release() {
+        myUsersCount--;
+        if (myIsDisposed && myUsersCount == 0) {
+            unmap();
+        }
+    }
+
+    /**
+     * Unmaps the file as soon as it has no readers. Called when the mapping
+     * is evicted from the cache that shares it.
+     */
+    public synchronized void dispose() {
+        if (myIsDisposed) {
+            return;
+        }
+        myIsDisposed = true;
+        if (myUsersCount == 0) {
+            unmap();
+        }
+    }
+
+    public synchronized boolean isDisposed() {
+        return myIsDisposed;
+    }
+
+    private void unmap() {
+        for (int i = 0; i < myChunks.length; i++) {
+            unmap(myChunks[i]);
+            myChunks[i] = null;
+        }
+    }
+
+    /**
+     * Releases the mapping right away where the JVM allows it, otherwise it
+     * is released once the buffer is garbage collected.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        synchronized (FSMappedFile.class) {
+            if (!ourIsUnmapInitialized) {
+                ourIsUnmapInitialized = true;
+                try {
+                    Class unsafeClass = Class.forName("sun.misc.Unsafe");
+                    Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                    theUnsafe.setAccessible(true);
+                    ourInvokeCleaner = unsafeClass.getMethod("invokeCleaner", new Class[] {ByteBuffer.class});
+                    ourUnsafe = theUnsafe.get(null);
+                } catch (Throwable th) {
+                    SVNDebugLog.getDefaultLog().logFine(SVNLogType.FSFS, "Mapped files are not unmapped explicitly: " + th.getMessage());
+                }
+            }
+        }
+        if (ourInvokeCleaner == null || buffer == null) {
+            return;
+        }
+        try {
+            ourInvokeCleaner.invoke(ourUnsafe, new Object[] {buffer});
+        } catch (Throwable th) {
+            SVNDebugLog.getDefaultLog().logFine(SVNLogType.FSFS, th);
+        }
+    }
+}
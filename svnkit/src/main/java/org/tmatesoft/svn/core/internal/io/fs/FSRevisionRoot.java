@@ -45,14 +45,26 @@ public class FSRevisionRoot extends FSRoot {
     }
 
     public Map getChangedPaths() throws SVNException {
+        FSCache cache = getOwner().getChangedPathsCache();
+        Long key = new Long(getRevision());
+        FSChangedPaths cachedChanges = (FSChangedPaths) cache.get(key);
+        if (cachedChanges != null) {
+            return cachedChanges.toMap();
+        }
+        Map changes;
         FSFile file = getOwner().getPackOrRevisionFSFile(getRevision());
         try {
             loadOffsets(file);
             file.seek(myChangesOffset);
-            return fetchAllChanges(file, true);
+            changes = fetchAllChanges(file, true);
         } finally {
             file.close();
         }
+        if (cache.isEnabled()) {
+            cachedChanges = FSChangedPaths.create(changes, cache);
+            cache.put(key, cachedChanges, cachedChanges.getWeight());
+        }
+        return changes;
     }
 
     public FSCopyInheritance getCopyInheritance(FSParentPath child) throws SVNException{
@@ -0,0 +1,122 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.core.internal.io.fs;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.util.SVNDebugLog;
+import org.tmatesoft.svn.util.SVNLogType;
+
+/**
+ * Process wide registry of {@link FSFS} caches. Every {@link FSFS} opened
+ * over the same repository gets the same caches, so data read by one
+ * operation is reused by the next one even though each operation opens its
+ * own {@link FSFS} instance.
+ *
+ * <p/>
+ * Repositories are identified by the canonical path of their root
+ * directory, their UUID and the modification time of the UUID file, so a
+ * repository recreated at the same location never sees the caches of the
+ * old one. Only the most recently used repositories are remembered and the
+ * caches are softly referenced, so they are dropped under memory pressure.
+ * The number of repositories is set with the
+ * <code>svnkit.fsfs.sharedCachesRepositoriesCount</code> system property
+ * (16 by default, 0 disables sharing).
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+public class FSSharedCaches {
+
+    private static final int MAX_REPOSITORIES_COUNT = (int) FSCache.getSizeOption("svnkit.fsfs.sharedCachesRepositoriesCount", 16);
+
+    private static final Map ourCaches = new LinkedHashMap(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            if (size() > MAX_REPOSITORIES_COUNT) {
+                disposeCaches((SoftReference) eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Makes <code>fsfs</code> use the caches shared by all instances opened
+     * over the same repository.
+     */
+    public static void shareCaches(FSFS fsfs) {
+        if (MAX_REPOSITORIES_COUNT <= 0) {
+            return;
+        }
+        String key;
+        try {
+            key = getRepositoryKey(fsfs);
+        } catch (SVNException e) {
+            SVNDebugLog.getDefaultLog().logFine(SVNLogType.FSFS, "Repository caches are not shared: " + e.getMessage());
+            return;
+        }
+        FSFS owner;
+        synchronized (ourCaches) {
+            SoftReference reference = (SoftReference) ourCaches.get(key);
+            owner = reference != null ? (FSFS) reference.get() : null;
+            if (owner == null) {
+                owner = new FSFS(fsfs.getRepositoryRoot());
+                ourCaches.put(key, new SoftReference(owner));
+            }
+        }
+        fsfs.shareCaches(owner);
+    }
+
+    public static void clear() {
+        synchronized (ourCaches) {
+            for (Iterator references = ourCaches.values().iterator(); references.hasNext();) {
+                disposeCaches((SoftReference) references.next());
+            }
+            ourCaches.clear();
+        }
+    }
+
+    /**
+     * Unmaps pack files and closes revision file channels of a forgotten
+     * repository right away rather than when the owner is garbage collected.
+     * Instances still reading them keep their mappings until they close the
+     * files and reopen the channels they need.
+     */
+    private static void disposeCaches(SoftReference reference) {
+        FSFS owner = (FSFS) reference.get();
+        if (owner != null) {
+            owner.getMappedPacksCache().clear();
+            if (owner.getFileChannelPool() != null) {
+                owner.getFileChannelPool().clear();
+            }
+        }
+    }
+
+    private static String getRepositoryKey(FSFS fsfs) throws SVNException {
+        File root = fsfs.getRepositoryRoot();
+        String path;
+        try {
+            path = root.getCanonicalPath();
+        } catch (IOException e) {
+            path = root.getAbsolutePath();
+        }
+        return path + "\n" + fsfs.getUUID() + "\n" + fsfs.getUUIDFile().lastModified();
+    }
+}
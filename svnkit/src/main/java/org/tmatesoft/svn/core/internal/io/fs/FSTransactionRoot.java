@@ -32,6 +32,7 @@ import org.tmatesoft.svn.core.SVNProperty;
 import org.tmatesoft.svn.core.SVNPropertyValue;
 import org.tmatesoft.svn.core.SVNRevisionProperty;
 import org.tmatesoft.svn.core.internal.util.SVNDate;
+import org.tmatesoft.svn.core.internal.util.SVNHashMap;
 import org.tmatesoft.svn.core.internal.util.SVNPathUtil;
 import org.tmatesoft.svn.core.internal.wc.SVNErrorManager;
 import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
@@ -397,6 +398,8 @@ public class FSTransactionRoot extends FSRoot {
                 textRep.setUniquifier(uniquifier);
                 parentRevNode.setTextRepresentation(textRep);
                 parentRevNode.setIsFreshTxnRoot(false);
+                // entries of committed directories are shared, keep a private copy from now on
+                parentRevNode.setDirContents(new SVNHashMap(entries));
                 getOwner().putTxnRevisionNode(parentRevNode.getId(), parentRevNode);
             } else {
                 dst = SVNFileUtil.openFileForWriting(childrenFile, true);
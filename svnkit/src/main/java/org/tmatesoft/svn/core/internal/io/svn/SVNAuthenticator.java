@@ -72,8 +72,12 @@ public abstract class SVNAuthenticator {
         return myConnectionOutputStream;
     }
     
+    /**
+     * Returns the plain connection stream, preceded by the bytes the
+     * connection has already read ahead from it.
+     */
     protected InputStream getPlainInputStream() {
-        return myPlainInputStream;
+        return myConnection.getUnreadInputStream(myPlainInputStream);
     }
 
     protected OutputStream getPlainOutputStream() {
@@ -12,6 +12,7 @@
 
 package org.tmatesoft.svn.core.internal.io.svn;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Date;
@@ -34,6 +35,9 @@ import org.tmatesoft.svn.core.io.diff.SVNDiffWindow;
 import org.tmatesoft.svn.util.SVNLogType;
 
 /**
+ * Editor commands are buffered and sent in batches, the server does not
+ * respond to them until <code>close-edit</code> or <code>abort-edit</code>.
+ *
  * @author TMate Software Ltd.
  * @version 1.3
  */
@@ -71,14 +75,14 @@ class SVNCommitEditor implements ISVNEditor {
     public void openRoot(long revision) throws SVNException {
         DirBaton rootBaton = new DirBaton(myNextToken++);
         myConnection.write("(w((n)s))", new Object[]{"open-root",
-                getRevisionObject(revision), rootBaton.getToken()});
+                getRevisionObject(revision), rootBaton.getToken()}, false);
         myDirsStack.push(rootBaton);
     }
 
     public void deleteEntry(String path, long revision) throws SVNException {
         DirBaton parentBaton = (DirBaton) myDirsStack.peek();
         myConnection.write("(w(s(n)s))", new Object[]{"delete-entry", path,
-                getRevisionObject(revision), parentBaton.getToken()});
+                getRevisionObject(revision), parentBaton.getToken()}, false);
     }
 
     public void addDir(String path, String copyFromPath, long copyFromRevision)
@@ -91,10 +95,10 @@ class SVNCommitEditor implements ISVNEditor {
             copyFromPath = SVNPathUtil.append(rootURL, SVNEncodingUtil.uriEncode(myRepository.getRepositoryPath(copyFromPath)));
             myConnection.write("(w(sss(sn)))", new Object[]{"add-dir", path,
                     parentBaton.getToken(), dirBaton.getToken(), copyFromPath,
-                    getRevisionObject(copyFromRevision)});
+                    getRevisionObject(copyFromRevision)}, false);
         } else {
             myConnection.write("(w(sss()))", new Object[]{"add-dir", path,
-                    parentBaton.getToken(), dirBaton.getToken()});
+                    parentBaton.getToken(), dirBaton.getToken()}, false);
         }
         myDirsStack.push(dirBaton);
     }
@@ -104,7 +108,7 @@ class SVNCommitEditor implements ISVNEditor {
         DirBaton dirBaton = new DirBaton(myNextToken++);
 
         myConnection.write("(w(sss(n)))", new Object[]{"open-dir", path,
-                parentBaton.getToken(), dirBaton.getToken(), getRevisionObject(revision)});
+                parentBaton.getToken(), dirBaton.getToken(), getRevisionObject(revision)}, false);
 
         myDirsStack.push(dirBaton);
     }
@@ -114,14 +118,14 @@ class SVNCommitEditor implements ISVNEditor {
         DirBaton dirBaton = (DirBaton) myDirsStack.peek();
         byte[] bytes = SVNPropertyValue.getPropertyAsBytes(value);
         myConnection.write("(w(ss(b)))", new Object[]{"change-dir-prop",
-                dirBaton.getToken(), name, bytes});
+                dirBaton.getToken(), name, bytes}, false);
     }
 
     public void closeDir() throws SVNException {
         DirBaton dirBaton = (DirBaton) myDirsStack.pop();
 
         myConnection.write("(w(s))",
-                new Object[]{"close-dir", dirBaton.getToken()});
+                new Object[]{"close-dir", dirBaton.getToken()}, false);
     }
 
     public void addFile(String path, String copyFromPath, long copyFromRevision) throws SVNException {
@@ -133,10 +137,10 @@ class SVNCommitEditor implements ISVNEditor {
             copyFromPath = SVNPathUtil.append(host, SVNEncodingUtil.uriEncode(myRepository.getRepositoryPath(copyFromPath)));
             myConnection.write("(w(sss(sn)))", new Object[]{"add-file", path,
                     parentBaton.getToken(), fileToken, copyFromPath,
-                    getRevisionObject(copyFromRevision)});
+                    getRevisionObject(copyFromRevision)}, false);
         } else {
             myConnection.write("(w(sss()))", new Object[]{"add-file", path,
-                    parentBaton.getToken(), fileToken});
+                    parentBaton.getToken(), fileToken}, false);
         }
         if (myFilesToTokens == null) {
             myFilesToTokens = new SVNHashMap();
@@ -149,7 +153,7 @@ class SVNCommitEditor implements ISVNEditor {
         String fileToken = "c" + myNextToken++;
 
         myConnection.write("(w(sss(n)))", new Object[]{"open-file", path,
-                parentBaton.getToken(), fileToken, getRevisionObject(revision)});
+                parentBaton.getToken(), fileToken, getRevisionObject(revision)}, false);
         if (myFilesToTokens == null) {
             myFilesToTokens = new SVNHashMap();
         }
@@ -159,17 +163,24 @@ class SVNCommitEditor implements ISVNEditor {
     public void applyTextDelta(String path, String baseChecksum) throws SVNException {
         String fileToken = (String) myFilesToTokens.get(path);
         myDiffWindowCount = 0;
-        myConnection.write("(w(s(s)))", new Object[]{"apply-textdelta", fileToken, baseChecksum});
+        myConnection.write("(w(s(s)))", new Object[]{"apply-textdelta", fileToken, baseChecksum}, false);
     }
 
     private int myDiffWindowCount = 0;
     private boolean myIsAborted;
+    private ByteArrayOutputStream myDeltaBuffer;
 
     public OutputStream textDeltaChunk(String path, SVNDiffWindow diffWindow) throws SVNException {
         String fileToken = (String) myFilesToTokens.get(path);
 
         try {
-            diffWindow.writeTo(myConnection.getDeltaStream(fileToken), myDiffWindowCount == 0, myConnection.isSVNDiff1());
+            // window is sent as a single chunk rather than a chunk per header, instructions and data.
+            if (myDeltaBuffer == null) {
+                myDeltaBuffer = new ByteArrayOutputStream();
+            }
+            myDeltaBuffer.reset();
+            diffWindow.writeTo(myDeltaBuffer, myDiffWindowCount == 0, myConnection.isSVNDiff1());
+            myDeltaBuffer.writeTo(myConnection.getDeltaStream(fileToken));
             myDiffWindowCount++;
             return SVNFileUtil.DUMMY_OUT;
         } catch (IOException e) {
@@ -181,19 +192,19 @@ class SVNCommitEditor implements ISVNEditor {
     public void textDeltaEnd(String path) throws SVNException {
         String fileToken = (String) myFilesToTokens.get(path);
         myDiffWindowCount = 0;
-        myConnection.write("(w(s))", new Object[]{"textdelta-end", fileToken});
+        myConnection.write("(w(s))", new Object[]{"textdelta-end", fileToken}, false);
     }
 
     public void changeFileProperty(String path, String name, SVNPropertyValue value) throws SVNException {
         String fileToken = (String) myFilesToTokens.get(path);
         byte[] bytes = SVNPropertyValue.getPropertyAsBytes(value);
-        myConnection.write("(w(ss(b)))", new Object[]{"change-file-prop", fileToken, name, bytes});
+        myConnection.write("(w(ss(b)))", new Object[]{"change-file-prop", fileToken, name, bytes}, false);
     }
 
     public void closeFile(String path, String textChecksum) throws SVNException {
         String fileToken = (String) myFilesToTokens.remove(path);
         myDiffWindowCount = 0;
-        myConnection.write("(w(s(s)))", new Object[]{"close-file", fileToken, textChecksum});
+        myConnection.write("(w(s(s)))", new Object[]{"close-file", fileToken, textChecksum}, false);
     }
 
     public SVNCommitInfo closeEdit() throws SVNException {
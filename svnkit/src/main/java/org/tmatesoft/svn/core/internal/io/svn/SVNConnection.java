@@ -44,7 +44,8 @@ public class SVNConnection {
     private String myRealm;
     private String myRoot;
     private OutputStream myOutputStream;
-    private InputStream myInputStream;
+    private SVNWriter myWriter;
+    private SVNItemReader myItemReader;
     private SVNRepositoryImpl myRepository;
     private boolean myIsSVNDiff1;
     private boolean myIsCommitRevprops;
@@ -68,6 +69,7 @@ public class SVNConnection {
     public SVNConnection(ISVNConnector connector, SVNRepositoryImpl repository) {
         myConnector = connector;
         myRepository = repository;
+        myWriter = new SVNWriter();
     }
 
     public void open(SVNRepositoryImpl repository) throws SVNException {
@@ -260,16 +262,17 @@ public class SVNConnection {
             myEncryptor.dispose();
             myEncryptor = null;
         }
-        myInputStream = null;
+        myItemReader = null;
         myLoggingInputStream = null;
         myOutputStream = null;
+        myWriter.reset();
         myConnector.close(myRepository);
     }
 
     public List read(String template, List items, boolean readMalformedData) throws SVNException {
         try {
             checkConnection();
-            return SVNReader.parse(getInputStream(), template, items);
+            return SVNReader.parse(getItemReader(), SVNTemplate.getTemplate(template), items);
         } catch (SVNException e) {
             handleIOError(e, readMalformedData);
             return null;
@@ -281,7 +284,7 @@ public class SVNConnection {
     public List readTuple(String template, boolean readMalformedData) throws SVNException {
         try {
             checkConnection();
-            return SVNReader.readTuple(getInputStream(), template);
+            return SVNReader.readTuple(getItemReader(), SVNTemplate.getTemplate(template));
         } catch (SVNException e) {
             handleIOError(e, readMalformedData);
             return null;
@@ -293,7 +296,7 @@ public class SVNConnection {
     public SVNItem readItem(boolean readMalformedData) throws SVNException {
         try {
             checkConnection();
-            return SVNReader.readItem(getInputStream());
+            return getItemReader().readItem();
         } catch (SVNException e) {
             handleIOError(e, readMalformedData);
             return null;
@@ -326,17 +329,37 @@ public class SVNConnection {
     }
     
     public void write(String template, Object[] items) throws SVNException {
+        write(template, items, true);
+    }
+
+    /**
+     * Encodes a command. Unless <code>flush</code> is <span class="javakeyword">true</span>
+     * command is only buffered and is sent together with the following ones,
+     * pending commands are always sent before a response is read.
+     */
+    public void write(String template, Object[] items, boolean flush) throws SVNException {
+        boolean written = false;
         try {
-            SVNWriter.write(getOutputStream(), template, items);
+            myWriter.write(template, items, getOutputStream());
+            written = true;
+        } finally {
+            if (flush || !written) {
+                flush();
+            }
+        }
+    }
+
+    public void flush() throws SVNException {
+        OutputStream os = getOutputStream();
+        try {
+            myWriter.writeTo(os);
         } finally {
             try {
-                getOutputStream().flush();
+                os.flush();
             } catch (IOException e) {
                 //
-            } catch (SVNException e) {
-                //
             }
-            myRepository.getDebugLog().flushStream(getOutputStream());
+            myRepository.getDebugLog().flushStream(os);
         }
     }
     
@@ -362,12 +385,9 @@ public class SVNConnection {
 
             public void write(byte b[], int off, int len) throws IOException {
                 try {
-                    SVNConnection.this.write("(w(s", myPrefix);
-                    getOutputStream().write((String.valueOf(len)).getBytes("UTF-8"));
-                    getOutputStream().write(':');
-                    getOutputStream().write(b, off, len);
-                    getOutputStream().write(' ');
-                    SVNConnection.this.write("))", null);
+                    SVNConnection.this.write("(w(s", myPrefix, false);
+                    myWriter.writeItem(b, off, len, getOutputStream());
+                    SVNConnection.this.write("))", null, false);
                 } catch (SVNException e) {
                     throw new IOException(e.getMessage());
                 }
@@ -395,16 +415,36 @@ public class SVNConnection {
     }
 
     InputStream getInputStream() throws SVNException {
-        if (myInputStream == null) {
+        return getItemReader();
+    }
+
+    SVNItemReader getItemReader() throws SVNException {
+        if (myWriter.hasPendingData()) {
+            flush();
+        }
+        if (myItemReader == null) {
             try {
                 InputStream is = myConnector.getInputStream();
-                myInputStream = myRepository.getDebugLog().createLogStream(SVNLogType.NETWORK, is); 
-                myLoggingInputStream = myInputStream;
+                myLoggingInputStream = myRepository.getDebugLog().createLogStream(SVNLogType.NETWORK, is); 
+                myItemReader = new SVNItemReader(myLoggingInputStream);
             } catch (IOException e) {
                 SVNErrorManager.error(SVNErrorMessage.create(SVNErrorCode.RA_SVN_IO_ERROR, e.getMessage()), e, SVNLogType.NETWORK);
             }
         }
-        return myInputStream;
+        return myItemReader;
+    }
+
+    /**
+     * Returns the item reader after the same connection check as
+     * {@link #readTuple(String, boolean)} does.
+     */
+    SVNItemReader getCheckedItemReader() throws SVNException {
+        checkConnection();
+        return getItemReader();
+    }
+
+    void flushInputLog() {
+        myRepository.getDebugLog().flushStream(myLoggingInputStream);
     }
     
     void setOutputStream(OutputStream os) {
@@ -418,10 +458,26 @@ public class SVNConnection {
         if (myLoggingInputStream != null) {            
             myRepository.getDebugLog().flushStream(myLoggingInputStream);
         }
-        myInputStream = is;
+        myItemReader = new SVNItemReader(is);
         myLoggingInputStream = is;
     }
 
+    /**
+     * Returns <code>source</code> preceded by the bytes the current reader has
+     * read ahead from the connection, so that a stream created over the plain
+     * connection stream does not lose them.
+     */
+    InputStream getUnreadInputStream(InputStream source) {
+        if (myItemReader == null) {
+            return source;
+        }
+        byte[] unread = myItemReader.detachBufferedBytes();
+        if (unread.length == 0) {
+            return source;
+        }
+        return new SequenceInputStream(new ByteArrayInputStream(unread), source);
+    }
+
     ISVNConnector getConnector() {
         return myConnector;
     }
@@ -13,7 +13,6 @@
 package org.tmatesoft.svn.core.internal.io.svn;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -38,26 +37,26 @@ public class SVNEditModeReader {
     private static final Map COMMANDS_MAP = new SVNHashMap();
 
     static {
-        COMMANDS_MAP.put("target-rev", "r");
-        COMMANDS_MAP.put("open-root", "(?r)s");
-        COMMANDS_MAP.put("delete-entry", "s(?r)s");
-        COMMANDS_MAP.put("add-dir", "sss(?sr)");
-        COMMANDS_MAP.put("open-dir", "sss(?r)");
-        COMMANDS_MAP.put("change-dir-prop", "ss(?b)");
-        COMMANDS_MAP.put("close-dir", "s");
-        COMMANDS_MAP.put("add-file", "sss(?sr)");
-        COMMANDS_MAP.put("open-file", "sss(?r)");
-        COMMANDS_MAP.put("apply-textdelta", "s(?s)");
-        COMMANDS_MAP.put("textdelta-chunk", "sb");
-        COMMANDS_MAP.put("textdelta-end", "s");
-        COMMANDS_MAP.put("change-file-prop", "ss(?b)");
-        COMMANDS_MAP.put("close-file", "s(?b)");
-        COMMANDS_MAP.put("close-edit", "()");
-        COMMANDS_MAP.put("abort-edit", "()");
-        COMMANDS_MAP.put("finish-replay", "()");
-        COMMANDS_MAP.put("absent-dir", "ss");
-        COMMANDS_MAP.put("absent-file", "ss");
-        COMMANDS_MAP.put("failure", "l");
+        COMMANDS_MAP.put("target-rev", SVNTemplate.getTemplate("r"));
+        COMMANDS_MAP.put("open-root", SVNTemplate.getTemplate("(?r)s"));
+        COMMANDS_MAP.put("delete-entry", SVNTemplate.getTemplate("s(?r)s"));
+        COMMANDS_MAP.put("add-dir", SVNTemplate.getTemplate("sss(?sr)"));
+        COMMANDS_MAP.put("open-dir", SVNTemplate.getTemplate("sss(?r)"));
+        COMMANDS_MAP.put("change-dir-prop", SVNTemplate.getTemplate("ss(?b)"));
+        COMMANDS_MAP.put("close-dir", SVNTemplate.getTemplate("s"));
+        COMMANDS_MAP.put("add-file", SVNTemplate.getTemplate("sss(?sr)"));
+        COMMANDS_MAP.put("open-file", SVNTemplate.getTemplate("sss(?r)"));
+        COMMANDS_MAP.put("apply-textdelta", SVNTemplate.getTemplate("s(?s)"));
+        COMMANDS_MAP.put("textdelta-chunk", SVNTemplate.getTemplate("sb"));
+        COMMANDS_MAP.put("textdelta-end", SVNTemplate.getTemplate("s"));
+        COMMANDS_MAP.put("change-file-prop", SVNTemplate.getTemplate("ss(?b)"));
+        COMMANDS_MAP.put("close-file", SVNTemplate.getTemplate("s(?b)"));
+        COMMANDS_MAP.put("close-edit", SVNTemplate.getTemplate("()"));
+        COMMANDS_MAP.put("abort-edit", SVNTemplate.getTemplate("()"));
+        COMMANDS_MAP.put("finish-replay", SVNTemplate.getTemplate("()"));
+        COMMANDS_MAP.put("absent-dir", SVNTemplate.getTemplate("ss"));
+        COMMANDS_MAP.put("absent-file", SVNTemplate.getTemplate("ss"));
+        COMMANDS_MAP.put("failure", SVNTemplate.getTemplate("l"));
     }
 
     private SVNConnection myConnection;
@@ -69,6 +68,7 @@ public class SVNEditModeReader {
     private boolean myAborted;
     private boolean myForReplay;
     private Map myTokens;
+    private List myParameters;
 
     public SVNEditModeReader(SVNConnection connection, ISVNEditor editor, boolean forReplay) {
         myConnection = connection;
@@ -78,6 +78,7 @@ public class SVNEditModeReader {
         myAborted = false;
         myForReplay = forReplay;
         myTokens = new SVNHashMap();
+        myParameters = new ArrayList();
     }
 
     public boolean isAborted() {
@@ -164,10 +165,6 @@ public class SVNEditModeReader {
         } else if ("apply-textdelta".equals(commandName)) {
             lookupToken(SVNReader.getString(params, 0), true);
             myEditor.applyTextDelta(myFilePath, SVNReader.getString(params, 1));
-        } else if ("textdelta-chunk".equals(commandName)) {
-            lookupToken(SVNReader.getString(params, 0), true);
-            byte[] chunk = SVNReader.getBytes(params, 1);
-            myDeltaReader.nextWindow(chunk, 0, chunk.length, myFilePath, myEditor);
         } else if ("textdelta-end".equals(commandName)) {
             // reset delta reader,
             // this should send empty window when diffstream contained only header.
@@ -218,22 +215,38 @@ public class SVNEditModeReader {
         while (!myDone) {
             SVNErrorMessage error = null;
             Exception errorCause = null;
-            List items = readTuple("wl", false);
-            String commandName = SVNReader.getString(items, 0);
-            String template = (String) COMMANDS_MAP.get(commandName);
-            if (template == null) {
-                SVNErrorMessage child = SVNErrorMessage.create(SVNErrorCode.RA_SVN_UNKNOWN_CMD, "Unknown command ''{0}''", commandName);
-                error = SVNErrorMessage.create(SVNErrorCode.RA_SVN_CMD_ERR);
-                error.setChildErrorMessage(child);
-            }
-            if (template != null && items.get(1) instanceof Collection) {
-                List parameters = SVNReader.parseTuple(template, (Collection) items.get(1), null);
-                try {
-                    processCommand(commandName, parameters);
-                } catch (SVNException e) {
-                    error = e.getErrorMessage();
-                errorCause = e;
+            SVNItemReader reader = getItemReader();
+            try {
+                readListStart(reader);
+                String commandName = reader.next() == SVNItemReader.WORD ? reader.getWord() : null;
+                SVNTemplate template = (SVNTemplate) COMMANDS_MAP.get(commandName);
+                readListStart(reader);
+                if (template == null) {
+                    reader.skipList();
+                    SVNErrorMessage child = SVNErrorMessage.create(SVNErrorCode.RA_SVN_UNKNOWN_CMD, "Unknown command ''{0}''", commandName);
+                    error = SVNErrorMessage.create(SVNErrorCode.RA_SVN_CMD_ERR);
+                    error.setChildErrorMessage(child);
+                } else if ("textdelta-chunk".equals(commandName)) {
+                    // chunk is passed to the delta reader right from the read buffer.
+                    try {
+                        processDeltaChunk(reader);
+                    } catch (SVNException e) {
+                        error = e.getErrorMessage();
+                        errorCause = e;
+                    }
+                } else {
+                    myParameters.clear();
+                    template.parse(reader, myParameters);
+                    try {
+                        processCommand(commandName, myParameters);
+                    } catch (SVNException e) {
+                        error = e.getErrorMessage();
+                        errorCause = e;
+                    }
                 }
+                reader.skipList();
+            } finally {
+                myConnection.flushInputLog();
             }
             if (error != null) {
                 if (error.getErrorCode() == SVNErrorCode.RA_SVN_CMD_ERR) {
@@ -258,6 +271,45 @@ public class SVNEditModeReader {
         }
     }
 
+    private void processDeltaChunk(SVNItemReader reader) throws SVNException {
+        boolean listEnd = false;
+        try {
+            int token = reader.next();
+            if (token != SVNItemReader.STRING && token != SVNItemReader.WORD) {
+                listEnd = token == SVNItemReader.LIST_END;
+                reader.skipItem(token);
+                SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_SVN_MALFORMED_DATA, "Invalid file or dir token during edit");
+                SVNErrorManager.error(err, SVNLogType.NETWORK);
+            }
+            lookupToken(token == SVNItemReader.STRING ? reader.getString() : reader.getWord(), true);
+            token = reader.next();
+            if (token == SVNItemReader.STRING) {
+                myDeltaReader.nextWindow(reader.getBuffer(), reader.getTokenOffset(), reader.getTokenLength(), myFilePath, myEditor);
+            } else {
+                listEnd = token == SVNItemReader.LIST_END;
+                reader.skipItem(token);
+            }
+        } finally {
+            if (!listEnd) {
+                reader.skipList();
+            }
+        }
+    }
+
+    private void readListStart(SVNItemReader reader) throws SVNException {
+        if (reader.next() != SVNItemReader.LIST_START) {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_SVN_MALFORMED_DATA);
+            SVNErrorManager.error(err, SVNLogType.NETWORK);
+        }
+    }
+
+    private SVNItemReader getItemReader() throws SVNException {
+        if (myConnection == null) {
+            SVNErrorManager.error(SVNErrorMessage.create(SVNErrorCode.RA_SVN_CONNECTION_CLOSED), SVNLogType.NETWORK);
+        }
+        return myConnection.getCheckedItemReader();
+    }
+
     private List readTuple(String template, boolean readMalformedData) throws SVNException {
         if (myConnection == null) {
             SVNErrorManager.error(SVNErrorMessage.create(SVNErrorCode.RA_SVN_CONNECTION_CLOSED), SVNLogType.NETWORK);
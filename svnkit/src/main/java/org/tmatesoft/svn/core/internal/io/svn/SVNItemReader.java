@@ -0,0 +1,389 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.core.internal.io.svn;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNErrorMessage;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.internal.wc.SVNErrorManager;
+import org.tmatesoft.svn.util.SVNDebugLog;
+import org.tmatesoft.svn.util.SVNLogType;
+
+/**
+ * Pull parser of svn protocol items over a reusable read buffer.
+ *
+ * <p>
+ * {@link #next()} reads the next token and returns its kind. Values of the
+ * current token are available until the next call: strings are not copied
+ * out of the buffer unless {@link #getBytes()} or {@link #getString()} is
+ * called, numbers are kept as primitive values.
+ *
+ * <p>
+ * Reader is an input stream itself, so that bytes read ahead into its buffer
+ * are not lost for those who read raw data from the connection.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+public class SVNItemReader extends InputStream {
+
+    public static final int LIST_START = 0;
+    public static final int LIST_END = 1;
+    public static final int WORD = 2;
+    public static final int STRING = 3;
+    public static final int NUMBER = 4;
+
+    private static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_KEPT_BUFFER_SIZE = 1024 * 1024;
+    private static final int WORDS_CACHE_SIZE = 64;
+
+    private InputStream mySource;
+    private byte[] myBuffer;
+    private int myPosition;
+    private int myLimit;
+
+    private long myNumber;
+    private int myTokenOffset;
+    private int myTokenLength;
+    private char[] myChars;
+    private String[] myWords;
+
+    public SVNItemReader(InputStream source) {
+        mySource = source;
+        myBuffer = new byte[DEFAULT_BUFFER_SIZE];
+        myChars = new char[256];
+        myWords = new String[WORDS_CACHE_SIZE];
+    }
+
+    /**
+     * Reads next token.
+     *
+     * @return  one of {@link #LIST_START}, {@link #LIST_END}, {@link #WORD},
+     *          {@link #STRING} or {@link #NUMBER}
+     */
+    public int next() throws SVNException {
+        int ch = skipWhiteSpace();
+        if (ch == '(') {
+            return LIST_START;
+        } else if (ch == ')') {
+            checkWhiteSpace(readByte());
+            return LIST_END;
+        } else if (ch >= '0' && ch <= '9') {
+            return readNumberOrString(ch - '0');
+        } else if (isLetter(ch)) {
+            return readWord(ch);
+        }
+        SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_SVN_MALFORMED_DATA);
+        SVNErrorManager.error(err, SVNLogType.NETWORK);
+        return -1;
+    }
+
+    public long getNumber() {
+        return myNumber;
+    }
+
+    public String getWord() {
+        return getCachedWord(myTokenLength);
+    }
+
+    /**
+     * @return  buffer holding the current string token, valid until the next token is read
+     */
+    public byte[] getBuffer() {
+        return myBuffer;
+    }
+
+    public int getTokenOffset() {
+        return myTokenOffset;
+    }
+
+    public int getTokenLength() {
+        return myTokenLength;
+    }
+
+    public byte[] getBytes() {
+        byte[] bytes = new byte[myTokenLength];
+        System.arraycopy(myBuffer, myTokenOffset, bytes, 0, myTokenLength);
+        return bytes;
+    }
+
+    public String getString() {
+        int length = myTokenLength;
+        if (myChars.length < length) {
+            myChars = new char[Math.max(length, myChars.length * 2)];
+        }
+        char[] chars = myChars;
+        byte[] buffer = myBuffer;
+        int offset = myTokenOffset;
+        for (int i = 0; i < length; i++) {
+            byte b = buffer[offset + i];
+            if (b < 0) {
+                try {
+                    return new String(buffer, offset, length, "UTF-8");
+                } catch (UnsupportedEncodingException e) {
+                    return new String(buffer, offset, length);
+                }
+            }
+            chars[i] = (char) b;
+        }
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Reads the next complete item, lists are read with all their items.
+     */
+    public SVNItem readItem() throws SVNException {
+        int token = next();
+        if (token == LIST_END) {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_SVN_MALFORMED_DATA);
+            SVNErrorManager.error(err, SVNLogType.NETWORK);
+        }
+        return createItem(token);
+    }
+
+    /**
+     * Reads items of a list which start token was just read, up to and
+     * including the end of the list.
+     */
+    public List readItems() throws SVNException {
+        List items = new ArrayList();
+        for (int token = next(); token != LIST_END; token = next()) {
+            items.add(createItem(token));
+        }
+        return items;
+    }
+
+    /**
+     * Skips the rest of a list which start token was already read.
+     */
+    public void skipList() throws SVNException {
+        int depth = 1;
+        while (depth > 0) {
+            int token = next();
+            if (token == LIST_START) {
+                depth++;
+            } else if (token == LIST_END) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Skips the rest of the item which token was just read.
+     */
+    public void skipItem(int token) throws SVNException {
+        if (token == LIST_START) {
+            skipList();
+        }
+    }
+
+    public int read() throws IOException {
+        if (myPosition < myLimit) {
+            return myBuffer[myPosition++] & 0xFF;
+        }
+        return mySource.read();
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (myPosition < myLimit) {
+            int count = Math.min(len, myLimit - myPosition);
+            System.arraycopy(myBuffer, myPosition, b, off, count);
+            myPosition += count;
+            return count;
+        }
+        return mySource.read(b, off, len);
+    }
+
+    public int available() throws IOException {
+        return myLimit - myPosition + mySource.available();
+    }
+
+    public void close() throws IOException {
+        mySource.close();
+    }
+
+    /**
+     * Returns bytes that were read ahead from the source but not consumed
+     * yet and discards them from this reader.
+     */
+    public byte[] detachBufferedBytes() {
+        byte[] bytes = new byte[myLimit - myPosition];
+        System.arraycopy(myBuffer, myPosition, bytes, 0, bytes.length);
+        myPosition = myLimit;
+        return bytes;
+    }
+
+    private SVNItem createItem(int token) throws SVNException {
+        SVNItem item = new SVNItem();
+        if (token == NUMBER) {
+            item.setKind(SVNItem.NUMBER);
+            item.setNumber(myNumber);
+        } else if (token == STRING) {
+            item.setKind(SVNItem.BYTES);
+            item.setLine(getBytes());
+        } else if (token == WORD) {
+            item.setKind(SVNItem.WORD);
+            item.setWord(getWord());
+        } else if (token == LIST_START) {
+            item.setKind(SVNItem.LIST);
+            item.setItems(readItems());
+        }
+        return item;
+    }
+
+    private int readNumberOrString(long value) throws SVNException {
+        int ch;
+        while (true) {
+            ch = readByte();
+            if (ch < '0' || ch > '9') {
+                break;
+            }
+            int digit = ch - '0';
+            if (value > (Long.MAX_VALUE - digit) / 10) {
+                SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_SVN_MALFORMED_DATA, "Number is larger than maximum");
+                SVNErrorManager.error(err, SVNLogType.NETWORK);
+            }
+            value = value * 10 + digit;
+        }
+        if (ch != ':') {
+            checkWhiteSpace(ch);
+            myNumber = value;
+            return NUMBER;
+        }
+        if (value >= Integer.MAX_VALUE) {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_SVN_MALFORMED_DATA, "String is larger than maximum");
+            SVNErrorManager.error(err, SVNLogType.NETWORK);
+        }
+        int length = (int) value;
+        // string is kept in the buffer together with the whitespace that follows it.
+        fill(length + 1);
+        myTokenOffset = myPosition;
+        myTokenLength = length;
+        myPosition += length;
+        checkWhiteSpace(myBuffer[myPosition++] & 0xFF);
+        return STRING;
+    }
+
+    private int readWord(int ch) throws SVNException {
+        int length = 0;
+        while (true) {
+            if (length == myChars.length) {
+                char[] chars = new char[length * 2];
+                System.arraycopy(myChars, 0, chars, 0, length);
+                myChars = chars;
+            }
+            myChars[length++] = (char) ch;
+            ch = readByte();
+            if (isLetter(ch) || (ch >= '0' && ch <= '9') || ch == '-') {
+                continue;
+            }
+            break;
+        }
+        checkWhiteSpace(ch);
+        myTokenLength = length;
+        return WORD;
+    }
+
+    private String getCachedWord(int length) {
+        char[] chars = myChars;
+        int hash = length;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int index = (hash ^ (hash >>> 16)) & (WORDS_CACHE_SIZE - 1);
+        String word = myWords[index];
+        if (word != null && word.length() == length) {
+            int i = 0;
+            while (i < length && word.charAt(i) == chars[i]) {
+                i++;
+            }
+            if (i == length) {
+                return word;
+            }
+        }
+        word = new String(chars, 0, length);
+        myWords[index] = word;
+        return word;
+    }
+
+    private int skipWhiteSpace() throws SVNException {
+        while (true) {
+            int ch = readByte();
+            if (!isWhiteSpace(ch)) {
+                return ch;
+            }
+        }
+    }
+
+    private void checkWhiteSpace(int ch) throws SVNException {
+        if (!isWhiteSpace(ch)) {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_SVN_MALFORMED_DATA);
+            SVNErrorManager.error(err, SVNLogType.NETWORK);
+        }
+    }
+
+    private int readByte() throws SVNException {
+        if (myPosition == myLimit) {
+            fill(1);
+        }
+        return myBuffer[myPosition++] & 0xFF;
+    }
+
+    private void fill(int count) throws SVNException {
+        int available = myLimit - myPosition;
+        if (available >= count) {
+            return;
+        }
+        byte[] buffer = myBuffer;
+        if (buffer.length < count) {
+            buffer = new byte[Math.max(count, buffer.length * 2)];
+        } else if (buffer.length > MAX_KEPT_BUFFER_SIZE && count <= DEFAULT_BUFFER_SIZE) {
+            buffer = new byte[DEFAULT_BUFFER_SIZE];
+        }
+        System.arraycopy(myBuffer, myPosition, buffer, 0, available);
+        myBuffer = buffer;
+        myPosition = 0;
+        myLimit = available;
+        try {
+            while (myLimit < count) {
+                int read = mySource.read(myBuffer, myLimit, myBuffer.length - myLimit);
+                if (read < 0) {
+                    SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_SVN_CONNECTION_CLOSED);
+                    SVNErrorManager.error(err, SVNLogType.NETWORK);
+                }
+                myLimit += read;
+            }
+        } catch (IOException e) {
+            // the connection broke, the data read so far is not malformed
+            SVNDebugLog.getDefaultLog().logFinest(SVNLogType.NETWORK, e);
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_SVN_CONNECTION_CLOSED, e.getMessage());
+            SVNErrorManager.error(err, e, SVNLogType.NETWORK);
+        }
+    }
+
+    private static boolean isWhiteSpace(int ch) {
+        return ch == ' ' || ch == '\n' || (ch < 0x80 && Character.isWhitespace((char) ch));
+    }
+
+    private static boolean isLetter(int ch) {
+        if (ch < 0x80) {
+            return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z');
+        }
+        return Character.isLetter((char) ch);
+    }
+}
@@ -253,6 +253,37 @@ public class SVNReader {
         return null;
     }
 
+    public static List parse(SVNItemReader reader, SVNTemplate template, List values) throws SVNException {
+        if (reader.next() != SVNItemReader.LIST_START) {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_SVN_MALFORMED_DATA);
+            SVNErrorManager.error(err, SVNLogType.NETWORK);
+        }
+        int token = reader.next();
+        String word = null;
+        if (token == SVNItemReader.WORD) {
+            word = reader.getWord();
+            token = reader.next();
+        }
+        if ("success".equals(word) && token == SVNItemReader.LIST_START) {
+            values = template.parse(reader, values);
+            reader.skipList();
+            return values;
+        }
+        List list = token == SVNItemReader.LIST_START ? reader.readItems() : Collections.EMPTY_LIST;
+        if (token != SVNItemReader.LIST_END) {
+            reader.skipList();
+        }
+        if ("success".equals(word)) {
+            return parseTuple(template.getTemplate(), list, values);
+        } else if ("failure".equals(word)) {
+            handleFailureStatus(list);
+        } else {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_SVN_MALFORMED_DATA, "Unknown status ''{0}'' in command response", word);
+            SVNErrorManager.error(err, SVNLogType.NETWORK);
+        }
+        return null;
+    }
+
     public static void handleFailureStatus(List list) throws SVNException {
         if (list.size() == 0) {
             SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_SVN_MALFORMED_DATA, "Empty error list");
@@ -293,6 +324,14 @@ public class SVNReader {
         return parseTuple(template, item.getItems(), null);
     }
 
+    public static List readTuple(SVNItemReader reader, SVNTemplate template) throws SVNException {
+        if (reader.next() != SVNItemReader.LIST_START) {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_SVN_MALFORMED_DATA);
+            SVNErrorManager.error(err, SVNLogType.NETWORK);
+        }
+        return template.parse(reader, null);
+    }
+
     public static List parseTuple(String template, Collection items, List values) throws SVNException {
         values = values == null ? new ArrayList() : values;
         parseTuple(template, 0, items, values);
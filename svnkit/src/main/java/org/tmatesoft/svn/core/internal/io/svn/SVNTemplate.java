@@ -0,0 +1,175 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.core.internal.io.svn;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNErrorMessage;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.internal.util.SVNHashMap;
+import org.tmatesoft.svn.core.internal.wc.SVNErrorManager;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.util.SVNLogType;
+
+/**
+ * Precompiled tuple template, see {@link SVNReader#parseTuple(String, java.util.Collection, List)}
+ * for the template syntax. Values are read right from {@link SVNItemReader}
+ * tokens, items trees are only built for <code>l</code> values.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+public class SVNTemplate {
+
+    private static final Map ourTemplates = Collections.synchronizedMap(new SVNHashMap());
+
+    private final String myTemplate;
+    private final char[] myChars;
+    private final Object[][] myDefaults;
+    private final int[] myDefaultsEnd;
+
+    public static SVNTemplate getTemplate(String template) {
+        SVNTemplate compiled = (SVNTemplate) ourTemplates.get(template);
+        if (compiled == null) {
+            compiled = new SVNTemplate(template);
+            ourTemplates.put(template, compiled);
+        }
+        return compiled;
+    }
+
+    private SVNTemplate(String template) {
+        myTemplate = template;
+        myChars = template.toCharArray();
+        myDefaults = new Object[myChars.length][];
+        myDefaultsEnd = new int[myChars.length];
+        for (int i = 0; i < myChars.length; i++) {
+            if (myChars[i] == '?') {
+                compileDefaults(i);
+            }
+        }
+    }
+
+    public String getTemplate() {
+        return myTemplate;
+    }
+
+    /**
+     * Reads a tuple which start token was just read, up to and including
+     * the end of the tuple.
+     */
+    public List parse(SVNItemReader reader, List values) throws SVNException {
+        values = values == null ? new ArrayList() : values;
+        parse(reader, 0, values);
+        return values;
+    }
+
+    private int parse(SVNItemReader reader, int index, List values) throws SVNException {
+        char[] template = myChars;
+        boolean listEnd = false;
+        while (index < template.length) {
+            int token = reader.next();
+            if (token == SVNItemReader.LIST_END) {
+                listEnd = true;
+                break;
+            }
+            char ch = template[index];
+            if (ch == '?') {
+                index++;
+                ch = template[index];
+            }
+            if ((ch == 'n' || ch == 'r') && token == SVNItemReader.NUMBER) {
+                values.add(new Long(reader.getNumber()));
+            } else if (ch == 's' && token == SVNItemReader.STRING) {
+                values.add(reader.getString());
+            } else if ((ch == 's' || ch == 'w') && token == SVNItemReader.WORD) {
+                values.add(reader.getWord());
+            } else if (ch == 'b' && token == SVNItemReader.STRING) {
+                values.add(reader.getBytes());
+            } else if (ch == 'l' && token == SVNItemReader.LIST_START) {
+                values.add(reader.readItems());
+            } else if (ch == '(' && token == SVNItemReader.LIST_START) {
+                index = parse(reader, index + 1, values);
+            } else if (ch == ')') {
+                reader.skipItem(token);
+                reader.skipList();
+                return index + 1;
+            } else {
+                reader.skipItem(token);
+                break;
+            }
+            index++;
+        }
+        if (!listEnd) {
+            reader.skipList();
+        }
+        if (index < template.length && template[index] == '?') {
+            Object[] defaults = myDefaults[index];
+            if (defaults == null) {
+                SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_SVN_MALFORMED_DATA);
+                SVNErrorManager.error(err, SVNLogType.NETWORK);
+            }
+            for (int i = 0; i < defaults.length; i++) {
+                values.add(defaults[i]);
+            }
+            index = myDefaultsEnd[index];
+        }
+        if (index == template.length - 1 && template[index] != ')') {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.RA_SVN_MALFORMED_DATA);
+            SVNErrorManager.error(err, SVNLogType.NETWORK);
+        }
+        return index;
+    }
+
+    private void compileDefaults(int start) {
+        List defaults = new ArrayList();
+        int nestingLevel = 0;
+        int index = start;
+        loop:
+        while (index < myChars.length) {
+            switch (myChars[index]) {
+                case '?':
+                    break;
+                case 'r':
+                case 'n':
+                    defaults.add(new Long(SVNRepository.INVALID_REVISION));
+                    break;
+                case 's':
+                case 'w':
+                case 'b':
+                    defaults.add(null);
+                    break;
+                case 'l':
+                    defaults.add(Collections.EMPTY_LIST);
+                    break;
+                case '(':
+                    nestingLevel++;
+                    break;
+                case ')':
+                    nestingLevel--;
+                    if (nestingLevel < 0) {
+                        break loop;
+                    }
+                    break;
+                default:
+                    // malformed template, reported when defaults are used.
+                    return;
+            }
+            index++;
+        }
+        myDefaults[start] = defaults.toArray();
+        myDefaultsEnd[start] = index;
+    }
+}
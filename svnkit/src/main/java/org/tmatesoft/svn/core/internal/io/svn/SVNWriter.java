@@ -15,6 +15,8 @@ package org.tmatesoft.svn.core.internal.io.svn;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.Map;
@@ -25,33 +27,58 @@ import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.SVNProperties;
 import org.tmatesoft.svn.core.SVNPropertyValue;
 import org.tmatesoft.svn.core.internal.util.SVNDate;
+import org.tmatesoft.svn.core.internal.util.SVNHashMap;
 import org.tmatesoft.svn.core.internal.wc.SVNErrorManager;
 import org.tmatesoft.svn.util.SVNLogType;
 
 /**
+ * Encodes commands into a reusable buffer, which is written to the
+ * connection stream at once with {@link #writeTo(OutputStream)}. Templates
+ * are compiled (stripped of whitespace) once and cached.
+ *
+ * <p>
+ * Buffer is written to the stream before it grows over
+ * {@link #WRITE_BUFFER_SIZE}, so that any number of commands may be encoded
+ * between two flushes.
+ *
  * @version 1.3
  * @author  TMate Software Ltd.
  */
 public class SVNWriter {
 
-    private SVNWriter() {
+    public static final int WRITE_BUFFER_SIZE = 16 * 1024;
+
+    private static final Map ourTemplates = Collections.synchronizedMap(new SVNHashMap());
+
+    private byte[] myBuffer;
+    private int myLength;
+    private int myCommandStart;
+
+    public SVNWriter() {
+        myBuffer = new byte[WRITE_BUFFER_SIZE];
     }
 
     public static void write(OutputStream os, String templateStr, Object[] src) throws SVNException {
-        StringBuffer template = new StringBuffer(templateStr.length());
-        for (int i = 0; i < templateStr.length(); i++) {
-            char ch = templateStr.charAt(i);
-            if (!Character.isWhitespace(ch)) {
-                template.append(ch);
-            }
-        }
+        SVNWriter writer = new SVNWriter();
+        writer.write(templateStr, src, os);
+        writer.writeTo(os);
+    }
+
+    /**
+     * Encodes a command into the buffer.
+     *
+     * @param os  stream to write the buffer to when it is full
+     */
+    public void write(String templateStr, Object[] src, OutputStream os) throws SVNException {
+        char[] template = getTemplate(templateStr);
+        myCommandStart = myLength;
         int offset = 0;
         try {
-            for (int i = 0; i < template.length(); i++) {
-                char ch = template.charAt(i);
+            for (int i = 0; i < template.length; i++) {
+                char ch = template[i];
                 if (ch == '(' || ch == ')') {
-                    os.write((byte) ch);
-                    os.write(' ');
+                    writeByte(ch);
+                    writeByte(' ');
                     continue;
                 }
                 Object item = src[offset++];
@@ -65,105 +92,253 @@ public class SVNWriter {
                     item = SVNDate.formatDate((Date) item, true);
                 }
                 if (ch == 'i') {
-
-                    InputStream is = ((SVNDataSource) item).getInputStream();
-                    long length = ((SVNDataSource) item).lenght();
-
-                    os.write(Long.toString(length).getBytes("UTF-8"));
-                    os.write(':');
-                    byte[] buffer = new byte[Math.min(2048, (int) length)];
-                    while (true) {
-                        int read = is.read(buffer);
-                        if (read > 0) {
-                            os.write(buffer, 0, read);
-                        } else if (read < 0) {
-                            break;
-                        }
-                    }
+                    writeData((SVNDataSource) item, os);
                 }
                 if (ch == 'b') {
                     byte[] bytes = (byte[]) item;
-                    os.write(Integer.toString(bytes.length).getBytes("UTF-8"));
-                    os.write(':');
-                    os.write(bytes);
+                    writeString(bytes, 0, bytes.length, os);
                 } else if (ch == 'n') {
-                    os.write(item.toString().getBytes("UTF-8"));
+                    writeNumber(item);
                 } else if (ch == 'w') {
-                    os.write(item.toString().getBytes("UTF-8"));
+                    writeWord(item.toString());
                 } else if (ch == 's') {
-                    os.write(Integer.toString(
-                            item.toString().getBytes("UTF-8").length).getBytes(
-                            "UTF-8"));
-                    os.write(':');
-                    os.write(item.toString().getBytes("UTF-8"));
+                    writeString(item.toString(), os);
                 } else if (ch == '*') {
-                    ch = template.charAt(i + 1);
+                    ch = template[i + 1];
                     if (item instanceof Object[]) {
                         Object[] list = (Object[]) item;
                         for (int j = 0; j < list.length; j++) {
                             if (ch == 's') {
-                                os.write(Integer
-                                        .toString(
-                                                list[j].toString().getBytes(
-                                                        "UTF-8").length)
-                                        .getBytes("UTF-8"));
-                                os.write(':');
-                                os.write(list[j].toString().getBytes("UTF-8"));
+                                writeString(list[j].toString(), os);
                             } else if (ch == 'w') {
-                                os.write(list[j].toString().getBytes("UTF-8"));
+                                writeWord(list[j].toString());
                             }
-                            os.write(' ');
+                            writeByte(' ');
                         }
                     } else if (item instanceof long[] && ch == 'n') {
                         long[] list = (long[]) item;
                         for (int j = 0; j < list.length; j++) {
-                            os.write(Long.toString(list[j]).getBytes("UTF-8"));
-                            os.write(' ');
+                            writeNumber(list[j]);
+                            writeByte(' ');
                         }
                     } else if (item instanceof Map && ch == 'l') {
                         Map map = (Map) item;
                         for (Iterator paths = map.keySet().iterator(); paths.hasNext();) {
                             String path = (String) paths.next();
                             String token = (String) map.get(path);
-                            os.write('(');
-                            os.write(' ');
-                            os.write(Integer.toString(path.getBytes("UTF-8").length).getBytes("UTF-8"));
-                            os.write(':');
-                            os.write(path.getBytes("UTF-8"));
-                            os.write(' ');
-                            os.write(Integer.toString(token.getBytes("UTF-8").length).getBytes("UTF-8"));
-                            os.write(':');
-                            os.write(token.getBytes("UTF-8"));
-                            os.write(' ');
-                            os.write(')');
-                            os.write(' ');
+                            writeByte('(');
+                            writeByte(' ');
+                            writeString(path, os);
+                            writeByte(' ');
+                            writeString(token, os);
+                            writeByte(' ');
+                            writeByte(')');
+                            writeByte(' ');
                         }
                     } else if (item instanceof SVNProperties && ch == 'l') {
                         SVNProperties props = (SVNProperties) item;
                         for (Iterator iterator = props.nameSet().iterator(); iterator.hasNext();) {
                             String name = (String) iterator.next();
                             SVNPropertyValue value = props.getSVNPropertyValue(name);
-                            os.write('(');
-                            os.write(' ');
-                            os.write(Integer.toString(name.getBytes("UTF-8").length).getBytes("UTF-8"));
-                            os.write(':');
-                            os.write(name.getBytes("UTF-8"));
-                            os.write(' ');
+                            writeByte('(');
+                            writeByte(' ');
+                            writeString(name, os);
+                            writeByte(' ');
                             byte[] bytes = SVNPropertyValue.getPropertyAsBytes(value);
-                            os.write(Integer.toString(bytes.length).getBytes("UTF-8"));
-                            os.write(':');
-                            os.write(bytes);
-                            os.write(' ');
-                            os.write(')');
-                            os.write(' ');
+                            writeString(bytes, 0, bytes.length, os);
+                            writeByte(' ');
+                            writeByte(')');
+                            writeByte(' ');
                         }
                     }
                     i++;
                 }
-                os.write(' ');
+                writeByte(' ');
+            }
+        } catch (IOException e) {
+            SVNErrorManager.error(SVNErrorMessage.create(SVNErrorCode.RA_SVN_IO_ERROR, e.getMessage()), e, SVNLogType.NETWORK);
+        } catch (RuntimeException e) {
+            // do not leave a part of a malformed command in the buffer,
+            // parts written to the stream before are beyond recall.
+            myLength = myCommandStart;
+            throw e;
+        }
+        if (myLength >= WRITE_BUFFER_SIZE) {
+            writeTo(os);
+        }
+    }
+
+    /**
+     * Encodes a string item from a part of the array followed by a separator,
+     * large strings are written to the stream directly.
+     */
+    public void writeItem(byte[] bytes, int offset, int length, OutputStream os) throws SVNException {
+        writeString(bytes, offset, length, os);
+        writeByte(' ');
+    }
+
+    private void writeString(byte[] bytes, int offset, int length, OutputStream os) throws SVNException {
+        try {
+            writeNumber(length);
+            writeByte(':');
+            if (length >= WRITE_BUFFER_SIZE) {
+                writeTo(os);
+                os.write(bytes, offset, length);
+                return;
             }
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, myBuffer, myLength, length);
+            myLength += length;
+        } catch (IOException e) {
+            SVNErrorManager.error(SVNErrorMessage.create(SVNErrorCode.RA_SVN_IO_ERROR, e.getMessage()), e, SVNLogType.NETWORK);
+        }
+    }
+
+    public boolean hasPendingData() {
+        return myLength > 0;
+    }
+
+    /**
+     * Writes encoded commands to the stream, stream itself is not flushed.
+     */
+    public void writeTo(OutputStream os) throws SVNException {
+        if (myLength == 0) {
+            return;
+        }
+        try {
+            os.write(myBuffer, 0, myLength);
         } catch (IOException e) {
             SVNErrorManager.error(SVNErrorMessage.create(SVNErrorCode.RA_SVN_IO_ERROR, e.getMessage()), e, SVNLogType.NETWORK);
-        } 
+        } finally {
+            myLength = 0;
+            myCommandStart = 0;
+        }
+    }
+
+    public void reset() {
+        myLength = 0;
+        myCommandStart = 0;
+    }
+
+    private void writeData(SVNDataSource source, OutputStream os) throws IOException, SVNException {
+        InputStream is = source.getInputStream();
+        long length = source.lenght();
+        writeNumber(length);
+        writeByte(':');
+        ensureCapacity(Math.min(2048, (int) length));
+        while (true) {
+            if (myLength == myBuffer.length) {
+                writeTo(os);
+            }
+            int read = is.read(myBuffer, myLength, myBuffer.length - myLength);
+            if (read > 0) {
+                myLength += read;
+            } else if (read < 0) {
+                break;
+            }
+        }
+    }
+
+    private void writeString(String str, OutputStream os) throws SVNException {
+        int length = str.length();
+        for (int i = 0; i < length; i++) {
+            if (str.charAt(i) >= 0x80) {
+                byte[] bytes = getBytes(str);
+                writeString(bytes, 0, bytes.length, os);
+                return;
+            }
+        }
+        writeNumber(length);
+        writeByte(':');
+        writeAscii(str, length);
+    }
+
+    private void writeWord(String word) {
+        int length = word.length();
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) >= 0x80) {
+                byte[] bytes = getBytes(word);
+                ensureCapacity(bytes.length);
+                System.arraycopy(bytes, 0, myBuffer, myLength, bytes.length);
+                myLength += bytes.length;
+                return;
+            }
+        }
+        writeAscii(word, length);
+    }
+
+    private void writeAscii(String str, int length) {
+        ensureCapacity(length);
+        byte[] buffer = myBuffer;
+        int position = myLength;
+        for (int i = 0; i < length; i++) {
+            buffer[position++] = (byte) str.charAt(i);
+        }
+        myLength = position;
+    }
+
+    private void writeNumber(Object number) {
+        if (number instanceof Long || number instanceof Integer) {
+            writeNumber(((Number) number).longValue());
+        } else {
+            writeWord(number.toString());
+        }
+    }
+
+    private void writeNumber(long number) {
+        if (number < 0) {
+            String str = Long.toString(number);
+            writeAscii(str, str.length());
+            return;
+        }
+        ensureCapacity(20);
+        int digits = 1;
+        for (long n = number / 10; n > 0; n /= 10) {
+            digits++;
+        }
+        byte[] buffer = myBuffer;
+        int position = myLength + digits;
+        do {
+            buffer[--position] = (byte) ('0' + (number % 10));
+            number /= 10;
+        } while (number > 0);
+        myLength += digits;
+    }
+
+    private void writeByte(int b) {
+        ensureCapacity(1);
+        myBuffer[myLength++] = (byte) b;
+    }
+
+    private void ensureCapacity(int length) {
+        if (myLength + length > myBuffer.length) {
+            byte[] buffer = new byte[Math.max(myLength + length, myBuffer.length * 2)];
+            System.arraycopy(myBuffer, 0, buffer, 0, myLength);
+            myBuffer = buffer;
+        }
+    }
+
+    private static byte[] getBytes(String str) {
+        try {
+            return str.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return str.getBytes();
+        }
+    }
+
+    private static char[] getTemplate(String templateStr) {
+        char[] template = (char[]) ourTemplates.get(templateStr);
+        if (template == null) {
+            StringBuffer buffer = new StringBuffer(templateStr.length());
+            for (int i = 0; i < templateStr.length(); i++) {
+                char ch = templateStr.charAt(i);
+                if (!Character.isWhitespace(ch)) {
+                    buffer.append(ch);
+                }
+            }
+            template = buffer.toString().toCharArray();
+            ourTemplates.put(templateStr, template);
+        }
+        return template;
     }
 }
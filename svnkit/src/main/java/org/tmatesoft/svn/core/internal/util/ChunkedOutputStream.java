@@ -0,0 +1,67 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+
+package org.tmatesoft.svn.core.internal.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * Writes data with HTTP 'chunked' transfer coding. Closing this stream
+ * writes the last chunk, but leaves the underlying stream open.
+ *
+ * @version 1.3
+ * @author TMate Software Ltd.
+ */
+public class ChunkedOutputStream extends OutputStream {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+
+    private OutputStream myOutputStream;
+    private boolean myIsClosed;
+
+    public ChunkedOutputStream(OutputStream out) {
+        myOutputStream = out;
+    }
+
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) (b & 0xFF)}, 0, 1);
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (myIsClosed) {
+            throw new IOException("Attempted write to closed stream.");
+        }
+        if (len <= 0) {
+            return;
+        }
+        myOutputStream.write(Integer.toHexString(len).getBytes("US-ASCII"));
+        myOutputStream.write(CRLF);
+        myOutputStream.write(b, off, len);
+        myOutputStream.write(CRLF);
+    }
+
+    public void flush() throws IOException {
+        myOutputStream.flush();
+    }
+
+    public void close() throws IOException {
+        if (myIsClosed) {
+            return;
+        }
+        myIsClosed = true;
+        myOutputStream.write(LAST_CHUNK);
+        myOutputStream.flush();
+    }
+}
@@ -27,7 +27,7 @@ import org.tmatesoft.svn.core.auth.SVNAuthentication;
  * @author TMate Software Ltd.
  * @version 1.3
  */
-public class DefaultSVNHostOptions implements ISVNHostOptions {
+public class DefaultSVNHostOptions implements ISVNHostOptionsExt {
 
     private final SVNCompositeConfigFile myServersFile;
     private final SVNURL myURL;
@@ -261,6 +261,25 @@ public class DefaultSVNHostOptions implements ISVNHostOptions {
         return 0;
     }
 
+    public boolean isHTTPCompressionEnabled() {
+        Map properties = getHostProperties();
+        String compression = (String) properties.get("http-compression");
+        if (compression == null) {
+            return true;
+        }
+        return "yes".equalsIgnoreCase(compression) || "on".equalsIgnoreCase(compression) || 
+                "true".equalsIgnoreCase(compression) || "auto".equalsIgnoreCase(compression);
+    }
+
+    public boolean isHTTPRequestCompressionEnabled() {
+        Map properties = getHostProperties();
+        String compression = (String) properties.get("http-request-compression");
+        if (compression == null) {
+            return false;
+        }
+        return "yes".equalsIgnoreCase(compression) || "on".equalsIgnoreCase(compression) || "true".equalsIgnoreCase(compression);
+    }
+
     private Map getHostProperties() {
         Map properties = getServersFile().getProperties("global");
         String groupName = getGroupName(getServersFile().getProperties("groups"));
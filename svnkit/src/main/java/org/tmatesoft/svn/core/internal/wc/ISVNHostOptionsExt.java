@@ -0,0 +1,37 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.core.internal.wc;
+
+/**
+ * Host options added after {@link ISVNHostOptions}. Options providers which
+ * return host options not implementing this interface get the default
+ * values: responses may be compressed, requests are not.
+ *
+ * @author TMate Software Ltd.
+ * @version 1.3
+ */
+public interface ISVNHostOptionsExt extends ISVNHostOptions {
+
+    /**
+     * Tells whether the server may send gzip-compressed responses
+     * (<code>http-compression</code> option, <code>yes</code> by default).
+     */
+    boolean isHTTPCompressionEnabled();
+
+    /**
+     * Tells whether large request bodies are sent gzip-compressed
+     * (<code>http-request-compression</code> option, <code>no</code> by
+     * default). The server has to accept gzip-encoded request bodies; when
+     * it answers with 415 the request is sent again uncompressed.
+     */
+    boolean isHTTPRequestCompressionEnabled();
+}
@@ -82,6 +82,13 @@ public class SVNAdminHelper {
         return fsfs;
     }
 
+    public static FSFS openRepositoryForVerification(File reposRootPath) throws SVNException {
+        FSFS fsfs = new FSFS(reposRootPath);
+        fsfs.setSharedCachesEnabled(false);
+        fsfs.open();
+        return fsfs;
+    }
+
     public static void closeRepository(FSFS fsfs) {
         if (fsfs != null) {
             try {
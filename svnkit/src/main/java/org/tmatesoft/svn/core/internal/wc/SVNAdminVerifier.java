@@ -0,0 +1,277 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.core.internal.wc;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.tmatesoft.svn.core.ISVNCanceller;
+import org.tmatesoft.svn.core.SVNCancelException;
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNErrorMessage;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.internal.io.fs.FSFS;
+import org.tmatesoft.svn.core.internal.io.fs.FSRepositoryUtil;
+import org.tmatesoft.svn.core.internal.io.fs.FSRevisionRoot;
+import org.tmatesoft.svn.core.io.ISVNEditor;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.wc.ISVNEventHandler;
+import org.tmatesoft.svn.core.wc.admin.ISVNAdminEventHandler;
+import org.tmatesoft.svn.core.wc.admin.SVNAdminEvent;
+import org.tmatesoft.svn.core.wc.admin.SVNAdminEventAction;
+import org.tmatesoft.svn.util.ISVNDebugLog;
+import org.tmatesoft.svn.util.SVNLogType;
+
+/**
+ * Verifies a range of revisions on several threads. The range is split into
+ * small units of consecutive revisions, each worker thread verifies units
+ * with its own {@link FSFS} instance, while results are reported to the
+ * event handler on the calling thread in revision order.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+public class SVNAdminVerifier implements ISVNCanceller {
+
+    private static final int MAX_REVISIONS_PER_UNIT = 64;
+    private static final int UNITS_PER_THREAD = 4;
+    private static final long POLL_INTERVAL = 100;
+    private static final long TERMINATION_TIMEOUT = 30 * 1000;
+
+    private final File myRepositoryRoot;
+    private final int myThreadsCount;
+    private final boolean myIsKeepGoing;
+    private final ISVNCanceller myCanceller;
+    private final ISVNDebugLog myDebugLog;
+    private final ThreadLocal myRepository;
+    private final ThreadLocal myDumpEditor;
+    private final List myOpenedRepositories;
+
+    private long myOldestRevision;
+    private volatile boolean myIsStopped;
+
+    public SVNAdminVerifier(File repositoryRoot, int threadsCount, boolean keepGoing, ISVNCanceller canceller, ISVNDebugLog debugLog) {
+        myRepositoryRoot = repositoryRoot;
+        myThreadsCount = Math.max(1, threadsCount);
+        myIsKeepGoing = keepGoing;
+        myCanceller = canceller != null ? canceller : ISVNCanceller.NULL;
+        myDebugLog = debugLog;
+        myRepository = new ThreadLocal();
+        myDumpEditor = new ThreadLocal();
+        myOpenedRepositories = new ArrayList();
+    }
+
+    /**
+     * Verifies revisions from <code>startRevision</code> to <code>endRevision</code>
+     * inclusive. Unless running in keep going mode, verification stops at the
+     * first corrupted revision and its error is thrown, otherwise failures are
+     * reported with {@link SVNAdminEventAction#REVISION_VERIFICATION_FAILED}
+     * events and a summary error is thrown once all revisions are verified.
+     */
+    public void verify(long startRevision, long endRevision, ISVNAdminEventHandler handler) throws SVNException {
+        myOldestRevision = startRevision;
+        long unitSize = getUnitSize(startRevision, endRevision);
+        int maxPendingUnits = myThreadsCount * UNITS_PER_THREAD;
+
+        ExecutorService executor = Executors.newFixedThreadPool(myThreadsCount, new VerifierThreadFactory());
+        LinkedList pendingUnits = new LinkedList();
+        SVNErrorMessage firstError = null;
+        long failedCount = 0;
+        try {
+            long nextRevision = startRevision;
+            while (nextRevision <= endRevision || !pendingUnits.isEmpty()) {
+                while (nextRevision <= endRevision && pendingUnits.size() < maxPendingUnits) {
+                    long unitEnd = Math.min(endRevision, nextRevision + unitSize - 1);
+                    VerifyUnit unit = new VerifyUnit(nextRevision, unitEnd);
+                    unit.myResult = executor.submit(unit);
+                    pendingUnits.addLast(unit);
+                    nextRevision = unitEnd + 1;
+                }
+
+                VerifyUnit unit = (VerifyUnit) pendingUnits.removeFirst();
+                SVNErrorMessage[] errors = waitForUnit(unit);
+                for (int i = 0; i < errors.length; i++) {
+                    long revision = unit.myStartRevision + i;
+                    if (errors[i] == null) {
+                        handleEvent(handler, new SVNAdminEvent(revision, SVNAdminEventAction.REVISION_DUMPED, "* Verified revision " + revision + "."));
+                        continue;
+                    }
+                    if (!myIsKeepGoing) {
+                        SVNErrorManager.error(errors[i], SVNLogType.FSFS);
+                    }
+                    if (firstError == null) {
+                        firstError = errors[i];
+                    }
+                    failedCount++;
+                    handleEvent(handler, new SVNAdminEvent(revision, SVNAdminEventAction.REVISION_VERIFICATION_FAILED, errors[i],
+                            "* Error verifying revision " + revision + "."));
+                }
+            }
+        } finally {
+            myIsStopped = true;
+            executor.shutdownNow();
+            awaitTermination(executor);
+            closeRepositories();
+        }
+
+        if (firstError != null) {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.FS_CORRUPT, "Failed to verify repository ''{0}'': {1} revision(s) are corrupted",
+                    new Object[] {myRepositoryRoot, String.valueOf(failedCount)});
+            err.setChildErrorMessage(firstError);
+            SVNErrorManager.error(err, SVNLogType.FSFS);
+        }
+    }
+
+    public void checkCancelled() throws SVNCancelException {
+        if (myIsStopped) {
+            SVNErrorManager.cancel("verification cancelled", SVNLogType.FSFS);
+        }
+    }
+
+    private long getUnitSize(long startRevision, long endRevision) {
+        long unitsCount = (long) myThreadsCount * UNITS_PER_THREAD;
+        long unitSize = (endRevision - startRevision + unitsCount) / unitsCount;
+        return Math.max(1, Math.min(MAX_REVISIONS_PER_UNIT, unitSize));
+    }
+
+    private SVNErrorMessage[] waitForUnit(VerifyUnit unit) throws SVNException {
+        while (true) {
+            myCanceller.checkCancelled();
+            try {
+                return (SVNErrorMessage[]) unit.myResult.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                continue;
+            } catch (InterruptedException e) {
+                SVNErrorManager.cancel("verification interrupted", SVNLogType.FSFS);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SVNException) {
+                    throw (SVNException) cause;
+                }
+                SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.UNKNOWN, "Failed to verify revisions {0}:{1}: {2}",
+                        new Object[] {String.valueOf(unit.myStartRevision), String.valueOf(unit.myEndRevision), cause.getMessage()});
+                SVNErrorManager.error(err, cause, SVNLogType.FSFS);
+            }
+        }
+    }
+
+    private void awaitTermination(ExecutorService executor) {
+        // workers notice the stop flag between revisions and within replay
+        try {
+            executor.awaitTermination(TERMINATION_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleEvent(ISVNAdminEventHandler handler, SVNAdminEvent event) throws SVNException {
+        if (handler != null) {
+            handler.handleAdminEvent(event, ISVNEventHandler.UNKNOWN);
+        }
+    }
+
+    private SVNErrorMessage[] verifyUnit(long startRevision, long endRevision) throws SVNException {
+        SVNErrorMessage[] errors = new SVNErrorMessage[(int) (endRevision - startRevision + 1)];
+        FSFS fsfs = getRepository();
+        for (long revision = startRevision; revision <= endRevision && !myIsStopped; revision++) {
+            try {
+                verifyRevision(fsfs, revision);
+            } catch (SVNCancelException cancel) {
+                throw cancel;
+            } catch (SVNException e) {
+                errors[(int) (revision - startRevision)] = e.getErrorMessage();
+                if (!myIsKeepGoing) {
+                    break;
+                }
+            }
+        }
+        return errors;
+    }
+
+    private void verifyRevision(FSFS fsfs, long revision) throws SVNException {
+        FSRevisionRoot root = fsfs.createRevisionRoot(revision);
+        ISVNEditor editor = getDumpEditor(fsfs, root, revision);
+        editor = SVNCancellableEditor.newInstance(editor, this, myDebugLog);
+        FSRepositoryUtil.replay(fsfs, root, "", SVNRepository.INVALID_REVISION, false, editor);
+        fsfs.getRevisionProperties(revision);
+    }
+
+    private SVNDumpEditor getDumpEditor(FSFS fsfs, FSRevisionRoot root, long revision) {
+        SVNDumpEditor dumpEditor = (SVNDumpEditor) myDumpEditor.get();
+        if (dumpEditor == null) {
+            dumpEditor = new SVNDumpEditor(fsfs, root, revision, myOldestRevision, "/", SVNFileUtil.DUMMY_OUT, false, true);
+            myDumpEditor.set(dumpEditor);
+        } else {
+            dumpEditor.reset(fsfs, root, revision, myOldestRevision, "/", SVNFileUtil.DUMMY_OUT, false, true);
+        }
+        return dumpEditor;
+    }
+
+    private FSFS getRepository() throws SVNException {
+        FSFS fsfs = (FSFS) myRepository.get();
+        if (fsfs == null) {
+            fsfs = SVNAdminHelper.openRepositoryForVerification(myRepositoryRoot);
+            myRepository.set(fsfs);
+            synchronized (myOpenedRepositories) {
+                myOpenedRepositories.add(fsfs);
+            }
+        }
+        return fsfs;
+    }
+
+    private void closeRepositories() {
+        synchronized (myOpenedRepositories) {
+            for (Iterator repositories = myOpenedRepositories.iterator(); repositories.hasNext();) {
+                SVNAdminHelper.closeRepository((FSFS) repositories.next());
+            }
+            myOpenedRepositories.clear();
+        }
+    }
+
+    private class VerifyUnit implements Callable {
+
+        private final long myStartRevision;
+        private final long myEndRevision;
+        private Future myResult;
+
+        public VerifyUnit(long startRevision, long endRevision) {
+            myStartRevision = startRevision;
+            myEndRevision = endRevision;
+        }
+
+        public Object call() throws Exception {
+            return verifyUnit(myStartRevision, myEndRevision);
+        }
+    }
+
+    private static class VerifierThreadFactory implements ThreadFactory {
+
+        private int myThreadsCount;
+
+        public synchronized Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "svnkit-verify-" + (++myThreadsCount));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.core.internal.wc;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.tmatesoft.svn.core.ISVNCanceller;
+import org.tmatesoft.svn.core.SVNCancelException;
+import org.tmatesoft.svn.core.SVNCommitInfo;
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNErrorMessage;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNProperties;
+import org.tmatesoft.svn.core.SVNPropertyValue;
+import org.tmatesoft.svn.core.io.ISVNEditor;
+import org.tmatesoft.svn.core.io.ISVNReplayHandler;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.io.diff.SVNDiffWindow;
+import org.tmatesoft.svn.util.SVNLogType;
+
+/**
+ * Replays a range of revisions keeping several revisions in flight. Worker
+ * threads replay the next revisions with their own sessions into memory,
+ * while the calling thread drives the replay handler with the recorded
+ * changes in revision order.
+ *
+ * <p>
+ * At most <code>depth</code> revisions are buffered at a time and each of
+ * them is limited to <code>svnkit.replay.maxBufferedRevisionSize</code> bytes
+ * (8 MB by default); a revision which does not fit is replayed again by the
+ * calling thread directly.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+public class SVNReplayPipeline implements ISVNCanceller {
+
+    private static final long DEFAULT_MAX_BUFFERED_REVISION_SIZE = 8 * 1024 * 1024;
+    private static final long POLL_INTERVAL = 100;
+    private static final long TERMINATION_TIMEOUT = 30 * 1000;
+
+    private final SVNRepository myRepository;
+    private final int myDepth;
+    private final long myMaxBufferedRevisionSize;
+    private final ThreadLocal myWorkerRepository;
+    private final List myOpenedRepositories;
+
+    private volatile boolean myIsStopped;
+
+    public SVNReplayPipeline(SVNRepository repository, int depth) {
+        myRepository = repository;
+        myDepth = Math.max(1, depth);
+        myMaxBufferedRevisionSize = getSizeOption("svnkit.replay.maxBufferedRevisionSize", DEFAULT_MAX_BUFFERED_REVISION_SIZE);
+        myWorkerRepository = new ThreadLocal();
+        myOpenedRepositories = new ArrayList();
+    }
+
+    /**
+     * Replays revisions from <code>startRevision</code> to <code>endRevision</code>
+     * inclusive. Handler and editors it returns are only called on the
+     * calling thread.
+     */
+    public void replayRange(long startRevision, long endRevision, long lowRevision, boolean sendDeltas, ISVNReplayHandler handler) throws SVNException {
+        ExecutorService executor = Executors.newFixedThreadPool(myDepth, new ReplayThreadFactory());
+        LinkedList pendingUnits = new LinkedList();
+        try {
+            long nextRevision = startRevision;
+            while (nextRevision <= endRevision || !pendingUnits.isEmpty()) {
+                while (nextRevision <= endRevision && pendingUnits.size() < myDepth) {
+                    ReplayUnit unit = new ReplayUnit(nextRevision, lowRevision, sendDeltas);
+                    unit.myResult = executor.submit(unit);
+                    pendingUnits.addLast(unit);
+                    nextRevision++;
+                }
+
+                ReplayUnit unit = (ReplayUnit) pendingUnits.removeFirst();
+                RecordingEditor recorded = waitForUnit(unit);
+                SVNProperties revisionProperties = recorded.myRevisionProperties;
+                ISVNEditor editor = handler.handleStartRevision(unit.myRevision, revisionProperties);
+                if (recorded.myIsOverflown) {
+                    myRepository.replay(lowRevision, unit.myRevision, sendDeltas, editor);
+                } else {
+                    recorded.replay(editor);
+                }
+                handler.handleEndRevision(unit.myRevision, revisionProperties, editor);
+            }
+        } finally {
+            myIsStopped = true;
+            executor.shutdownNow();
+            awaitTermination(executor);
+            closeRepositories();
+        }
+    }
+
+    public void checkCancelled() throws SVNCancelException {
+        if (myIsStopped) {
+            SVNErrorManager.cancel("replay cancelled", SVNLogType.NETWORK);
+        }
+    }
+
+    private RecordingEditor waitForUnit(ReplayUnit unit) throws SVNException {
+        while (true) {
+            myRepository.getCanceller().checkCancelled();
+            try {
+                return (RecordingEditor) unit.myResult.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                continue;
+            } catch (InterruptedException e) {
+                SVNErrorManager.cancel("replay interrupted", SVNLogType.NETWORK);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SVNException) {
+                    throw (SVNException) cause;
+                }
+                SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.UNKNOWN, "Failed to replay revision {0}: {1}",
+                        new Object[] {String.valueOf(unit.myRevision), cause.getMessage()});
+                SVNErrorManager.error(err, cause, SVNLogType.NETWORK);
+            }
+        }
+    }
+
+    private void awaitTermination(ExecutorService executor) {
+        // workers notice the stop flag through their sessions cancellers
+        try {
+            executor.awaitTermination(TERMINATION_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private RecordingEditor replayRevision(long revision, long lowRevision, boolean sendDeltas) throws SVNException {
+        SVNRepository repository = getWorkerRepository();
+        RecordingEditor recorder = new RecordingEditor();
+        recorder.myRevisionProperties = repository.getRevisionProperties(revision, null);
+        try {
+            repository.replay(lowRevision, revision, sendDeltas, recorder);
+        } catch (SVNException e) {
+            if (!recorder.myIsOverflown) {
+                throw e;
+            }
+            // replay was interrupted in the middle, do not reuse the connection state.
+            recorder.clear();
+            repository.closeSession();
+        }
+        return recorder;
+    }
+
+    private SVNRepository getWorkerRepository() throws SVNException {
+        SVNRepository repository = (SVNRepository) myWorkerRepository.get();
+        if (repository == null) {
+            repository = SVNRepositoryFactory.create(myRepository.getLocation(), myRepository.getOptions());
+            repository.setAuthenticationManager(myRepository.getAuthenticationManager());
+            repository.setTunnelProvider(myRepository.getTunnelProvider());
+            repository.setDebugLog(myRepository.getDebugLog());
+            repository.setCanceller(this);
+            myWorkerRepository.set(repository);
+            synchronized (myOpenedRepositories) {
+                myOpenedRepositories.add(repository);
+            }
+        }
+        return repository;
+    }
+
+    private void closeRepositories() {
+        synchronized (myOpenedRepositories) {
+            for (Iterator repositories = myOpenedRepositories.iterator(); repositories.hasNext();) {
+                ((SVNRepository) repositories.next()).closeSession();
+            }
+            myOpenedRepositories.clear();
+        }
+    }
+
+    private static long getSizeOption(String name, long defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException nfe) {
+            return defaultValue;
+        }
+    }
+
+    private class ReplayUnit implements Callable {
+
+        private final long myRevision;
+        private final long myLowRevision;
+        private final boolean mySendDeltas;
+        private Future myResult;
+
+        public ReplayUnit(long revision, long lowRevision, boolean sendDeltas) {
+            myRevision = revision;
+            myLowRevision = lowRevision;
+            mySendDeltas = sendDeltas;
+        }
+
+        public Object call() throws Exception {
+            return replayRevision(myRevision, myLowRevision, mySendDeltas);
+        }
+    }
+
+    /**
+     * Keeps editor calls of a single revision as a list of commands with
+     * their arguments, diff windows are copied since their data buffers
+     * are reused by the senders.
+     */
+    private class RecordingEditor implements ISVNEditor {
+
+        private static final int TARGET_REVISION = 0;
+        private static final int OPEN_ROOT = 1;
+        private static final int DELETE_ENTRY = 2;
+        private static final int ABSENT_DIR = 3;
+        private static final int ABSENT_FILE = 4;
+        private static final int ADD_DIR = 5;
+        private static final int OPEN_DIR = 6;
+        private static final int CHANGE_DIR_PROPERTY = 7;
+        private static final int CLOSE_DIR = 8;
+        private static final int ADD_FILE = 9;
+        private static final int OPEN_FILE = 10;
+        private static final int CHANGE_FILE_PROPERTY = 11;
+        private static final int CLOSE_FILE = 12;
+        private static final int APPLY_TEXT_DELTA = 13;
+        private static final int TEXT_DELTA_CHUNK = 14;
+        private static final int TEXT_DELTA_END = 15;
+
+        private static final int CALL_OVERHEAD = 48;
+
+        private List myCalls = new ArrayList();
+        private long mySize;
+        private boolean myIsOverflown;
+        private SVNProperties myRevisionProperties;
+
+        public void targetRevision(long revision) throws SVNException {
+            record(TARGET_REVISION, null, null, null, revision, 0);
+        }
+
+        public void openRoot(long revision) throws SVNException {
+            record(OPEN_ROOT, null, null, null, revision, 0);
+        }
+
+        public void deleteEntry(String path, long revision) throws SVNException {
+            record(DELETE_ENTRY, path, null, null, revision, 0);
+        }
+
+        public void absentDir(String path) throws SVNException {
+            record(ABSENT_DIR, path, null, null, -1, 0);
+        }
+
+        public void absentFile(String path) throws SVNException {
+            record(ABSENT_FILE, path, null, null, -1, 0);
+        }
+
+        public void addDir(String path, String copyFromPath, long copyFromRevision) throws SVNException {
+            record(ADD_DIR, path, copyFromPath, null, copyFromRevision, 0);
+        }
+
+        public void openDir(String path, long revision) throws SVNException {
+            record(OPEN_DIR, path, null, null, revision, 0);
+        }
+
+        public void changeDirProperty(String name, SVNPropertyValue value) throws SVNException {
+            record(CHANGE_DIR_PROPERTY, name, null, value, -1, getSize(value));
+        }
+
+        public void closeDir() throws SVNException {
+            record(CLOSE_DIR, null, null, null, -1, 0);
+        }
+
+        public void addFile(String path, String copyFromPath, long copyFromRevision) throws SVNException {
+            record(ADD_FILE, path, copyFromPath, null, copyFromRevision, 0);
+        }
+
+        public void openFile(String path, long revision) throws SVNException {
+            record(OPEN_FILE, path, null, null, revision, 0);
+        }
+
+        public void changeFileProperty(String path, String propertyName, SVNPropertyValue propertyValue) throws SVNException {
+            record(CHANGE_FILE_PROPERTY, path, propertyName, propertyValue, -1, getSize(propertyValue));
+        }
+
+        public void closeFile(String path, String textChecksum) throws SVNException {
+            record(CLOSE_FILE, path, textChecksum, null, -1, 0);
+        }
+
+        public void applyTextDelta(String path, String baseChecksum) throws SVNException {
+            record(APPLY_TEXT_DELTA, path, baseChecksum, null, -1, 0);
+        }
+
+        public OutputStream textDeltaChunk(String path, SVNDiffWindow diffWindow) throws SVNException {
+            int length = diffWindow.getDataLength();
+            SVNDiffWindow window = diffWindow;
+            if (diffWindow != SVNDiffWindow.EMPTY) {
+                if (length > 0) {
+                    window = diffWindow.clone(ByteBuffer.allocate(length));
+                } else {
+                    window = new SVNDiffWindow(diffWindow.getSourceViewOffset(), diffWindow.getSourceViewLength(),
+                            diffWindow.getTargetViewLength(), 0, 0);
+                }
+            }
+            record(TEXT_DELTA_CHUNK, path, null, window, -1, length);
+            return SVNFileUtil.DUMMY_OUT;
+        }
+
+        public void textDeltaEnd(String path) throws SVNException {
+            record(TEXT_DELTA_END, path, null, null, -1, 0);
+        }
+
+        public SVNCommitInfo closeEdit() throws SVNException {
+            return null;
+        }
+
+        public void abortEdit() throws SVNException {
+        }
+
+        public void replay(ISVNEditor editor) throws SVNException {
+            for (Iterator calls = myCalls.iterator(); calls.hasNext();) {
+                EditorCall call = (EditorCall) calls.next();
+                switch (call.myCommand) {
+                    case TARGET_REVISION:
+                        editor.targetRevision(call.myRevision);
+                        break;
+                    case OPEN_ROOT:
+                        editor.openRoot(call.myRevision);
+                        break;
+                    case DELETE_ENTRY:
+                        editor.deleteEntry(call.myPath, call.myRevision);
+                        break;
+                    case ABSENT_DIR:
+                        editor.absentDir(call.myPath);
+                        break;
+                    case ABSENT_FILE:
+                        editor.absentFile(call.myPath);
+                        break;
+                    case ADD_DIR:
+                        editor.addDir(call.myPath, call.myName, call.myRevision);
+                        break;
+                    case OPEN_DIR:
+                        editor.openDir(call.myPath, call.myRevision);
+                        break;
+                    case CHANGE_DIR_PROPERTY:
+                        editor.changeDirProperty(call.myPath, (SVNPropertyValue) call.myValue);
+                        break;
+                    case CLOSE_DIR:
+                        editor.closeDir();
+                        break;
+                    case ADD_FILE:
+                        editor.addFile(call.myPath, call.myName, call.myRevision);
+                        break;
+                    case OPEN_FILE:
+                        editor.openFile(call.myPath, call.myRevision);
+                        break;
+                    case CHANGE_FILE_PROPERTY:
+                        editor.changeFileProperty(call.myPath, call.myName, (SVNPropertyValue) call.myValue);
+                        break;
+                    case CLOSE_FILE:
+                        editor.closeFile(call.myPath, call.myName);
+                        break;
+                    case APPLY_TEXT_DELTA:
+                        editor.applyTextDelta(call.myPath, call.myName);
+                        break;
+                    case TEXT_DELTA_CHUNK:
+                        OutputStream os = editor.textDeltaChunk(call.myPath, (SVNDiffWindow) call.myValue);
+                        SVNFileUtil.closeFile(os);
+                        break;
+                    case TEXT_DELTA_END:
+                        editor.textDeltaEnd(call.myPath);
+                        break;
+                }
+                // let recorded data go as soon as it is sent.
+                calls.remove();
+            }
+        }
+
+        public void clear() {
+            myCalls.clear();
+            mySize = 0;
+        }
+
+        private void record(int command, String path, String name, Object value, long revision, long dataSize) throws SVNException {
+            checkCancelled();
+            mySize += CALL_OVERHEAD + dataSize + getSize(path) + getSize(name);
+            if (mySize > myMaxBufferedRevisionSize) {
+                myIsOverflown = true;
+                SVNErrorManager.cancel("revision is too large to be buffered", SVNLogType.NETWORK);
+            }
+            myCalls.add(new EditorCall(command, path, name, value, revision));
+        }
+
+        private long getSize(String str) {
+            return str == null ? 0 : str.length() * 2;
+        }
+
+        private long getSize(SVNPropertyValue value) {
+            if (value == null) {
+                return 0;
+            }
+            return value.isString() ? getSize(value.getString()) : value.getBytes().length;
+        }
+    }
+
+    private static class EditorCall {
+
+        private final int myCommand;
+        private final String myPath;
+        private final String myName;
+        private final Object myValue;
+        private final long myRevision;
+
+        public EditorCall(int command, String path, String name, Object value, long revision) {
+            myCommand = command;
+            myPath = path;
+            myName = name;
+            myValue = value;
+            myRevision = revision;
+        }
+    }
+
+    private static class ReplayThreadFactory implements ThreadFactory {
+
+        private int myThreadsCount;
+
+        public synchronized Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "svnkit-replay-" + (++myThreadsCount));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -222,6 +222,7 @@ public class SVNAmbientDepthFilterEditor17 implements ISVNUpdateEditor {
     }
 
     public void abortEdit() throws SVNException {
+        myDelegate.abortEdit();
     }
 
     private DirBaton makeDirBaton(String path, DirBaton parentBaton) throws SVNException {
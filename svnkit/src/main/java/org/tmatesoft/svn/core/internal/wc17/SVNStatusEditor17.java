@@ -66,6 +66,8 @@ public class SVNStatusEditor17 {
     protected boolean myIsGetExcluded;
 
     private boolean myIgnoreTextMods;
+    private int myThreadsCount;
+    private SVNStatusWalker17 myWalker;
 
     public SVNStatusEditor17(File path, SVNWCContext wcContext, ISVNOptions options, boolean noIgnore, boolean reportAll, SVNDepth depth, ISvnObjectReceiver<SvnStatus> handler) {
 
@@ -82,7 +84,7 @@ public class SVNStatusEditor17 {
         myFileListHook = myDefaultFileListHook;
 
         myIsGetExcluded = false;
-
+        myThreadsCount = 1;
     }
     
     protected void collectExternals(File path) throws SVNException {
@@ -136,6 +138,33 @@ public class SVNStatusEditor17 {
         return myDepth;
     }
 
+    /**
+     * Sets the number of threads {@link #walkStatus(File, SVNDepth, boolean, boolean, boolean, Collection)}
+     * uses to walk subdirectories of an infinite depth walk. Statuses are still reported
+     * on the calling thread and in the same order; the file list hook is then called
+     * from several threads. Defaults to 1.
+     */
+    public void setThreadsCount(int threadsCount) {
+        myThreadsCount = Math.max(1, threadsCount);
+    }
+
+    public int getThreadsCount() {
+        return myThreadsCount;
+    }
+
+    SVNStatusEditor17 createWorkerEditor(SVNWCContext context, SVNStatusWalker17 walker) {
+        SVNStatusEditor17 editor = new SVNStatusEditor17(myPath, context, null, myIsNoIgnore, myIsReportAll, myDepth, null);
+        editor.myExternalsMap = myExternalsMap;
+        editor.myGlobalIgnores = myGlobalIgnores;
+        editor.myRepositoryRoot = myRepositoryRoot;
+        editor.myRepositoryLocks = myRepositoryLocks;
+        editor.myFileListHook = myFileListHook;
+        editor.myIsGetExcluded = myIsGetExcluded;
+        editor.myIgnoreTextMods = myIgnoreTextMods;
+        editor.myWalker = walker;
+        return editor;
+    }
+
     protected ISvnObjectReceiver<SvnStatus> getDefaultHandler() {
         return myStatusHandler;
     }
@@ -303,8 +332,9 @@ public class SVNStatusEditor17 {
         
         if (info.kind != SVNWCDbKind.Dir && node_status == SVNStatusType.STATUS_NORMAL) {
             boolean text_modified_p = false;
-            long fileSize = SVNFileUtil.getFileLength(localAbsPath);
-            long fileTime = SVNFileUtil.getFileLastModified(localAbsPath);
+            SVNWCChangeJournal.FileInfo fileInfo = context.getChangeJournal() != null ? context.getChangeJournal().getFileInfo(localAbsPath) : null;
+            long fileSize = fileInfo != null ? fileInfo.getLength() : SVNFileUtil.getFileLength(localAbsPath);
+            long fileTime = fileInfo != null ? fileInfo.getLastModified() : SVNFileUtil.getFileLastModified(localAbsPath);
             
             if ((info.kind == SVNWCDbKind.File || info.kind == SVNWCDbKind.Symlink) && (!SVNFileUtil.symlinksSupported() || info.special == pathSpecial)) {
                 if (!info.hasChecksum) {
@@ -572,6 +602,15 @@ public class SVNStatusEditor17 {
         
         myIgnoreTextMods = ignoreTextMods;
         
+        if (myThreadsCount > 1 && (depth == SVNDepth.INFINITY || depth == SVNDepth.UNKNOWN)) {
+            myWalker = new SVNStatusWalker17(this, myWCContext, myThreadsCount);
+            try {
+                myWalker.walk(anchorAbsPath, targetName, skipRoot, dirInfo, fileType, ignorePatterns, depth, getAll, noIgnore, getDefaultHandler());
+            } finally {
+                myWalker = null;
+            }
+            return;
+        }
         getDirStatus(anchorAbsPath, targetName, skipRoot, null, dirInfo, fileType, ignorePatterns, depth, getAll, noIgnore, getDefaultHandler());        
     }
     
@@ -584,7 +623,17 @@ public class SVNStatusEditor17 {
         if (depth == SVNDepth.UNKNOWN) {
             depth = SVNDepth.INFINITY;
         }
-        Map<String, File> childrenFiles = myFileListHook.listFiles(localAbsPath);
+        Map<String, SVNWCChangeJournal.FileInfo> childrenInfos = null;
+        Map<String, File> childrenFiles;
+        if (myWCContext.getChangeJournal() != null && myFileListHook instanceof DefaultSvnFileListHook) {
+            childrenInfos = myWCContext.getChangeJournal().getDirectory(localAbsPath);
+            childrenFiles = new HashMap<String, File>();
+            for (SVNWCChangeJournal.FileInfo childInfo : childrenInfos.values()) {
+                childrenFiles.put(SVNFileUtil.getFileName(childInfo.getFile()), childInfo.getFile());
+            }
+        } else {
+            childrenFiles = myFileListHook.listFiles(localAbsPath);
+        }
         if (childrenFiles == null) {
             childrenFiles = Collections.emptyMap();
         }
@@ -640,7 +689,12 @@ public class SVNStatusEditor17 {
         }
         for(String name : allChildren) {
             File nodeAbsPath = SVNFileUtil.createFilePath(localAbsPath, name);
-            SVNFileType nodeFileType = childrenFiles.containsKey(name) ? SVNFileType.getType(childrenFiles.get(name)) : null;
+            SVNFileType nodeFileType = null;
+            if (childrenInfos != null) {
+                nodeFileType = childrenInfos.containsKey(name) ? childrenInfos.get(name).getType() : null;
+            } else if (childrenFiles.containsKey(name)) {
+                nodeFileType = SVNFileType.getType(childrenFiles.get(name));
+            }
             SVNWCDbInfo nodeInfo = nodes.get(name);
             
             if (nodeInfo != null) {
@@ -651,7 +705,11 @@ public class SVNStatusEditor17 {
                     }
                     sendStatusStructure(nodeAbsPath, dirReposInfo, nodeInfo, SVNFileType.getNodeKind(nodeFileType), nodeFileType == SVNFileType.SYMLINK, getAll, handler);
                     if (depth == SVNDepth.INFINITY && nodeInfo.kind == SVNWCDbKind.Dir) {
-                        getDirStatus(nodeAbsPath, null, true, dirReposInfo, nodeInfo, nodeFileType, ignorePatterns, SVNDepth.INFINITY, getAll, noIgnore, handler);
+                        if (myWalker != null) {
+                            myWalker.walkDirectory(this, nodeAbsPath, dirReposInfo, nodeInfo, nodeFileType, ignorePatterns, getAll, noIgnore, handler);
+                        } else {
+                            getDirStatus(nodeAbsPath, null, true, dirReposInfo, nodeInfo, nodeFileType, ignorePatterns, SVNDepth.INFINITY, getAll, noIgnore, handler);
+                        }
                     }
                     continue;
                 }
@@ -0,0 +1,252 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.core.internal.wc17;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.tmatesoft.svn.core.SVNCancelException;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNErrorMessage;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.internal.wc.SVNErrorManager;
+import org.tmatesoft.svn.core.internal.wc.SVNFileType;
+import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb.SVNWCDbInfo;
+import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb.SVNWCDbOpenMode;
+import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb.WCDbRepositoryInfo;
+import org.tmatesoft.svn.core.wc.ISVNEventHandler;
+import org.tmatesoft.svn.core.wc.SVNEvent;
+import org.tmatesoft.svn.core.wc2.ISvnObjectReceiver;
+import org.tmatesoft.svn.core.wc2.SvnStatus;
+import org.tmatesoft.svn.core.wc2.SvnTarget;
+import org.tmatesoft.svn.util.SVNLogType;
+
+/**
+ * Walks working copy status with subdirectories handed out to several
+ * threads. Each worker thread reads the working copy database through its
+ * own read-only {@link SVNWCContext}, statuses are collected per directory
+ * and passed to the receiver on the calling thread in exactly the order
+ * the sequential walk would report them.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+class SVNStatusWalker17 implements ISVNEventHandler {
+
+    private static final int DIRECTORIES_PER_THREAD = 16;
+    private static final long POLL_INTERVAL = 100;
+    private static final long TERMINATION_TIMEOUT = 30 * 1000;
+
+    private final SVNStatusEditor17 myEditor;
+    private final SVNWCContext myWCContext;
+    private final int myMaxPendingDirectories;
+    private final AtomicInteger myPendingDirectories;
+    private final ExecutorService myExecutor;
+    private final ThreadLocal<SVNStatusEditor17> myWorkerEditor;
+    private final List<SVNWCContext> myOpenedContexts;
+
+    private volatile boolean myIsStopped;
+
+    public SVNStatusWalker17(SVNStatusEditor17 editor, SVNWCContext context, int threadsCount) {
+        myEditor = editor;
+        myWCContext = context;
+        threadsCount = Math.max(1, threadsCount);
+        myMaxPendingDirectories = threadsCount * DIRECTORIES_PER_THREAD;
+        myPendingDirectories = new AtomicInteger();
+        myExecutor = Executors.newFixedThreadPool(threadsCount, new StatusThreadFactory());
+        myWorkerEditor = new ThreadLocal<SVNStatusEditor17>();
+        myOpenedContexts = new ArrayList<SVNWCContext>();
+    }
+
+    public void walk(File localAbsPath, String selected, boolean skipThisDir, SVNWCDbInfo dirInfo, SVNFileType fileType,
+            Collection<String> ignorePatterns, SVNDepth depth, boolean getAll, boolean noIgnore, ISvnObjectReceiver<SvnStatus> handler) throws SVNException {
+        try {
+            StatusCollector collector = new StatusCollector();
+            myEditor.getDirStatus(localAbsPath, selected, skipThisDir, null, dirInfo, fileType, ignorePatterns, depth, getAll, noIgnore, collector);
+            deliver(collector.myItems, handler);
+        } finally {
+            myIsStopped = true;
+            myExecutor.shutdownNow();
+            awaitTermination();
+            closeContexts();
+        }
+    }
+
+    /**
+     * Called by the editors for every subdirectory that has to be walked
+     * recursively. The subdirectory is either queued for a worker thread, with
+     * a placeholder left in the parent's output, or walked in place when enough
+     * directories are already waiting.
+     */
+    public void walkDirectory(SVNStatusEditor17 editor, File localAbsPath, WCDbRepositoryInfo parentReposInfo, SVNWCDbInfo dirInfo, SVNFileType fileType,
+            Collection<String> ignorePatterns, boolean getAll, boolean noIgnore, ISvnObjectReceiver<SvnStatus> handler) throws SVNException {
+        if (handler instanceof StatusCollector && myPendingDirectories.incrementAndGet() <= myMaxPendingDirectories) {
+            DirectoryWalk walk = new DirectoryWalk(localAbsPath, parentReposInfo, dirInfo, fileType, ignorePatterns, getAll, noIgnore);
+            ((StatusCollector) handler).myItems.add(myExecutor.submit(walk));
+            return;
+        } else if (handler instanceof StatusCollector) {
+            myPendingDirectories.decrementAndGet();
+        }
+        editor.getDirStatus(localAbsPath, null, true, parentReposInfo, dirInfo, fileType, ignorePatterns, SVNDepth.INFINITY, getAll, noIgnore, handler);
+    }
+
+    public void checkCancelled() throws SVNCancelException {
+        if (myIsStopped) {
+            SVNErrorManager.cancel("status walk cancelled", SVNLogType.WC);
+        }
+        ISVNEventHandler eventHandler = myWCContext.getEventHandler();
+        if (eventHandler != null) {
+            eventHandler.checkCancelled();
+        }
+    }
+
+    public void handleEvent(SVNEvent event, double progress) throws SVNException {
+        // status walk does not notify; events are never passed to the caller's
+        // handler from worker threads.
+    }
+
+    private void deliver(List<Object> items, ISvnObjectReceiver<SvnStatus> handler) throws SVNException {
+        for (int i = 0; i < items.size(); i++) {
+            Object item = items.set(i, null);
+            if (item instanceof SvnStatus) {
+                if (handler != null) {
+                    SvnStatus status = (SvnStatus) item;
+                    handler.receive(SvnTarget.fromFile(status.getPath()), status);
+                }
+            } else {
+                @SuppressWarnings("unchecked")
+                Future<List<Object>> result = (Future<List<Object>>) item;
+                List<Object> subItems = waitForDirectory(result);
+                myPendingDirectories.decrementAndGet();
+                deliver(subItems, handler);
+            }
+        }
+    }
+
+    private List<Object> waitForDirectory(Future<List<Object>> result) throws SVNException {
+        while (true) {
+            myWCContext.checkCancelled();
+            try {
+                return result.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                continue;
+            } catch (InterruptedException e) {
+                SVNErrorManager.cancel("status walk interrupted", SVNLogType.WC);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SVNException) {
+                    throw (SVNException) cause;
+                }
+                SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.UNKNOWN, "Failed to get status: {0}", cause.getMessage());
+                SVNErrorManager.error(err, cause, SVNLogType.WC);
+            }
+        }
+    }
+
+    private void awaitTermination() {
+        // workers notice the stop flag on the next directory
+        try {
+            myExecutor.awaitTermination(TERMINATION_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private SVNStatusEditor17 getWorkerEditor() {
+        SVNStatusEditor17 editor = myWorkerEditor.get();
+        if (editor == null) {
+            SVNWCContext context = new SVNWCContext(SVNWCDbOpenMode.ReadOnly, myWCContext.getOptions(), false, false, this);
+            context.setChangeJournal(myWCContext.getChangeJournal());
+            synchronized (myOpenedContexts) {
+                myOpenedContexts.add(context);
+            }
+            editor = myEditor.createWorkerEditor(context, this);
+            myWorkerEditor.set(editor);
+        }
+        return editor;
+    }
+
+    private void closeContexts() {
+        synchronized (myOpenedContexts) {
+            for (Iterator<SVNWCContext> contexts = myOpenedContexts.iterator(); contexts.hasNext();) {
+                contexts.next().close();
+            }
+            myOpenedContexts.clear();
+        }
+    }
+
+    private class DirectoryWalk implements Callable<List<Object>> {
+
+        private final File myPath;
+        private final WCDbRepositoryInfo myParentReposInfo;
+        private final SVNWCDbInfo myDirInfo;
+        private final SVNFileType myFileType;
+        private final Collection<String> myIgnorePatterns;
+        private final boolean myIsGetAll;
+        private final boolean myIsNoIgnore;
+
+        public DirectoryWalk(File path, WCDbRepositoryInfo parentReposInfo, SVNWCDbInfo dirInfo, SVNFileType fileType,
+                Collection<String> ignorePatterns, boolean getAll, boolean noIgnore) {
+            myPath = path;
+            myParentReposInfo = parentReposInfo;
+            myDirInfo = dirInfo;
+            myFileType = fileType;
+            myIgnorePatterns = ignorePatterns;
+            myIsGetAll = getAll;
+            myIsNoIgnore = noIgnore;
+        }
+
+        public List<Object> call() throws Exception {
+            StatusCollector collector = new StatusCollector();
+            getWorkerEditor().getDirStatus(myPath, null, true, myParentReposInfo, myDirInfo, myFileType, myIgnorePatterns,
+                    SVNDepth.INFINITY, myIsGetAll, myIsNoIgnore, collector);
+            return collector.myItems;
+        }
+    }
+
+    /**
+     * Output of one directory walk: statuses and, in their places, results
+     * of the subdirectory walks queued meanwhile.
+     */
+    private static class StatusCollector implements ISvnObjectReceiver<SvnStatus> {
+
+        private final List<Object> myItems = new ArrayList<Object>();
+
+        public void receive(SvnTarget target, SvnStatus status) throws SVNException {
+            myItems.add(status);
+        }
+    }
+
+    private static class StatusThreadFactory implements ThreadFactory {
+
+        private int myThreadsCount;
+
+        public synchronized Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "svnkit-status-" + (++myThreadsCount));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
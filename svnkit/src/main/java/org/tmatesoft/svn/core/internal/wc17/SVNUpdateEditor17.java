@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.tmatesoft.sqljet.core.SqlJetTransactionMode;
 import org.tmatesoft.svn.core.SVNCancelException;
 import org.tmatesoft.svn.core.SVNCommitInfo;
 import org.tmatesoft.svn.core.SVNDepth;
@@ -33,6 +34,8 @@ import org.tmatesoft.svn.core.SVNProperties;
 import org.tmatesoft.svn.core.SVNProperty;
 import org.tmatesoft.svn.core.SVNPropertyValue;
 import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.db.SVNSqlJetDb;
+import org.tmatesoft.svn.core.internal.db.SVNSqlJetDb.Mode;
 import org.tmatesoft.svn.core.internal.util.SVNDate;
 import org.tmatesoft.svn.core.internal.util.SVNPathUtil;
 import org.tmatesoft.svn.core.internal.util.SVNSkel;
@@ -60,6 +63,7 @@ import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb.WCDbInfo;
 import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb.WCDbInfo.InfoField;
 import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb.WCDbRepositoryInfo;
 import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb.WCDbRepositoryInfo.RepositoryInfoField;
+import org.tmatesoft.svn.core.internal.wc17.db.SVNWCDb;
 import org.tmatesoft.svn.core.io.diff.SVNDeltaProcessor;
 import org.tmatesoft.svn.core.io.diff.SVNDiffWindow;
 import org.tmatesoft.svn.core.wc.SVNConflictAction;
@@ -109,6 +113,9 @@ public class SVNUpdateEditor17 implements ISVNUpdateEditor {
     private Map<File, Map<String, SVNDirEntry>> myDirEntries;
     private boolean myIsCleanCheckout;
     private File myWCRootAbsPath;
+    private int myBatchSize = getBatchSize();
+    private SVNSqlJetDb myBatchDb;
+    private int myBatchedFilesCount;
     
     public static ISVNUpdateEditor createUpdateEditor(SVNWCContext context, 
             long targetRevision, 
@@ -446,7 +453,7 @@ public class SVNUpdateEditor17 implements ISVNUpdateEditor {
             myIsTargetDeleted = true;
         }
         myWCContext.getDb().addWorkQueue(localAbsPath, workItem);
-        myWCContext.wqRun(localAbsPath);
+        runWorkQueue(localAbsPath);
         
         if (treeConflict == null) {
             SVNEventAction action = SVNEventAction.UPDATE_DELETE;
@@ -866,6 +873,7 @@ public class SVNUpdateEditor17 implements ISVNUpdateEditor {
             myCurrentDirectory = myCurrentDirectory.parentBaton;
             return;
         }
+        beginBatch(db.localAbsolutePath);
         SVNSkel allWorkItems = null;
         SVNProperties entryProps = db.entryPropChanges;
         SVNProperties davProps = db.davPropChanges;
@@ -1012,7 +1020,7 @@ public class SVNUpdateEditor17 implements ISVNUpdateEditor {
                     davProps != null && !davProps.isEmpty() ? davProps : null, null, !db.shadowed && newBaseProps != null, newActualProps, allWorkItems);
             
         }
-        myWCContext.wqRun(db.localAbsolutePath);
+        runWorkQueue(db.localAbsolutePath);
         if (!db.alreadyNotified && myWCContext.getEventHandler() != null && db.edited) {
             SVNEventAction action = null;
             if (db.shadowed) {
@@ -1293,6 +1301,7 @@ public class SVNUpdateEditor17 implements ISVNUpdateEditor {
             maybeBumpDirInfo(fb.bumpInfo);
             return;
         }
+        beginBatch(fb.directoryBaton.localAbsolutePath);
 
         SvnChecksum expectedMd5Checksum = null;
         if (expectedMd5Digest != null) {
@@ -1493,9 +1502,13 @@ public class SVNUpdateEditor17 implements ISVNUpdateEditor {
             myWCContext.getEventHandler().handleEvent(event, 0);
         }
         maybeBumpDirInfo(fb.bumpInfo);
+        if (myBatchDb != null && ++myBatchedFilesCount >= myBatchSize) {
+            finishBatch();
+        }
     }
 
     public SVNCommitInfo closeEdit() throws SVNException {
+        finishBatch();
         if (!rootOpened && ("".equals(myTargetBasename) || myTargetBasename == null)) {
             myWCContext.getDb().opSetBaseIncompleteTemp(myAnchorAbspath, false);
         }
@@ -1518,11 +1531,99 @@ public class SVNUpdateEditor17 implements ISVNUpdateEditor {
             }
         }
         
-        myWCContext.wqRun(myAnchorAbspath);
+        runWorkQueue(myAnchorAbspath);
         return null;
     }
 
     public void abortEdit() throws SVNException {
+        finishBatch(false);
+    }
+
+    /**
+     * Tells whether checkout and update write to the working copy database in
+     * batches, see <code>svnkit.wc.updateBatchSize</code>.
+     */
+    public static boolean isBatchingEnabled() {
+        return getBatchSize() > 0;
+    }
+
+    private static int getBatchSize() {
+        return Integer.getInteger("svnkit.wc.updateBatchSize", 0);
+    }
+
+    /**
+     * With batching enabled (<code>svnkit.wc.updateBatchSize</code> files per
+     * transaction), keeps a transaction open on the working copy database so
+     * that node rows and work items of several files and of the closed directory
+     * are written with one commit.
+     */
+    private void beginBatch(File dirAbsPath) throws SVNException {
+        if (myBatchSize <= 0) {
+            return;
+        }
+        SVNSqlJetDb sdb = ((SVNWCDb) myWCContext.getDb()).parseDir(dirAbsPath, Mode.ReadWrite).wcDbDir.getWCRoot().getSDb();
+        if (sdb == myBatchDb) {
+            return;
+        }
+        finishBatch();
+        sdb.beginTransaction(SqlJetTransactionMode.WRITE);
+        myBatchDb = sdb;
+        myBatchedFilesCount = 0;
+    }
+
+    private void finishBatch() throws SVNException {
+        finishBatch(true);
+    }
+
+    private void finishBatch(boolean reportRollback) throws SVNException {
+        if (myBatchDb != null) {
+            SVNSqlJetDb sdb = myBatchDb;
+            myBatchDb = null;
+            myBatchedFilesCount = 0;
+            endTransaction(sdb, reportRollback);
+        }
+    }
+
+    /**
+     * Commits a transaction opened by the editor. When a nested transaction has
+     * failed and rolled it back, whatever was written after that is rolled back
+     * too, so that a batch is never committed in part.
+     */
+    private static void endTransaction(SVNSqlJetDb sdb, boolean reportRollback) throws SVNException {
+        if (!sdb.isRolledBack()) {
+            sdb.commit();
+            return;
+        }
+        try {
+            sdb.rollback();
+        } finally {
+            sdb.commit();
+        }
+        if (reportRollback) {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.SQLITE_ERROR, "Working copy database transaction has been rolled back");
+            SVNErrorManager.error(err, SVNLogType.WC);
+        }
+    }
+
+    /**
+     * Runs queued work items after node rows and work items are committed; in
+     * batching mode the whole queue is drained in one transaction.
+     */
+    private void runWorkQueue(File localAbsPath) throws SVNException {
+        if (myBatchSize <= 0) {
+            myWCContext.wqRun(localAbsPath);
+            return;
+        }
+        finishBatch();
+        SVNSqlJetDb sdb = ((SVNWCDb) myWCContext.getDb()).parseDir(localAbsPath, Mode.ReadWrite).wcDbDir.getWCRoot().getSDb();
+        sdb.beginTransaction(SqlJetTransactionMode.WRITE);
+        boolean drained = false;
+        try {
+            myWCContext.wqRun(localAbsPath);
+            drained = true;
+        } finally {
+            endTransaction(sdb, drained);
+        }
     }
 
     public void applyTextDelta(String path, String expectedChecksum) throws SVNException {
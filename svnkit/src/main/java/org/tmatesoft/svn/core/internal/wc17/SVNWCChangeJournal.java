@@ -0,0 +1,518 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2004-2012 TMate Software Ltd.  All rights reserved.
+ *
+ * This software is licensed as described in the file COPYING, which
+ * you should have received as part of this distribution.  The terms
+ * are also available at http://svnkit.com/license.html
+ * If newer versions of this license are posted there, you may use a
+ * newer version instead, at your option.
+ * ====================================================================
+ */
+package org.tmatesoft.svn.core.internal.wc17;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.tmatesoft.svn.core.internal.wc.SVNFileListUtil;
+import org.tmatesoft.svn.core.internal.wc.SVNFileType;
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
+import org.tmatesoft.svn.util.SVNDebugLog;
+import org.tmatesoft.svn.util.SVNLogType;
+
+/**
+ * Remembers directory listings and file attributes of working copy
+ * directories between operations and forgets them as soon as the file
+ * system reports a change in the directory. Changes are watched with
+ * <code>java.nio.file.WatchService</code>, which is looked up by reflection
+ * and only used on Linux where it is backed by inotify; everywhere else
+ * {@link #open()} returns <code>null</code>.
+ *
+ * <p/>
+ * Before a walk relies on remembered attributes it has to call
+ * {@link #synchronize()}, which waits until all file system events queued
+ * so far are processed. When events are lost (queue overflow) or can not be
+ * awaited, everything remembered is dropped and directories are scanned
+ * again.
+ *
+ * <p/>
+ * A synchronization is acknowledged only once the watch service has no
+ * signalled keys left. A directory key reset while its events are processed
+ * is queued again, possibly behind the key of the synchronization file, so
+ * acknowledging at the synchronization event itself could miss changes
+ * made before {@link #synchronize()} was called.
+ *
+ * <p/>
+ * Every watched directory holds an inotify watch, so the number of watched
+ * directories is limited with the <code>svnkit.wc.changeJournalWatchesCount</code>
+ * system property (4096 by default). Beyond the limit, watches of the least
+ * recently walked directories are cancelled and their attributes forgotten.
+ *
+ * @version 1.3
+ * @author  TMate Software Ltd.
+ */
+public class SVNWCChangeJournal {
+
+    private static final String SYNC_FILE_PREFIX = "sync-";
+    private static final long SYNC_TIMEOUT = 2000;
+    private static final int DEFAULT_MAX_WATCHES_COUNT = Integer.getInteger("svnkit.wc.changeJournalWatchesCount", 4096).intValue();
+
+    private static Method ourFileToPath;
+    private static Method ourNewWatchService;
+    private static Method ourRegister;
+    private static Method ourTake;
+    private static Method ourPoll;
+    private static Method ourPollEvents;
+    private static Method ourReset;
+    private static Method ourCancel;
+    private static Method ourEventKind;
+    private static Method ourEventContext;
+    private static Method ourClose;
+    private static Object ourFileSystem;
+    private static Object ourOverflowKind;
+    private static Object ourWatchedKinds;
+
+    static {
+        try {
+            Class<?> fileSystemsClass = Class.forName("java.nio.file.FileSystems");
+            Class<?> fileSystemClass = Class.forName("java.nio.file.FileSystem");
+            Class<?> pathClass = Class.forName("java.nio.file.Path");
+            Class<?> watchServiceClass = Class.forName("java.nio.file.WatchService");
+            Class<?> watchKeyClass = Class.forName("java.nio.file.WatchKey");
+            Class<?> watchEventClass = Class.forName("java.nio.file.WatchEvent");
+            Class<?> kindClass = Class.forName("java.nio.file.WatchEvent$Kind");
+            Class<?> kindsClass = Class.forName("java.nio.file.StandardWatchEventKinds");
+
+            Object kinds = Array.newInstance(kindClass, 3);
+            Array.set(kinds, 0, kindsClass.getField("ENTRY_CREATE").get(null));
+            Array.set(kinds, 1, kindsClass.getField("ENTRY_DELETE").get(null));
+            Array.set(kinds, 2, kindsClass.getField("ENTRY_MODIFY").get(null));
+
+            ourFileToPath = File.class.getMethod("toPath", new Class<?>[0]);
+            ourNewWatchService = fileSystemClass.getMethod("newWatchService", new Class<?>[0]);
+            ourRegister = pathClass.getMethod("register", new Class<?>[] {watchServiceClass, kinds.getClass()});
+            ourTake = watchServiceClass.getMethod("take", new Class<?>[0]);
+            ourPoll = watchServiceClass.getMethod("poll", new Class<?>[0]);
+            ourClose = watchServiceClass.getMethod("close", new Class<?>[0]);
+            ourPollEvents = watchKeyClass.getMethod("pollEvents", new Class<?>[0]);
+            ourReset = watchKeyClass.getMethod("reset", new Class<?>[0]);
+            ourCancel = watchKeyClass.getMethod("cancel", new Class<?>[0]);
+            ourEventKind = watchEventClass.getMethod("kind", new Class<?>[0]);
+            ourEventContext = watchEventClass.getMethod("context", new Class<?>[0]);
+            ourFileSystem = fileSystemsClass.getMethod("getDefault", new Class<?>[0]).invoke(null, new Object[0]);
+            ourOverflowKind = kindsClass.getField("OVERFLOW").get(null);
+            ourWatchedKinds = kinds;
+        } catch (Throwable th) {
+            ourFileSystem = null;
+        }
+    }
+
+    /**
+     * Starts a new journal.
+     *
+     * @return journal or <code>null</code> when file system changes can not be
+     *         watched reliably on this platform or Java version
+     */
+    public static SVNWCChangeJournal open() {
+        if (!SVNFileUtil.isLinux || ourFileSystem == null) {
+            return null;
+        }
+        SVNWCChangeJournal journal = new SVNWCChangeJournal();
+        try {
+            journal.start();
+        } catch (Throwable th) {
+            SVNDebugLog.getDefaultLog().log(SVNLogType.WC, th, Level.FINE);
+            journal.close();
+            return null;
+        }
+        return journal;
+    }
+
+    private final Map<Object, File> myWatchedDirectories;
+    private final Map<File, Map<String, FileInfo>> myDirectories;
+    private final LinkedHashMap<File, Object> myWatchedPaths;
+    private final Map<File, Boolean> myScans;
+
+    private Object myWatchService;
+    private Thread myThread;
+    private File mySyncDirectory;
+    private Object mySyncKey;
+    private long mySyncRequested;
+    private long mySyncReceived;
+    private boolean myIsClosed;
+    private int myMaxWatchesCount;
+
+    private SVNWCChangeJournal() {
+        myWatchedDirectories = new HashMap<Object, File>();
+        myDirectories = new HashMap<File, Map<String, FileInfo>>();
+        myWatchedPaths = new LinkedHashMap<File, Object>(16, 0.75f, true);
+        myScans = new HashMap<File, Boolean>();
+        myMaxWatchesCount = DEFAULT_MAX_WATCHES_COUNT;
+    }
+
+    /**
+     * Sets the maximum number of watched directories, watches of the least
+     * recently walked directories beyond it are cancelled.
+     */
+    public synchronized void setMaxWatchesCount(int count) {
+        myMaxWatchesCount = Math.max(count, 1);
+        cancelEldestWatches();
+    }
+
+    public synchronized int getWatchesCount() {
+        return myWatchedPaths.size();
+    }
+
+    /**
+     * Returns children of <code>directory</code> mapped by name with their
+     * attributes. Remembered attributes are returned unless something changed in
+     * the directory since they were read, otherwise the directory is scanned.
+     */
+    public Map<String, FileInfo> getDirectory(File directory) {
+        Map<String, FileInfo> entries;
+        synchronized (this) {
+            entries = myDirectories.get(directory);
+            if (entries != null) {
+                // keeps the watch from being cancelled as one of the eldest
+                myWatchedPaths.get(directory);
+                return entries;
+            }
+        }
+        if (!watch(directory)) {
+            return scan(directory);
+        }
+        entries = scan(directory);
+        synchronized (this) {
+            Boolean changed = myScans.remove(directory);
+            if (changed != null && !changed.booleanValue() && !myIsClosed) {
+                myDirectories.put(directory, entries);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns attributes of <code>file</code> as remembered for its parent
+     * directory.
+     */
+    public FileInfo getFileInfo(File file) {
+        File parent = SVNFileUtil.getParentFile(file);
+        if (parent == null) {
+            return null;
+        }
+        return getDirectory(parent).get(SVNFileUtil.getFileName(file));
+    }
+
+    /**
+     * Waits until file system events that happened before this call are
+     * processed, so that attributes returned afterwards are not older than the
+     * moment of this call.
+     */
+    public void synchronize() {
+        long token;
+        synchronized (this) {
+            if (myIsClosed) {
+                return;
+            }
+            token = ++mySyncRequested;
+        }
+        File syncFile = new File(mySyncDirectory, SYNC_FILE_PREFIX + token);
+        try {
+            if (!syncFile.createNewFile()) {
+                invalidateAll();
+                return;
+            }
+            long deadline = System.currentTimeMillis() + SYNC_TIMEOUT;
+            synchronized (this) {
+                while (mySyncReceived < token && !myIsClosed) {
+                    long timeout = deadline - System.currentTimeMillis();
+                    if (timeout <= 0) {
+                        break;
+                    }
+                    wait(timeout);
+                }
+                if (mySyncReceived < token) {
+                    invalidateAll();
+                }
+            }
+        } catch (IOException e) {
+            invalidateAll();
+        } catch (InterruptedException e) {
+            invalidateAll();
+            Thread.currentThread().interrupt();
+        } finally {
+            syncFile.delete();
+        }
+    }
+
+    public void close() {
+        synchronized (this) {
+            if (myIsClosed) {
+                return;
+            }
+            myIsClosed = true;
+            myDirectories.clear();
+            myScans.clear();
+            myWatchedDirectories.clear();
+            myWatchedPaths.clear();
+            notifyAll();
+        }
+        if (myWatchService != null) {
+            try {
+                invoke(ourClose, myWatchService, null);
+            } catch (Throwable th) {
+                //
+            }
+        }
+        if (mySyncDirectory != null) {
+            SVNFileUtil.deleteAll(mySyncDirectory, true);
+        }
+    }
+
+    private void start() throws Throwable {
+        myWatchService = invoke(ourNewWatchService, ourFileSystem, null);
+        mySyncDirectory = SVNFileUtil.createTempDirectory("svnkit-journal");
+        mySyncKey = register(mySyncDirectory);
+        myThread = new Thread(new Runnable() {
+            public void run() {
+                processEvents();
+            }
+        }, "svnkit-wc-journal");
+        myThread.setDaemon(true);
+        myThread.start();
+    }
+
+    /**
+     * Registers <code>directory</code> unless it is already watched and marks
+     * it as being scanned. Returns <code>false</code> when the directory could
+     * not be watched and its scan is not to be remembered.
+     */
+    private boolean watch(File directory) {
+        synchronized (this) {
+            if (myIsClosed) {
+                return false;
+            }
+            if (myWatchedPaths.get(directory) != null) {
+                myScans.put(directory, Boolean.FALSE);
+                return true;
+            }
+        }
+        if (SVNFileUtil.getAdminDirectoryName().equals(SVNFileUtil.getFileName(directory))) {
+            return false;
+        }
+        try {
+            Object key = register(directory);
+            synchronized (this) {
+                if (myIsClosed) {
+                    return false;
+                }
+                myWatchedDirectories.put(key, directory);
+                myWatchedPaths.put(directory, key);
+                myScans.put(directory, Boolean.FALSE);
+                cancelEldestWatches();
+                return true;
+            }
+        } catch (Throwable th) {
+            // e.g. inotify watches limit is reached or directory does not exist.
+            SVNDebugLog.getDefaultLog().log(SVNLogType.WC, th, Level.FINEST);
+            return false;
+        }
+    }
+
+    /**
+     * Cancels watches of the least recently walked directories beyond the
+     * limit. Keys are cancelled with the journal locked, so that a directory
+     * registered again meanwhile never gets the key being cancelled.
+     */
+    private void cancelEldestWatches() {
+        for (Iterator<Map.Entry<File, Object>> watches = myWatchedPaths.entrySet().iterator(); myWatchedPaths.size() > myMaxWatchesCount && watches.hasNext();) {
+            Map.Entry<File, Object> eldest = watches.next();
+            watches.remove();
+            myWatchedDirectories.remove(eldest.getValue());
+            invalidate(eldest.getKey());
+            try {
+                invoke(ourCancel, eldest.getValue(), null);
+            } catch (Throwable th) {
+                //
+            }
+        }
+    }
+
+    private Object register(File directory) throws Throwable {
+        Object path = invoke(ourFileToPath, directory, null);
+        return invoke(ourRegister, path, new Object[] {myWatchService, ourWatchedKinds});
+    }
+
+    private Map<String, FileInfo> scan(File directory) {
+        File[] children = SVNFileListUtil.listFiles(directory);
+        if (children == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, FileInfo> entries = new HashMap<String, FileInfo>();
+        for (int i = 0; i < children.length; i++) {
+            FileInfo info = new FileInfo(children[i]);
+            entries.put(SVNFileUtil.getFileName(children[i]), info);
+        }
+        return entries;
+    }
+
+    private void processEvents() {
+        while (true) {
+            Object key;
+            try {
+                key = invoke(ourTake, myWatchService, null);
+            } catch (Throwable th) {
+                // watch service is closed.
+                invalidateAll();
+                return;
+            }
+            long syncReceived = 0;
+            try {
+                while (key != null) {
+                    syncReceived = Math.max(syncReceived, processEvents(key));
+                    key = invoke(ourPoll, myWatchService, null);
+                }
+            } catch (Throwable th) {
+                invalidateAll();
+            }
+            if (syncReceived > 0) {
+                synchronized (this) {
+                    mySyncReceived = Math.max(mySyncReceived, syncReceived);
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Invalidates remembered attributes of the directory watched with
+     * <code>key</code> and of its changed children. Returns the greatest
+     * synchronization token received with <code>key</code>, or 0.
+     */
+    private long processEvents(Object key) throws Throwable {
+        List<?> events = (List<?>) invoke(ourPollEvents, key, null);
+        boolean valid = ((Boolean) invoke(ourReset, key, null)).booleanValue();
+        long syncReceived = 0;
+        synchronized (this) {
+            if (key == mySyncKey) {
+                for (Iterator<?> iterator = events.iterator(); iterator.hasNext();) {
+                    Object event = iterator.next();
+                    if (invoke(ourEventKind, event, null) == ourOverflowKind) {
+                        invalidateAll();
+                        continue;
+                    }
+                    String name = String.valueOf(invoke(ourEventContext, event, null));
+                    if (name.startsWith(SYNC_FILE_PREFIX)) {
+                        try {
+                            syncReceived = Math.max(syncReceived, Long.parseLong(name.substring(SYNC_FILE_PREFIX.length())));
+                        } catch (NumberFormatException e) {
+                            //
+                        }
+                    }
+                }
+                return syncReceived;
+            }
+            File directory = myWatchedDirectories.get(key);
+            if (!valid) {
+                myWatchedDirectories.remove(key);
+                if (directory != null && myWatchedPaths.get(directory) == key) {
+                    myWatchedPaths.remove(directory);
+                }
+            }
+            if (directory == null) {
+                return 0;
+            }
+            invalidate(directory);
+            for (Iterator<?> iterator = events.iterator(); iterator.hasNext();) {
+                Object event = iterator.next();
+                if (invoke(ourEventKind, event, null) == ourOverflowKind) {
+                    invalidateAll();
+                    continue;
+                }
+                Object name = invoke(ourEventContext, event, null);
+                if (name != null) {
+                    invalidate(SVNFileUtil.createFilePath(directory, String.valueOf(name)));
+                }
+            }
+        }
+        if (!valid) {
+            try {
+                invoke(ourCancel, key, null);
+            } catch (Throwable th) {
+                //
+            }
+        }
+        return 0;
+    }
+
+    private synchronized void invalidate(File directory) {
+        myDirectories.remove(directory);
+        if (myScans.containsKey(directory)) {
+            myScans.put(directory, Boolean.TRUE);
+        }
+    }
+
+    private synchronized void invalidateAll() {
+        myDirectories.clear();
+        for (Iterator<Map.Entry<File, Boolean>> scans = myScans.entrySet().iterator(); scans.hasNext();) {
+            scans.next().setValue(Boolean.TRUE);
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args != null ? args : new Object[0]);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Attributes of a directory entry at the moment its directory was scanned.
+     */
+    public static class FileInfo {
+
+        private final File myFile;
+        private final SVNFileType myType;
+        private final long myLength;
+        private final long myLastModified;
+
+        private FileInfo(File file) {
+            myFile = file;
+            myType = SVNFileType.getType(file);
+            if (myType == SVNFileType.FILE || myType == SVNFileType.SYMLINK) {
+                myLength = SVNFileUtil.getFileLength(file);
+                myLastModified = SVNFileUtil.getFileLastModified(file);
+            } else {
+                myLength = -1;
+                myLastModified = 0;
+            }
+        }
+
+        public File getFile() {
+            return myFile;
+        }
+
+        public SVNFileType getType() {
+            return myType;
+        }
+
+        public long getLength() {
+            return myLength;
+        }
+
+        public long getLastModified() {
+            return myLastModified;
+        }
+    }
+}
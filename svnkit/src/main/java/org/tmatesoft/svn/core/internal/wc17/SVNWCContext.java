@@ -32,6 +32,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 
 import org.tmatesoft.sqljet.core.internal.SqlJetPagerJournalMode;
@@ -72,6 +80,7 @@ import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb.WCDbBaseInfo;
 import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb.WCDbBaseInfo.BaseInfoField;
 import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb.WCDbDeletionInfo;
 import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb.WCDbDeletionInfo.DeletionInfoField;
+import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb.WCDbFileinfo;
 import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb.WCDbInfo;
 import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb.WCDbInfo.InfoField;
 import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb.WCDbRepositoryInfo;
@@ -147,6 +156,7 @@ public class SVNWCContext {
 
     public static final long INVALID_REVNUM = -1;
     public static final int STREAM_CHUNK_SIZE = 16384;
+    private static final long COMPARE_POLL_INTERVAL = 100;
 
     public static final String THIS_DIR_PREJ = "dir_conflicts";
     public static final String PROP_REJ_EXT = ".prej";
@@ -271,6 +281,7 @@ public class SVNWCContext {
     private boolean closeDb;
     private Stack<ISVNEventHandler> eventHandler;
     private List<CleanupHandler> cleanupHandlers = new LinkedList<CleanupHandler>();
+    private SVNWCChangeJournal changeJournal;
 
     public SVNWCContext(ISVNOptions config, ISVNEventHandler eventHandler) {
         this(SVNWCDbOpenMode.ReadWrite, config, true, true, eventHandler);
@@ -344,6 +355,18 @@ public class SVNWCContext {
         return db.getConfig();
     }
 
+    public SVNWCChangeJournal getChangeJournal() {
+        return changeJournal;
+    }
+
+    /**
+     * Sets journal to take working files attributes from; it is expected to be
+     * synchronized by the caller before the operation starts.
+     */
+    public void setChangeJournal(SVNWCChangeJournal changeJournal) {
+        this.changeJournal = changeJournal;
+    }
+
     public SVNNodeKind readKind(File localAbsPath, boolean showHidden) throws SVNException {
         try {
             final WCDbInfo info = db.readInfo(localAbsPath, InfoField.status, InfoField.kind);
@@ -632,17 +655,20 @@ public class SVNWCContext {
                 || (SVNWCDbStatus.Added != status && SVNWCDbStatus.Normal != status)) {
             return true;
         }
-        SVNFileType fileType = SVNFileType.getType(localAbsPath);
+        SVNWCChangeJournal.FileInfo fileInfo = changeJournal != null ? changeJournal.getFileInfo(localAbsPath) : null;
+        SVNFileType fileType = fileInfo != null ? fileInfo.getType() : SVNFileType.getType(localAbsPath);
         if (fileType != SVNFileType.FILE && fileType != SVNFileType.SYMLINK) {
             return false;
         }
         if (!exactComparison && fileType != SVNFileType.SYMLINK) {
             boolean compare = false;
             long recordedSize = nodeInfo.lng(NodeInfo.recordedSize); 
-            if (recordedSize != -1 && SVNFileUtil.getFileLength(localAbsPath) != recordedSize) {
+            long fileSize = fileInfo != null ? fileInfo.getLength() : SVNFileUtil.getFileLength(localAbsPath);
+            if (recordedSize != -1 && fileSize != recordedSize) {
                 compare = true;
             }
-            if (!compare && (nodeInfo.lng(NodeInfo.recordedTime)/1000) != SVNFileUtil.getFileLastModified(localAbsPath)) {
+            long fileTime = fileInfo != null ? fileInfo.getLastModified() : SVNFileUtil.getFileLastModified(localAbsPath);
+            if (!compare && (nodeInfo.lng(NodeInfo.recordedTime)/1000) != fileTime) {
                 compare = true;
             }
             if (!compare) {
@@ -662,18 +688,184 @@ public class SVNWCContext {
         }
         return modified;
     }
+
+    /**
+     * Checks several files for text modifications as
+     * {@link #isTextModified(File, boolean)} does. Working copy database is read
+     * on the calling thread, while files which timestamps do not match are
+     * compared with their pristine copies on up to <code>threadsCount</code>
+     * threads. Fresh size and timestamp of unmodified files are recorded in one
+     * transaction for the whole batch.
+     *
+     * @return modification flags mapped by path
+     */
+    public Map<File, Boolean> isTextModified(Collection<File> localAbsPaths, boolean exactComparison, int threadsCount) throws SVNException {
+        Map<File, Boolean> result = new HashMap<File, Boolean>();
+        List<TextCompare> compares = new ArrayList<TextCompare>();
+        for (File localAbsPath : localAbsPaths) {
+            checkCancelled();
+            Structure<NodeInfo> nodeInfo = getDb().readInfo(localAbsPath, NodeInfo.status, NodeInfo.kind, NodeInfo.checksum, 
+                    NodeInfo.recordedSize, NodeInfo.recordedTime, NodeInfo.hadProps, NodeInfo.propsMod);
+            SVNWCDbStatus status = nodeInfo.get(NodeInfo.status);
+            SVNWCDbKind kind = nodeInfo.get(NodeInfo.kind);
+            if (!nodeInfo.hasValue(NodeInfo.checksum)
+                    || SVNWCDbKind.File != kind
+                    || (SVNWCDbStatus.Added != status && SVNWCDbStatus.Normal != status)) {
+                result.put(localAbsPath, Boolean.TRUE);
+                continue;
+            }
+            SVNWCChangeJournal.FileInfo fileInfo = changeJournal != null ? changeJournal.getFileInfo(localAbsPath) : null;
+            SVNFileType fileType = fileInfo != null ? fileInfo.getType() : SVNFileType.getType(localAbsPath);
+            if (fileType != SVNFileType.FILE && fileType != SVNFileType.SYMLINK) {
+                result.put(localAbsPath, Boolean.FALSE);
+                continue;
+            }
+            if (!exactComparison && fileType != SVNFileType.SYMLINK) {
+                long recordedSize = nodeInfo.lng(NodeInfo.recordedSize);
+                long fileSize = fileInfo != null ? fileInfo.getLength() : SVNFileUtil.getFileLength(localAbsPath);
+                long fileTime = fileInfo != null ? fileInfo.getLastModified() : SVNFileUtil.getFileLastModified(localAbsPath);
+                if ((recordedSize == -1 || fileSize == recordedSize) && (nodeInfo.lng(NodeInfo.recordedTime)/1000) == fileTime) {
+                    result.put(localAbsPath, Boolean.FALSE);
+                    continue;
+                }
+            }
+            TextCompare compare = new TextCompare();
+            compare.localAbsPath = localAbsPath;
+            compare.pristineFile = getDb().getPristinePath(getDb().getWCRoot(localAbsPath), nodeInfo.<SvnChecksum>get(NodeInfo.checksum));
+            compare.translateInfo = getCompareTranslateInfo(localAbsPath, nodeInfo.is(NodeInfo.hadProps) || nodeInfo.is(NodeInfo.propsMod));
+            compare.exactComparison = exactComparison;
+            compares.add(compare);
+        }
         
-    public boolean compareAndVerify(File localAbsPath, File pristineFile, boolean hasProps, boolean propMods, boolean exactComparison) throws SVNException {
-        if (propMods) {
-            hasProps = true;
+        runCompares(compares, threadsCount);
+        
+        Map<File, WCDbFileinfo> fileinfos = new HashMap<File, WCDbFileinfo>();
+        for (TextCompare compare : compares) {
+            result.put(compare.localAbsPath, Boolean.valueOf(compare.modified));
+            if (!compare.modified && getDb().isWCLockOwns(compare.localAbsPath, false)) {
+                WCDbFileinfo fileinfo = new WCDbFileinfo();
+                fileinfo.translatedSize = SVNFileUtil.getFileLength(compare.localAbsPath);
+                fileinfo.lastModTime = new SVNDate(SVNFileUtil.getFileLastModified(compare.localAbsPath), 0);
+                fileinfos.put(compare.localAbsPath, fileinfo);
+            }
+        }
+        if (!fileinfos.isEmpty()) {
+            getDb().globalRecordFileinfo(fileinfos);
+        }
+        return result;
+    }
+
+    private void runCompares(List<TextCompare> compares, int threadsCount) throws SVNException {
+        threadsCount = Math.min(threadsCount, compares.size());
+        if (threadsCount <= 1) {
+            byte[] buf1 = new byte[STREAM_CHUNK_SIZE];
+            byte[] buf2 = new byte[STREAM_CHUNK_SIZE];
+            for (TextCompare compare : compares) {
+                checkCancelled();
+                compare.modified = compareAndVerify(compare.localAbsPath, compare.pristineFile, compare.translateInfo, compare.exactComparison, buf1, buf2);
+            }
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threadsCount, new CompareThreadFactory());
+        try {
+            ThreadLocal<byte[][]> buffers = new ThreadLocal<byte[][]>();
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>(compares.size());
+            for (TextCompare compare : compares) {
+                results.add(executor.submit(new TextCompareCall(compare, buffers)));
+            }
+            for (int i = 0; i < compares.size(); i++) {
+                compares.get(i).modified = waitForCompare(results.get(i)).booleanValue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Boolean waitForCompare(Future<Boolean> result) throws SVNException {
+        while (true) {
+            checkCancelled();
+            try {
+                return result.get(COMPARE_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                continue;
+            } catch (InterruptedException e) {
+                SVNErrorManager.cancel("text comparison interrupted", SVNLogType.WC);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SVNException) {
+                    throw (SVNException) cause;
+                }
+                SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.IO_ERROR, "Failed to compare file with its pristine: {0}", cause.getMessage());
+                SVNErrorManager.error(err, cause, SVNLogType.WC);
+            }
         }
-        boolean translationRequired = false;
+    }
+
+    private static class TextCompare {
 
-        TranslateInfo translateInfo = null;
+        public File localAbsPath;
+        public File pristineFile;
+        public TranslateInfo translateInfo;
+        public boolean exactComparison;
+        public boolean modified;
+    }
+
+    private static class TextCompareCall implements Callable<Boolean> {
+
+        private final TextCompare myCompare;
+        private final ThreadLocal<byte[][]> myBuffers;
+
+        public TextCompareCall(TextCompare compare, ThreadLocal<byte[][]> buffers) {
+            myCompare = compare;
+            myBuffers = buffers;
+        }
+
+        public Boolean call() throws Exception {
+            byte[][] buffers = myBuffers.get();
+            if (buffers == null) {
+                buffers = new byte[][] {new byte[STREAM_CHUNK_SIZE], new byte[STREAM_CHUNK_SIZE]};
+                myBuffers.set(buffers);
+            }
+            return Boolean.valueOf(compareAndVerify(myCompare.localAbsPath, myCompare.pristineFile, myCompare.translateInfo, myCompare.exactComparison, buffers[0], buffers[1]));
+        }
+    }
+
+    private static class CompareThreadFactory implements ThreadFactory {
+
+        private int myThreadsCount;
+
+        public synchronized Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "svnkit-compare-" + (++myThreadsCount));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+        
+    public boolean compareAndVerify(File localAbsPath, File pristineFile, boolean hasProps, boolean propMods, boolean exactComparison) throws SVNException {
+        TranslateInfo translateInfo = getCompareTranslateInfo(localAbsPath, hasProps || propMods);
+        return compareAndVerify(localAbsPath, pristineFile, translateInfo, exactComparison, new byte[STREAM_CHUNK_SIZE], new byte[STREAM_CHUNK_SIZE]);
+    }
+
+    /**
+     * Returns translation to apply when comparing working file with its pristine
+     * or <code>null</code> when files are to be compared as is.
+     */
+    private TranslateInfo getCompareTranslateInfo(File localAbsPath, boolean hasProps) throws SVNException {
         if (hasProps || isGlobalCharsetSpecified()) {
-            translateInfo = getTranslateInfo(localAbsPath, true, true, true, true);
-            translationRequired = isTranslationRequired(translateInfo.eolStyleInfo.eolStyle, translateInfo.eolStyleInfo.eolStr, translateInfo.charset, translateInfo.keywords, translateInfo.special, true);
+            TranslateInfo translateInfo = getTranslateInfo(localAbsPath, true, true, true, true);
+            if (isTranslationRequired(translateInfo.eolStyleInfo.eolStyle, translateInfo.eolStyleInfo.eolStr, translateInfo.charset, translateInfo.keywords, translateInfo.special, true)) {
+                return translateInfo;
+            }
         }
+        return null;
+    }
+
+    /**
+     * Compares working file with its pristine without reading working copy
+     * database, so that it is safe to call from several threads at once.
+     */
+    private static boolean compareAndVerify(File localAbsPath, File pristineFile, TranslateInfo translateInfo, boolean exactComparison, byte[] buf1, byte[] buf2) throws SVNException {
+        boolean translationRequired = translateInfo != null;
         if (!translationRequired && SVNFileUtil.getFileLength(localAbsPath) != pristineFile.length()) {
             return true;
         }
@@ -718,14 +910,14 @@ public class SVNWCContext {
                                 true);
                     }
                 }
-                return !isSameContents(versionedStream, pristineStream);
+                return !isSameContents(versionedStream, pristineStream, buf1, buf2);
             } finally {
                 SVNFileUtil.closeFile(pristineStream);
                 SVNFileUtil.closeFile(versionedStream);
                 SVNFileUtil.deleteFile(tmpFile);
             }
         } else {
-            return !isSameContents(localAbsPath, pristineFile);
+            return !isSameContents(localAbsPath, pristineFile, buf1, buf2);
         }
     }
 
@@ -791,12 +983,16 @@ public class SVNWCContext {
     }
 
     private boolean isSameContents(File file1, File file2) throws SVNException {
+        return isSameContents(file1, file2, new byte[STREAM_CHUNK_SIZE], new byte[STREAM_CHUNK_SIZE]);
+    }
+
+    private static boolean isSameContents(File file1, File file2, byte[] buf1, byte[] buf2) throws SVNException {
         InputStream stream1 = null;
         InputStream stream2 = null;
         try {
             stream1 = SVNFileUtil.openFileForReading(file1);
             stream2 = SVNFileUtil.openFileForReading(file2);
-            return isSameContents(stream1, stream2);
+            return isSameContents(stream1, stream2, buf1, buf2);
         } finally {
             try {
                 SVNFileUtil.closeFile(stream1);
@@ -806,20 +1002,28 @@ public class SVNWCContext {
         }
     }
 
-    private boolean isSameContents(InputStream stream1, InputStream stream2) throws SVNException {
+    private static boolean isSameContents(InputStream stream1, InputStream stream2, byte[] buf1, byte[] buf2) throws SVNException {
         try {
-            byte[] buf1 = new byte[STREAM_CHUNK_SIZE];
-            byte[] buf2 = new byte[STREAM_CHUNK_SIZE];
-            long bytes_read1 = STREAM_CHUNK_SIZE;
-            long bytes_read2 = STREAM_CHUNK_SIZE;
+            int bytes_read1 = STREAM_CHUNK_SIZE;
+            int bytes_read2 = STREAM_CHUNK_SIZE;
             boolean same = true; /* assume TRUE, until disproved below */
             while (bytes_read1 == STREAM_CHUNK_SIZE && bytes_read2 == STREAM_CHUNK_SIZE) {
-                bytes_read1 = stream1.read(buf1);
-                bytes_read2 = stream2.read(buf2);
-                if ((bytes_read1 != bytes_read2) || !(Arrays.equals(buf1, buf2))) {
+                bytes_read1 = stream1.read(buf1, 0, STREAM_CHUNK_SIZE);
+                bytes_read2 = stream2.read(buf2, 0, STREAM_CHUNK_SIZE);
+                if (bytes_read1 != bytes_read2) {
                     same = false;
                     break;
                 }
+                // buffers are reused between files, only bytes read this time are compared.
+                for (int i = 0; i < bytes_read1; i++) {
+                    if (buf1[i] != buf2[i]) {
+                        same = false;
+                        break;
+                    }
+                }
+                if (!same) {
+                    break;
+                }
             }
             return same;
         } catch (IOException e) {
@@ -293,6 +293,15 @@ public interface ISVNWCDb {
         public SVNDate date;
     }
     
+    /**
+     * Recorded size and modification time of a working file.
+     */
+    class WCDbFileinfo {
+
+        public long translatedSize;
+        public SVNDate lastModTime;
+    }
+    
     class SVNWCDbInfo {
         public SVNWCDbStatus status;
         public SVNWCDbKind kind;
@@ -1244,6 +1253,13 @@ public interface ISVNWCDb {
      */
     void globalRecordFileinfo(File local_abspath, long translated_size, SVNDate last_mod_time) throws SVNException;
 
+    /**
+     * Record the TRANSLATED_SIZE and LAST_MOD_TIME for several versioned nodes
+     * as {@link #globalRecordFileinfo(File, long, SVNDate)} does, but with one
+     * transaction per working copy root.
+     */
+    void globalRecordFileinfo(Map<File, WCDbFileinfo> fileinfos) throws SVNException;
+
     /** Add or replace LOCK for LOCAL_ABSPATH to DB. */
     void addLock(File localAbsPath, SVNWCDbLock lock) throws SVNException;
 
@@ -1314,6 +1314,51 @@ public class SVNWCDb implements ISVNWCDb {
         pdh.flushEntries(localAbspath);
     }
 
+    public void globalRecordFileinfo(Map<File, WCDbFileinfo> fileinfos) throws SVNException {
+        Map<SVNWCDbRoot, RecordFileinfos> transactions = new LinkedHashMap<SVNWCDbRoot, RecordFileinfos>();
+        Map<File, SVNWCDbDir> dirs = new HashMap<File, SVNWCDbDir>();
+        for (Map.Entry<File, WCDbFileinfo> fileinfo : fileinfos.entrySet()) {
+            File localAbspath = fileinfo.getKey();
+            assert (SVNFileUtil.isAbsolute(localAbspath));
+            final DirParsedInfo parsed = parseDir(localAbspath, Mode.ReadWrite);
+            SVNWCDbDir pdh = parsed.wcDbDir;
+            verifyDirUsable(pdh);
+            RecordFileinfos rb = transactions.get(pdh.getWCRoot());
+            if (rb == null) {
+                rb = new RecordFileinfos();
+                rb.wcRoot = pdh.getWCRoot();
+                transactions.put(rb.wcRoot, rb);
+            }
+            rb.fileinfos.put(parsed.localRelPath, fileinfo.getValue());
+            dirs.put(localAbspath, pdh);
+        }
+        for (RecordFileinfos rb : transactions.values()) {
+            rb.wcRoot.getSDb().runTransaction(rb);
+        }
+        for (Map.Entry<File, SVNWCDbDir> dir : dirs.entrySet()) {
+            dir.getValue().flushEntries(dir.getKey());
+        }
+    }
+
+    private class RecordFileinfos implements SVNSqlJetTransaction {
+
+        public Map<File, WCDbFileinfo> fileinfos = new LinkedHashMap<File, WCDbFileinfo>();
+        public SVNWCDbRoot wcRoot;
+
+        public void transaction(SVNSqlJetDb db) throws SqlJetException, SVNException {
+            SVNSqlJetStatement stmt = db.getStatement(SVNWCDbStatements.UPDATE_NODE_FILEINFO);
+            for (Map.Entry<File, WCDbFileinfo> fileinfo : fileinfos.entrySet()) {
+                try {
+                    stmt.bindf("isii", wcRoot.getWcId(), fileinfo.getKey(), fileinfo.getValue().translatedSize, fileinfo.getValue().lastModTime);
+                    long affectedRows = stmt.done();
+                    assert (affectedRows == 1);
+                } finally {
+                    stmt.reset();
+                }
+            }
+        }
+    }
+
     private class RecordFileinfo implements SVNSqlJetTransaction {
 
         public SVNDate lastModTime;
@@ -2204,6 +2249,7 @@ public class SVNWCDb implements ISVNWCDb {
         
         public void transaction(SVNSqlJetDb db) throws SqlJetException, SVNException {
             WCDbRepositoryInfo reposInfo = new WCDbRepositoryInfo();
+            Map<String, Long> wcLocks = null;
             
             SVNSqlJetStatement stmt = db.getStatement(SVNWCDbStatements.SELECT_NODE_CHILDREN_INFO);
             try {
@@ -2211,8 +2257,8 @@ public class SVNWCDb implements ISVNWCDb {
                 boolean haveRow = stmt.next();
 
                 while(haveRow) {
-                    File childRelPath = SVNFileUtil.createFilePath(getColumnText(stmt, SVNWCDbSchema.NODES__Fields.local_relpath));
-                    String name = SVNFileUtil.getFileName(childRelPath);
+                    String childRelPath = getColumnText(stmt, SVNWCDbSchema.NODES__Fields.local_relpath);
+                    String name = SVNPathUtil.tail(childRelPath);
                     GatheredChildItem childItem = (GatheredChildItem) nodes.get(name);
                     boolean newChild = false;
                     if (childItem == null) {
@@ -2255,17 +2301,23 @@ public class SVNWCDb implements ISVNWCDb {
                         } else {
                             childItem.depth = getColumnDepth(stmt, SVNWCDbSchema.NODES__Fields.depth);
                             if (newChild) {
-                                childItem.locked = isWCLocked(wcRoot, childRelPath, 0);
+                                if (wcLocks == null) {
+                                    wcLocks = loadWCLocks(db);
+                                }
+                                childItem.locked = isWCLocked(wcLocks, childRelPath);
                             }
                         }
                         childItem.recordedModTime = getColumnInt64(stmt, SVNWCDbSchema.NODES__Fields.last_mod_time);
                         childItem.recordedSize = getColumnInt64(stmt, SVNWCDbSchema.NODES__Fields.translated_size);
                         childItem.hasChecksum = !isColumnNull(stmt, SVNWCDbSchema.NODES__Fields.checksum);
-                        childItem.hadProps = !isColumnNull(stmt, SVNWCDbSchema.NODES__Fields.properties) && getColumnBlob(stmt, SVNWCDbSchema.NODES__Fields.properties).length > 2;
+                        final byte[] props = isColumnNull(stmt, SVNWCDbSchema.NODES__Fields.properties) ? null : getColumnBlob(stmt, SVNWCDbSchema.NODES__Fields.properties);
+                        childItem.hadProps = props != null && props.length > 2;
 
-                        if (childItem.hadProps) {
+                        if (childItem.hadProps && mayHaveSpecialProperty(props)) {
                             SVNProperties properties = getColumnProperties(stmt, SVNWCDbSchema.NODES__Fields.properties);
                             childItem.special = properties.getSVNPropertyValue(SVNProperty.SPECIAL) != null;
+                        } else {
+                            childItem.special = false;
                         }
 
                         if (opDepth == 0) {
@@ -2301,8 +2353,7 @@ public class SVNWCDb implements ISVNWCDb {
                 try {
                 stmt.bindf("is", wcRoot.getWcId(), dirRelPath);
                 while(stmt.next()) {
-                    File childRelPath = SVNFileUtil.createFilePath(getColumnText(stmt, SVNWCDbSchema.ACTUAL_NODE__Fields.local_relpath));
-                    String name = SVNFileUtil.getFileName(childRelPath);
+                    String name = SVNPathUtil.tail(getColumnText(stmt, SVNWCDbSchema.ACTUAL_NODE__Fields.local_relpath));
 
                     GatheredChildItem childItem = (GatheredChildItem) nodes.get(name);
                     if (childItem == null) {
@@ -2312,8 +2363,13 @@ public class SVNWCDb implements ISVNWCDb {
                     childItem.changelist = getColumnText(stmt, SVNWCDbSchema.ACTUAL_NODE__Fields.changelist);
                     childItem.propsMod = !isColumnNull(stmt, SVNWCDbSchema.ACTUAL_NODE__Fields.properties);
                     if (childItem.propsMod) {
-                        SVNProperties properties = getColumnProperties(stmt, SVNWCDbSchema.ACTUAL_NODE__Fields.properties);
-                        childItem.special = properties.getSVNPropertyValue(SVNProperty.SPECIAL) != null;
+                        final byte[] props = getColumnBlob(stmt, SVNWCDbSchema.ACTUAL_NODE__Fields.properties);
+                        if (mayHaveSpecialProperty(props)) {
+                            SVNProperties properties = getColumnProperties(stmt, SVNWCDbSchema.ACTUAL_NODE__Fields.properties);
+                            childItem.special = properties.getSVNPropertyValue(SVNProperty.SPECIAL) != null;
+                        } else {
+                            childItem.special = false;
+                        }
                     }
                     childItem.conflicted = !isColumnNull(stmt, SVNWCDbSchema.ACTUAL_NODE__Fields.conflict_old) ||
                                             !isColumnNull(stmt, SVNWCDbSchema.ACTUAL_NODE__Fields.conflict_new) ||
@@ -2328,9 +2384,69 @@ public class SVNWCDb implements ISVNWCDb {
                 stmt.reset();
             }
         }
-        
+
+        private Map<String, Long> loadWCLocks(SVNSqlJetDb db) throws SVNException {
+            final Map<String, Long> locks = new HashMap<String, Long>();
+            final SVNSqlJetStatement stmt = db.getStatement(SVNWCDbStatements.SELECT_WC_LOCKS);
+            try {
+                stmt.bindf("i", wcRoot.getWcId());
+                while (stmt.next()) {
+                    locks.put(getColumnText(stmt, WC_LOCK__Fields.local_dir_relpath), getColumnInt64(stmt, WC_LOCK__Fields.locked_levels));
+                }
+            } finally {
+                stmt.reset();
+            }
+            return locks;
+        }
+
+        /*
+         * Same as isWCLocked(root, localRelpath, 0), but evaluated against the
+         * WC_LOCK rows preloaded once per directory: the nearest locked ancestor
+         * (or the node itself) decides.
+         */
+        private boolean isWCLocked(Map<String, Long> wcLocks, String localRelpath) {
+            if (wcLocks.isEmpty()) {
+                return false;
+            }
+            final int pathDepth = SVNWCUtils.relpathDepth(localRelpath);
+            String lockedPath = localRelpath;
+            while (true) {
+                final Long lockedLevels = wcLocks.get(lockedPath);
+                if (lockedLevels != null) {
+                    return lockedLevels.longValue() == -1 || lockedLevels.longValue() + SVNWCUtils.relpathDepth(lockedPath) >= pathDepth;
+                }
+                if ("".equals(lockedPath)) {
+                    return false;
+                }
+                lockedPath = SVNPathUtil.removeTail(lockedPath);
+            }
+        }
+
     }
     
+    private static final byte[] SPECIAL_PROPERTY_NAME = SVNProperty.SPECIAL.getBytes();
+
+    /*
+     * Property names are stored verbatim in the skel, so a properties blob
+     * that does not contain "svn:special" need not be parsed at all.
+     */
+    private static boolean mayHaveSpecialProperty(byte[] props) {
+        if (props == null) {
+            return false;
+        }
+        final int last = props.length - SPECIAL_PROPERTY_NAME.length;
+        outer:
+        for (int i = 0; i <= last; i++) {
+            for (int j = 0; j < SPECIAL_PROPERTY_NAME.length; j++) {
+                if (props[i + j] != SPECIAL_PROPERTY_NAME[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
     private static class GatheredChildItem extends SVNWCDbInfo {
         public int layersCount;
         public long opDepth;
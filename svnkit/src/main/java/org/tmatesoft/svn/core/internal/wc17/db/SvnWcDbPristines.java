@@ -218,7 +218,8 @@ public class SvnWcDbPristines extends SvnWcDbShared {
 
     public static void installPristine(SVNWCDbRoot root, File tempfileAbspath, SvnChecksum sha1Checksum, SvnChecksum md5Checksum) throws SVNException {
         File pristineAbspath = getPristineFileName(root, sha1Checksum, true);
-        if (pristineAbspath.isFile()) {
+        // a pristine file without a row is left by a rolled back transaction and is replaced
+        if (pristineAbspath.isFile() && checkPristine(root, sha1Checksum)) {
             SVNFileUtil.deleteFile(tempfileAbspath);
             return;
         }
@@ -33,6 +33,7 @@ public class SVNWCDbSelectNodeChildrenInfo extends SVNSqlJetSelectStatement {
     }
 
     private LockStatement lockStatement;
+    private boolean lockFetched;
 
     public SVNWCDbSelectNodeChildrenInfo(SVNSqlJetDb sDb) throws SVNException {
         super(sDb, SVNWCDbSchema.NODES);
@@ -43,23 +44,36 @@ public class SVNWCDbSelectNodeChildrenInfo extends SVNSqlJetSelectStatement {
 
     public boolean next() throws SVNException {
         lockStatement.reset();
-        final boolean next = super.next();
-        if (next) {
-            lockStatement.bindLong(1, getColumnLong(SVNWCDbSchema.NODES__Fields.repos_id.toString()));
-            lockStatement.bindString(2, getColumnString(SVNWCDbSchema.NODES__Fields.repos_path.toString()));
-            lockStatement.next();
-        }
-        return next;
+        lockFetched = false;
+        return super.next();
     }
 
     @Override
     public SVNSqlJetStatement getJoinedStatement(String joinedTable) throws SVNException {
         if (SVNWCDbSchema.LOCK.toString().equalsIgnoreCase(joinedTable)) {
+            if (isColumnNull(SVNWCDbSchema.NODES__Fields.repos_id.toString())) {
+                return null;
+            }
+            if (!lockFetched) {
+                // the lock row is only looked up for the rows that ask for it (BASE nodes);
+                // working rows of the directory never touch the LOCK table.
+                lockFetched = true;
+                lockStatement.bindLong(1, getColumnLong(SVNWCDbSchema.NODES__Fields.repos_id.toString()));
+                lockStatement.bindString(2, getColumnString(SVNWCDbSchema.NODES__Fields.repos_path.toString()));
+                lockStatement.next();
+            }
             return lockStatement;
         }
         return super.getJoinedStatement(joinedTable);
     }
 
+    @Override
+    public void reset() throws SVNException {
+        lockStatement.reset();
+        lockFetched = false;
+        super.reset();
+    }
+
     @Override
     protected Object[] getWhere() throws SVNException {
         return new Object[] {getBind(1), getBind(2)};
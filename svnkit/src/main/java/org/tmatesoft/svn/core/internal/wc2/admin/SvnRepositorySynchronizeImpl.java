@@ -14,6 +14,9 @@ public class SvnRepositorySynchronizeImpl extends SvnRepositoryOperationRunner<S
     protected SVNAdminEvent run() throws SVNException {
         SVNAdminClient ac = new SVNAdminClient(getOperation().getAuthenticationManager(), getOperation().getOptions());
         ac.setEventHandler(this);
+        if (getOperation().getPipelineDepth() > 1) {
+            ac.setReplayPipelineDepth(getOperation().getPipelineDepth());
+        }
                 
         ac.doSynchronize(getOperation().getToURL());
         
@@ -19,6 +19,7 @@ import org.tmatesoft.svn.core.wc2.AbstractSvnUpdate;
 import org.tmatesoft.svn.core.wc2.SvnOperationFactory;
 import org.tmatesoft.svn.core.wc2.SvnRelocate;
 import org.tmatesoft.svn.core.wc2.SvnTarget;
+import org.tmatesoft.svn.util.SVNDebugLog;
 import org.tmatesoft.svn.util.SVNLogType;
 
 import java.io.File;
@@ -188,12 +189,18 @@ public abstract class SvnNgAbstractUpdate<V, T extends AbstractSvnUpdate<V>> ext
                 externalsStore,
                 preservedExts);
                 
+        boolean batched = SVNUpdateEditor17.isBatchingEnabled();
+        boolean updated = false;
         try {
             repos.update(revNumber, target, depthIsSticky ? depth : SVNDepth.UNKNOWN, false, reporter, editor);
+            updated = true;
         } catch(SVNException e) {
             sleepForTimestamp();
             throw e;
         } finally {
+            if (batched && !updated) {
+                abortEdit(editor);
+            }
             if (repos2[0] != null) {
                 repos2[0].closeSession();
             }
@@ -217,6 +224,19 @@ public abstract class SvnNgAbstractUpdate<V, T extends AbstractSvnUpdate<V>> ext
         return targetRevision;
     }
 
+    /**
+     * Lets the editor end its pending batch of working copy database changes
+     * when the update fails. The update error is the one reported, so a failure
+     * to end the batch is only logged.
+     */
+    private static void abortEdit(ISVNUpdateEditor editor) {
+        try {
+            editor.abortEdit();
+        } catch (SVNException e) {
+            SVNDebugLog.getDefaultLog().logError(SVNLogType.WC, e);
+        }
+    }
+
     protected void handleExternals(Map<File, String> newExternals, Map<File, SVNDepth> ambientDepths, SVNURL anchorUrl, File targetAbspath, SVNURL reposRoot, SVNDepth requestedDepth, boolean sleepForTimestamp) throws SVNException {
         Map<File, File> oldExternals = getWcContext().getDb().getExternalsDefinedBelow(targetAbspath);
         
@@ -683,11 +703,18 @@ public abstract class SvnNgAbstractUpdate<V, T extends AbstractSvnUpdate<V>> ext
                 revnum, anchor, target, useCommitTimes, switchRevUrl, depth, depthIsSticky, allowUnversionedObstructions, 
                 false, serverSupportsDepth, false, dirFetcher, externalsStore, preservedExts);
         
+        boolean batched = SVNUpdateEditor17.isBatchingEnabled();
+        boolean updated = false;
         try {
             repository.update(switchRevUrl, revnum, target, depthIsSticky ? depth : SVNDepth.UNKNOWN, reporter, editor);
+            updated = true;
         } catch (SVNException e) {
             sleepForTimestamp();
             throw e;
+        } finally {
+            if (batched && !updated) {
+                abortEdit(editor);
+            }
         }
         if (depth.isRecursive() && !getOperation().isIgnoreExternals()) {
             getWcContext().getDb().gatherExternalDefinitions(localAbsPath, externalsStore);
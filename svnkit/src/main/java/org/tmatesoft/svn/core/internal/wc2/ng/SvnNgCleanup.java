@@ -1,9 +1,12 @@
 package org.tmatesoft.svn.core.internal.wc2.ng;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 
+import org.tmatesoft.svn.core.SVNCancelException;
 import org.tmatesoft.svn.core.SVNErrorCode;
 import org.tmatesoft.svn.core.SVNErrorMessage;
 import org.tmatesoft.svn.core.SVNException;
@@ -23,6 +26,9 @@ import org.tmatesoft.svn.util.SVNLogType;
 
 public class SvnNgCleanup extends SvnNgOperationRunner<Void, SvnCleanup> {
 
+    private static final int REPAIR_BATCH_SIZE = 1000;
+    private static final int COMPARE_THREADS_COUNT = Integer.getInteger("svnkit.wc.compareThreads", Math.min(4, Runtime.getRuntime().availableProcessors()));
+
     @Override
     protected Void run(SVNWCContext context) throws SVNException {
         
@@ -83,6 +89,12 @@ public class SvnNgCleanup extends SvnNgOperationRunner<Void, SvnCleanup> {
     }
     
     public static void repairTimestamps(SVNWCContext wcContext, File localAbsPath) throws SVNException {
+        List<File> files = new ArrayList<File>();
+        collectTimestampsTargets(wcContext, localAbsPath, files);
+        repairTimestamps(wcContext, files);
+    }
+
+    private static void collectTimestampsTargets(SVNWCContext wcContext, File localAbsPath, List<File> files) throws SVNException {
     	wcContext.checkCancelled();
     	WCDbInfo info = wcContext.getDb().readInfo(localAbsPath, InfoField.status, InfoField.kind);
     	if (info.status == ISVNWCDb.SVNWCDbStatus.ServerExcluded
@@ -93,19 +105,39 @@ public class SvnNgCleanup extends SvnNgOperationRunner<Void, SvnCleanup> {
     		return;
     	}
     	if (info.kind == ISVNWCDb.SVNWCDbKind.File || info.kind == ISVNWCDb.SVNWCDbKind.Symlink) {
-    	    try {
-    	        wcContext.isTextModified(localAbsPath, false);
-    	    } catch (SVNException e) {
-    	        SVNDebugLog.getDefaultLog().log(SVNLogType.WC, e, Level.WARNING);
+    	    files.add(localAbsPath);
+    	    if (files.size() >= REPAIR_BATCH_SIZE) {
+    	        repairTimestamps(wcContext, files);
+    	        files.clear();
     	    }
     	}
     	else if (info.kind == ISVNWCDb.SVNWCDbKind.Dir) {
     		Set<String> children = wcContext.getDb().readChildren(localAbsPath);
     		for (String childPath : children) {
     			File childAbsPath = SVNFileUtil.createFilePath(localAbsPath, childPath);
-    			repairTimestamps(wcContext, childAbsPath);
+    			collectTimestampsTargets(wcContext, childAbsPath, files);
     		}
     	}
     	return;
     }
+
+    private static void repairTimestamps(SVNWCContext wcContext, List<File> files) throws SVNException {
+        if (files.isEmpty()) {
+            return;
+        }
+        try {
+            wcContext.isTextModified(files, false, COMPARE_THREADS_COUNT);
+        } catch (SVNCancelException e) {
+            throw e;
+        } catch (SVNException e) {
+            // check files one by one to skip only those that can not be compared.
+            for (File file : files) {
+                try {
+                    wcContext.isTextModified(file, false);
+                } catch (SVNException inner) {
+                    SVNDebugLog.getDefaultLog().log(SVNLogType.WC, inner, Level.WARNING);
+                }
+            }
+        }
+    }
 }
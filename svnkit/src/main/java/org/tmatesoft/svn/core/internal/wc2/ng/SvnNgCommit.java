@@ -31,6 +31,7 @@ import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
 import org.tmatesoft.svn.core.internal.wc.SVNPropertiesManager;
 import org.tmatesoft.svn.core.internal.wc17.SVNCommitMediator17;
 import org.tmatesoft.svn.core.internal.wc17.SVNCommitter17;
+import org.tmatesoft.svn.core.internal.wc17.SVNWCChangeJournal;
 import org.tmatesoft.svn.core.internal.wc17.SVNWCContext;
 import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb.SVNWCDbKind;
 import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb.SVNWCDbStatus;
@@ -83,10 +84,19 @@ public class SvnNgCommit extends SvnNgOperationRunner<SVNCommitInfo, SvnCommit>
             packet.setLockingContext(this, lockedRoots);
             
             Map<SVNURL, String> lockTokens = new HashMap<SVNURL, String>();
-            SvnNgCommitUtil.harvestCommittables(getWcContext(), packet, lockTokens, 
-                    baseDir, targets, getOperation().getDepth(), 
-                    !getOperation().isKeepLocks(), getOperation().getApplicableChangelists(), 
-                    this, getOperation().getCommitParameters(), null);
+            SVNWCChangeJournal changeJournal = getOperation().getOperationFactory().getChangeJournal();
+            if (changeJournal != null) {
+                changeJournal.synchronize();
+                getWcContext().setChangeJournal(changeJournal);
+            }
+            try {
+                SvnNgCommitUtil.harvestCommittables(getWcContext(), packet, lockTokens, 
+                        baseDir, targets, getOperation().getDepth(), 
+                        !getOperation().isKeepLocks(), getOperation().getApplicableChangelists(), 
+                        this, getOperation().getCommitParameters(), null);
+            } finally {
+                getWcContext().setChangeJournal(null);
+            }
             packet.setLockTokens(lockTokens);
             
             if (getOperation().isFailOnMultipleRepositories() && packet.getRepositoryRoots().size() > 1) {                
@@ -119,6 +119,12 @@ public class SvnNgGetStatus extends SvnNgOperationRunner<SvnStatus, SvnGetStatus
                     depth,
                     this);
             editor.setFileListHook(getOperation().getFileListHook());
+            editor.setThreadsCount(getOperation().getThreadsCount());
+            SVNWCChangeJournal changeJournal = getOperation().getOperationFactory().getChangeJournal();
+            if (changeJournal != null) {
+                changeJournal.synchronize();
+                context.setChangeJournal(changeJournal);
+            }
             try {
                 editor.walkStatus(getFirstTarget(),
                         depth,
@@ -132,6 +138,8 @@ public class SvnNgGetStatus extends SvnNgOperationRunner<SvnStatus, SvnGetStatus
                     SVNErrorManager.error(err, SVNLogType.WC);
                 }
                 throw e;
+            } finally {
+                context.setChangeJournal(null);
             }
         }
         
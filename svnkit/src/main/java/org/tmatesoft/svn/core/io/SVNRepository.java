@@ -50,6 +50,7 @@ import org.tmatesoft.svn.core.internal.util.SVNHashSet;
 import org.tmatesoft.svn.core.internal.util.SVNPathUtil;
 import org.tmatesoft.svn.core.internal.wc.SVNErrorManager;
 import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
+import org.tmatesoft.svn.core.internal.wc.SVNReplayPipeline;
 import org.tmatesoft.svn.core.io.diff.SVNDeltaGenerator;
 import org.tmatesoft.svn.core.io.diff.SVNDiffWindow;
 import org.tmatesoft.svn.util.ISVNDebugLog;
@@ -2298,6 +2299,48 @@ public abstract class SVNRepository {
         }
     }
 
+    /**
+     * Replays the changes from a range of revisions between <code>startRevision</code>
+     * and <code>endRevision</code> keeping up to <code>pipelineDepth</code> revisions in flight.
+     *
+     * <p/>
+     * Behaves like {@link #replayRange(long, long, long, boolean, ISVNReplayHandler)}. If the server
+     * does not support revision range replication, the next revisions are requested with separate
+     * sessions and buffered in memory while <code>handler</code> is still consuming the current one.
+     * At most <code>pipelineDepth</code> revisions are buffered at a time; a revision that does not fit
+     * into the buffer (8 MB unless <code>svnkit.replay.maxBufferedRevisionSize</code> system property
+     * is set) is replayed with this session directly.
+     * <code>handler</code> and editors it provides are called on the calling thread only and
+     * in revision order.
+     *
+     * @param  startRevision    revision range start
+     * @param  endRevision      revision range end
+     * @param  lowRevision      low water mark revision
+     * @param  sendDeltas       whether to ask the server send text and properties
+     * @param  handler          caller's handler
+     * @param  pipelineDepth    maximum number of revisions requested ahead of <code>handler</code>,
+     *                          values less than 2 turn pipelining off
+     * @throws SVNException
+     * @since                   1.7
+     */
+    public void replayRange(long startRevision, long endRevision, long lowRevision, boolean sendDeltas,
+            ISVNReplayHandler handler, int pipelineDepth) throws SVNException {
+        if (pipelineDepth <= 1 || startRevision >= endRevision) {
+            replayRange(startRevision, endRevision, lowRevision, sendDeltas, handler);
+            return;
+        }
+        try {
+            replayRangeImpl(startRevision, endRevision, lowRevision, sendDeltas, handler);
+        } catch (SVNException svne) {
+            if (svne.getErrorMessage().getErrorCode() == SVNErrorCode.RA_NOT_IMPLEMENTED) {
+                SVNReplayPipeline pipeline = new SVNReplayPipeline(this, pipelineDepth);
+                pipeline.replayRange(startRevision, endRevision, lowRevision, sendDeltas, handler);
+            } else {
+                throw svne;
+            }
+        }
+    }
+
     /**
      * Gets an editor for committing changes to a repository. Having got the editor
      * traverse a local tree of dirs and/or files to be committed, handling them    
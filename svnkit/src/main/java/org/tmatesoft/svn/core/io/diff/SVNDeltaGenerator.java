@@ -22,6 +22,7 @@ import org.tmatesoft.svn.core.SVNErrorMessage;
 import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.internal.delta.SVNDeltaAlgorithm;
 import org.tmatesoft.svn.core.internal.delta.SVNXDeltaAlgorithm;
+import org.tmatesoft.svn.core.internal.delta.SVNXDeltaFastAlgorithm;
 import org.tmatesoft.svn.core.internal.wc.IOExceptionWrapper;
 import org.tmatesoft.svn.core.internal.wc.SVNErrorManager;
 import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
@@ -44,7 +45,9 @@ import org.tmatesoft.svn.util.SVNLogType;
  */
 public class SVNDeltaGenerator {
     
-    private SVNDeltaAlgorithm myXDelta = new SVNXDeltaAlgorithm();
+    private static final boolean ourIsFastXDelta = Boolean.valueOf(System.getProperty("svnkit.delta.fastXDelta", "true")).booleanValue();
+
+    private SVNDeltaAlgorithm myXDelta = ourIsFastXDelta ? (SVNDeltaAlgorithm) new SVNXDeltaFastAlgorithm() : new SVNXDeltaAlgorithm();
     
     private byte[] mySourceBuffer;
     private byte[] myTargetBuffer;
@@ -40,6 +40,7 @@ import org.tmatesoft.svn.core.SVNRevisionProperty;
 import org.tmatesoft.svn.core.SVNURL;
 import org.tmatesoft.svn.core.auth.ISVNAuthenticationManager;
 import org.tmatesoft.svn.core.internal.io.fs.FSFS;
+import org.tmatesoft.svn.core.internal.io.fs.FSLogIndex;
 import org.tmatesoft.svn.core.internal.io.fs.FSHotCopier;
 import org.tmatesoft.svn.core.internal.io.fs.FSPacker;
 import org.tmatesoft.svn.core.internal.io.fs.FSRecoverer;
@@ -54,6 +55,7 @@ import org.tmatesoft.svn.core.internal.wc.DefaultLoadHandler;
 import org.tmatesoft.svn.core.internal.wc.ISVNLoadHandler;
 import org.tmatesoft.svn.core.internal.wc.SVNAdminDeltifier;
 import org.tmatesoft.svn.core.internal.wc.SVNAdminHelper;
+import org.tmatesoft.svn.core.internal.wc.SVNAdminVerifier;
 import org.tmatesoft.svn.core.internal.wc.SVNCancellableEditor;
 import org.tmatesoft.svn.core.internal.wc.SVNDumpEditor;
 import org.tmatesoft.svn.core.internal.wc.SVNDumpStreamParser;
@@ -136,8 +138,10 @@ public class SVNAdminClient extends SVNAdminBasicClient {
     private FSHotCopier myHotCopier;
     private SVNDumpStreamParser myDumpStreamParser;
     private SVNDumpEditor myDumpEditor;
+    private int myReplayPipelineDepth = DEFAULT_REPLAY_PIPELINE_DEPTH;
 
     private static final int LOCK_RETRY_COUNT = 10;
+    private static final int DEFAULT_REPLAY_PIPELINE_DEPTH = Integer.getInteger("svnkit.sync.pipelineDepth", 1).intValue();
 
     /**
      * Creates a new admin client.
@@ -173,6 +177,33 @@ public class SVNAdminClient extends SVNAdminBasicClient {
         mySyncHandler = handler;
     }
 
+    /**
+     * Sets the maximum number of source revisions {@link #doSynchronize(SVNURL)} requests ahead of
+     * the one being committed to the destination repository. Applies to servers that do not support
+     * revision range replication, revisions requested ahead are buffered in memory.
+     *
+     * <p>
+     * Defaults to the value of <code>svnkit.sync.pipelineDepth</code> system property, or to 1
+     * which means revisions are replayed one by one.
+     *
+     * @param depth  number of revisions in flight
+     * @since        1.7
+     */
+    public void setReplayPipelineDepth(int depth) {
+        myReplayPipelineDepth = depth;
+    }
+
+    /**
+     * Returns the maximum number of source revisions requested ahead during synchronization.
+     *
+     * @return number of revisions in flight
+     * @see    #setReplayPipelineDepth(int)
+     * @since  1.7
+     */
+    public int getReplayPipelineDepth() {
+        return myReplayPipelineDepth;
+    }
+
     /**
      * Sets an event handler for this object.
      * {@link ISVNAdminEventHandler} should be provided to <b>SVNAdminClent</b>
@@ -582,6 +613,29 @@ public class SVNAdminClient extends SVNAdminBasicClient {
 
     }
 
+    /**
+     * Builds the log index of a repository, replacing the existing one.
+     *
+     * <p/>
+     * The log index maps paths to the revisions that changed them, so that
+     * history of paths is read from the index instead of being walked node by
+     * node. Once built, the index is kept up to date by SVNKit: revisions
+     * committed since the last update, by SVNKit or by other Subversion
+     * implementations, are indexed by the next log.
+     *
+     * @param  repositoryRoot  root of the repository to build the index for
+     * @throws SVNException
+     * @since  1.7
+     */
+    public void doBuildLogIndex(File repositoryRoot) throws SVNException {
+        FSFS fsfs = SVNAdminHelper.openRepository(repositoryRoot, true);
+        try {
+            FSLogIndex.create(fsfs);
+        } finally {
+            SVNAdminHelper.closeRepository(fsfs);
+        }
+    }
+
     /**
      * Completely synchronizes two repositories.
      *
@@ -705,7 +759,7 @@ public class SVNAdminClient extends SVNAdminBasicClient {
             SVNReplayHandler replayHandler = new SVNReplayHandler(toRepos, hasCommitRevPropCapability,
                     mySyncHandler, getDebugLog(), this, this);
 
-            fromRepos.replayRange(startRevision, endRevision, 0, true, replayHandler);
+            fromRepos.replayRange(startRevision, endRevision, 0, true, replayHandler, myReplayPipelineDepth);
             handleNormalizedProperties(normalizedRevPropsCount + replayHandler.getNormalizedRevPropsCount(),
                     replayHandler.getNormalizedNodePropsCount());
         } catch (SVNException svne) {
@@ -938,7 +992,7 @@ public class SVNAdminClient extends SVNAdminBasicClient {
      * @since                   1.2.0, SVN 1.5.0
      */
     public void doVerify(File repositoryRoot, SVNRevision startRevision, SVNRevision endRevision) throws SVNException {
-        FSFS fsfs = SVNAdminHelper.openRepository(repositoryRoot, true);
+        FSFS fsfs = SVNAdminHelper.openRepositoryForVerification(repositoryRoot);
         try {
             long youngestRevision = fsfs.getYoungestRevision();
 
@@ -955,6 +1009,58 @@ public class SVNAdminClient extends SVNAdminBasicClient {
         }
     }
 
+    /**
+     * Verifies repository contents found under <code>repositoryRoot</code> starting at <code>startRevision</code>
+     * and up to <code>endRevision</code> using <code>threadsCount</code> threads. Each thread verifies
+     * its own part of the revision range with separate repository handles, while events are fired
+     * to the registered {@link ISVNAdminEventHandler} on the calling thread in revision order.
+     *
+     * <p/>
+     * If <code>keepGoing</code> is <span class="javakeyword">false</span>, verification stops at the first
+     * corrupted revision. Otherwise each corrupted revision is reported with an {@link SVNAdminEvent} with
+     * action set to {@link SVNAdminEventAction#REVISION_VERIFICATION_FAILED}, and an exception is thrown
+     * only after all revisions have been verified.
+     *
+     * @param  repositoryRoot   a repository root directory path
+     * @param  startRevision    revision to start verification at
+     * @param  endRevision      revision to stop verification at
+     * @param  threadsCount     number of verifying threads
+     * @param  keepGoing        whether to continue verification after a corrupted revision
+     * @throws SVNException     verification failed - a repository may be corrupted
+     * @since                   1.7
+     */
+    public void doVerify(File repositoryRoot, SVNRevision startRevision, SVNRevision endRevision, int threadsCount, boolean keepGoing) throws SVNException {
+        if (threadsCount <= 1 && !keepGoing) {
+            doVerify(repositoryRoot, startRevision, endRevision);
+            return;
+        }
+        long lowerRev;
+        long upperRev;
+        FSFS fsfs = SVNAdminHelper.openRepository(repositoryRoot, true);
+        try {
+            long youngestRevision = fsfs.getYoungestRevision();
+
+            lowerRev = SVNAdminHelper.getRevisionNumber(startRevision, youngestRevision, fsfs);
+            upperRev = SVNAdminHelper.getRevisionNumber(endRevision, youngestRevision, fsfs);
+
+            if (!SVNRevision.isValidRevisionNumber(upperRev)) {
+                upperRev = lowerRev;
+            }
+            if (!SVNRevision.isValidRevisionNumber(lowerRev)) {
+                lowerRev = 0;
+            }
+            if (!SVNRevision.isValidRevisionNumber(upperRev)) {
+                upperRev = youngestRevision;
+            }
+            checkVerifyRange(lowerRev, upperRev, youngestRevision);
+        } finally {
+            SVNAdminHelper.closeRepository(fsfs);
+        }
+
+        SVNAdminVerifier verifier = new SVNAdminVerifier(repositoryRoot, threadsCount, keepGoing, getEventDispatcher(), getDebugLog());
+        verifier.verify(lowerRev, upperRev, myEventHandler);
+    }
+
     /**
      * Dumps contents of the repository to the provided output stream in a
      * 'dumpfile' portable format.
@@ -1374,18 +1480,7 @@ public class SVNAdminClient extends SVNAdminBasicClient {
             endRev = youngestRev;
         }
 
-        if (startRev > endRev) {
-            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.REPOS_BAD_ARGS, "Start revision {0} is greater than end revision {1}",
-                    new Object[] { String.valueOf(startRev), String.valueOf(endRev) });
-            SVNErrorManager.error(err, SVNLogType.FSFS);
-        }
-
-        if (endRev > youngestRev) {
-            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.REPOS_BAD_ARGS,
-                    "End revision {0} is invalid (youngest revision is {1})", new Object[] { String.valueOf(endRev),
-                    String.valueOf(youngestRev) });
-            SVNErrorManager.error(err, SVNLogType.FSFS);
-        }
+        checkVerifyRange(startRev, endRev, youngestRev);
 
         for (long rev = startRev; rev <= endRev; rev++) {
             FSRevisionRoot toRoot = fsfs.createRevisionRoot(rev);
@@ -1402,6 +1497,21 @@ public class SVNAdminClient extends SVNAdminBasicClient {
         }
     }
 
+    private static void checkVerifyRange(long startRev, long endRev, long youngestRev) throws SVNException {
+        if (startRev > endRev) {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.REPOS_BAD_ARGS, "Start revision {0} is greater than end revision {1}",
+                    new Object[] { String.valueOf(startRev), String.valueOf(endRev) });
+            SVNErrorManager.error(err, SVNLogType.FSFS);
+        }
+
+        if (endRev > youngestRev) {
+            SVNErrorMessage err = SVNErrorMessage.create(SVNErrorCode.REPOS_BAD_ARGS,
+                    "End revision {0} is invalid (youngest revision is {1})", new Object[] { String.valueOf(endRev),
+                    String.valueOf(youngestRev) });
+            SVNErrorManager.error(err, SVNLogType.FSFS);
+        }
+    }
+
     private void dump(FSFS fsfs, OutputStream dumpStream, long start, long end, boolean isIncremental, boolean useDeltas) throws SVNException {
         boolean isDumping = dumpStream != null && dumpStream != SVNFileUtil.DUMMY_OUT;
         long youngestRevision = fsfs.getYoungestRevision();
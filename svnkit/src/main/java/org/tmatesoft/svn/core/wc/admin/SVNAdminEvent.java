@@ -105,6 +105,20 @@ public class SVNAdminEvent {
         myAction = action;
     }
 
+    /**
+     * Creates a new event.
+     *
+     * @param revision    a revision number
+     * @param action      an event action
+     * @param error       an error message (if an error occurred)
+     * @param message     an event description message
+     * @since             1.7
+     */
+    public SVNAdminEvent(long revision, SVNAdminEventAction action, SVNErrorMessage error, String message) {
+        this(revision, action, message);
+        myError = error;
+    }
+
     /**
      * Creates a new event.
      * 
@@ -206,4 +206,12 @@ public class SVNAdminEventAction {
     
     public static final SVNAdminEventAction NORMALIZED_PROPERTIES = new SVNAdminEventAction(25);
 
+    /**
+     * Informs that a revision failed verification, the cause is available
+     * through {@link SVNAdminEvent#getError()}.
+     *
+     * @since 1.7
+     */
+    public static final SVNAdminEventAction REVISION_VERIFICATION_FAILED = new SVNAdminEventAction(26);
+
 }
@@ -63,6 +63,7 @@ public class SvnGetStatus extends SvnReceivingOperation<SvnStatus> {
     private ISvnFileListHook fileListHook;
     private boolean collectParentExternals;
     private long remoteRevision;
+    private int threadsCount;
 
     protected SvnGetStatus(SvnOperationFactory factory) {
         super(factory);
@@ -192,6 +193,29 @@ public class SvnGetStatus extends SvnReceivingOperation<SvnStatus> {
         this.fileListHook = fileListHook;
     }
     
+    /**
+     * Returns the number of threads used to walk the working copy.
+     * 
+     * @return number of threads
+     * @see #setThreadsCount(int)
+     */
+    public int getThreadsCount() {
+        return threadsCount;
+    }
+
+    /**
+     * Sets the number of threads used to walk subdirectories of a local
+     * (not remote) status of infinite depth. Statuses are still passed to the
+     * receiver on the calling thread and in the same order as with a single thread,
+     * but the file list hook, if set, is called from several threads.
+     * Defaults to the <code>svnkit.wc.statusThreads</code> system property value, or to 1.
+     * 
+     * @param threadsCount number of threads
+     */
+    public void setThreadsCount(int threadsCount) {
+        this.threadsCount = threadsCount;
+    }
+    
     @Override
     protected void ensureArgumentsAreValid() throws SVNException {
         super.ensureArgumentsAreValid();
@@ -210,6 +234,7 @@ public class SvnGetStatus extends SvnReceivingOperation<SvnStatus> {
         setReportIgnored(true);
         setReportExternals(true);
         setRemoteRevision(SVNWCContext.INVALID_REVNUM);
+        setThreadsCount(Integer.getInteger("svnkit.wc.statusThreads", 1).intValue());
     }
 
     /**
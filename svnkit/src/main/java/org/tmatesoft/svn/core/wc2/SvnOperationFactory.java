@@ -30,6 +30,7 @@ import org.tmatesoft.svn.core.internal.wc.admin.SVNAdminAreaFactory;
 import org.tmatesoft.svn.core.internal.wc.admin.SVNVersionedProperties;
 import org.tmatesoft.svn.core.internal.wc.admin.SVNWCAccess;
 import org.tmatesoft.svn.core.internal.wc17.SVNExternalsStore;
+import org.tmatesoft.svn.core.internal.wc17.SVNWCChangeJournal;
 import org.tmatesoft.svn.core.internal.wc17.SVNWCContext;
 import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb;
 import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb.SVNWCDbKind;
@@ -235,6 +236,8 @@ public class SvnOperationFactory implements ISvnOperationOptionsProvider {
     private boolean autoCloseContext;
     private boolean autoDisposeRepositoryPool;
     private SVNWCContext wcContext;
+    private boolean fileChangeJournalEnabled;
+    private SVNWCChangeJournal changeJournal;
     
     private SvnWcGeneration primaryWcGeneration;
     private int runLevel;
@@ -263,6 +266,7 @@ public class SvnOperationFactory implements ISvnOperationOptionsProvider {
             eventHandler = wcContext.getEventHandler();
         }
         setAutoCloseContext(wcContext == null);
+        setFileChangeJournalEnabled("true".equalsIgnoreCase(System.getProperty("svnkit.wc.changeJournal", null)));
         
         registerRunners();
     }
@@ -449,6 +453,54 @@ public class SvnOperationFactory implements ISvnOperationOptionsProvider {
         this.autoCloseContext = autoCloseContext;
     }
 
+    /**
+     * Returns whether working file attributes are remembered between operations
+     * of this factory.
+     *
+     * @return <code>true</code> if file change journal is enabled, otherwise <code>false</code>
+     * @see #setFileChangeJournalEnabled(boolean)
+     */
+    public boolean isFileChangeJournalEnabled() {
+        return fileChangeJournalEnabled;
+    }
+
+    /**
+     * Sets whether working file attributes are remembered between operations of this
+     * factory. When enabled, status and commit read directory listings and file sizes
+     * and timestamps from a journal that watches working copy directories for changes,
+     * so that repeated operations on a large, mostly unchanged working copy do not
+     * stat every file again. Files are watched only on platforms where change
+     * notifications are reliable (Linux); elsewhere this setting has no effect.
+     * Default value is taken from <code>svnkit.wc.changeJournal</code> system property.
+     *
+     * <p/>
+     * Journal is released by {@link #dispose()}.
+     *
+     * @param enabled <code>true</code> to enable file change journal, otherwise <code>false</code>
+     */
+    public void setFileChangeJournalEnabled(boolean enabled) {
+        this.fileChangeJournalEnabled = enabled;
+        if (!enabled) {
+            disposeChangeJournal();
+        }
+    }
+
+    /**
+     * Returns file change journal shared by operations of this factory.
+     *
+     * @return journal or <code>null</code> if it is disabled or not supported
+     * @see #setFileChangeJournalEnabled(boolean)
+     */
+    public synchronized SVNWCChangeJournal getChangeJournal() {
+        if (changeJournal == null && isFileChangeJournalEnabled()) {
+            changeJournal = SVNWCChangeJournal.open();
+            if (changeJournal == null) {
+                fileChangeJournalEnabled = false;
+            }
+        }
+        return changeJournal;
+    }
+
     /**
      * Gets operation's authentication manager.
      * If not set, creates default authentication manager.
@@ -607,6 +659,7 @@ public class SvnOperationFactory implements ISvnOperationOptionsProvider {
      */
     public void dispose() {
         disposeWcContext();
+        disposeChangeJournal();
         if (isAutoDisposeRepositoryPool() && repositoryPool != null) {
             repositoryPool.dispose();
         }
@@ -1284,6 +1337,13 @@ public class SvnOperationFactory implements ISvnOperationOptionsProvider {
         }
     }
     
+    private synchronized void disposeChangeJournal() {
+        if (changeJournal != null) {
+            changeJournal.close();
+            changeJournal = null;
+        }
+    }
+    
     private boolean isAutoDisposeRepositoryPool() {
         return autoDisposeRepositoryPool;
     }
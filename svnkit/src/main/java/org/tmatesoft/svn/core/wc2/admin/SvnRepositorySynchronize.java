@@ -9,11 +9,18 @@ import org.tmatesoft.svn.core.wc2.SvnTarget;
 public class SvnRepositorySynchronize extends SvnReceivingOperation<SVNAdminEvent> {
     
     private SVNURL toURL;
+    private int pipelineDepth;
     
     public SvnRepositorySynchronize(SvnOperationFactory factory) {
         super(factory);
     }
 
+    @Override
+    protected void initDefaults() {
+        super.initDefaults();
+        pipelineDepth = 1;
+    }
+
 	public SVNURL getToURL() {
 		return toURL;
 	}
@@ -22,4 +29,17 @@ public class SvnRepositorySynchronize extends SvnReceivingOperation<SVNAdminEven
 		this.toURL = toURL;
 		setSingleTarget(toURL != null ? SvnTarget.fromURL(toURL) : null);
 	}
+
+    public int getPipelineDepth() {
+        return pipelineDepth;
+    }
+
+    /**
+     * Sets the number of source revisions requested ahead of the one being
+     * committed to the destination repository, revisions are still
+     * committed in order.
+     */
+    public void setPipelineDepth(int pipelineDepth) {
+        this.pipelineDepth = pipelineDepth;
+    }
 }
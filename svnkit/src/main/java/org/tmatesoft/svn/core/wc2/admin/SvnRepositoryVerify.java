@@ -8,6 +8,8 @@ public class SvnRepositoryVerify extends SvnRepositoryReceivingOperation<SVNAdmi
 
     private SVNRevision startRevision;
     private SVNRevision endRevision;
+    private int threadsCount;
+    private boolean keepGoing;
     
     public SvnRepositoryVerify(SvnOperationFactory factory) {
         super(factory);
@@ -18,6 +20,8 @@ public class SvnRepositoryVerify extends SvnRepositoryReceivingOperation<SVNAdmi
     	super.initDefaults();
     	startRevision = SVNRevision.create(0);
         endRevision = SVNRevision.HEAD;
+        threadsCount = 1;
+        keepGoing = false;
     }
 	
 	public SVNRevision getStartRevision() {
@@ -35,4 +39,28 @@ public class SvnRepositoryVerify extends SvnRepositoryReceivingOperation<SVNAdmi
     public void setEndRevision(SVNRevision endRevision) {
         this.endRevision = endRevision;
     }
+
+    public int getThreadsCount() {
+        return threadsCount;
+    }
+
+    /**
+     * Sets the number of threads verifying revisions in parallel,
+     * events are still received in revision order.
+     */
+    public void setThreadsCount(int threadsCount) {
+        this.threadsCount = threadsCount;
+    }
+
+    public boolean isKeepGoing() {
+        return keepGoing;
+    }
+
+    /**
+     * If set, verification continues after a corrupted revision and fails
+     * once all revisions are verified.
+     */
+    public void setKeepGoing(boolean keepGoing) {
+        this.keepGoing = keepGoing;
+    }
 }
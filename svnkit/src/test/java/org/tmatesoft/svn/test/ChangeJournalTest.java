@@ -0,0 +1,225 @@
+package org.tmatesoft.svn.test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
+import org.tmatesoft.svn.core.internal.wc17.SVNWCChangeJournal;
+import org.tmatesoft.svn.core.wc.SVNStatusType;
+import org.tmatesoft.svn.core.wc2.ISvnObjectReceiver;
+import org.tmatesoft.svn.core.wc2.SvnGetStatus;
+import org.tmatesoft.svn.core.wc2.SvnOperationFactory;
+import org.tmatesoft.svn.core.wc2.SvnStatus;
+import org.tmatesoft.svn.core.wc2.SvnTarget;
+
+public class ChangeJournalTest {
+
+    @Test
+    public void testStatusSeesChangesMadeBetweenRuns() throws Exception {
+        Assume.assumeTrue(SVNFileUtil.isLinux);
+
+        final TestOptions options = TestOptions.getInstance();
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        svnOperationFactory.setFileChangeJournalEnabled(true);
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testStatusSeesChangesMadeBetweenRuns", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+            final CommitBuilder commitBuilder = new CommitBuilder(url);
+            commitBuilder.addFile("directory/modified");
+            commitBuilder.addFile("directory/deleted");
+            commitBuilder.addFile("directory/subdirectory/file");
+            commitBuilder.commit();
+
+            final WorkingCopy workingCopy = sandbox.checkoutNewWorkingCopy(url);
+            final File workingCopyDirectory = workingCopy.getWorkingCopyDirectory();
+            Assume.assumeNotNull(svnOperationFactory.getChangeJournal());
+
+            Assert.assertTrue(getStatuses(svnOperationFactory, workingCopyDirectory).isEmpty());
+
+            for (int i = 0; i < 20; i++) {
+                final String contents = createContents(i + 1);
+                TestUtil.writeFileContentsString(workingCopy.getFile("directory/modified"), contents);
+                TestUtil.writeFileContentsString(workingCopy.getFile("directory/subdirectory/unversioned" + i), contents);
+
+                final Map<File, SVNStatusType> statuses = getStatuses(svnOperationFactory, workingCopyDirectory);
+                Assert.assertEquals(SVNStatusType.STATUS_MODIFIED, statuses.get(workingCopy.getFile("directory/modified")));
+                Assert.assertEquals(SVNStatusType.STATUS_UNVERSIONED, statuses.get(workingCopy.getFile("directory/subdirectory/unversioned" + i)));
+                Assert.assertEquals(i + 2, statuses.size());
+            }
+
+            SVNFileUtil.deleteFile(workingCopy.getFile("directory/deleted"));
+            final Map<File, SVNStatusType> statuses = getStatuses(svnOperationFactory, workingCopyDirectory);
+            Assert.assertEquals(SVNStatusType.STATUS_MISSING, statuses.get(workingCopy.getFile("directory/deleted")));
+
+            TestUtil.writeFileContentsString(workingCopy.getFile("directory/modified"), "");
+            Assert.assertNull(getStatuses(svnOperationFactory, workingCopyDirectory).get(workingCopy.getFile("directory/modified")));
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testStatusIsCorrectAfterEventsOverflow() throws Exception {
+        Assume.assumeTrue(SVNFileUtil.isLinux);
+
+        final TestOptions options = TestOptions.getInstance();
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        svnOperationFactory.setFileChangeJournalEnabled(true);
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testStatusIsCorrectAfterEventsOverflow", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+            final CommitBuilder commitBuilder = new CommitBuilder(url);
+            commitBuilder.addFile("directory/file");
+            commitBuilder.addFile("anotherDirectory/file");
+            commitBuilder.commit();
+
+            final WorkingCopy workingCopy = sandbox.checkoutNewWorkingCopy(url);
+            final File workingCopyDirectory = workingCopy.getWorkingCopyDirectory();
+            final SVNWCChangeJournal journal = svnOperationFactory.getChangeJournal();
+            Assume.assumeNotNull(journal);
+
+            Assert.assertTrue(getStatuses(svnOperationFactory, workingCopyDirectory).isEmpty());
+
+            final int count = 2000;
+            // events processing waits for the journal, so events of the watched directory
+            // pile up beyond the watch service limit and are replaced with an overflow event.
+            synchronized (journal) {
+                for (int i = 0; i < count; i++) {
+                    TestUtil.writeFileContentsString(workingCopy.getFile("directory/unversioned" + i), "");
+                }
+                TestUtil.writeFileContentsString(workingCopy.getFile("anotherDirectory/file"), "modified");
+            }
+
+            final Map<File, SVNStatusType> statuses = getStatuses(svnOperationFactory, workingCopyDirectory);
+            Assert.assertEquals(count + 1, statuses.size());
+            Assert.assertEquals(SVNStatusType.STATUS_UNVERSIONED, statuses.get(workingCopy.getFile("directory/unversioned" + (count - 1))));
+            Assert.assertEquals(SVNStatusType.STATUS_MODIFIED, statuses.get(workingCopy.getFile("anotherDirectory/file")));
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testWatchesOfEldestDirectoriesAreCancelled() throws Exception {
+        Assume.assumeTrue(SVNFileUtil.isLinux);
+
+        final TestOptions options = TestOptions.getInstance();
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        svnOperationFactory.setFileChangeJournalEnabled(true);
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testWatchesOfEldestDirectoriesAreCancelled", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+            final CommitBuilder commitBuilder = new CommitBuilder(url);
+            for (int i = 0; i < 5; i++) {
+                commitBuilder.addFile("directory" + i + "/file");
+            }
+            commitBuilder.commit();
+
+            final WorkingCopy workingCopy = sandbox.checkoutNewWorkingCopy(url);
+            final File workingCopyDirectory = workingCopy.getWorkingCopyDirectory();
+            final SVNWCChangeJournal journal = svnOperationFactory.getChangeJournal();
+            Assume.assumeNotNull(journal);
+            journal.setMaxWatchesCount(2);
+
+            Assert.assertTrue(getStatuses(svnOperationFactory, workingCopyDirectory).isEmpty());
+            Assert.assertEquals(2, journal.getWatchesCount());
+
+            for (int i = 0; i < 5; i++) {
+                TestUtil.writeFileContentsString(workingCopy.getFile("directory" + i + "/file"), "modified");
+                final Map<File, SVNStatusType> statuses = getStatuses(svnOperationFactory, workingCopyDirectory);
+                Assert.assertEquals(i + 1, statuses.size());
+                Assert.assertEquals(SVNStatusType.STATUS_MODIFIED, statuses.get(workingCopy.getFile("directory" + i + "/file")));
+                Assert.assertEquals(2, journal.getWatchesCount());
+            }
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testJournalIsClosedOnDispose() throws Exception {
+        Assume.assumeTrue(SVNFileUtil.isLinux);
+
+        final TestOptions options = TestOptions.getInstance();
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        svnOperationFactory.setFileChangeJournalEnabled(true);
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testJournalIsClosedOnDispose", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+            final CommitBuilder commitBuilder = new CommitBuilder(url);
+            commitBuilder.addFile("directory/file");
+            commitBuilder.commit();
+
+            final WorkingCopy workingCopy = sandbox.checkoutNewWorkingCopy(url);
+            final int threadsCount = getJournalThreadsCount();
+            final SVNWCChangeJournal journal = svnOperationFactory.getChangeJournal();
+            Assume.assumeNotNull(journal);
+            Assert.assertEquals(threadsCount + 1, getJournalThreadsCount());
+
+            getStatuses(svnOperationFactory, workingCopy.getWorkingCopyDirectory());
+            Assert.assertFalse(journal.getDirectory(workingCopy.getFile("directory")).isEmpty());
+
+            svnOperationFactory.dispose();
+            Assert.assertEquals(0, journal.getWatchesCount());
+
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (getJournalThreadsCount() > threadsCount && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            Assert.assertEquals(threadsCount, getJournalThreadsCount());
+            // closed journal does not remember anything
+            TestUtil.writeFileContentsString(workingCopy.getFile("directory/unversioned"), "");
+            Assert.assertTrue(journal.getDirectory(workingCopy.getFile("directory")).containsKey("unversioned"));
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    private Map<File, SVNStatusType> getStatuses(SvnOperationFactory svnOperationFactory, File workingCopyDirectory) throws SVNException {
+        final Map<File, SVNStatusType> statuses = new HashMap<File, SVNStatusType>();
+        final SvnGetStatus getStatus = svnOperationFactory.createGetStatus();
+        getStatus.setSingleTarget(SvnTarget.fromFile(workingCopyDirectory));
+        getStatus.setDepth(SVNDepth.INFINITY);
+        getStatus.setReportAll(false);
+        getStatus.setReceiver(new ISvnObjectReceiver<SvnStatus>() {
+            public void receive(SvnTarget target, SvnStatus status) throws SVNException {
+                statuses.put(status.getPath(), status.getNodeStatus());
+            }
+        });
+        getStatus.run();
+        return statuses;
+    }
+
+    private static String createContents(int length) {
+        final StringBuilder contents = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            contents.append('x');
+        }
+        return contents.toString();
+    }
+
+    private static int getJournalThreadsCount() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && "svnkit-wc-journal".equals(thread.getName())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private String getTestName() {
+        return "ChangeJournalTest";
+    }
+}
@@ -0,0 +1,352 @@
+package org.tmatesoft.svn.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import junit.framework.Assert;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNCommitInfo;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNErrorMessage;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNPropertyValue;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.BasicAuthenticationManager;
+import org.tmatesoft.svn.core.auth.SVNAuthentication;
+import org.tmatesoft.svn.core.internal.io.dav.DAVRepository;
+import org.tmatesoft.svn.core.internal.io.dav.DAVRepositoryFactory;
+import org.tmatesoft.svn.core.internal.io.dav.http.HTTPConnection;
+import org.tmatesoft.svn.core.io.ISVNEditor;
+import org.tmatesoft.svn.core.io.ISVNReporter;
+import org.tmatesoft.svn.core.io.ISVNReporterBaton;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.io.diff.SVNDeltaProcessor;
+import org.tmatesoft.svn.core.io.diff.SVNDiffWindow;
+
+public class DavFetchTest {
+
+    @Test
+    public void testParallelFetchAuthenticatesOneConnectionAtATime() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+        Assume.assumeTrue(TestUtil.areAllApacheOptionsSpecified(options));
+
+        final Sandbox sandbox = Sandbox.createWithCleanup(getClass().getSimpleName() + ".testParallelFetchAuthenticatesOneConnectionAtATime", options);
+        try {
+            final Map<String, String> loginToPassword = new HashMap<String, String>();
+            loginToPassword.put("user", "password");
+            final SVNURL url = sandbox.createSvnRepositoryWithDavAccess(loginToPassword);
+
+            final CommitBuilder commitBuilder = new CommitBuilder(url);
+            commitBuilder.setAuthenticationManager(new BasicAuthenticationManager("user", "password"));
+            for (int i = 0; i < 20; i++) {
+                commitBuilder.addFile("directory/file" + i, ("contents" + i).getBytes());
+            }
+            commitBuilder.commit();
+
+            final SerializationCheckingAuthenticationManager authenticationManager = new SerializationCheckingAuthenticationManager("user", "password");
+            final DAVRepository repository = (DAVRepository) SVNRepositoryFactory.create(url);
+            try {
+                repository.setAuthenticationManager(authenticationManager);
+                repository.setFetchThreadsCount(4);
+
+                // update reports carry file contents, diff reports make the client fetch them
+                final ContentsCollector collector = new ContentsCollector();
+                repository.diff(url, 1, 0, null, false, SVNDepth.INFINITY, true, new ISVNReporterBaton() {
+                    public void report(ISVNReporter reporter) throws SVNException {
+                        reporter.setPath("", null, 0, SVNDepth.INFINITY, true);
+                        reporter.finishReport();
+                    }
+                }, collector);
+
+                Assert.assertEquals(20, collector.contents.size());
+                for (int i = 0; i < 20; i++) {
+                    Assert.assertEquals("contents" + i, collector.contents.get("directory/file" + i));
+                }
+                Assert.assertFalse(authenticationManager.isEnteredConcurrently());
+            } finally {
+                repository.closeSession();
+            }
+        } finally {
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testConnectionsSharingLockAuthenticateOneAtATime() throws Exception {
+        DAVRepositoryFactory.setup();
+        final BasicAuthServer server = new BasicAuthServer();
+        try {
+            final SerializationCheckingAuthenticationManager authenticationManager = new SerializationCheckingAuthenticationManager("user", "password");
+            final SVNRepository repository = SVNRepositoryFactory.create(SVNURL.parseURIEncoded("http://localhost:" + server.getPort() + "/repos"));
+            repository.setAuthenticationManager(authenticationManager);
+
+            final Lock lock = new ReentrantLock();
+            final List<String> responses = Collections.synchronizedList(new ArrayList<String>());
+            final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+            final List<Thread> threads = new ArrayList<Thread>();
+            for (int i = 0; i < 4; i++) {
+                threads.add(new Thread() {
+                    public void run() {
+                        try {
+                            final HTTPConnection connection = new HTTPConnection(repository, "UTF-8", null, false);
+                            connection.setAuthenticationLock(lock);
+                            try {
+                                for (int j = 0; j < 3; j++) {
+                                    final ByteArrayOutputStream response = new ByteArrayOutputStream();
+                                    connection.request("GET", "/repos/file", null, (StringBuffer) null, 200, 0, response, null);
+                                    responses.add(response.toString("UTF-8"));
+                                }
+                            } finally {
+                                connection.close();
+                            }
+                        } catch (Throwable th) {
+                            errors.add(th);
+                        }
+                    }
+                });
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            Assert.assertTrue(errors.toString(), errors.isEmpty());
+            Assert.assertEquals(12, responses.size());
+            for (String response : responses) {
+                Assert.assertEquals("contents", response);
+            }
+            Assert.assertFalse(authenticationManager.isEnteredConcurrently());
+        } finally {
+            server.close();
+        }
+    }
+
+    private static class SerializationCheckingAuthenticationManager extends BasicAuthenticationManager {
+
+        private int enteredCount;
+        private boolean enteredConcurrently;
+
+        public SerializationCheckingAuthenticationManager(String userName, String password) {
+            super(userName, password);
+        }
+
+        @Override
+        public SVNAuthentication getFirstAuthentication(String kind, String realm, SVNURL url) throws SVNException {
+            enter();
+            try {
+                return super.getFirstAuthentication(kind, realm, url);
+            } finally {
+                leave();
+            }
+        }
+
+        @Override
+        public void acknowledgeAuthentication(boolean accepted, String kind, String realm, SVNErrorMessage errorMessage, SVNAuthentication authentication) throws SVNException {
+            enter();
+            try {
+                super.acknowledgeAuthentication(accepted, kind, realm, errorMessage, authentication);
+            } finally {
+                leave();
+            }
+        }
+
+        public synchronized boolean isEnteredConcurrently() {
+            return enteredConcurrently;
+        }
+
+        private void enter() {
+            synchronized (this) {
+                enteredCount++;
+                enteredConcurrently |= enteredCount > 1;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private synchronized void leave() {
+            enteredCount--;
+        }
+    }
+
+    private static class ContentsCollector implements ISVNEditor {
+
+        private final Map<String, String> contents = new HashMap<String, String>();
+        private final SVNDeltaProcessor deltaProcessor = new SVNDeltaProcessor();
+        private ByteArrayOutputStream fileContents;
+
+        public void applyTextDelta(String path, String baseChecksum) throws SVNException {
+            fileContents = new ByteArrayOutputStream();
+            deltaProcessor.applyTextDelta((InputStream) null, fileContents, false);
+        }
+
+        public OutputStream textDeltaChunk(String path, SVNDiffWindow diffWindow) throws SVNException {
+            return deltaProcessor.textDeltaChunk(diffWindow);
+        }
+
+        public void textDeltaEnd(String path) throws SVNException {
+            deltaProcessor.textDeltaEnd();
+            contents.put(path, new String(fileContents.toByteArray()));
+        }
+
+        public void targetRevision(long revision) {
+        }
+
+        public void openRoot(long revision) {
+        }
+
+        public void deleteEntry(String path, long revision) {
+        }
+
+        public void absentDir(String path) {
+        }
+
+        public void absentFile(String path) {
+        }
+
+        public void addDir(String path, String copyFromPath, long copyFromRevision) {
+        }
+
+        public void openDir(String path, long revision) {
+        }
+
+        public void changeDirProperty(String name, SVNPropertyValue value) {
+        }
+
+        public void closeDir() {
+        }
+
+        public void addFile(String path, String copyFromPath, long copyFromRevision) {
+        }
+
+        public void openFile(String path, long revision) {
+        }
+
+        public void changeFileProperty(String path, String propertyName, SVNPropertyValue propertyValue) {
+        }
+
+        public void closeFile(String path, String textChecksum) {
+        }
+
+        public SVNCommitInfo closeEdit() {
+            return null;
+        }
+
+        public void abortEdit() {
+        }
+    }
+
+    /**
+     * Answers every request without credentials with 401 asking for Basic
+     * authentication, and every other one with "contents".
+     */
+    private static class BasicAuthServer extends Thread {
+
+        private final ServerSocket serverSocket;
+
+        public BasicAuthServer() throws IOException {
+            serverSocket = new ServerSocket(0);
+            setDaemon(true);
+            start();
+        }
+
+        public int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (IOException e) {
+                    return;
+                }
+                final Thread handler = new Thread() {
+                    public void run() {
+                        try {
+                            serve(socket);
+                        } catch (IOException e) {
+                        } finally {
+                            try {
+                                socket.close();
+                            } catch (IOException e) {
+                            }
+                        }
+                    }
+                };
+                handler.setDaemon(true);
+                handler.start();
+            }
+        }
+
+        private void serve(Socket socket) throws IOException {
+            final InputStream in = socket.getInputStream();
+            final OutputStream out = socket.getOutputStream();
+            while (true) {
+                boolean authorized = false;
+                boolean empty = true;
+                while (true) {
+                    final String line = readLine(in);
+                    if (line == null) {
+                        return;
+                    }
+                    if (line.length() == 0) {
+                        if (empty) {
+                            continue;
+                        }
+                        break;
+                    }
+                    empty = false;
+                    authorized |= line.toLowerCase().startsWith("authorization: basic ");
+                }
+                final String response;
+                if (authorized) {
+                    response = "HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nContent-Length: 8\r\n\r\ncontents";
+                } else {
+                    response = "HTTP/1.1 401 Unauthorized\r\nWWW-Authenticate: Basic realm=\"stub\"\r\nContent-Length: 0\r\n\r\n";
+                }
+                out.write(response.getBytes("US-ASCII"));
+                out.flush();
+            }
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            final StringBuilder line = new StringBuilder();
+            while (true) {
+                final int b = in.read();
+                if (b < 0) {
+                    return null;
+                } else if (b == '\n') {
+                    break;
+                } else if (b != '\r') {
+                    line.append((char) b);
+                }
+            }
+            return line.toString();
+        }
+    }
+}
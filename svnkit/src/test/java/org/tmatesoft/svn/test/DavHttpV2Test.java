@@ -0,0 +1,93 @@
+package org.tmatesoft.svn.test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNPropertyValue;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.io.dav.DAVConnection;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+import org.tmatesoft.svn.core.wc2.SvnCopySource;
+import org.tmatesoft.svn.core.wc2.SvnLog;
+import org.tmatesoft.svn.core.wc2.SvnOperationFactory;
+import org.tmatesoft.svn.core.wc2.SvnRemoteCopy;
+import org.tmatesoft.svn.core.wc2.SvnRevisionRange;
+import org.tmatesoft.svn.core.wc2.SvnTarget;
+
+public class DavHttpV2Test {
+
+    @Before
+    public void enableHttpV2() {
+        DAVConnection.setHTTPv2Enabled(true);
+    }
+
+    @After
+    public void restoreHttpV2() {
+        DAVConnection.setHTTPv2Enabled(Boolean.getBoolean("svnkit.http.v2"));
+    }
+
+    @Test
+    public void testCommitUpdateAndLog() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+        Assume.assumeTrue(TestUtil.areAllApacheOptionsSpecified(options));
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getClass().getSimpleName() + ".testCommitUpdateAndLog", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepositoryWithDavAccess();
+
+            final CommitBuilder commitBuilder1 = new CommitBuilder(url);
+            commitBuilder1.addFile("trunk/a.txt", "a".getBytes());
+            commitBuilder1.addFile("trunk/dir/b.txt", "b".getBytes());
+            commitBuilder1.commit();
+
+            final CommitBuilder commitBuilder2 = new CommitBuilder(url);
+            commitBuilder2.changeFile("trunk/a.txt", "modified".getBytes());
+            commitBuilder2.delete("trunk/dir/b.txt");
+            commitBuilder2.commit();
+
+            final WorkingCopy workingCopy = sandbox.checkoutNewWorkingCopy(url.appendPath("trunk", false), 1);
+            workingCopy.updateToRevision(-1);
+            Assert.assertEquals(2, workingCopy.getCurrentRevision());
+            Assert.assertEquals("modified", TestUtil.readFileContentsString(workingCopy.getFile("a.txt")));
+
+            workingCopy.changeFileContents("a.txt", "modified in working copy");
+            workingCopy.setProperty(workingCopy.getFile("dir"), "property", SVNPropertyValue.create("value"));
+            Assert.assertEquals(3, workingCopy.commit("committed over HTTPv2"));
+
+            final SvnRemoteCopy remoteCopy = svnOperationFactory.createRemoteCopy();
+            remoteCopy.setSingleTarget(SvnTarget.fromURL(url.appendPath("branch", false)));
+            remoteCopy.addCopySource(SvnCopySource.create(SvnTarget.fromURL(url.appendPath("trunk", false)), SVNRevision.create(1)));
+            remoteCopy.setCommitMessage("branch created");
+            remoteCopy.run();
+
+            final SVNRepository repository = svnOperationFactory.getRepositoryPool().createRepository(url, true);
+            Assert.assertEquals(4, repository.getLatestRevision());
+            final ByteArrayOutputStream contents = new ByteArrayOutputStream();
+            repository.getFile("branch/dir/b.txt", 4, null, contents);
+            Assert.assertEquals("b", contents.toString());
+
+            final SvnLog log = svnOperationFactory.createLog();
+            log.setSingleTarget(SvnTarget.fromURL(url));
+            log.addRange(SvnRevisionRange.create(SVNRevision.HEAD, SVNRevision.create(1)));
+            log.setDiscoverChangedPaths(true);
+            final List<SVNLogEntry> logEntries = new ArrayList<SVNLogEntry>();
+            log.run(logEntries);
+            Assert.assertEquals(4, logEntries.size());
+            Assert.assertEquals("committed over HTTPv2", logEntries.get(1).getMessage());
+            Assert.assertNotNull(logEntries.get(2).getChangedPaths().get("/trunk/dir/b.txt"));
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.tmatesoft.svn.test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tmatesoft.svn.core.internal.delta.SVNDeltaAlgorithm;
+import org.tmatesoft.svn.core.internal.delta.SVNDeltaComposer;
+import org.tmatesoft.svn.core.internal.delta.SVNVDeltaAlgorithm;
+import org.tmatesoft.svn.core.internal.delta.SVNXDeltaAlgorithm;
+import org.tmatesoft.svn.core.internal.delta.SVNXDeltaFastAlgorithm;
+import org.tmatesoft.svn.core.io.diff.SVNDiffWindow;
+
+public class DeltaAlgorithmTest {
+
+    @Test
+    public void testFastXDeltaWindowsReconstructTarget() throws Exception {
+        final Random random = new Random(0);
+        final SVNDeltaAlgorithm algorithm = new SVNXDeltaFastAlgorithm();
+        for (int i = 0; i < 200; i++) {
+            final byte[] source = createData(random, random.nextInt(i % 10 == 0 ? 200 : 100 * 1024), i % 2 == 0 ? 4 : 256);
+            final byte[] target = createTarget(random, source, 1 + random.nextInt(100 * 1024), i % 2 == 0 ? 4 : 256);
+
+            final SVNDiffWindow window = computeWindow(algorithm, source, target);
+            final byte[] result = new byte[target.length];
+            window.apply(source, result);
+            Assert.assertArrayEquals(target, result);
+        }
+    }
+
+    @Test
+    public void testFastXDeltaIsNotLargerThanXDelta() throws Exception {
+        final Random random = new Random(1);
+        final byte[] source = createData(random, 100 * 1024, 256);
+        final byte[] target = createTarget(random, source, 100 * 1024, 256);
+
+        final SVNDiffWindow fastWindow = computeWindow(new SVNXDeltaFastAlgorithm(), source, target);
+        final SVNDiffWindow window = computeWindow(new SVNXDeltaAlgorithm(), source, target);
+        Assert.assertTrue(fastWindow.getDataLength() <= window.getDataLength());
+    }
+
+    @Test
+    public void testComposedWindowsReconstructTarget() throws Exception {
+        final Random random = new Random(2);
+        final SVNDeltaComposer composer = new SVNDeltaComposer();
+        for (int i = 0; i < 50; i++) {
+            final int chainLength = 1 + random.nextInt(8);
+            final int alphabetSize = i % 2 == 0 ? 4 : 256;
+            final byte[][] texts = new byte[chainLength][];
+            texts[0] = createData(random, 1 + random.nextInt(100 * 1024), alphabetSize);
+            for (int j = 1; j < chainLength; j++) {
+                texts[j] = createTarget(random, texts[j - 1], 1 + random.nextInt(100 * 1024), alphabetSize);
+            }
+
+            composer.reset();
+            for (int j = chainLength - 1; j >= 0; j--) {
+                final byte[] source = j > 0 ? texts[j - 1] : new byte[0];
+                final SVNDeltaAlgorithm algorithm = random.nextBoolean() ? new SVNVDeltaAlgorithm() : new SVNXDeltaFastAlgorithm();
+                final boolean complete = composer.addWindow(computeWindow(algorithm, source, texts[j]));
+                if (complete) {
+                    break;
+                }
+            }
+            final byte[] target = texts[chainLength - 1];
+            Assert.assertEquals(target.length, composer.getTargetLength());
+            final byte[] result = new byte[target.length + 3];
+            Assert.assertEquals(target.length, composer.apply(result, 3));
+            Assert.assertArrayEquals(target, Arrays.copyOfRange(result, 3, result.length));
+        }
+    }
+
+    private SVNDiffWindow computeWindow(SVNDeltaAlgorithm algorithm, byte[] source, byte[] target) {
+        algorithm.reset();
+        algorithm.computeDelta(source, source.length, target, target.length);
+        final SVNDiffWindow window = new SVNDiffWindow(0, source.length, target.length, algorithm.getInstructionsLength(), algorithm.getNewDataLength());
+        window.setData(algorithm.getData());
+        return window;
+    }
+
+    private byte[] createData(Random random, int length, int alphabetSize) {
+        final byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) random.nextInt(alphabetSize);
+        }
+        return data;
+    }
+
+    private byte[] createTarget(Random random, byte[] source, int length, int alphabetSize) {
+        final byte[] target = new byte[length];
+        int position = 0;
+        while (position < length) {
+            final int pieceLength = Math.min(length - position, 1 + random.nextInt(500));
+            if (source.length > pieceLength && random.nextBoolean()) {
+                System.arraycopy(source, random.nextInt(source.length - pieceLength), target, position, pieceLength);
+            } else {
+                System.arraycopy(createData(random, pieceLength, alphabetSize), 0, target, position, pieceLength);
+            }
+            position += pieceLength;
+        }
+        return target;
+    }
+}
@@ -0,0 +1,743 @@
+package org.tmatesoft.svn.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNPropertyValue;
+import org.tmatesoft.svn.core.SVNRevisionProperty;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.delta.SVNDeltaCombiner;
+import org.tmatesoft.svn.core.internal.io.fs.FSFS;
+import org.tmatesoft.svn.core.internal.io.fs.FSFile;
+import org.tmatesoft.svn.core.internal.io.fs.FSFileChannelPool;
+import org.tmatesoft.svn.core.internal.io.fs.FSMappedFile;
+import org.tmatesoft.svn.core.internal.io.fs.FSPathChange;
+import org.tmatesoft.svn.core.internal.io.fs.FSRepository;
+import org.tmatesoft.svn.core.internal.io.fs.FSRevisionNode;
+import org.tmatesoft.svn.core.internal.io.fs.FSRevisionRoot;
+import org.tmatesoft.svn.core.internal.io.fs.FSSharedCaches;
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+import org.tmatesoft.svn.core.wc2.SvnOperationFactory;
+
+public class FSFSCachesTest {
+
+    @Test
+    public void testRevisionNodesAreSharedBetweenRoots() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testRevisionNodesAreSharedBetweenRoots", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+            Assume.assumeTrue("file".equals(url.getProtocol()));
+
+            final CommitBuilder commitBuilder = new CommitBuilder(url);
+            commitBuilder.addFile("trunk/directory/file", "contents".getBytes());
+            commitBuilder.commit();
+
+            final FSFS fsfs = new FSFS(new File(url.getPath()));
+            fsfs.open();
+            try {
+                final FSRevisionRoot firstRoot = fsfs.createRevisionRoot(1);
+                final FSRevisionNode firstNode = firstRoot.getRevisionNode("/trunk/directory/file");
+                final long hitsCount = fsfs.getRevisionNodesCache().getHitsCount();
+
+                final FSRevisionRoot secondRoot = fsfs.createRevisionRoot(1);
+                final FSRevisionNode secondNode = secondRoot.getRevisionNode("/trunk/directory/file");
+
+                Assert.assertTrue(fsfs.getRevisionNodesCache().getHitsCount() > hitsCount);
+                Assert.assertNotSame(firstNode, secondNode);
+                Assert.assertEquals(firstNode.getId(), secondNode.getId());
+                Assert.assertEquals(firstNode.getTextRepresentation(), secondNode.getTextRepresentation());
+                Assert.assertEquals(firstNode.getCreatedPath(), secondNode.getCreatedPath());
+            } finally {
+                fsfs.close();
+            }
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testDirContentsAreSharedBetweenRoots() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testDirContentsAreSharedBetweenRoots", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+            Assume.assumeTrue("file".equals(url.getProtocol()));
+
+            final CommitBuilder commitBuilder = new CommitBuilder(url);
+            commitBuilder.addFile("trunk/file1");
+            commitBuilder.addFile("trunk/file2");
+            commitBuilder.commit();
+
+            final FSFS fsfs = new FSFS(new File(url.getPath()));
+            fsfs.open();
+            try {
+                final Map firstEntries = fsfs.createRevisionRoot(1).getRevisionNode("/trunk").getDirEntries(fsfs);
+                final long hitsCount = fsfs.getDirContentsCache().getHitsCount();
+                final Map secondEntries = fsfs.createRevisionRoot(1).getRevisionNode("/trunk").getDirEntries(fsfs);
+
+                Assert.assertTrue(fsfs.getDirContentsCache().getHitsCount() > hitsCount);
+                Assert.assertEquals(firstEntries.keySet(), secondEntries.keySet());
+                Assert.assertEquals(2, secondEntries.size());
+
+                final CommitBuilder secondCommitBuilder = new CommitBuilder(url);
+                secondCommitBuilder.addFile("trunk/file3");
+                secondCommitBuilder.commit();
+
+                Assert.assertEquals(2, fsfs.createRevisionRoot(1).getRevisionNode("/trunk").getDirEntries(fsfs).size());
+                Assert.assertEquals(3, fsfs.createRevisionRoot(2).getRevisionNode("/trunk").getDirEntries(fsfs).size());
+            } finally {
+                fsfs.close();
+            }
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testPackedRevisionsAreReadFromMappedPackFiles() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testPackedRevisionsAreReadFromMappedPackFiles", options);
+        final long maxFilesPerDirectory = FSFS.getDefaultMaxFilesPerDirectory();
+        try {
+            FSFS.setDefaultMaxFilesPerDirectory(2);
+            final SVNURL url = sandbox.createSvnRepository();
+            Assume.assumeTrue("file".equals(url.getProtocol()));
+
+            final CommitBuilder commitBuilder = new CommitBuilder(url);
+            commitBuilder.addFile("file", "contents1".getBytes());
+            commitBuilder.setFileProperty("file", "property", SVNPropertyValue.create("value1"));
+            commitBuilder.commit();
+            for (int i = 2; i <= 5; i++) {
+                final CommitBuilder nextCommitBuilder = new CommitBuilder(url);
+                nextCommitBuilder.changeFile("file", ("contents" + i).getBytes());
+                nextCommitBuilder.setFileProperty("file", "property", SVNPropertyValue.create("value" + i));
+                nextCommitBuilder.commit();
+            }
+
+            final File repositoryRoot = new File(url.getPath());
+            final SVNClientManager clientManager = SVNClientManager.newInstance();
+            try {
+                clientManager.getAdminClient().doPack(repositoryRoot);
+            } finally {
+                clientManager.dispose();
+            }
+
+            final FSFS fsfs = new FSFS(repositoryRoot);
+            fsfs.setSharedCachesEnabled(false);
+            fsfs.open();
+            fsfs.setMapPackFiles(true);
+            try {
+                for (int i = 1; i <= 5; i++) {
+                    final FSRevisionRoot root = fsfs.createRevisionRoot(i);
+                    final FSRevisionNode node = root.getRevisionNode("/file");
+                    Assert.assertEquals("value" + i, node.getProperties(fsfs).getStringValue("property"));
+                    final InputStream stream = root.getFileStreamForPath(new SVNDeltaCombiner(), "/file");
+                    try {
+                        Assert.assertEquals("contents" + i, SVNFileUtil.readFile(stream));
+                    } finally {
+                        SVNFileUtil.closeFile(stream);
+                    }
+                }
+                Assert.assertEquals(3, fsfs.getMappedPacksCache().size());
+                Assert.assertEquals(3, fsfs.getPackManifestsCache().size());
+            } finally {
+                fsfs.close();
+            }
+        } finally {
+            FSFS.setDefaultMaxFilesPerDirectory(maxFilesPerDirectory);
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testMappedPackFilesAreSharedBetweenInstances() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testMappedPackFilesAreSharedBetweenInstances", options);
+        final long maxFilesPerDirectory = FSFS.getDefaultMaxFilesPerDirectory();
+        try {
+            FSFS.setDefaultMaxFilesPerDirectory(2);
+            final SVNURL url = sandbox.createSvnRepository();
+            Assume.assumeTrue("file".equals(url.getProtocol()));
+            final File repositoryRoot = createPackedRepository(url);
+            FSSharedCaches.clear();
+
+            final FSFS firstFsfs = new FSFS(repositoryRoot);
+            firstFsfs.open();
+            firstFsfs.setMapPackFiles(true);
+            final FSMappedFile mappedFile;
+            try {
+                assertFileContents(firstFsfs, 3);
+                mappedFile = (FSMappedFile) firstFsfs.getMappedPacksCache().get(new Long(1));
+                Assert.assertNotNull(mappedFile);
+            } finally {
+                firstFsfs.close();
+            }
+            Assert.assertFalse(mappedFile.isDisposed());
+
+            final FSFS secondFsfs = new FSFS(repositoryRoot);
+            secondFsfs.open();
+            secondFsfs.setMapPackFiles(true);
+            try {
+                Assert.assertSame(firstFsfs.getMappedPacksCache(), secondFsfs.getMappedPacksCache());
+                final long missesCount = secondFsfs.getMappedPacksCache().getMissesCount();
+                assertFileContents(secondFsfs, 3);
+                Assert.assertEquals(missesCount, secondFsfs.getMappedPacksCache().getMissesCount());
+                Assert.assertSame(mappedFile, secondFsfs.getMappedPacksCache().get(new Long(1)));
+
+                secondFsfs.getMappedPacksCache().remove(new Long(1));
+                Assert.assertTrue(mappedFile.isDisposed());
+                assertFileContents(secondFsfs, 3);
+                Assert.assertNotSame(mappedFile, secondFsfs.getMappedPacksCache().get(new Long(1)));
+            } finally {
+                secondFsfs.close();
+            }
+        } finally {
+            FSSharedCaches.clear();
+            FSFS.setDefaultMaxFilesPerDirectory(maxFilesPerDirectory);
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testPackManifestsAreCached() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testPackManifestsAreCached", options);
+        final long maxFilesPerDirectory = FSFS.getDefaultMaxFilesPerDirectory();
+        try {
+            FSFS.setDefaultMaxFilesPerDirectory(2);
+            final SVNURL url = sandbox.createSvnRepository();
+            Assume.assumeTrue("file".equals(url.getProtocol()));
+            final File repositoryRoot = createPackedRepository(url);
+
+            final FSFS fsfs = new FSFS(repositoryRoot);
+            fsfs.setSharedCachesEnabled(false);
+            fsfs.open();
+            try {
+                // revision 2 is a delta against revision 1 of the first shard
+                assertFileContents(fsfs, 2);
+                Assert.assertEquals(2, fsfs.getPackManifestsCache().size());
+                final long hitsCount = fsfs.getPackManifestsCache().getHitsCount();
+                final long missesCount = fsfs.getPackManifestsCache().getMissesCount();
+
+                assertFileContents(fsfs, 3);
+                Assert.assertTrue(fsfs.getPackManifestsCache().getHitsCount() > hitsCount);
+                Assert.assertEquals(missesCount, fsfs.getPackManifestsCache().getMissesCount());
+                Assert.assertEquals(2, fsfs.getPackManifestsCache().size());
+            } finally {
+                fsfs.close();
+            }
+        } finally {
+            FSFS.setDefaultMaxFilesPerDirectory(maxFilesPerDirectory);
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testPackManifestIsReadAgainAfterRepack() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testPackManifestIsReadAgainAfterRepack", options);
+        final long maxFilesPerDirectory = FSFS.getDefaultMaxFilesPerDirectory();
+        try {
+            FSFS.setDefaultMaxFilesPerDirectory(2);
+            final SVNURL url = sandbox.createSvnRepository();
+            Assume.assumeTrue("file".equals(url.getProtocol()));
+            final File repositoryRoot = createPackedRepository(url);
+
+            final FSFS fsfs = new FSFS(repositoryRoot);
+            fsfs.setSharedCachesEnabled(false);
+            fsfs.open();
+            try {
+                assertFileContents(fsfs, 2);
+
+                // pack the shard again with revisions placed at other offsets
+                final int padding = 100;
+                final File packFile = new File(repositoryRoot, "db/revs/1.pack/pack");
+                final byte[] pack = readFully(packFile);
+                final byte[] repacked = new byte[padding + pack.length];
+                Arrays.fill(repacked, 0, padding, (byte) '\n');
+                System.arraycopy(pack, 0, repacked, padding, pack.length);
+                writeInPlace(packFile, repacked);
+
+                final File manifestFile = getManifestFile(repositoryRoot, 1);
+                final StringBuffer manifest = new StringBuffer();
+                final String[] offsets = TestUtil.readFileContentsString(manifestFile).split("\n");
+                for (int i = 0; i < offsets.length; i++) {
+                    manifest.append(Long.parseLong(offsets[i].trim()) + padding).append('\n');
+                }
+                writeInPlace(manifestFile, manifest.toString().getBytes());
+
+                assertFileContents(fsfs, 3);
+                assertFileContents(fsfs, 2);
+            } finally {
+                fsfs.close();
+            }
+        } finally {
+            FSFS.setDefaultMaxFilesPerDirectory(maxFilesPerDirectory);
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testTruncatedPackManifestIsReportedAsCorrupt() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testTruncatedPackManifestIsReportedAsCorrupt", options);
+        final long maxFilesPerDirectory = FSFS.getDefaultMaxFilesPerDirectory();
+        try {
+            FSFS.setDefaultMaxFilesPerDirectory(2);
+            final SVNURL url = sandbox.createSvnRepository();
+            Assume.assumeTrue("file".equals(url.getProtocol()));
+            final File repositoryRoot = createPackedRepository(url);
+
+            final FSFS fsfs = new FSFS(repositoryRoot);
+            fsfs.setSharedCachesEnabled(false);
+            fsfs.open();
+            try {
+                assertFileContents(fsfs, 2);
+
+                final File manifestFile = getManifestFile(repositoryRoot, 1);
+                final String manifest = TestUtil.readFileContentsString(manifestFile);
+                SVNFileUtil.deleteFile(manifestFile);
+                TestUtil.writeFileContentsString(manifestFile, manifest.substring(0, manifest.indexOf('\n') + 1));
+
+                try {
+                    assertFileContents(fsfs, 3);
+                    Assert.fail("An exception should be thrown");
+                } catch (SVNException e) {
+                    Assert.assertEquals(SVNErrorCode.FS_CORRUPT, e.getErrorMessage().getErrorCode());
+                }
+            } finally {
+                fsfs.close();
+            }
+        } finally {
+            FSFS.setDefaultMaxFilesPerDirectory(maxFilesPerDirectory);
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testRevisionFileChannelsAreShared() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testRevisionFileChannelsAreShared", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+            Assume.assumeTrue("file".equals(url.getProtocol()));
+
+            final CommitBuilder commitBuilder = new CommitBuilder(url);
+            commitBuilder.addFile("trunk/file1", "contents1".getBytes());
+            commitBuilder.addFile("trunk/file2", "contents2".getBytes());
+            commitBuilder.commit();
+
+            final FSFS fsfs = new FSFS(new File(url.getPath()));
+            fsfs.setSharedCachesEnabled(false);
+            fsfs.open();
+            try {
+                Assume.assumeNotNull(fsfs.getFileChannelPool());
+
+                final FSRevisionRoot root = fsfs.createRevisionRoot(1);
+                for (int i = 1; i <= 2; i++) {
+                    final InputStream stream = root.getFileStreamForPath(new SVNDeltaCombiner(), "/trunk/file" + i);
+                    try {
+                        Assert.assertEquals("contents" + i, SVNFileUtil.readFile(stream));
+                    } finally {
+                        SVNFileUtil.closeFile(stream);
+                    }
+                }
+                Assert.assertEquals(1, fsfs.getFileChannelPool().getOpenChannelsCount());
+            } finally {
+                fsfs.close();
+            }
+            Assert.assertEquals(0, fsfs.getFileChannelPool().getOpenChannelsCount());
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testRevisionFileChannelsAreSharedBetweenSessions() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testRevisionFileChannelsAreSharedBetweenSessions", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+            Assume.assumeTrue("file".equals(url.getProtocol()));
+
+            final CommitBuilder commitBuilder = new CommitBuilder(url);
+            commitBuilder.addFile("trunk/file", "contents".getBytes());
+            commitBuilder.commit();
+            FSSharedCaches.clear();
+
+            final FSFS fsfs = new FSFS(new File(url.getPath()));
+            fsfs.open();
+            try {
+                final FSFileChannelPool pool = fsfs.getFileChannelPool();
+                Assume.assumeNotNull(pool);
+
+                assertSessionReadsFile(url, "trunk/file", "contents");
+                Assert.assertEquals(1, pool.getOpenChannelsCount());
+                final long missesCount = pool.getMissesCount();
+                final long hitsCount = pool.getHitsCount();
+
+                assertSessionReadsFile(url, "trunk/file", "contents");
+                Assert.assertEquals(1, pool.getOpenChannelsCount());
+                Assert.assertEquals(missesCount, pool.getMissesCount());
+                Assert.assertTrue(pool.getHitsCount() > hitsCount);
+            } finally {
+                fsfs.close();
+            }
+            Assert.assertEquals(1, fsfs.getFileChannelPool().getOpenChannelsCount());
+            FSSharedCaches.clear();
+            Assert.assertEquals(0, fsfs.getFileChannelPool().getOpenChannelsCount());
+        } finally {
+            FSSharedCaches.clear();
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testClearedPoolDoesNotBreakOpenCursors() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testClearedPoolDoesNotBreakOpenCursors", options);
+        try {
+            final File file = new File(sandbox.createDirectory("pool"), "file");
+            final byte[] contents = new byte[4096];
+            for (int i = 0; i < contents.length; i++) {
+                contents[i] = (byte) i;
+            }
+            writeInPlace(file, contents);
+
+            final FSFileChannelPool pool = new FSFileChannelPool(4);
+            final FSFile fsFile = new FSFile(file, pool);
+            try {
+                Assert.assertEquals(0, fsFile.read());
+                Assert.assertEquals(1, pool.getOpenChannelsCount());
+
+                pool.clear();
+                Assert.assertEquals(0, pool.getOpenChannelsCount());
+
+                fsFile.seek(3000);
+                Assert.assertEquals(3000 & 0xFF, fsFile.read());
+                Assert.assertEquals(1, pool.getOpenChannelsCount());
+            } finally {
+                fsFile.close();
+            }
+            Assert.assertEquals(1, pool.getOpenChannelsCount());
+            pool.clear();
+        } finally {
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testSmallFulltextsAreCached() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testSmallFulltextsAreCached", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+            Assume.assumeTrue("file".equals(url.getProtocol()));
+
+            final CommitBuilder commitBuilder = new CommitBuilder(url);
+            commitBuilder.addFile("small", "small contents".getBytes());
+            commitBuilder.addFile("large", new byte[1024]);
+            commitBuilder.commit();
+
+            final FSFS fsfs = new FSFS(new File(url.getPath()));
+            fsfs.open();
+            fsfs.setFulltextsCacheSize(64 * 1024, 512);
+            try {
+                for (int i = 0; i < 2; i++) {
+                    final FSRevisionRoot root = fsfs.createRevisionRoot(1);
+                    final InputStream smallStream = root.getFileStreamForPath(new SVNDeltaCombiner(), "/small");
+                    try {
+                        Assert.assertEquals("small contents", SVNFileUtil.readFile(smallStream));
+                    } finally {
+                        SVNFileUtil.closeFile(smallStream);
+                    }
+                    final InputStream largeStream = root.getFileStreamForPath(new SVNDeltaCombiner(), "/large");
+                    try {
+                        Assert.assertEquals(1024, SVNFileUtil.readFile(largeStream).length());
+                    } finally {
+                        SVNFileUtil.closeFile(largeStream);
+                    }
+                }
+                Assert.assertEquals(1, fsfs.getFulltextsCache().size());
+                Assert.assertEquals(1, fsfs.getFulltextsCache().getHitsCount());
+                Assert.assertEquals("small contents".length(), fsfs.getFulltextsCache().getWeight());
+            } finally {
+                fsfs.close();
+            }
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testChangedPathsAreCached() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testChangedPathsAreCached", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+            Assume.assumeTrue("file".equals(url.getProtocol()));
+
+            final CommitBuilder commitBuilder = new CommitBuilder(url);
+            commitBuilder.addFile("trunk/file1");
+            commitBuilder.addFile("trunk/file2");
+            commitBuilder.commit();
+
+            final CommitBuilder secondCommitBuilder = new CommitBuilder(url);
+            secondCommitBuilder.changeFile("trunk/file1", "changed".getBytes());
+            secondCommitBuilder.setFileProperty("trunk/file2", "name", SVNPropertyValue.create("value"));
+            secondCommitBuilder.addDirectoryByCopying("branch", "trunk", 1);
+            secondCommitBuilder.commit();
+
+            final FSFS fsfs = new FSFS(new File(url.getPath()));
+            fsfs.open();
+            try {
+                final Map firstChanges = fsfs.createRevisionRoot(2).getChangedPaths();
+                final long hitsCount = fsfs.getChangedPathsCache().getHitsCount();
+                final Map secondChanges = fsfs.createRevisionRoot(2).getChangedPaths();
+
+                Assert.assertTrue(fsfs.getChangedPathsCache().getHitsCount() > hitsCount);
+                Assert.assertEquals(firstChanges.keySet(), secondChanges.keySet());
+                for (Iterator paths = firstChanges.keySet().iterator(); paths.hasNext();) {
+                    final String path = (String) paths.next();
+                    final FSPathChange firstChange = (FSPathChange) firstChanges.get(path);
+                    final FSPathChange secondChange = (FSPathChange) secondChanges.get(path);
+                    Assert.assertNotSame(firstChange, secondChange);
+                    Assert.assertEquals(firstChange.toString(), secondChange.toString());
+                    Assert.assertEquals(firstChange.getChangeKind(), secondChange.getChangeKind());
+                    Assert.assertEquals(firstChange.getRevNodeId(), secondChange.getRevNodeId());
+                    Assert.assertEquals(firstChange.isTextModified(), secondChange.isTextModified());
+                    Assert.assertEquals(firstChange.arePropertiesModified(), secondChange.arePropertiesModified());
+                    Assert.assertEquals(firstChange.getKind(), secondChange.getKind());
+                }
+                Assert.assertEquals("/branch", ((FSPathChange) secondChanges.get("/branch")).getPath());
+                Assert.assertEquals(1, ((FSPathChange) secondChanges.get("/branch")).getCopyRevision());
+
+                secondChanges.clear();
+                Assert.assertEquals(firstChanges.keySet(), fsfs.createRevisionRoot(2).getChangedPaths().keySet());
+
+                fsfs.createRevisionRoot(1).getChangedPaths();
+                final FSPathChange firstRevisionChange = (FSPathChange) fsfs.createRevisionRoot(1).getChangedPaths().get("/trunk/file1");
+                final FSPathChange secondRevisionChange = (FSPathChange) fsfs.createRevisionRoot(2).getChangedPaths().get("/trunk/file1");
+                Assert.assertSame(firstRevisionChange.getPath(), secondRevisionChange.getPath());
+            } finally {
+                fsfs.close();
+            }
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testRevisionPropertiesCacheIsInvalidated() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testRevisionPropertiesCacheIsInvalidated", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+            Assume.assumeTrue("file".equals(url.getProtocol()));
+
+            final CommitBuilder commitBuilder = new CommitBuilder(url);
+            commitBuilder.setCommitMessage("message");
+            commitBuilder.addFile("file");
+            commitBuilder.commit();
+
+            final FSFS fsfs = new FSFS(new File(url.getPath()));
+            fsfs.open();
+            final FSFS otherFsfs = new FSFS(new File(url.getPath()));
+            otherFsfs.open();
+            try {
+                final File revPropsFile = fsfs.getRevisionPropertiesFile(1, false);
+                // properties of files modified within the timestamp granularity are not cached.
+                Assert.assertTrue(revPropsFile.setLastModified(System.currentTimeMillis() - 60 * 1000));
+
+                Assert.assertEquals("message", fsfs.getRevisionProperties(1).getStringValue(SVNRevisionProperty.LOG));
+                final long hitsCount = fsfs.getRevisionPropertiesCache().getHitsCount();
+                Assert.assertEquals("message", fsfs.getRevisionProperties(1).getStringValue(SVNRevisionProperty.LOG));
+                Assert.assertEquals(hitsCount + 1, fsfs.getRevisionPropertiesCache().getHitsCount());
+
+                fsfs.setRevisionProperty(1, SVNRevisionProperty.LOG, SVNPropertyValue.create("changed"));
+                Assert.assertEquals("changed", fsfs.getRevisionProperties(1).getStringValue(SVNRevisionProperty.LOG));
+
+                Assert.assertTrue(revPropsFile.setLastModified(System.currentTimeMillis() - 60 * 1000));
+                Assert.assertEquals("changed", fsfs.getRevisionProperties(1).getStringValue(SVNRevisionProperty.LOG));
+                otherFsfs.setRevisionProperty(1, SVNRevisionProperty.LOG, SVNPropertyValue.create("changed by other process"));
+                Assert.assertEquals("changed by other process", fsfs.getRevisionProperties(1).getStringValue(SVNRevisionProperty.LOG));
+            } finally {
+                otherFsfs.close();
+                fsfs.close();
+            }
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testCachesAreSharedBetweenRepositoryInstances() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testCachesAreSharedBetweenRepositoryInstances", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+            Assume.assumeTrue("file".equals(url.getProtocol()));
+
+            final CommitBuilder commitBuilder = new CommitBuilder(url);
+            commitBuilder.addFile("trunk/directory/file", "contents".getBytes());
+            commitBuilder.commit();
+
+            final FSRepository firstRepository = (FSRepository) SVNRepositoryFactory.create(url);
+            final FSRepository secondRepository = (FSRepository) SVNRepositoryFactory.create(url);
+            try {
+                final ByteArrayOutputStream firstContents = new ByteArrayOutputStream();
+                firstRepository.getFile("trunk/directory/file", 1, null, firstContents);
+
+                secondRepository.testConnection();
+                final FSFS secondFsfs = secondRepository.getFSFS();
+                Assert.assertNotSame(firstRepository.getFSFS(), secondFsfs);
+                Assert.assertSame(firstRepository.getFSFS().getRevisionNodesCache(), secondFsfs.getRevisionNodesCache());
+                Assert.assertSame(firstRepository.getFSFS().getDirContentsCache(), secondFsfs.getDirContentsCache());
+                final long revisionNodesHits = secondFsfs.getRevisionNodesCache().getHitsCount();
+                final long dirContentsHits = secondFsfs.getDirContentsCache().getHitsCount();
+
+                final ByteArrayOutputStream secondContents = new ByteArrayOutputStream();
+                secondRepository.getFile("trunk/directory/file", 1, null, secondContents);
+
+                Assert.assertEquals("contents", secondContents.toString());
+                Assert.assertTrue(secondFsfs.getRevisionNodesCache().getHitsCount() > revisionNodesHits);
+                Assert.assertTrue(secondFsfs.getDirContentsCache().getHitsCount() > dirContentsHits);
+            } finally {
+                firstRepository.closeSession();
+                secondRepository.closeSession();
+            }
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    /**
+     * Commits revisions 1 to 5 of "file" and packs the repository.
+     */
+    private File createPackedRepository(SVNURL url) throws SVNException {
+        for (int i = 1; i <= 5; i++) {
+            final CommitBuilder commitBuilder = new CommitBuilder(url);
+            if (i == 1) {
+                commitBuilder.addFile("file", ("contents" + i).getBytes());
+            } else {
+                commitBuilder.changeFile("file", ("contents" + i).getBytes());
+            }
+            commitBuilder.commit();
+        }
+
+        final File repositoryRoot = new File(url.getPath());
+        final SVNClientManager clientManager = SVNClientManager.newInstance();
+        try {
+            clientManager.getAdminClient().doPack(repositoryRoot);
+        } finally {
+            clientManager.dispose();
+        }
+        return repositoryRoot;
+    }
+
+    private byte[] readFully(File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final byte[] contents = new byte[(int) randomAccessFile.length()];
+            randomAccessFile.readFully(contents);
+            return contents;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private void writeInPlace(File file, byte[] contents) throws IOException {
+        SVNFileUtil.setReadonly(file, false);
+        final OutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(contents);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private File getManifestFile(File repositoryRoot, long shard) {
+        return new File(repositoryRoot, "db/revs/" + shard + ".pack/manifest");
+    }
+
+    private void assertSessionReadsFile(SVNURL url, String path, String expectedContents) throws SVNException {
+        final SVNRepository repository = SVNRepositoryFactory.create(url);
+        try {
+            final ByteArrayOutputStream contents = new ByteArrayOutputStream();
+            repository.getFile(path, 1, null, contents);
+            Assert.assertEquals(expectedContents, contents.toString());
+        } finally {
+            repository.closeSession();
+        }
+    }
+
+    private void assertFileContents(FSFS fsfs, long revision) throws SVNException, IOException {
+        final InputStream stream = fsfs.createRevisionRoot(revision).getFileStreamForPath(new SVNDeltaCombiner(), "/file");
+        try {
+            Assert.assertEquals("contents" + revision, SVNFileUtil.readFile(stream));
+        } finally {
+            SVNFileUtil.closeFile(stream);
+        }
+    }
+
+    private String getTestName() {
+        return "FSFSCachesTest";
+    }
+}
@@ -0,0 +1,239 @@
+package org.tmatesoft.svn.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.tmatesoft.svn.core.ISVNLogEntryHandler;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNPropertyValue;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationManager;
+import org.tmatesoft.svn.core.internal.io.fs.FSFS;
+import org.tmatesoft.svn.core.internal.io.fs.FSLog;
+import org.tmatesoft.svn.core.internal.io.fs.FSLogIndex;
+import org.tmatesoft.svn.core.wc.admin.SVNAdminClient;
+import org.tmatesoft.svn.core.wc2.SvnOperationFactory;
+
+public class FSLogTest {
+
+    @Test
+    public void testParallelHistoriesMatchSerialOnes() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testParallelHistoriesMatchSerialOnes", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+            Assume.assumeTrue("file".equals(url.getProtocol()));
+
+            final CommitBuilder commitBuilder = new CommitBuilder(url);
+            for (int i = 0; i < 5; i++) {
+                commitBuilder.addFile("trunk/file" + i);
+            }
+            commitBuilder.addFile("unrelated");
+            commitBuilder.commit();
+            for (int revision = 2; revision <= 40; revision++) {
+                final CommitBuilder nextCommitBuilder = new CommitBuilder(url);
+                if (revision == 20) {
+                    nextCommitBuilder.addDirectoryByCopying("branch", "trunk", 19);
+                } else if (revision % 7 == 0) {
+                    nextCommitBuilder.changeFile("unrelated", ("contents" + revision).getBytes());
+                } else {
+                    final String directory = revision > 20 && revision % 2 == 0 ? "branch" : "trunk";
+                    nextCommitBuilder.changeFile(directory + "/file" + (revision % 5), ("contents" + revision).getBytes());
+                }
+                nextCommitBuilder.commit();
+            }
+
+            final String[] paths = new String[] {"/branch/file0", "/branch/file1", "/branch/file2", "/trunk/file3", "/trunk/file4"};
+            final FSFS fsfs = new FSFS(new File(url.getPath()));
+            fsfs.open();
+            try {
+                final long[][] ranges = new long[][] {{1, 40}, {10, 35}, {25, 40}};
+                final long[] limits = new long[] {0, 1, 7};
+                for (int r = 0; r < ranges.length; r++) {
+                    for (int l = 0; l < limits.length; l++) {
+                        for (int descending = 0; descending < 2; descending++) {
+                            final List expected = runLog(fsfs, paths, ranges[r], limits[l], descending == 1, 1);
+                            final List actual = runLog(fsfs, paths, ranges[r], limits[l], descending == 1, 3);
+                            Assert.assertFalse(expected.isEmpty());
+                            Assert.assertEquals(expected, actual);
+                        }
+                    }
+                }
+            } finally {
+                fsfs.close();
+            }
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testIndexedHistoriesMatchNodeHistories() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testIndexedHistoriesMatchNodeHistories", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+            Assume.assumeTrue("file".equals(url.getProtocol()));
+            final File repositoryRoot = new File(url.getPath());
+
+            final CommitBuilder commitBuilder1 = new CommitBuilder(url);
+            commitBuilder1.addFile("trunk/a/f1");
+            commitBuilder1.addFile("trunk/a/f2");
+            commitBuilder1.addFile("trunk/b/g");
+            commitBuilder1.addFile("other/x");
+            commitBuilder1.commit();
+            new CommitBuilder(url).changeFile("trunk/a/f1", "r2".getBytes()).commit();
+            new CommitBuilder(url).changeFile("trunk/b/g", "r3".getBytes()).commit();
+            new CommitBuilder(url).addDirectoryByCopying("branch", "trunk", 3).commit();
+            new CommitBuilder(url).changeFile("branch/a/f1", "r5".getBytes()).commit();
+            new CommitBuilder(url).changeFile("trunk/a/f2", "r6".getBytes()).commit();
+
+            final FSFS indexedFsfs = new FSFS(repositoryRoot);
+            indexedFsfs.open();
+            try {
+                FSLogIndex.create(indexedFsfs);
+            } finally {
+                indexedFsfs.close();
+            }
+
+            final CommitBuilder commitBuilder7 = new CommitBuilder(url);
+            commitBuilder7.changeFile("branch/a/f2", "r7".getBytes());
+            commitBuilder7.setDirectoryProperty("branch/b", "name", SVNPropertyValue.create("value"));
+            commitBuilder7.commit();
+            final CommitBuilder commitBuilder8 = new CommitBuilder(url);
+            commitBuilder8.delete("branch/b");
+            commitBuilder8.commit();
+            new CommitBuilder(url).addDirectoryByCopying("branch/b", "trunk/b", 6).commit();
+            final CommitBuilder commitBuilder10 = new CommitBuilder(url);
+            commitBuilder10.replaceFileByCopying("trunk/a/f1", "other/x", 1);
+            commitBuilder10.commit();
+            new CommitBuilder(url).addDirectoryByCopying("branch2", "branch", 10).commit();
+            new CommitBuilder(url).changeFile("branch2/a/f2", "r12".getBytes()).commit();
+            final CommitBuilder commitBuilder13 = new CommitBuilder(url);
+            commitBuilder13.delete("other/x");
+            commitBuilder13.commit();
+            new CommitBuilder(url).addFile("other/x", "r14".getBytes()).commit();
+            new CommitBuilder(url).changeFile("other/x", "r15".getBytes()).commit();
+            final CommitBuilder commitBuilder16 = new CommitBuilder(url);
+            commitBuilder16.replaceDirectoryByCopying("branch/a", "trunk/a", 10);
+            commitBuilder16.commit();
+            new CommitBuilder(url).changeFile("branch/a/f1", "r17".getBytes()).commit();
+
+            final String[][] targets = new String[][] {
+                    {"/trunk"}, {"/trunk/a"}, {"/trunk/a/f1"}, {"/trunk/a/f2"}, {"/trunk/b/g"},
+                    {"/branch"}, {"/branch/a"}, {"/branch/a/f1"}, {"/branch/a/f2"}, {"/branch/b"}, {"/branch/b/g"},
+                    {"/branch2"}, {"/branch2/a/f1"}, {"/branch2/a/f2"}, {"/other"}, {"/other/x"},
+                    {"/branch/a/f1", "/branch2/a/f2", "/other/x"}, {"/", "/trunk/b/g"},
+            };
+            final long[][] ranges = new long[][] {{0, 17}, {3, 12}, {10, 17}, {1, 9}};
+
+            final File indexFile = new File(new File(repositoryRoot, FSFS.DB_DIR), FSFS.LOG_INDEX_DB);
+            final File movedIndexFile = new File(indexFile.getParentFile(), "moved-" + FSFS.LOG_INDEX_DB);
+            Assert.assertTrue(indexFile.renameTo(movedIndexFile));
+            final List expected = runLogs(repositoryRoot, targets, ranges);
+            Assert.assertTrue(movedIndexFile.renameTo(indexFile));
+
+            final FSFS fsfs = new FSFS(repositoryRoot);
+            fsfs.open();
+            try {
+                // commits leave the index behind, log brings it up to date.
+                Assert.assertNotNull(fsfs.getLogIndex());
+                Assert.assertEquals(6, fsfs.getLogIndex().getYoungestRevision());
+            } finally {
+                fsfs.close();
+            }
+            Assert.assertEquals(expected, runLogs(repositoryRoot, targets, ranges));
+            final FSFS updatedFsfs = new FSFS(repositoryRoot);
+            updatedFsfs.open();
+            try {
+                Assert.assertEquals(17, updatedFsfs.getLogIndex().getYoungestRevision());
+            } finally {
+                updatedFsfs.close();
+            }
+
+            new SVNAdminClient((ISVNAuthenticationManager) null, null).doBuildLogIndex(repositoryRoot);
+            Assert.assertEquals(expected, runLogs(repositoryRoot, targets, ranges));
+
+            Assert.assertTrue(indexFile.setWritable(false));
+            try {
+                Assume.assumeTrue(!indexFile.canWrite());
+                final FSFS readOnlyFsfs = new FSFS(repositoryRoot);
+                readOnlyFsfs.open();
+                try {
+                    Assert.assertNotNull(readOnlyFsfs.getLogIndex());
+                    Assert.assertTrue(readOnlyFsfs.getLogIndex().isReadOnly());
+                } finally {
+                    readOnlyFsfs.close();
+                }
+                Assert.assertEquals(expected, runLogs(repositoryRoot, targets, ranges));
+            } finally {
+                indexFile.setWritable(true);
+            }
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    private List runLogs(File repositoryRoot, String[][] targets, long[][] ranges) throws Exception {
+        final List results = new ArrayList();
+        final FSFS fsfs = new FSFS(repositoryRoot);
+        fsfs.open();
+        try {
+            for (int t = 0; t < targets.length; t++) {
+                for (int r = 0; r < ranges.length; r++) {
+                    for (int strict = 0; strict < 2; strict++) {
+                        for (int descending = 0; descending < 2; descending++) {
+                            final List revisions = new ArrayList();
+                            final ISVNLogEntryHandler handler = new ISVNLogEntryHandler() {
+                                public void handleLogEntry(SVNLogEntry logEntry) {
+                                    revisions.add(new Long(logEntry.getRevision()));
+                                }
+                            };
+                            final FSLog log = new FSLog(fsfs, targets[t], descending == 1 ? 3 : 0, ranges[r][0], ranges[r][1],
+                                    descending == 1, false, strict == 1, false, null, handler);
+                            try {
+                                log.runLog();
+                            } catch (SVNException e) {
+                                revisions.add(e.getErrorMessage().getErrorCode());
+                            }
+                            results.add(Arrays.asList(targets[t]) + "@" + ranges[r][0] + ":" + ranges[r][1] + 
+                                    (strict == 1 ? " strict" : "") + " " + revisions);
+                        }
+                    }
+                }
+            }
+        } finally {
+            fsfs.close();
+        }
+        return results;
+    }
+
+    private List runLog(FSFS fsfs, String[] paths, long[] range, long limit, boolean descending, int threadsCount) throws Exception {
+        final List revisions = new ArrayList();
+        final ISVNLogEntryHandler handler = new ISVNLogEntryHandler() {
+            public void handleLogEntry(SVNLogEntry logEntry) {
+                revisions.add(logEntry.getRevision() + " " + logEntry.getChangedPaths().keySet());
+            }
+        };
+        final FSLog log = new FSLog(fsfs, paths, limit, range[0], range[1], descending, true, false, false, null, handler);
+        log.setThreadsCount(threadsCount);
+        log.runLog();
+        return revisions;
+    }
+
+    private String getTestName() {
+        return "FSLogTest";
+    }
+}
@@ -0,0 +1,270 @@
+package org.tmatesoft.svn.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.io.dav.DAVRepositoryFactory;
+import org.tmatesoft.svn.core.internal.io.dav.http.HTTPConnection;
+import org.tmatesoft.svn.core.internal.io.dav.http.HTTPHeader;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.wc.SVNWCUtil;
+
+public class HttpCompressionTest {
+
+    @Test
+    public void testCompressedPutRoundTrip() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getClass().getSimpleName() + ".testCompressedPutRoundTrip", options);
+        final PutServer server = new PutServer(false);
+        try {
+            final HTTPConnection connection = createConnection(sandbox, server);
+            try {
+                final byte[] contents = createContents();
+                put(connection, contents);
+
+                Assert.assertEquals(1, server.getRequests().size());
+                final PutRequest request = server.getRequests().get(0);
+                Assert.assertTrue(request.compressed);
+                Assert.assertTrue(request.receivedLength < contents.length);
+                Assert.assertTrue(Arrays.equals(contents, request.body));
+            } finally {
+                connection.close();
+            }
+        } finally {
+            server.close();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testRequestIsSentUncompressedWhenServerRejectsGzip() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getClass().getSimpleName() + ".testRequestIsSentUncompressedWhenServerRejectsGzip", options);
+        final PutServer server = new PutServer(true);
+        try {
+            final HTTPConnection connection = createConnection(sandbox, server);
+            try {
+                final byte[] contents = createContents();
+                put(connection, contents);
+                put(connection, contents);
+
+                final List<PutRequest> requests = server.getRequests();
+                Assert.assertEquals(3, requests.size());
+                Assert.assertTrue(requests.get(0).compressed);
+                Assert.assertFalse(requests.get(1).compressed);
+                Assert.assertTrue(Arrays.equals(contents, requests.get(1).body));
+                // compression stays disabled for the connection
+                Assert.assertFalse(requests.get(2).compressed);
+                Assert.assertTrue(Arrays.equals(contents, requests.get(2).body));
+            } finally {
+                connection.close();
+            }
+        } finally {
+            server.close();
+            sandbox.dispose();
+        }
+    }
+
+    private HTTPConnection createConnection(Sandbox sandbox, PutServer server) throws Exception {
+        DAVRepositoryFactory.setup();
+        final File configDirectory = sandbox.createDirectory("config");
+        TestUtil.writeFileContentsString(new File(configDirectory, "servers"), "[global]\nhttp-request-compression = yes\n");
+
+        final SVNRepository repository = SVNRepositoryFactory.create(SVNURL.parseURIEncoded("http://localhost:" + server.getPort() + "/repos"));
+        repository.setAuthenticationManager(SVNWCUtil.createDefaultAuthenticationManager(configDirectory));
+        return new HTTPConnection(repository, "UTF-8", null, false);
+    }
+
+    private void put(HTTPConnection connection, byte[] contents) throws Exception {
+        final HTTPHeader header = new HTTPHeader();
+        header.setHeaderValue(HTTPHeader.CONTENT_TYPE_HEADER, HTTPHeader.SVNDIFF_MIME_TYPE);
+        header.setHeaderValue(HTTPHeader.CONTENT_LENGTH_HEADER, Integer.toString(contents.length));
+        connection.request("PUT", "/repos/file", header, new ByteArrayInputStream(contents), 201, 204, null, null);
+    }
+
+    private byte[] createContents() {
+        // compressible, larger than the compression threshold
+        final byte[] contents = new byte[64 * 1024];
+        final Random random = new Random(0);
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = (byte) ('a' + random.nextInt(4));
+        }
+        return contents;
+    }
+
+    private static class PutRequest {
+        private boolean compressed;
+        private int receivedLength;
+        private byte[] body;
+    }
+
+    /**
+     * Stores bodies of the received requests and answers with 201,
+     * or with 415 to the first compressed request when rejecting gzip.
+     */
+    private static class PutServer extends Thread {
+
+        private final ServerSocket serverSocket;
+        private final boolean rejectGzip;
+        private final List<PutRequest> requests;
+
+        public PutServer(boolean rejectGzip) throws IOException {
+            this.serverSocket = new ServerSocket(0);
+            this.rejectGzip = rejectGzip;
+            this.requests = Collections.synchronizedList(new ArrayList<PutRequest>());
+            setDaemon(true);
+            start();
+        }
+
+        public int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        public List<PutRequest> getRequests() {
+            return requests;
+        }
+
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (IOException e) {
+                    return;
+                }
+                try {
+                    serve(socket);
+                } catch (IOException e) {
+                } finally {
+                    try {
+                        socket.close();
+                    } catch (IOException e) {
+                    }
+                }
+            }
+        }
+
+        private void serve(Socket socket) throws IOException {
+            final InputStream in = socket.getInputStream();
+            final OutputStream out = socket.getOutputStream();
+            while (true) {
+                int contentLength = -1;
+                boolean chunked = false;
+                boolean gzip = false;
+                boolean empty = true;
+                while (true) {
+                    final String line = readLine(in);
+                    if (line == null) {
+                        return;
+                    }
+                    if (line.length() == 0) {
+                        if (empty) {
+                            continue;
+                        }
+                        break;
+                    }
+                    empty = false;
+                    final String lowerCaseLine = line.toLowerCase();
+                    if (lowerCaseLine.startsWith("content-length:")) {
+                        contentLength = Integer.parseInt(line.substring("content-length:".length()).trim());
+                    } else if (lowerCaseLine.startsWith("transfer-encoding:")) {
+                        chunked = lowerCaseLine.indexOf("chunked") >= 0;
+                    } else if (lowerCaseLine.startsWith("content-encoding:")) {
+                        gzip = lowerCaseLine.indexOf("gzip") >= 0;
+                    }
+                }
+                final byte[] received = chunked ? readChunked(in) : readFully(in, Math.max(0, contentLength));
+
+                final PutRequest request = new PutRequest();
+                request.compressed = gzip;
+                request.receivedLength = received.length;
+                request.body = gzip ? gunzip(received) : received;
+                final boolean reject = rejectGzip && gzip;
+                requests.add(request);
+
+                final String response = reject ?
+                        "HTTP/1.1 415 Unsupported Media Type\r\nContent-Length: 0\r\n\r\n" :
+                        "HTTP/1.1 201 Created\r\nContent-Length: 0\r\n\r\n";
+                out.write(response.getBytes("US-ASCII"));
+                out.flush();
+            }
+        }
+
+        private static byte[] readChunked(InputStream in) throws IOException {
+            final ByteArrayOutputStream body = new ByteArrayOutputStream();
+            while (true) {
+                final String sizeLine = readLine(in);
+                final int size = Integer.parseInt(sizeLine.trim(), 16);
+                if (size == 0) {
+                    readLine(in);
+                    return body.toByteArray();
+                }
+                body.write(readFully(in, size));
+                readLine(in);
+            }
+        }
+
+        private static byte[] gunzip(byte[] compressed) throws IOException {
+            final InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+            final ByteArrayOutputStream body = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            while (true) {
+                final int read = in.read(buffer);
+                if (read < 0) {
+                    return body.toByteArray();
+                }
+                body.write(buffer, 0, read);
+            }
+        }
+
+        private static byte[] readFully(InputStream in, int length) throws IOException {
+            final byte[] data = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                final int read = in.read(data, offset, length - offset);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of request body");
+                }
+                offset += read;
+            }
+            return data;
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            final StringBuilder line = new StringBuilder();
+            while (true) {
+                final int b = in.read();
+                if (b < 0) {
+                    return null;
+                } else if (b == '\n') {
+                    break;
+                } else if (b != '\r') {
+                    line.append((char) b);
+                }
+            }
+            return line.toString();
+        }
+    }
+}
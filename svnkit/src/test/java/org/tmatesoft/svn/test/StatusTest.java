@@ -16,7 +16,9 @@ import org.tmatesoft.svn.core.wc.*;
 import org.tmatesoft.svn.core.wc2.*;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class StatusTest {
@@ -293,6 +295,57 @@ public class StatusTest {
         }
     }
 
+    @Test
+    public void testParallelStatusReportsInSequentialOrder() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testParallelStatusReportsInSequentialOrder", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+
+            final CommitBuilder commitBuilder = new CommitBuilder(url);
+            for (int i = 0; i < 10; i++) {
+                for (int j = 0; j < 5; j++) {
+                    commitBuilder.addFile("directory" + i + "/subdirectory" + j + "/file");
+                }
+            }
+            commitBuilder.commit();
+
+            final WorkingCopy workingCopy = sandbox.checkoutNewWorkingCopy(url);
+            workingCopy.changeFileContents("directory3/subdirectory1/file", "modified");
+            workingCopy.deleteFile("directory7/subdirectory4/file");
+            TestUtil.writeFileContentsString(workingCopy.getFile("directory5/unversioned"), "unversioned");
+
+            final List<String> sequential = getStatusPaths(svnOperationFactory, workingCopy.getWorkingCopyDirectory(), 1);
+            final List<String> parallel = getStatusPaths(svnOperationFactory, workingCopy.getWorkingCopyDirectory(), 4);
+
+            Assert.assertEquals(1 + 10 + 10 * 5 * 2 + 1, sequential.size());
+            Assert.assertEquals(sequential, parallel);
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    private List<String> getStatusPaths(SvnOperationFactory svnOperationFactory, File workingCopyDirectory, int threadsCount) throws SVNException {
+        final Thread callingThread = Thread.currentThread();
+        final List<String> paths = new ArrayList<String>();
+
+        final SvnGetStatus getStatus = svnOperationFactory.createGetStatus();
+        getStatus.setSingleTarget(SvnTarget.fromFile(workingCopyDirectory));
+        getStatus.setReportAll(true);
+        getStatus.setThreadsCount(threadsCount);
+        getStatus.setReceiver(new ISvnObjectReceiver<SvnStatus>() {
+            public void receive(SvnTarget target, SvnStatus status) throws SVNException {
+                Assert.assertSame(callingThread, Thread.currentThread());
+                paths.add(status.getPath().getPath() + " " + status.getNodeStatus());
+            }
+        });
+        getStatus.run();
+        return paths;
+    }
+
     private String getTestName() {
         return "StatusTest";
     }
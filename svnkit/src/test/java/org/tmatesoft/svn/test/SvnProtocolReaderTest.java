@@ -0,0 +1,351 @@
+package org.tmatesoft.svn.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNCommitInfo;
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNPropertyValue;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.SVNAuthentication;
+import org.tmatesoft.svn.core.internal.io.svn.ISVNConnector;
+import org.tmatesoft.svn.core.internal.io.svn.SVNAuthenticator;
+import org.tmatesoft.svn.core.internal.io.svn.SVNConnection;
+import org.tmatesoft.svn.core.internal.io.svn.SVNEditModeReader;
+import org.tmatesoft.svn.core.internal.io.svn.SVNItemReader;
+import org.tmatesoft.svn.core.internal.io.svn.SVNReader;
+import org.tmatesoft.svn.core.internal.io.svn.SVNRepositoryFactoryImpl;
+import org.tmatesoft.svn.core.internal.io.svn.SVNRepositoryImpl;
+import org.tmatesoft.svn.core.internal.io.svn.SVNTemplate;
+import org.tmatesoft.svn.core.io.ISVNEditor;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.io.diff.SVNDeltaGenerator;
+import org.tmatesoft.svn.core.io.diff.SVNDiffWindow;
+
+public class SvnProtocolReaderTest {
+
+    private static final String[][] RESPONSES = {
+            {"( success ( 12 ( ( 7:svn:eol 6:native ) ) ( ( 5:a.txt file 10 false 3 ( 27:2012-06-01T12:00:00.000000Z ) ( 5:alice ) ) ) ) ) ", "rll"},
+            {"( success ( ( 3 ) 2:d1 ) ) ", "(?r)s"},
+            {"( success ( ( ) 2:d1 ) ) ", "(?r)s"},
+            {"( success ( 4:path 2:d1 2:d2 ( ) ) ) ", "sss(?sr)"},
+            {"( success ( 4:path 2:d1 2:d2 ( 4:from 7 ) extra ) ) ", "sss(?sr)"},
+            {"( success ( 4:path ) ) ", "sss(?r)"},
+            {"( success ( word 5 ( 1 2 ( nested ) ) 6:\u00d0\u00b0\u00d0\u00b1\u00d0\u00b2 ) ) ", "wnls"},
+            {"( success ( 1 false 4:text ) ) ", "nbs"},
+    };
+
+    @Test
+    public void testStreamingParserMatchesItemsParser() throws Exception {
+        for (int i = 0; i < RESPONSES.length; i++) {
+            final byte[] data = (RESPONSES[i][0] + "( success ( 42 ) ) ").getBytes("ISO-8859-1");
+            final String template = RESPONSES[i][1];
+
+            final InputStream stream = new ByteArrayInputStream(data);
+            final List expected = SVNReader.parse(stream, template, null);
+            final List expectedNext = SVNReader.parse(stream, "n", null);
+
+            final SVNItemReader reader = new SVNItemReader(new ByteArrayInputStream(data));
+            final List actual = SVNReader.parse(reader, SVNTemplate.getTemplate(template), null);
+            final List actualNext = SVNReader.parse(reader, SVNTemplate.getTemplate("n"), null);
+
+            Assert.assertEquals(RESPONSES[i][0], toString(expected), toString(actual));
+            Assert.assertEquals(toString(expectedNext), toString(actualNext));
+        }
+    }
+
+    @Test
+    public void testStreamingParserReportsFailure() throws Exception {
+        final byte[] data = "( failure ( ( 160013 9:not found 0: 0 ) ) ) ".getBytes("UTF-8");
+        try {
+            SVNReader.parse(new SVNItemReader(new ByteArrayInputStream(data)), SVNTemplate.getTemplate("r"), null);
+            Assert.fail();
+        } catch (SVNException e) {
+            Assert.assertEquals(SVNErrorCode.FS_NOT_FOUND, e.getErrorMessage().getErrorCode());
+            Assert.assertEquals("not found", e.getErrorMessage().getMessageTemplate());
+        }
+    }
+
+    @Test
+    public void testEditModeReaderDrivesEditor() throws Exception {
+        final byte[] contents = "contents of the file\ncontents of the file\n".getBytes("UTF-8");
+        final ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        new SVNDeltaGenerator().sendDelta("file", new ByteArrayInputStream(contents), new RecordingEditor(new StringBuffer()) {
+            public OutputStream textDeltaChunk(String path, SVNDiffWindow diffWindow) throws SVNException {
+                try {
+                    diffWindow.writeTo(delta, delta.size() == 0);
+                } catch (IOException e) {
+                    Assert.fail(e.getMessage());
+                }
+                return null;
+            }
+        }, false);
+
+        final ByteArrayOutputStream commands = new ByteArrayOutputStream();
+        writeAscii(commands, "( target-rev ( 5 ) ) ( open-root ( ( 4 ) 2:d0 ) ) ");
+        writeAscii(commands, "( add-file ( 5:a.txt 2:d0 2:c1 ( ) ) ) ");
+        writeAscii(commands, "( change-file-prop ( 2:c1 13:svn:eol-style ( 6:native ) ) ) ");
+        writeAscii(commands, "( apply-textdelta ( 2:c1 ( ) ) ) ");
+        writeAscii(commands, "( textdelta-chunk ( 2:c1 " + delta.size() + ":");
+        commands.write(delta.toByteArray());
+        writeAscii(commands, " ) ) ( textdelta-end ( 2:c1 ) ) ( close-file ( 2:c1 ( ) ) ) ");
+        writeAscii(commands, "( close-dir ( 2:d0 ) ) ( close-edit ( ) ) ");
+
+        SVNRepositoryFactoryImpl.setup();
+        final SVNRepositoryImpl repository = (SVNRepositoryImpl) SVNRepositoryFactory.create(SVNURL.parseURIEncoded("svn://localhost/repos"));
+        final SVNConnection connection = new SVNConnection(new StreamConnector(commands.toByteArray()), repository);
+
+        final StringBuffer events = new StringBuffer();
+        final SVNEditModeReader editModeReader = new SVNEditModeReader(connection, new RecordingEditor(events), false);
+        editModeReader.driveEditor();
+
+        Assert.assertFalse(editModeReader.isAborted());
+        Assert.assertEquals("targetRevision 5\nopenRoot 4\naddFile a.txt\nchangeFileProperty svn:eol-style=native\n" +
+                "applyTextDelta a.txt\ntextDeltaChunk " + contents.length + "\ntextDeltaEnd a.txt\ncloseFile a.txt\n" +
+                "closeDir\ncloseEdit\n", events.toString());
+    }
+
+    @Test
+    public void testEditModeReaderReportsBrokenConnection() throws Exception {
+        final ByteArrayOutputStream commands = new ByteArrayOutputStream();
+        writeAscii(commands, "( target-rev ( 5 ) ) ( open-root ( ( 4 ) 2:d0 ) ) ( add-file ( 5:a");
+        final byte[] data = commands.toByteArray();
+
+        final InputStream[] inputs = {
+                new ByteArrayInputStream(data),
+                new FilterInputStream(new ByteArrayInputStream(data)) {
+                    public int read() throws IOException {
+                        final int b = super.read();
+                        if (b < 0) {
+                            throw new IOException("Connection reset");
+                        }
+                        return b;
+                    }
+
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        final int read = super.read(b, off, len);
+                        if (read < 0) {
+                            throw new IOException("Connection reset");
+                        }
+                        return read;
+                    }
+                },
+        };
+        SVNRepositoryFactoryImpl.setup();
+        for (int i = 0; i < inputs.length; i++) {
+            final SVNRepositoryImpl repository = (SVNRepositoryImpl) SVNRepositoryFactory.create(SVNURL.parseURIEncoded("svn://localhost/repos"));
+            final SVNConnection connection = new SVNConnection(new StreamConnector(inputs[i]), repository);
+            final StringBuffer events = new StringBuffer();
+            try {
+                new SVNEditModeReader(connection, new RecordingEditor(events), false).driveEditor();
+                Assert.fail("An exception should be thrown");
+            } catch (SVNException e) {
+                Assert.assertEquals(SVNErrorCode.RA_SVN_CONNECTION_CLOSED, e.getErrorMessage().getErrorCode());
+            }
+            Assert.assertEquals("targetRevision 5\nopenRoot 4\n", events.toString());
+        }
+    }
+
+    @Test
+    public void testBytesReadAheadAreKeptForSecurityLayer() throws Exception {
+        final ByteArrayOutputStream input = new ByteArrayOutputStream();
+        writeAscii(input, "( success ( ) ) ");
+        final ByteArrayOutputStream wrapped = new ByteArrayOutputStream();
+        writeAscii(wrapped, "( success ( 7 ) ) ");
+        final byte[] wrappedBytes = wrapped.toByteArray();
+        for (int i = 0; i < wrappedBytes.length; i++) {
+            input.write(wrappedBytes[i] ^ WRAP_MASK);
+        }
+
+        SVNRepositoryFactoryImpl.setup();
+        final SVNRepositoryImpl repository = (SVNRepositoryImpl) SVNRepositoryFactory.create(SVNURL.parseURIEncoded("svn://localhost/repos"));
+        final SVNConnection connection = new SVNConnection(new StreamConnector(input.toByteArray()), repository);
+
+        connection.read("", null, false);
+
+        new WrappingAuthenticator(connection).authenticate(null, null, repository);
+
+        final List items = connection.read("n", null, false);
+        Assert.assertEquals(new Long(7), items.get(0));
+    }
+
+    private static void writeAscii(OutputStream os, String str) throws IOException {
+        os.write(str.getBytes("US-ASCII"));
+    }
+
+    private static String toString(Object value) {
+        if (value instanceof byte[]) {
+            return "bytes" + Arrays.toString((byte[]) value);
+        } else if (value instanceof Collection) {
+            final StringBuffer result = new StringBuffer("[");
+            for (Iterator iterator = ((Collection) value).iterator(); iterator.hasNext();) {
+                result.append(toString(iterator.next())).append(", ");
+            }
+            return result.append("]").toString();
+        }
+        return String.valueOf(value);
+    }
+
+    private static final int WRAP_MASK = 0x5A;
+
+    /**
+     * Stands for a security layer negotiated after authentication, unmasks
+     * bytes read from the plain connection stream.
+     */
+    private static class WrappingAuthenticator extends SVNAuthenticator {
+
+        public WrappingAuthenticator(SVNConnection connection) throws SVNException {
+            super(connection);
+        }
+
+        public SVNAuthentication authenticate(List mechs, String realm, SVNRepositoryImpl repository) {
+            setInputStream(new FilterInputStream(getPlainInputStream()) {
+                public int read() throws IOException {
+                    final int b = super.read();
+                    return b < 0 ? b : (b ^ WRAP_MASK);
+                }
+
+                public int read(byte[] b, int off, int len) throws IOException {
+                    final int read = super.read(b, off, len);
+                    for (int i = 0; i < read; i++) {
+                        b[off + i] ^= WRAP_MASK;
+                    }
+                    return read;
+                }
+            });
+            return null;
+        }
+    }
+
+    private static class StreamConnector implements ISVNConnector {
+
+        private final InputStream myInputStream;
+        private final OutputStream myOutputStream;
+
+        public StreamConnector(byte[] input) {
+            this(new ByteArrayInputStream(input));
+        }
+
+        public StreamConnector(InputStream input) {
+            myInputStream = input;
+            myOutputStream = new ByteArrayOutputStream();
+        }
+
+        public void open(SVNRepositoryImpl repository) {
+        }
+
+        public void handleExceptionOnOpen(SVNRepositoryImpl repository, SVNException exception) throws SVNException {
+            throw exception;
+        }
+
+        public boolean isConnected(SVNRepositoryImpl repository) {
+            return true;
+        }
+
+        public void close(SVNRepositoryImpl repository) {
+        }
+
+        public boolean isStale() {
+            return false;
+        }
+
+        public OutputStream getOutputStream() {
+            return myOutputStream;
+        }
+
+        public InputStream getInputStream() {
+            return myInputStream;
+        }
+    }
+
+    private static class RecordingEditor implements ISVNEditor {
+
+        private final StringBuffer myEvents;
+
+        public RecordingEditor(StringBuffer events) {
+            myEvents = events;
+        }
+
+        public void targetRevision(long revision) {
+            myEvents.append("targetRevision ").append(revision).append('\n');
+        }
+
+        public void openRoot(long revision) {
+            myEvents.append("openRoot ").append(revision).append('\n');
+        }
+
+        public void deleteEntry(String path, long revision) {
+            myEvents.append("deleteEntry ").append(path).append('\n');
+        }
+
+        public void absentDir(String path) {
+        }
+
+        public void absentFile(String path) {
+        }
+
+        public void addDir(String path, String copyFromPath, long copyFromRevision) {
+            myEvents.append("addDir ").append(path).append('\n');
+        }
+
+        public void openDir(String path, long revision) {
+            myEvents.append("openDir ").append(path).append('\n');
+        }
+
+        public void changeDirProperty(String name, SVNPropertyValue value) {
+        }
+
+        public void closeDir() {
+            myEvents.append("closeDir\n");
+        }
+
+        public void addFile(String path, String copyFromPath, long copyFromRevision) {
+            myEvents.append("addFile ").append(path).append('\n');
+        }
+
+        public void openFile(String path, long revision) {
+            myEvents.append("openFile ").append(path).append('\n');
+        }
+
+        public void changeFileProperty(String path, String propertyName, SVNPropertyValue propertyValue) {
+            myEvents.append("changeFileProperty ").append(propertyName).append('=').append(propertyValue).append('\n');
+        }
+
+        public void closeFile(String path, String textChecksum) {
+            myEvents.append("closeFile ").append(path).append('\n');
+        }
+
+        public SVNCommitInfo closeEdit() {
+            myEvents.append("closeEdit\n");
+            return null;
+        }
+
+        public void abortEdit() {
+            myEvents.append("abortEdit\n");
+        }
+
+        public void applyTextDelta(String path, String baseChecksum) {
+            myEvents.append("applyTextDelta ").append(path).append('\n');
+        }
+
+        public OutputStream textDeltaChunk(String path, SVNDiffWindow diffWindow) throws SVNException {
+            myEvents.append("textDeltaChunk ").append(diffWindow.getTargetViewLength()).append('\n');
+            return null;
+        }
+
+        public void textDeltaEnd(String path) {
+            myEvents.append("textDeltaEnd ").append(path).append('\n');
+        }
+    }
+}
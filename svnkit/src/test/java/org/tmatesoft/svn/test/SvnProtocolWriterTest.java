@@ -0,0 +1,98 @@
+package org.tmatesoft.svn.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNProperties;
+import org.tmatesoft.svn.core.internal.io.svn.SVNWriter;
+
+public class SvnProtocolWriterTest {
+
+    @Test
+    public void testCommandsEncoding() throws Exception {
+        final SVNProperties properties = new SVNProperties();
+        properties.put("svn:eol-style", "native");
+
+        final CountingOutputStream stream = new CountingOutputStream();
+        final SVNWriter writer = new SVNWriter();
+        writer.write("(w((n)s))", new Object[]{"open-root", null, "d0"}, stream);
+        writer.write("(w(sss(n)))", new Object[]{"open-file", "\u0444.txt", "d0", "c1", new Long(12)}, stream);
+        writer.write("(w(ss(b)))", new Object[]{"change-file-prop", "c1", "name", new byte[]{1, 2}}, stream);
+        writer.write("(w(s(*n)(*w)(*l)))", new Object[]{"lists", "c1", new long[]{-1, 0, 7}, new Object[]{"a", "b"}, properties}, stream);
+        writer.write("( n ( w w ) s )", new Object[]{new Integer(2), "edit-pipeline", "svndiff1", ""}, stream);
+        Assert.assertEquals(0, stream.getWritesCount());
+
+        writer.writeTo(stream);
+        Assert.assertEquals(1, stream.getWritesCount());
+        Assert.assertEquals("( open-root ( ( ) 2:d0 ) ) " +
+                "( open-file ( 6:\u00d1\u0084.txt 2:d0 2:c1 ( 12 ) ) ) " +
+                "( change-file-prop ( 2:c1 4:name ( 2:\u0001\u0002 ) ) ) " +
+                "( lists ( 2:c1 ( -1 0 7  ) ( a b  ) ( ( 13:svn:eol-style 6:native )  ) ) ) " +
+                "( 2 ( edit-pipeline svndiff1 ) 0: ) ", stream.toString("ISO-8859-1"));
+    }
+
+    @Test
+    public void testLargeStringsAreWrittenThrough() throws Exception {
+        final byte[] data = new byte[SVNWriter.WRITE_BUFFER_SIZE * 2];
+        Arrays.fill(data, (byte) 'x');
+
+        final CountingOutputStream stream = new CountingOutputStream();
+        final SVNWriter writer = new SVNWriter();
+        writer.write("(w(s", new Object[]{"textdelta-chunk", "c1"}, stream);
+        writer.writeItem(data, 0, data.length, stream);
+        writer.write("))", null, stream);
+        writer.writeTo(stream);
+
+        Assert.assertEquals(3, stream.getWritesCount());
+        Assert.assertEquals("( textdelta-chunk ( 2:c1 " + data.length + ":" + new String(data, "US-ASCII") + " ) ) ",
+                stream.toString("US-ASCII"));
+    }
+
+    @Test
+    public void testMalformedCommandIsDroppedAfterWriteThrough() throws Exception {
+        final byte[] data = new byte[SVNWriter.WRITE_BUFFER_SIZE * 2];
+        Arrays.fill(data, (byte) 'x');
+
+        final CountingOutputStream stream = new CountingOutputStream();
+        final SVNWriter writer = new SVNWriter();
+        writer.write("(w)", new Object[]{"first"}, stream);
+        try {
+            writer.write("(w(bww))", new Object[]{"second", data, "word"}, stream);
+            Assert.fail();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            //expected
+        }
+        final int writtenLength = stream.size();
+        writer.write("(w)", new Object[]{"third"}, stream);
+        writer.writeTo(stream);
+
+        Assert.assertTrue(stream.toString("US-ASCII").startsWith("( first ) ( second ( " + data.length + ":xxx"));
+        Assert.assertEquals("( third ) ", stream.toString("US-ASCII").substring(writtenLength));
+    }
+
+    private static class CountingOutputStream extends ByteArrayOutputStream {
+
+        private int myWritesCount;
+
+        public void write(byte[] b, int off, int len) {
+            myWritesCount++;
+            super.write(b, off, len);
+        }
+
+        public void write(int b) {
+            myWritesCount++;
+            super.write(b);
+        }
+
+        public void write(byte[] b) throws IOException {
+            write(b, 0, b.length);
+        }
+
+        public int getWritesCount() {
+            return myWritesCount;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.tmatesoft.svn.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
+import org.tmatesoft.svn.core.wc.admin.SVNAdminEvent;
+import org.tmatesoft.svn.core.wc.admin.SVNAdminEventAction;
+import org.tmatesoft.svn.core.wc2.ISvnObjectReceiver;
+import org.tmatesoft.svn.core.wc2.SvnOperationFactory;
+import org.tmatesoft.svn.core.wc2.SvnTarget;
+import org.tmatesoft.svn.core.wc2.admin.SvnRepositoryVerify;
+
+public class SvnRepositoryVerifyTest {
+
+    @Test
+    public void testParallelVerifyReportsRevisionsInOrder() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testParallelVerifyReportsRevisionsInOrder", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+            Assume.assumeTrue("file".equals(url.getProtocol()));
+            createRevisions(url, 20);
+
+            final List<SVNAdminEvent> events = new ArrayList<SVNAdminEvent>();
+            final SvnRepositoryVerify verify = svnOperationFactory.createRepositoryVerify();
+            verify.setRepositoryRoot(new File(url.getPath()));
+            verify.setThreadsCount(4);
+            verify.setReceiver(new ISvnObjectReceiver<SVNAdminEvent>() {
+                public void receive(SvnTarget target, SVNAdminEvent event) throws SVNException {
+                    events.add(event);
+                }
+            });
+            verify.run();
+
+            Assert.assertEquals(21, events.size());
+            for (int i = 0; i < events.size(); i++) {
+                Assert.assertEquals(SVNAdminEventAction.REVISION_DUMPED, events.get(i).getAction());
+                Assert.assertEquals(i, events.get(i).getRevision());
+            }
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testKeepGoingReportsCorruptedRevision() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testKeepGoingReportsCorruptedRevision", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+            Assume.assumeTrue("file".equals(url.getProtocol()));
+            createRevisions(url, 6);
+
+            final File repositoryRoot = new File(url.getPath());
+            final File revisionFile = new File(repositoryRoot, "db/revs/0/3");
+            corruptTextChecksum(revisionFile, 3);
+
+            final List<SVNAdminEvent> events = new ArrayList<SVNAdminEvent>();
+            final SvnRepositoryVerify verify = svnOperationFactory.createRepositoryVerify();
+            verify.setRepositoryRoot(repositoryRoot);
+            verify.setThreadsCount(2);
+            verify.setKeepGoing(true);
+            verify.setReceiver(new ISvnObjectReceiver<SVNAdminEvent>() {
+                public void receive(SvnTarget target, SVNAdminEvent event) throws SVNException {
+                    events.add(event);
+                }
+            });
+            try {
+                verify.run();
+                Assert.fail("An exception should be thrown");
+            } catch (SVNException e) {
+                //expected
+                Assert.assertEquals(SVNErrorCode.FS_CORRUPT, e.getErrorMessage().getErrorCode());
+            }
+
+            Assert.assertEquals(7, events.size());
+            for (int i = 0; i < events.size(); i++) {
+                final SVNAdminEvent event = events.get(i);
+                Assert.assertEquals(i, event.getRevision());
+                if (i == 3) {
+                    Assert.assertEquals(SVNAdminEventAction.REVISION_VERIFICATION_FAILED, event.getAction());
+                    Assert.assertNotNull(event.getError());
+                } else {
+                    Assert.assertEquals(SVNAdminEventAction.REVISION_DUMPED, event.getAction());
+                }
+            }
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    private void corruptTextChecksum(File revisionFile, long revision) throws IOException {
+        final byte[] bytes = new byte[(int) revisionFile.length()];
+        SVNFileUtil.setReadonly(revisionFile, false);
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(revisionFile, "rw");
+        try {
+            randomAccessFile.readFully(bytes);
+
+            final Matcher matcher = Pattern.compile("text: " + revision + " \\d+ \\d+ \\d+ ([0-9a-f]{32})").matcher(new String(bytes, "ISO-8859-1"));
+            Assert.assertTrue(matcher.find());
+            final String checksum = matcher.group(1);
+            final String corruptedChecksum = checksum.charAt(0) == '0' ? "1" + checksum.substring(1) : "0" + checksum.substring(1);
+
+            randomAccessFile.seek(matcher.start(1));
+            randomAccessFile.write(corruptedChecksum.getBytes("ISO-8859-1"));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private void createRevisions(SVNURL url, int count) throws SVNException {
+        final CommitBuilder commitBuilder = new CommitBuilder(url);
+        commitBuilder.addFile("file", "contents1".getBytes());
+        commitBuilder.commit();
+        for (int i = 2; i <= count; i++) {
+            final CommitBuilder nextCommitBuilder = new CommitBuilder(url);
+            nextCommitBuilder.changeFile("file", ("contents" + i).getBytes());
+            nextCommitBuilder.commit();
+        }
+    }
+
+    private String getTestName() {
+        return "SvnRepositoryVerifyTest";
+    }
+}
@@ -14,8 +14,10 @@ import org.tmatesoft.svn.core.wc2.SvnRevisionRange;
 import org.tmatesoft.svn.core.wc2.SvnTarget;
 import org.tmatesoft.svn.core.wc2.admin.SvnRepositoryCreate;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.util.Map;
+import java.util.Random;
 
 public class SyncTest {
 
@@ -79,6 +81,79 @@ public class SyncTest {
         }
     }
 
+    @Test
+    public void testPipelinedSynchronizationMatchesSequentialOne() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testPipelinedSynchronizationMatchesSequentialOne", options);
+        try {
+            final SVNURL sourceUrl = sandbox.createSvnRepository();
+
+            final byte[] largeContents = new byte[64 * 1024];
+            new Random(17).nextBytes(largeContents);
+
+            final CommitBuilder commitBuilder1 = new CommitBuilder(sourceUrl);
+            commitBuilder1.addFile("trunk/small", "contents".getBytes());
+            commitBuilder1.addFile("trunk/large", largeContents);
+            commitBuilder1.addFile("other/file");
+            commitBuilder1.commit();
+            for (int revision = 2; revision <= 12; revision++) {
+                final CommitBuilder commitBuilder = new CommitBuilder(sourceUrl);
+                if (revision == 5) {
+                    commitBuilder.addDirectoryByCopying("branch", "trunk", 4);
+                } else if (revision == 8) {
+                    commitBuilder.delete("other/file");
+                    commitBuilder.setDirectoryProperty("trunk", "name", SVNPropertyValue.create("value" + revision));
+                } else if (revision % 3 == 0) {
+                    largeContents[revision * 100] ^= 1;
+                    commitBuilder.changeFile("trunk/large", largeContents);
+                    commitBuilder.setFileProperty("trunk/large", "binary", SVNPropertyValue.create("binary", new byte[] {0, (byte) revision}));
+                } else {
+                    final String directory = revision > 5 && revision % 2 == 0 ? "branch" : "trunk";
+                    commitBuilder.changeFile(directory + "/small", ("contents" + revision).getBytes());
+                }
+                commitBuilder.commit();
+            }
+
+            final String expected = synchronize(sandbox, sourceUrl, 1);
+            Assert.assertEquals(expected, synchronize(sandbox, sourceUrl, 3));
+
+            final String maxBufferedSizeProperty = "svnkit.replay.maxBufferedRevisionSize";
+            System.setProperty(maxBufferedSizeProperty, "1024");
+            try {
+                Assert.assertEquals(expected, synchronize(sandbox, sourceUrl, 4));
+            } finally {
+                System.clearProperty(maxBufferedSizeProperty);
+            }
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    private String synchronize(Sandbox sandbox, SVNURL sourceUrl, int pipelineDepth) throws SVNException {
+        final SVNURL targetUrl = sandbox.createSvnRepository();
+        final SVNClientManager clientManager = SVNClientManager.newInstance();
+        try {
+            final SVNAdminClient adminClient = clientManager.getAdminClient();
+            adminClient.setReplayPipelineDepth(pipelineDepth);
+            adminClient.doInitialize(sourceUrl, targetUrl);
+            adminClient.doSynchronize(targetUrl);
+            Assert.assertEquals(getLatestRevision(sourceUrl), getLatestRevision(targetUrl));
+            if (!"file".equals(targetUrl.getProtocol())) {
+                return "";
+            }
+
+            final ByteArrayOutputStream dump = new ByteArrayOutputStream();
+            adminClient.doDump(new File(targetUrl.getPath()), dump, SVNRevision.create(0), SVNRevision.HEAD, false, false);
+            // repositories differ in UUID only.
+            return dump.toString().replaceFirst("UUID: [^\\n]*\\n", "");
+        } finally {
+            clientManager.dispose();
+        }
+    }
+
     private long getLatestRevision(SVNURL url) throws SVNException {
         final SVNRepository svnRepository = SVNRepositoryFactory.create(url);
         try {
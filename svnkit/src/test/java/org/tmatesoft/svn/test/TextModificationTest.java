@@ -0,0 +1,207 @@
+package org.tmatesoft.svn.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
+import org.tmatesoft.svn.core.internal.wc17.SVNWCContext;
+import org.tmatesoft.svn.core.internal.wc17.db.Structure;
+import org.tmatesoft.svn.core.internal.wc17.db.StructureFields.NodeInfo;
+import org.tmatesoft.svn.core.wc.SVNStatusType;
+import org.tmatesoft.svn.core.wc2.ISvnObjectReceiver;
+import org.tmatesoft.svn.core.wc2.SvnCleanup;
+import org.tmatesoft.svn.core.wc2.SvnGetStatus;
+import org.tmatesoft.svn.core.wc2.SvnOperationFactory;
+import org.tmatesoft.svn.core.wc2.SvnStatus;
+import org.tmatesoft.svn.core.wc2.SvnTarget;
+
+public class TextModificationTest {
+
+    private static final int FILES_COUNT = 12;
+
+    @Test
+    public void testCleanupRecordsFileinfoOfTouchedFiles() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testCleanupRecordsFileinfoOfTouchedFiles", options);
+        try {
+            final WorkingCopy workingCopy = checkoutFiles(sandbox);
+            final File workingCopyDirectory = workingCopy.getWorkingCopyDirectory();
+
+            final long touchTime = touchFiles(workingCopy);
+            // same size, different contents: only content comparison tells it is modified
+            final File modifiedFile = workingCopy.getFile("directory/file0");
+            TestUtil.writeFileContentsString(modifiedFile, "CONTENTS0");
+            modifiedFile.setLastModified(touchTime);
+
+            final SvnCleanup cleanup = svnOperationFactory.createCleanup();
+            cleanup.setSingleTarget(SvnTarget.fromFile(workingCopyDirectory));
+            cleanup.run();
+
+            final SVNWCContext context = new SVNWCContext(svnOperationFactory.getOptions(), null);
+            try {
+                for (int i = 1; i < FILES_COUNT; i++) {
+                    final File file = workingCopy.getFile("directory/file" + i);
+                    final Structure<NodeInfo> nodeInfo = context.getDb().readInfo(file, NodeInfo.recordedSize, NodeInfo.recordedTime);
+                    Assert.assertEquals(file.length(), nodeInfo.lng(NodeInfo.recordedSize));
+                    Assert.assertEquals(SVNFileUtil.getFileLastModified(file), nodeInfo.lng(NodeInfo.recordedTime) / 1000);
+                    nodeInfo.release();
+                }
+                final Structure<NodeInfo> nodeInfo = context.getDb().readInfo(modifiedFile, NodeInfo.recordedTime);
+                Assert.assertTrue(nodeInfo.lng(NodeInfo.recordedTime) / 1000 != SVNFileUtil.getFileLastModified(modifiedFile));
+                nodeInfo.release();
+            } finally {
+                context.close();
+            }
+
+            final Map<File, SVNStatusType> statuses = getStatuses(svnOperationFactory, workingCopyDirectory);
+            Assert.assertEquals(1, statuses.size());
+            Assert.assertEquals(SVNStatusType.STATUS_MODIFIED, statuses.get(modifiedFile));
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testBulkCheckOnSeveralThreads() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testBulkCheckOnSeveralThreads", options);
+        try {
+            final WorkingCopy workingCopy = checkoutFiles(sandbox);
+            touchFiles(workingCopy);
+            final File modifiedFile = workingCopy.getFile("directory/file5");
+            TestUtil.writeFileContentsString(modifiedFile, "CONTENTS5");
+
+            final List<File> files = new ArrayList<File>();
+            for (int i = 0; i < FILES_COUNT; i++) {
+                files.add(workingCopy.getFile("directory/file" + i));
+            }
+
+            final SVNWCContext context = new SVNWCContext(svnOperationFactory.getOptions(), null);
+            try {
+                final Map<File, Boolean> modified = context.isTextModified(files, false, 4);
+                Assert.assertEquals(FILES_COUNT, modified.size());
+                for (File file : files) {
+                    Assert.assertEquals(file.getName(), Boolean.valueOf(file.equals(modifiedFile)), modified.get(file));
+                }
+
+                // fileinfo is not recorded without a write lock
+                final Structure<NodeInfo> nodeInfo = context.getDb().readInfo(files.get(0), NodeInfo.recordedTime);
+                Assert.assertTrue(nodeInfo.lng(NodeInfo.recordedTime) / 1000 != SVNFileUtil.getFileLastModified(files.get(0)));
+                nodeInfo.release();
+            } finally {
+                context.close();
+            }
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testReusedBuffersCompareOnlyBytesRead() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testReusedBuffersCompareOnlyBytesRead", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+            final byte[] large = new byte[SVNWCContext.STREAM_CHUNK_SIZE * 2 + 100];
+            Arrays.fill(large, (byte) 'a');
+
+            final CommitBuilder commitBuilder = new CommitBuilder(url);
+            commitBuilder.addFile("large", large);
+            commitBuilder.addFile("largeModifiedInSecondChunk", large);
+            commitBuilder.addFile("largeModifiedInLastChunk", large);
+            commitBuilder.addFile("small", "small".getBytes());
+            commitBuilder.commit();
+
+            final WorkingCopy workingCopy = sandbox.checkoutNewWorkingCopy(url);
+            touchFiles(workingCopy, "large", "largeModifiedInSecondChunk", "largeModifiedInLastChunk", "small");
+
+            final byte[] modifiedInSecondChunk = large.clone();
+            modifiedInSecondChunk[SVNWCContext.STREAM_CHUNK_SIZE + 1] = 'b';
+            TestUtil.writeFileContentsString(workingCopy.getFile("largeModifiedInSecondChunk"), new String(modifiedInSecondChunk));
+            final byte[] modifiedInLastChunk = large.clone();
+            modifiedInLastChunk[large.length - 1] = 'b';
+            TestUtil.writeFileContentsString(workingCopy.getFile("largeModifiedInLastChunk"), new String(modifiedInLastChunk));
+
+            // one thread reuses the same buffers for all the files, in this order
+            final List<File> files = new ArrayList<File>();
+            files.add(workingCopy.getFile("largeModifiedInLastChunk"));
+            files.add(workingCopy.getFile("small"));
+            files.add(workingCopy.getFile("large"));
+            files.add(workingCopy.getFile("largeModifiedInSecondChunk"));
+
+            final SVNWCContext context = new SVNWCContext(svnOperationFactory.getOptions(), null);
+            try {
+                final Map<File, Boolean> modified = context.isTextModified(files, false, 1);
+                Assert.assertEquals(Boolean.TRUE, modified.get(workingCopy.getFile("largeModifiedInLastChunk")));
+                Assert.assertEquals(Boolean.FALSE, modified.get(workingCopy.getFile("small")));
+                Assert.assertEquals(Boolean.FALSE, modified.get(workingCopy.getFile("large")));
+                Assert.assertEquals(Boolean.TRUE, modified.get(workingCopy.getFile("largeModifiedInSecondChunk")));
+            } finally {
+                context.close();
+            }
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    private WorkingCopy checkoutFiles(Sandbox sandbox) throws SVNException {
+        final SVNURL url = sandbox.createSvnRepository();
+        final CommitBuilder commitBuilder = new CommitBuilder(url);
+        for (int i = 0; i < FILES_COUNT; i++) {
+            commitBuilder.addFile("directory/file" + i, ("contents" + i).getBytes());
+        }
+        commitBuilder.commit();
+        return sandbox.checkoutNewWorkingCopy(url);
+    }
+
+    private long touchFiles(WorkingCopy workingCopy) {
+        final String[] paths = new String[FILES_COUNT];
+        for (int i = 0; i < FILES_COUNT; i++) {
+            paths[i] = "directory/file" + i;
+        }
+        return touchFiles(workingCopy, paths);
+    }
+
+    /**
+     * Moves modification time of the files back, as if they were restored from an archive.
+     */
+    private long touchFiles(WorkingCopy workingCopy, String... paths) {
+        final long touchTime = (System.currentTimeMillis() / 1000 - 3600) * 1000;
+        for (String path : paths) {
+            Assert.assertTrue(workingCopy.getFile(path).setLastModified(touchTime));
+        }
+        return touchTime;
+    }
+
+    private Map<File, SVNStatusType> getStatuses(SvnOperationFactory svnOperationFactory, File workingCopyDirectory) throws SVNException {
+        final Map<File, SVNStatusType> statuses = new HashMap<File, SVNStatusType>();
+        final SvnGetStatus getStatus = svnOperationFactory.createGetStatus();
+        getStatus.setSingleTarget(SvnTarget.fromFile(workingCopyDirectory));
+        getStatus.setReportAll(false);
+        getStatus.setReceiver(new ISvnObjectReceiver<SvnStatus>() {
+            public void receive(SvnTarget target, SvnStatus status) throws SVNException {
+                statuses.put(status.getPath(), status.getNodeStatus());
+            }
+        });
+        getStatus.run();
+        return statuses;
+    }
+
+    private String getTestName() {
+        return "TextModificationTest";
+    }
+}
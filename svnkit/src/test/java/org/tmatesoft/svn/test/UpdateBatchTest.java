@@ -0,0 +1,285 @@
+package org.tmatesoft.svn.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.sqljet.core.SqlJetErrorCode;
+import org.tmatesoft.sqljet.core.SqlJetException;
+import org.tmatesoft.svn.core.SVNCancelException;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.db.SVNSqlJetDb;
+import org.tmatesoft.svn.core.internal.db.SVNSqlJetDb.Mode;
+import org.tmatesoft.svn.core.internal.db.SVNSqlJetTransaction;
+import org.tmatesoft.svn.core.internal.wc17.db.SVNWCDb;
+import org.tmatesoft.svn.core.wc.ISVNEventHandler;
+import org.tmatesoft.svn.core.wc.SVNEvent;
+import org.tmatesoft.svn.core.wc.SVNEventAction;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+import org.tmatesoft.svn.core.wc.SVNStatusType;
+import org.tmatesoft.svn.core.wc2.ISvnObjectReceiver;
+import org.tmatesoft.svn.core.wc2.SvnCheckout;
+import org.tmatesoft.svn.core.wc2.SvnCleanup;
+import org.tmatesoft.svn.core.wc2.SvnGetStatus;
+import org.tmatesoft.svn.core.wc2.SvnOperationFactory;
+import org.tmatesoft.svn.core.wc2.SvnStatus;
+import org.tmatesoft.svn.core.wc2.SvnTarget;
+import org.tmatesoft.svn.core.wc2.SvnUpdate;
+
+public class UpdateBatchTest {
+
+    private static final String BATCH_SIZE_PROPERTY = "svnkit.wc.updateBatchSize";
+    private static final int DIRECTORIES_COUNT = 3;
+    private static final int FILES_COUNT = 10;
+
+    private String batchSize;
+
+    @Before
+    public void enableBatching() {
+        batchSize = System.getProperty(BATCH_SIZE_PROPERTY);
+        System.setProperty(BATCH_SIZE_PROPERTY, "4");
+    }
+
+    @After
+    public void restoreBatching() {
+        if (batchSize == null) {
+            System.clearProperty(BATCH_SIZE_PROPERTY);
+        } else {
+            System.setProperty(BATCH_SIZE_PROPERTY, batchSize);
+        }
+    }
+
+    @Test
+    public void testCheckoutAndUpdate() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testCheckoutAndUpdate", options);
+        try {
+            final SVNURL url = sandbox.createSvnRepository();
+            final CommitBuilder commitBuilder1 = new CommitBuilder(url);
+            addFiles(commitBuilder1, "contents");
+            commitBuilder1.commit();
+
+            final CommitBuilder commitBuilder2 = new CommitBuilder(url);
+            for (int d = 0; d < DIRECTORIES_COUNT; d++) {
+                commitBuilder2.changeFile("directory" + d + "/file0", "modified".getBytes());
+                commitBuilder2.delete("directory" + d + "/file1");
+                commitBuilder2.addFile("directory" + d + "/added", "added".getBytes());
+            }
+            commitBuilder2.addFile("addedDirectory/file", "added".getBytes());
+            commitBuilder2.commit();
+
+            final File workingCopyDirectory = sandbox.createDirectory("wc");
+            checkout(svnOperationFactory, url, workingCopyDirectory, 1);
+            for (int d = 0; d < DIRECTORIES_COUNT; d++) {
+                for (int f = 0; f < FILES_COUNT; f++) {
+                    final File file = new File(workingCopyDirectory, "directory" + d + "/file" + f);
+                    Assert.assertEquals("contents" + d + f, TestUtil.readFileContentsString(file));
+                }
+            }
+            Assert.assertTrue(getStatuses(svnOperationFactory, workingCopyDirectory).isEmpty());
+
+            Assert.assertEquals(2, update(svnOperationFactory, workingCopyDirectory, null));
+            for (int d = 0; d < DIRECTORIES_COUNT; d++) {
+                Assert.assertEquals("modified", TestUtil.readFileContentsString(new File(workingCopyDirectory, "directory" + d + "/file0")));
+                Assert.assertFalse(new File(workingCopyDirectory, "directory" + d + "/file1").exists());
+                Assert.assertEquals("added", TestUtil.readFileContentsString(new File(workingCopyDirectory, "directory" + d + "/added")));
+            }
+            Assert.assertEquals("added", TestUtil.readFileContentsString(new File(workingCopyDirectory, "addedDirectory/file")));
+            Assert.assertTrue(getStatuses(svnOperationFactory, workingCopyDirectory).isEmpty());
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testCancelledUpdateKeepsWrittenFiles() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testCancelledUpdateKeepsWrittenFiles", options);
+        try {
+            final SVNURL url = createRepositoryWithAddedFiles(sandbox);
+            final File workingCopyDirectory = sandbox.createDirectory("wc");
+            checkout(svnOperationFactory, url, workingCopyDirectory, 1);
+
+            final List<File> addedFiles = new ArrayList<File>();
+            try {
+                update(svnOperationFactory, workingCopyDirectory, new ISVNEventHandler() {
+                    public void handleEvent(SVNEvent event, double progress) throws SVNException {
+                        if (event.getAction() == SVNEventAction.UPDATE_ADD && event.getFile().getName().startsWith("file")) {
+                            if (addedFiles.size() == 6) {
+                                throw new SVNCancelException();
+                            }
+                            addedFiles.add(event.getFile());
+                        }
+                    }
+
+                    public void checkCancelled() {
+                    }
+                });
+                Assert.fail("An exception should be thrown");
+            } catch (SVNCancelException e) {
+                //expected
+            }
+
+            cleanup(svnOperationFactory, workingCopyDirectory);
+            Assert.assertEquals(6, addedFiles.size());
+            final Map<File, SVNStatusType> statuses = getStatuses(svnOperationFactory, workingCopyDirectory);
+            for (File file : addedFiles) {
+                Assert.assertTrue(file.isFile());
+                Assert.assertNull(statuses.get(file));
+            }
+
+            Assert.assertEquals(2, update(svnOperationFactory, workingCopyDirectory, null));
+            assertAddedFiles(workingCopyDirectory);
+            Assert.assertTrue(getStatuses(svnOperationFactory, workingCopyDirectory).isEmpty());
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    @Test
+    public void testUpdateFailsWhenBatchIsRolledBack() throws Exception {
+        final TestOptions options = TestOptions.getInstance();
+        final SvnOperationFactory svnOperationFactory = new SvnOperationFactory();
+        final Sandbox sandbox = Sandbox.createWithCleanup(getTestName() + ".testUpdateFailsWhenBatchIsRolledBack", options);
+        try {
+            final SVNURL url = createRepositoryWithAddedFiles(sandbox);
+            final File workingCopyDirectory = sandbox.createDirectory("wc");
+            checkout(svnOperationFactory, url, workingCopyDirectory, 1);
+
+            final int[] addedFilesCount = new int[1];
+            try {
+                update(svnOperationFactory, workingCopyDirectory, new ISVNEventHandler() {
+                    public void handleEvent(SVNEvent event, double progress) throws SVNException {
+                        if (event.getAction() == SVNEventAction.UPDATE_ADD && event.getFile().getName().startsWith("file")) {
+                            if (++addedFilesCount[0] == 2) {
+                                failNestedTransaction(svnOperationFactory, event.getFile());
+                            }
+                        }
+                    }
+
+                    public void checkCancelled() {
+                    }
+                });
+                Assert.fail("An exception should be thrown");
+            } catch (SVNException e) {
+                Assert.assertEquals(SVNErrorCode.SQLITE_ERROR, e.getErrorMessage().getErrorCode());
+            }
+
+            cleanup(svnOperationFactory, workingCopyDirectory);
+            Assert.assertEquals(2, update(svnOperationFactory, workingCopyDirectory, null));
+            assertAddedFiles(workingCopyDirectory);
+            Assert.assertTrue(getStatuses(svnOperationFactory, workingCopyDirectory).isEmpty());
+        } finally {
+            svnOperationFactory.dispose();
+            sandbox.dispose();
+        }
+    }
+
+    /**
+     * Runs a nested transaction that fails and rolls back the update batch,
+     * as a swallowed database error would.
+     */
+    private void failNestedTransaction(SvnOperationFactory svnOperationFactory, File file) {
+        try {
+            final SVNWCDb db = (SVNWCDb) svnOperationFactory.getWcContext().getDb();
+            final SVNSqlJetDb sdb = db.parseDir(file.getParentFile(), Mode.ReadWrite).wcDbDir.getWCRoot().getSDb();
+            sdb.runTransaction(new SVNSqlJetTransaction() {
+                public void transaction(SVNSqlJetDb db) throws SqlJetException {
+                    throw new SqlJetException(SqlJetErrorCode.CONSTRAINT);
+                }
+            });
+            Assert.fail("An exception should be thrown");
+        } catch (SVNException e) {
+            Assert.assertEquals(SVNErrorCode.SQLITE_ERROR, e.getErrorMessage().getErrorCode());
+        }
+    }
+
+    private SVNURL createRepositoryWithAddedFiles(Sandbox sandbox) throws SVNException {
+        final SVNURL url = sandbox.createSvnRepository();
+        final CommitBuilder commitBuilder1 = new CommitBuilder(url);
+        for (int d = 0; d < DIRECTORIES_COUNT; d++) {
+            commitBuilder1.addDirectory("directory" + d);
+        }
+        commitBuilder1.commit();
+
+        final CommitBuilder commitBuilder2 = new CommitBuilder(url);
+        addFiles(commitBuilder2, "contents");
+        commitBuilder2.commit();
+        return url;
+    }
+
+    private void addFiles(CommitBuilder commitBuilder, String contents) {
+        for (int d = 0; d < DIRECTORIES_COUNT; d++) {
+            for (int f = 0; f < FILES_COUNT; f++) {
+                commitBuilder.addFile("directory" + d + "/file" + f, (contents + d + f).getBytes());
+            }
+        }
+    }
+
+    private void assertAddedFiles(File workingCopyDirectory) throws IOException {
+        for (int d = 0; d < DIRECTORIES_COUNT; d++) {
+            for (int f = 0; f < FILES_COUNT; f++) {
+                final File file = new File(workingCopyDirectory, "directory" + d + "/file" + f);
+                Assert.assertEquals("contents" + d + f, TestUtil.readFileContentsString(file));
+            }
+        }
+    }
+
+    private void checkout(SvnOperationFactory svnOperationFactory, SVNURL url, File workingCopyDirectory, long revision) throws SVNException {
+        final SvnCheckout checkout = svnOperationFactory.createCheckout();
+        checkout.setSingleTarget(SvnTarget.fromFile(workingCopyDirectory));
+        checkout.setSource(SvnTarget.fromURL(url));
+        checkout.setRevision(SVNRevision.create(revision));
+        checkout.run();
+    }
+
+    private long update(SvnOperationFactory svnOperationFactory, File workingCopyDirectory, ISVNEventHandler eventHandler) throws SVNException {
+        svnOperationFactory.setEventHandler(eventHandler);
+        try {
+            final SvnUpdate update = svnOperationFactory.createUpdate();
+            update.setSingleTarget(SvnTarget.fromFile(workingCopyDirectory));
+            update.setDepth(SVNDepth.INFINITY);
+            return update.run()[0];
+        } finally {
+            svnOperationFactory.setEventHandler(null);
+        }
+    }
+
+    private void cleanup(SvnOperationFactory svnOperationFactory, File workingCopyDirectory) throws SVNException {
+        final SvnCleanup cleanup = svnOperationFactory.createCleanup();
+        cleanup.setSingleTarget(SvnTarget.fromFile(workingCopyDirectory));
+        cleanup.run();
+    }
+
+    private Map<File, SVNStatusType> getStatuses(SvnOperationFactory svnOperationFactory, File workingCopyDirectory) throws SVNException {
+        final Map<File, SVNStatusType> statuses = new HashMap<File, SVNStatusType>();
+        final SvnGetStatus getStatus = svnOperationFactory.createGetStatus();
+        getStatus.setSingleTarget(SvnTarget.fromFile(workingCopyDirectory));
+        getStatus.setReportAll(false);
+        getStatus.setReceiver(new ISvnObjectReceiver<SvnStatus>() {
+            public void receive(SvnTarget target, SvnStatus status) throws SVNException {
+                statuses.put(status.getPath(), status.getNodeStatus());
+            }
+        });
+        getStatus.run();
+        return statuses;
+    }
+
+    private String getTestName() {
+        return "UpdateBatchTest";
+    }
+}